@@ -2,6 +2,7 @@ package org.osm2world;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import javax.annotation.Nullable;
@@ -13,7 +14,10 @@ import org.osm2world.map_data.data.MapData;
 import org.osm2world.map_elevation.creation.SRTMData;
 import org.osm2world.math.geo.GeoBounds;
 import org.osm2world.math.geo.LatLon;
+import org.osm2world.math.geo.LatLonBounds;
 import org.osm2world.math.geo.MapProjection;
+import org.osm2world.math.geo.TileNumber;
+import org.osm2world.math.shapes.AxisAlignedRectangleXZ;
 import org.osm2world.osm.creation.OSMDataReader;
 import org.osm2world.output.Output;
 import org.osm2world.scene.Scene;
@@ -69,6 +73,24 @@ public class O2WConverter {
 
 	}
 
+	/**
+	 * variant of {@link #convert(OSMDataReader, GeoBounds, MapProjection, Output...)}
+	 * for outputs which can only be created once the scene exists, e.g. because they need its map projection.
+	 * Unlike outputs written after this method returns, they are included in the conversion's performance log.
+	 *
+	 * @param outputFactory  creates the outputs for the scene
+	 */
+	public Scene convert(OSMDataReader osmDataReader, @Nullable GeoBounds bounds, @Nullable MapProjection mapProjection,
+			SceneOutputFactory outputFactory) throws IOException {
+
+		if (osmDataReader == null) {
+			throw new IllegalArgumentException("osmDataReader is required");
+		}
+
+		return new O2WConverterImpl(config, listeners).convert(osmDataReader, bounds, mapProjection, outputFactory);
+
+	}
+
 	/**
 	 * converts {@link MapData} into a 3D scene
 	 * and optionally writes it to one or more {@link Output}s.
@@ -92,4 +114,68 @@ public class O2WConverter {
 
 	}
 
+	/**
+	 * converts data from an {@link OSMDataReader} for a batch of tiles
+	 * and writes the result for each tile to separate {@link Output}s.
+	 *
+	 * Instead of converting each tile on its own, the data for all tiles is loaded and converted only once.
+	 * This avoids repeating the work for the overlap between neighboring tiles,
+	 * e.g. for objects crossing tile borders.
+	 * The outputs for different tiles are written in parallel using {@link O2WConfig#threadCount()} threads.
+	 *
+	 * @param osmDataReader  input data source
+	 * @param tiles          the tiles to convert, at least one. Usually, these are adjacent tiles.
+	 * @param mapProjection  projection for converting between {@link LatLon} and local coordinates in {@link MapData}.
+	 *                       May be null, in which case a default map projection will be used.
+	 * @param outputFactory  creates the outputs for each tile
+	 * @return               the scene containing all tiles
+	 */
+	public Scene convertTiles(OSMDataReader osmDataReader, Collection<TileNumber> tiles,
+			@Nullable MapProjection mapProjection, TileOutputFactory outputFactory) throws IOException {
+
+		if (osmDataReader == null) {
+			throw new IllegalArgumentException("osmDataReader is required");
+		}
+
+		return new O2WConverterImpl(config, listeners).convertTiles(osmDataReader, tiles, mapProjection,
+				outputFactory);
+
+	}
+
+	/**
+	 * variant of {@link #convertTiles(OSMDataReader, Collection, MapProjection, TileOutputFactory)}
+	 * which converts all tiles at a zoom level that overlap some bounds
+	 */
+	public Scene convertTiles(OSMDataReader osmDataReader, int zoom, LatLonBounds bounds,
+			@Nullable MapProjection mapProjection, TileOutputFactory outputFactory) throws IOException {
+		return convertTiles(osmDataReader, TileNumber.tilesForBounds(zoom, bounds), mapProjection, outputFactory);
+	}
+
+	/**
+	 * creates the outputs for a scene,
+	 * see {@link #convert(OSMDataReader, GeoBounds, MapProjection, SceneOutputFactory)}.
+	 */
+	@FunctionalInterface
+	public interface SceneOutputFactory {
+		List<Output> createOutputs(Scene scene);
+	}
+
+	/**
+	 * creates the outputs for one tile of a batch conversion,
+	 * see {@link #convertTiles(OSMDataReader, Collection, MapProjection, TileOutputFactory)}.
+	 */
+	@FunctionalInterface
+	public interface TileOutputFactory {
+
+		/**
+		 * @param tileBounds  the tile's bounds in the scene's coordinate system. The scene contains data beyond these
+		 *                    bounds, so the outputs need to be created with them to cut their content to the tile.
+		 *                    The outputs' configuration always has {@code clipToBounds} enabled,
+		 *                    so this applies to outputs such as {@link org.osm2world.output.gltf.GltfOutput}
+		 *                    as well as to {@link org.osm2world.output.frontend_pbf.FrontendPbfOutput}.
+		 */
+		List<Output> createOutputs(TileNumber tile, AxisAlignedRectangleXZ tileBounds);
+
+	}
+
 }
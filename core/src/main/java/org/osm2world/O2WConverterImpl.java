@@ -8,6 +8,7 @@ import static java.util.Collections.emptyList;
 import static java.util.Collections.singleton;
 import static java.util.Comparator.comparingDouble;
 import static java.util.Objects.requireNonNullElse;
+import static org.osm2world.conversion.ConversionLog.LogLevel.ERROR;
 import static org.osm2world.conversion.ConversionLog.LogLevel.FATAL;
 import static org.osm2world.conversion.ProgressListener.Phase.FINISHED;
 import static org.osm2world.conversion.ProgressListener.Phase.values;
@@ -22,13 +23,18 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import javax.annotation.Nullable;
 
-import org.osm2world.conversion.ConfigUtil;
+import org.osm2world.O2WConverter.SceneOutputFactory;
+import org.osm2world.O2WConverter.TileOutputFactory;
+import org.osm2world.conversion.ConversionContext;
 import org.osm2world.conversion.ConversionLog;
 import org.osm2world.conversion.O2WConfig;
 import org.osm2world.conversion.ProgressListener;
@@ -40,18 +46,20 @@ import org.osm2world.math.VectorXYZ;
 import org.osm2world.math.datastructures.IndexGrid;
 import org.osm2world.math.datastructures.SpatialIndex;
 import org.osm2world.math.geo.GeoBounds;
+import org.osm2world.math.geo.LatLonBounds;
 import org.osm2world.math.geo.MapProjection;
+import org.osm2world.math.geo.TileBounds;
 import org.osm2world.math.geo.TileNumber;
+import org.osm2world.math.shapes.AxisAlignedRectangleXZ;
 import org.osm2world.math.shapes.FlatSimplePolygonShapeXYZ;
 import org.osm2world.osm.creation.OSMDataReader;
 import org.osm2world.osm.data.OSMData;
 import org.osm2world.output.Output;
 import org.osm2world.output.common.compression.Compression;
 import org.osm2world.output.common.compression.CompressionUtil;
-import org.osm2world.scene.material.Materials;
-import org.osm2world.scene.model.Models;
 import org.osm2world.scene.Scene;
 import org.osm2world.util.FaultTolerantIterationUtil;
+import org.osm2world.util.ParallelExecutionUtil;
 import org.osm2world.world.attachment.AttachmentConnector;
 import org.osm2world.world.attachment.AttachmentSurface;
 import org.osm2world.world.creation.WorldCreator;
@@ -63,6 +71,7 @@ import org.osm2world.world.modules.building.indoor.IndoorModule;
 import org.osm2world.world.modules.traffic_sign.TrafficSignModule;
 
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Streams;
 import com.google.gson.GsonBuilder;
@@ -89,9 +98,42 @@ class O2WConverterImpl {
 	 */
 	Scene convert(OSMDataReader osmDataReader, GeoBounds bounds, MapProjection mapProjection, Output[] outputs)
 			throws IOException{
+		return convert(osmDataReader, bounds, mapProjection, outputs, new PerformanceListener());
+	}
 
-		setUpLogging();
+	/**
+	 * implementation of {@link O2WConverter#convert(OSMDataReader, GeoBounds, MapProjection, SceneOutputFactory)}
+	 */
+	Scene convert(OSMDataReader osmDataReader, GeoBounds bounds, MapProjection mapProjection,
+			SceneOutputFactory outputFactory) throws IOException {
 		var perfListener = new PerformanceListener();
+		return convert(osmDataReader, bounds, mapProjection,
+				new Output[] {new FactoryOutput(outputFactory, perfListener)}, perfListener);
+	}
+
+	/**
+	 * implementation of {@link O2WConverter#convertTiles(OSMDataReader, Collection, MapProjection, TileOutputFactory)}.
+	 * The tiles are converted as a single metatile, and the outputs for each tile are written from the resulting scene.
+	 */
+	Scene convertTiles(OSMDataReader osmDataReader, Collection<TileNumber> tiles,
+			@Nullable MapProjection mapProjection, TileOutputFactory outputFactory) throws IOException {
+
+		if (tiles.isEmpty()) {
+			throw new IllegalArgumentException("at least one tile is required");
+		}
+
+		var perfListener = new PerformanceListener();
+		var batchOutput = new TileBatchOutput(List.copyOf(tiles), outputFactory, perfListener);
+
+		return convert(osmDataReader, TileBounds.around(tiles), mapProjection, new Output[] {batchOutput},
+				perfListener);
+
+	}
+
+	private Scene convert(OSMDataReader osmDataReader, GeoBounds bounds, MapProjection mapProjection,
+			Output[] outputs, PerformanceListener perfListener) throws IOException {
+
+		setUpLogging();
 
 		try {
 
@@ -156,16 +198,23 @@ class O2WConverterImpl {
 	private Scene runConversion(MapData mapData, MapProjection mapProjection, Output[] outputs,
 			PerformanceListener perfListener) {
 
-		outputs = requireNonNullElse(outputs, new Output[0]);
-
 		/* apply world modules */
 		updatePhase(perfListener, ProgressListener.Phase.REPRESENTATION);
 
-		ConfigUtil.parseFonts(config);
-		Materials.configureMaterials(config);
-		Models.configureModels(config);
-		//this will cause problems if multiple conversions are run
-		//at the same time, because global variables are being modified
+		ConversionContext context = ConversionContext.forConfig(config);
+
+		return context.callWith(() -> runConversionInContext(mapData, mapProjection, outputs, perfListener));
+
+	}
+
+	/**
+	 * the part of {@link #runConversion(MapData, MapProjection, Output[], PerformanceListener)}
+	 * which runs with the conversion's {@link ConversionContext} bound to the current thread
+	 */
+	private Scene runConversionInContext(MapData mapData, MapProjection mapProjection, Output[] outputs,
+			PerformanceListener perfListener) {
+
+		outputs = requireNonNullElse(outputs, new Output[0]);
 
 		WorldCreator moduleManager = new WorldCreator(config, createModuleList(config));
 		moduleManager.addRepresentationsTo(mapData);
@@ -196,8 +245,13 @@ class O2WConverterImpl {
 		/* supply results to outputs */
 
 		for (Output output : outputs) {
-			output.setConfiguration(config);
-			output.outputScene(scene);
+			if (output instanceof OutputBatch) {
+				// the outputs created by the batch are timed individually
+				output.setConfiguration(config);
+				output.outputScene(scene);
+			} else {
+				writeOutput(output, config, scene, perfListener);
+			}
 		}
 
 		updatePhase(perfListener, ProgressListener.Phase.FINISHED);
@@ -206,6 +260,14 @@ class O2WConverterImpl {
 
 	}
 
+	/** writes a scene to an output and records the time this takes */
+	private static void writeOutput(Output output, O2WConfig config, Scene scene, PerformanceListener perfListener) {
+		Instant outputStart = now();
+		output.setConfiguration(config);
+		output.outputScene(scene);
+		perfListener.addOutputDuration(output, Duration.between(outputStart, now()));
+	}
+
 	/**
 	 * generates the list of {@link WorldModule}s for the conversion
 	 */
@@ -347,7 +409,18 @@ class O2WConverterImpl {
 
 		/* provide known elevations from eleData to the interpolator */
 
-		if (!(interpolator instanceof ZeroInterpolator)) {
+		if (interpolator instanceof RasterInterpolator rasterInterpolator
+				&& eleData instanceof RasterTerrainElevationData rasterData) {
+
+			try {
+				rasterData.loadRaster(mapData.getDataBoundary().pad(10));
+				rasterInterpolator.setRasterData(rasterData);
+			} catch (IOException e) {
+				ConversionLog.error("Could not read elevation data: " + e.getMessage(), e);
+				interpolator = new ZeroInterpolator();
+			}
+
+		} else if (!(interpolator instanceof ZeroInterpolator)) {
 
 			Collection<VectorXYZ> sites = emptyList();
 
@@ -366,16 +439,37 @@ class O2WConverterImpl {
 
 		}
 
-		/* interpolate terrain elevation for each connector */
+		/* collect the connectors (on this thread, as world objects may create them lazily) */
 
-		final TerrainInterpolator finalInterpolator = interpolator;
+		Map<WorldObject, List<EleConnector>> connectorsPerObject = new LinkedHashMap<>();
 
 		FaultTolerantIterationUtil.forEach(mapData.getWorldObjects(), (WorldObject worldObject) -> {
-			for (EleConnector conn : worldObject.getEleConnectors()) {
-				conn.setPosXYZ(finalInterpolator.interpolateEle(conn.pos));
-			}
+			connectorsPerObject.put(worldObject, Lists.newArrayList(worldObject.getEleConnectors()));
 		});
 
+		/* interpolate terrain elevation for each connector, in parallel if multiple threads are configured.
+		 * The interpolators' results only depend on the position, so this is identical to sequential execution. */
+
+		final TerrainInterpolator finalInterpolator = interpolator;
+
+		@Nullable ForkJoinPool pool = ParallelExecutionUtil.createPool(config.threadCount());
+
+		try {
+			ParallelExecutionUtil.forEach(pool, new ArrayList<>(connectorsPerObject.entrySet()), entry -> {
+				try {
+					for (EleConnector conn : entry.getValue()) {
+						conn.setPosXYZ(finalInterpolator.interpolateEle(conn.pos));
+					}
+				} catch (Exception | AssertionError e) {
+					FaultTolerantIterationUtil.DEFAULT_EXCEPTION_HANDLER.accept(e, entry.getKey());
+				}
+			});
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+
 		/* refine terrain-based elevation with information from map data */
 
 		EleCalculator eleCalculator = config.eleCalculator().get();
@@ -383,7 +477,14 @@ class O2WConverterImpl {
 
 	}
 
+	/**
+	 * notifies listeners about the start of a new phase.
+	 * Also aborts the conversion with a {@link CancellationException} if the thread has been interrupted.
+	 */
 	private void updatePhase(PerformanceListener perfListener, ProgressListener.Phase newPhase) {
+		if (Thread.currentThread().isInterrupted()) {
+			throw new CancellationException("conversion was interrupted before phase " + newPhase);
+		}
 		double progress = newPhase.ordinal() * 1.0 / (ProgressListener.Phase.values().length - 1);
 		for (ProgressListener listener : Iterables.concat(listeners, List.of(perfListener))) {
 			listener.updateProgress(newPhase, progress);
@@ -425,15 +526,25 @@ class O2WConverterImpl {
 			timePerPhase = Map.of();
 		}
 
+		Map<String, Double> timePerOutput = Maps.transformValues(perfListener.getOutputDurations(),
+				it -> it.toMillis() / 1000.0);
+
 		/* write a json file with performance stats */
 
 		try (FileWriter writer = new FileWriter(logDir.toPath().resolve(fileNameBase + ".json").toFile())) {
 
-			Map<String, Object> jsonRoot = Map.of(
+			Map<String, Object> jsonRoot = new HashMap<>(Map.of(
 					"startTime", perfListener.startTime.toString(),
 					"totalTime", totalTime,
-					"timePerPhase", timePerPhase
-			);
+					"timePerPhase", timePerPhase,
+					"timePerOutput", timePerOutput,
+					"counters", ConversionLog.getCounters()
+			));
+
+			if (perfListener.tileCount > 0) {
+				jsonRoot.put("tileCount", perfListener.tileCount);
+				jsonRoot.put("tilesPerMinute", perfListener.tileCount / (totalTime / 60));
+			}
 
 			new GsonBuilder().setPrettyPrinting().create().toJson(jsonRoot, writer);
 
@@ -458,8 +569,18 @@ class O2WConverterImpl {
 					}
 				}
 
+				timePerOutput.forEach((output, time) -> printStream.println(output + ": " + time));
+
 				printStream.println();
 
+				Map<String, Long> counters = ConversionLog.getCounters();
+
+				if (!counters.isEmpty()) {
+					printStream.println("Counters:");
+					counters.forEach((name, value) -> printStream.println(name + ": " + value));
+					printStream.println();
+				}
+
 				List<ConversionLog.Entry> entries = ConversionLog.getLog();
 				int maxLogEntries = config.getInt("maxLogEntries", 100);
 
@@ -487,6 +608,12 @@ class O2WConverterImpl {
 		private final Map<Phase, Instant> phaseStarts = new HashMap<>();
 		private final Map<Phase, Instant> phaseEnds = new HashMap<>();
 
+		/** time spent in each output's {@link Output#outputScene(Scene)}, in the order of the outputs */
+		private final Map<String, Duration> outputDurations = new LinkedHashMap<>();
+
+		/** number of tiles written by a {@link TileBatchOutput}, 0 for other conversions */
+		private int tileCount = 0;
+
 		public Instant getPhaseStart(Phase phase) {
 			if (!phaseStarts.containsKey(phase)) throw new IllegalStateException();
 			return phaseStarts.get(phase);
@@ -511,6 +638,35 @@ class O2WConverterImpl {
 			return durations;
 		}
 
+		public synchronized Map<String, Duration> getOutputDurations() {
+			return new LinkedHashMap<>(outputDurations);
+		}
+
+		public synchronized void addOutputDuration(Output output, Duration duration) {
+			String baseName = outputName(output);
+			String name = baseName;
+			for (int i = 2; outputDurations.containsKey(name); i++) {
+				name = baseName + " (" + i + ")";
+			}
+			outputDurations.put(name, duration);
+		}
+
+		/**
+		 * returns a name for an output which is stable across runs.
+		 * Uses the output's {@link Object#toString()} if it is overridden (usually to include the target file),
+		 * otherwise the name of its class.
+		 */
+		static String outputName(Output output) {
+			String name = output.toString();
+			String defaultName = output.getClass().getName() + "@" + Integer.toHexString(output.hashCode());
+			if (name.equals(defaultName)) {
+				name = output.getClass().getSimpleName().isEmpty()
+						? output.getClass().getName()
+						: output.getClass().getSimpleName();
+			}
+			return name;
+		}
+
 		@Override
 		public void updateProgress(Phase phase, double progress) {
 
@@ -528,4 +684,122 @@ class O2WConverterImpl {
 
 	}
 
+	/** an output which creates other outputs and writes the scene to each of them */
+	private interface OutputBatch extends Output {}
+
+	/** writes a scene to the outputs created for it by a {@link SceneOutputFactory} */
+	private static class FactoryOutput implements OutputBatch {
+
+		private final SceneOutputFactory outputFactory;
+		private final PerformanceListener perfListener;
+
+		private O2WConfig config = new O2WConfig();
+
+		FactoryOutput(SceneOutputFactory outputFactory, PerformanceListener perfListener) {
+			this.outputFactory = outputFactory;
+			this.perfListener = perfListener;
+		}
+
+		@Override
+		public void setConfiguration(O2WConfig config) {
+			this.config = config;
+		}
+
+		@Override
+		public O2WConfig getConfiguration() {
+			return config;
+		}
+
+		@Override
+		public void outputScene(Scene scene) {
+			for (Output output : outputFactory.createOutputs(scene)) {
+				writeOutput(output, config, scene, perfListener);
+			}
+		}
+
+	}
+
+	/**
+	 * writes a scene containing several tiles to the outputs for each tile.
+	 * The tiles are processed in parallel, using {@link O2WConfig#threadCount()} threads.
+	 * Because the scene extends beyond each tile, the outputs are always configured to clip their content
+	 * to the bounds they have been created with (see {@link TileOutputFactory}).
+	 */
+	private static class TileBatchOutput implements OutputBatch {
+
+		private final List<TileNumber> tiles;
+		private final TileOutputFactory outputFactory;
+		private final PerformanceListener perfListener;
+
+		private O2WConfig config = new O2WConfig();
+
+		TileBatchOutput(List<TileNumber> tiles, TileOutputFactory outputFactory, PerformanceListener perfListener) {
+			this.tiles = tiles;
+			this.outputFactory = outputFactory;
+			this.perfListener = perfListener;
+		}
+
+		@Override
+		public void setConfiguration(O2WConfig config) {
+			this.config = config;
+		}
+
+		@Override
+		public O2WConfig getConfiguration() {
+			return config;
+		}
+
+		@Override
+		public void outputScene(Scene scene) {
+
+			MapProjection mapProjection = scene.getMapProjection();
+			assert mapProjection != null;
+
+			O2WConfig tileConfig = config.withProperty("clipToBounds", true);
+
+			AtomicInteger successfulTiles = new AtomicInteger();
+
+			@Nullable ForkJoinPool pool = ParallelExecutionUtil.createPool(config.threadCount());
+
+			try {
+				ParallelExecutionUtil.forEach(pool, tiles, tile -> {
+
+					LatLonBounds tileLatLonBounds = tile.latLonBounds();
+					AxisAlignedRectangleXZ tileBounds = bbox(List.of(
+							mapProjection.toXZ(tileLatLonBounds.getMin()),
+							mapProjection.toXZ(tileLatLonBounds.getMax())));
+
+					boolean success = true;
+
+					for (Output output : outputFactory.createOutputs(tile, tileBounds)) {
+						try {
+							writeOutput(output, tileConfig, scene, perfListener);
+						} catch (Exception e) {
+							ConversionLog.log(ERROR, "Output failed for tile " + tile + ": " + output, e, null);
+							success = false;
+						}
+					}
+
+					if (success) {
+						successfulTiles.incrementAndGet();
+					}
+
+				});
+			} finally {
+				if (pool != null) {
+					pool.shutdown();
+				}
+			}
+
+			perfListener.tileCount += successfulTiles.get();
+
+		}
+
+		@Override
+		public String toString() {
+			return "TileBatchOutput(" + tiles.size() + " tiles)";
+		}
+
+	}
+
 }
@@ -3,6 +3,8 @@ package org.osm2world.conversion;
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * utility class for parsing configuration values
@@ -11,10 +13,14 @@ final public class ConfigUtil {
 
 	private ConfigUtil() { }
 
+	/** font directories which have already been registered by {@link #parseFonts(O2WConfig)} */
+	private static final Set<File> registeredFontDirectories = ConcurrentHashMap.newKeySet();
+
 	/**
 	 * Registers the fonts that exist in the directory specified
 	 * by the "fontDirectory" key in the configuration file.
 	 * The respective fonts can then be used in Font object constructors.
+	 * Fonts are registered globally, so each directory is only processed once.
 	 */
 	public static void parseFonts(O2WConfig config) {
 
@@ -25,6 +31,8 @@ final public class ConfigUtil {
 
 		if(!fontDir.isDirectory()) return;
 
+		if (!registeredFontDirectories.add(fontDir.getAbsoluteFile())) return;
+
 		GraphicsEnvironment gEnv = GraphicsEnvironment.getLocalGraphicsEnvironment();
 
 		File[] listOfFiles = fontDir.listFiles();
@@ -0,0 +1,124 @@
+package org.osm2world.conversion;
+
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import org.osm2world.scene.Scene;
+import org.osm2world.scene.material.MaterialRegistry;
+import org.osm2world.scene.model.ModelRegistry;
+import org.osm2world.util.ParallelExecutionUtil;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * resources for a conversion which are derived from its {@link O2WConfig}, such as materials and models.
+ *
+ * Contexts are immutable. They are created once per distinct configuration (see {@link #forConfig(O2WConfig)})
+ * and shared by all conversions using an equal configuration, even if those conversions run at the same time.
+ *
+ * The context of a running conversion is made available to the code performing the conversion
+ * through {@link #current()}. It is bound to the thread running the conversion using {@link #callWith(Supplier)}.
+ * Code which runs on other threads needs to bind the context explicitly, e.g. by using {@link ParallelExecutionUtil}
+ * or, for work done with a conversion's result, the context returned by {@link Scene#getContext()}.
+ */
+public final class ConversionContext {
+
+	/** maximum number of contexts for different configurations which are kept around for reuse */
+	private static final int MAX_CACHED_CONTEXTS = 16;
+
+	private static final Cache<ContextKey, ConversionContext> contextCache =
+			CacheBuilder.newBuilder().maximumSize(MAX_CACHED_CONTEXTS).build();
+
+	/**
+	 * identifies equivalent configurations. Includes the base path because relative paths of resources
+	 * (such as textures and models) are resolved against it, so equal properties can refer to different files.
+	 */
+	private record ContextKey(Map<String, Object> properties, @Nullable String basePath) {}
+
+	private static final ThreadLocal<ConversionContext> threadContext = new ThreadLocal<>();
+
+	/** holds the context for the default configuration, which is only created when it is first needed */
+	private static final class DefaultContextHolder {
+		static final ConversionContext DEFAULT_CONTEXT = forConfig(new O2WConfig());
+	}
+
+	private final MaterialRegistry materials;
+	private final ModelRegistry models;
+
+	private ConversionContext(O2WConfig config) {
+		ConfigUtil.parseFonts(config);
+		this.materials = MaterialRegistry.fromConfig(config);
+		this.models = ModelRegistry.fromConfig(config);
+	}
+
+	public MaterialRegistry materials() {
+		return materials;
+	}
+
+	public ModelRegistry models() {
+		return models;
+	}
+
+	/**
+	 * returns the context for a configuration.
+	 * Creates a new context if no context exists yet for an equal configuration.
+	 */
+	public static ConversionContext forConfig(O2WConfig config) {
+		try {
+			var key = new ContextKey(config.toPropertyMap(), config.basePath());
+			return contextCache.get(key, () -> new ConversionContext(config));
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * returns the context of the conversion running on the current thread.
+	 * If no context is bound to the thread, the context for the default configuration is returned.
+	 * The configuration of other conversions which are running at the same time is never used.
+	 */
+	public static ConversionContext current() {
+		ConversionContext context = threadContext.get();
+		return context != null ? context : DefaultContextHolder.DEFAULT_CONTEXT;
+	}
+
+	/**
+	 * runs an action with this context as the {@link #current()} context of the current thread.
+	 * The thread's previous context is restored afterward.
+	 */
+	public <T> T callWith(Supplier<T> action) {
+		ConversionContext previousContext = threadContext.get();
+		threadContext.set(this);
+		try {
+			return action.get();
+		} finally {
+			if (previousContext != null) {
+				threadContext.set(previousContext);
+			} else {
+				threadContext.remove();
+			}
+		}
+	}
+
+	/** variant of {@link #callWith(Supplier)} for actions without a result */
+	public void runWith(Runnable action) {
+		callWith(() -> {
+			action.run();
+			return null;
+		});
+	}
+
+	/**
+	 * returns the context explicitly bound to the current thread, or null if there is none.
+	 * Unlike {@link #current()}, this does not fall back to a default context.
+	 * Can be used to hand the context over to worker threads.
+	 */
+	public static @Nullable ConversionContext boundToCurrentThread() {
+		return threadContext.get();
+	}
+
+}
@@ -7,6 +7,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -43,7 +45,11 @@ public class ConversionLog {
 		}
 	}
 
+	/** log entries and counters which have been captured on a worker thread, see {@link #capture(Runnable)} */
+	public record CapturedLog(List<Entry> entries, Map<String, Long> counters) {}
+
 	private static final ThreadLocal<List<Entry>> log = ThreadLocal.withInitial(ArrayList::new);
+	private static final ThreadLocal<Map<String, Long>> counters = ThreadLocal.withInitial(TreeMap::new);
 	private static final ThreadLocal<EnumSet<LogLevel>> consoleLogLevels =
 			ThreadLocal.withInitial(() -> EnumSet.allOf(LogLevel.class));
 
@@ -55,8 +61,58 @@ public class ConversionLog {
 		return Collections.unmodifiableList(log.get());
 	}
 
+	/** returns the values of all counters which have been incremented using {@link #count(String, long)} */
+	public static Map<String, Long> getCounters() {
+		return Collections.unmodifiableMap(new TreeMap<>(counters.get()));
+	}
+
 	public static void clear() {
 		log.get().clear();
+		counters.get().clear();
+	}
+
+	/**
+	 * runs an action and returns the entries and counter increments it has logged on the current thread.
+	 * They are removed from the current thread's log, and the entries are not printed to the console.
+	 * Intended for worker threads, so their log can be handed back to the thread running the conversion
+	 * (see {@link #logAll(CapturedLog)}).
+	 */
+	public static CapturedLog capture(Runnable action) {
+		List<Entry> previousLog = new ArrayList<>(log.get());
+		Map<String, Long> previousCounters = new TreeMap<>(counters.get());
+		EnumSet<LogLevel> previousConsoleLogLevels = consoleLogLevels.get();
+		log.get().clear();
+		counters.get().clear();
+		consoleLogLevels.set(EnumSet.noneOf(LogLevel.class));
+		try {
+			action.run();
+			return new CapturedLog(new ArrayList<>(log.get()), new TreeMap<>(counters.get()));
+		} finally {
+			log.get().clear();
+			log.get().addAll(previousLog);
+			counters.get().clear();
+			counters.get().putAll(previousCounters);
+			consoleLogLevels.set(previousConsoleLogLevels);
+		}
+	}
+
+	/** adds entries and counter increments (e.g. from {@link #capture(Runnable)}) to the current thread's log */
+	public static void logAll(CapturedLog capturedLog) {
+		capturedLog.entries().forEach(ConversionLog::log);
+		capturedLog.counters().forEach(ConversionLog::count);
+	}
+
+	/**
+	 * increments a named counter, such as the number of hits for a cache.
+	 * Counters are included in the performance statistics written to the log directory.
+	 */
+	public static void count(String counter, long increment) {
+		counters.get().merge(counter, increment, Long::sum);
+	}
+
+	/** increments a named counter by 1, see {@link #count(String, long)} */
+	public static void count(String counter) {
+		count(counter, 1);
 	}
 
 	public static void log(Entry entry) {
@@ -6,6 +6,7 @@ import java.awt.*;
 import java.io.File;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -82,6 +83,16 @@ public class O2WConfig {
 		return new O2WConfig(newConfig);
 	}
 
+	/**
+	 * returns all properties of this config as a map.
+	 * Two configs with equal property maps are equivalent.
+	 */
+	public Map<String, Object> toPropertyMap() {
+		Map<String, Object> result = new HashMap<>();
+		config.getKeys().forEachRemaining(key -> result.put(key, config.getProperty(key)));
+		return result;
+	}
+
 	public Iterator<String> getKeys() {
 		return config.getKeys();
 	}
@@ -239,6 +250,24 @@ public class O2WConfig {
 		return getInt("canvasLimit", 1024);
 	}
 
+	/**
+	 * The number of threads to use for those steps of the conversion which can be parallelized.
+	 * A value of 1 (the default) means that the entire conversion runs on the calling thread.
+	 * A value of 0 or less uses one thread per available processor.
+	 */
+	public int threadCount() {
+		int threadCount = getInt("threadCount", 1);
+		return threadCount > 0 ? threadCount : Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Whether outputs apply consecutive per-mesh processing steps in a single pass over the meshes,
+	 * using {@link #threadCount()} threads. The result is the same as when applying each step to all meshes in turn.
+	 */
+	public boolean fuseMeshProcessing() {
+		return getBoolean("fuseMeshProcessing", true);
+	}
+
 	/**
 	 * the algorithm to use for calculating elevations
 	 * @return  a function to create an instance of the calculation algorithm
@@ -288,9 +317,11 @@ public class O2WConfig {
 	public Supplier<TerrainInterpolator> terrainInterpolator() {
 		return switch (config.getString("terrainInterpolator", "")) {
 			case "LinearInterpolator" -> LinearInterpolator::new;
-			case "LeastSquaresInterpolator" -> LeastSquaresInterpolator::new;
+			case "LeastSquaresInterpolator" -> () -> new LeastSquaresInterpolator(threadCount());
 			case "NaturalNeighborInterpolator" -> NaturalNeighborInterpolator::new;
 			case "InverseDistanceWeightingInterpolator" -> InverseDistanceWeightingInterpolator::new;
+			case "BilinearRasterInterpolator" -> () -> new RasterInterpolator(RasterInterpolator.Method.BILINEAR);
+			case "BicubicRasterInterpolator" -> () -> new RasterInterpolator(RasterInterpolator.Method.BICUBIC);
 			default -> ZeroInterpolator::new;
 		};
 	}
@@ -319,14 +350,7 @@ public class O2WConfig {
 
 		File file = new File(fileName);
 
-		String basePath = null;
-		if (this.containsKey("configPath")) {
-			basePath = this.getString("configPath");
-		}
-
-		if (basePath == null && config.getFile() != null) {
-			basePath = config.getFile().getAbsoluteFile().getParent();
-		}
+		String basePath = basePath();
 
 		if (basePath != null) {
 			file = Path.of(basePath).normalize()
@@ -342,6 +366,20 @@ public class O2WConfig {
 
 	}
 
+	/**
+	 * returns the directory which relative file paths in this config are resolved against,
+	 * see {@link #resolveFileConfigProperty(String)}
+	 */
+	@Nullable String basePath() {
+		if (this.containsKey("configPath")) {
+			return this.getString("configPath");
+		} else if (config.getFile() != null) {
+			return config.getFile().getAbsoluteFile().getParent();
+		} else {
+			return null;
+		}
+	}
+
 	private static PropertiesConfiguration loadConfigFiles(File... configFiles) throws ConfigurationException {
 
 		PropertiesConfiguration config = new PropertiesConfiguration();
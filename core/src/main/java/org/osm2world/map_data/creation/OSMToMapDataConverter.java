@@ -9,6 +9,8 @@ import static org.osm2world.math.shapes.AxisAlignedRectangleXZ.bbox;
 import static org.osm2world.util.FaultTolerantIterationUtil.forEach;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.StreamSupport;
 
 import javax.annotation.Nullable;
 
@@ -19,6 +21,7 @@ import org.osm2world.map_data.data.overlaps.*;
 import org.osm2world.math.VectorXZ;
 import org.osm2world.math.algorithms.GeometryUtil;
 import org.osm2world.math.datastructures.IndexGrid;
+import org.osm2world.math.datastructures.PackedRTree;
 import org.osm2world.math.datastructures.SpatialIndex;
 import org.osm2world.math.geo.LatLonBounds;
 import org.osm2world.math.geo.MapProjection;
@@ -28,6 +31,7 @@ import org.osm2world.math.shapes.PolygonWithHolesXZ;
 import org.osm2world.osm.data.OSMData;
 import org.osm2world.osm.ruleset.HardcodedRuleset;
 import org.osm2world.osm.ruleset.Ruleset;
+import org.osm2world.util.ParallelExecutionUtil;
 import org.osm2world.util.exception.InvalidGeometryException;
 
 import de.topobyte.osm4j.core.model.iface.*;
@@ -46,6 +50,12 @@ public class OSMToMapDataConverter {
 
 	private static final Tag MULTIPOLYON_TAG = new Tag("type", "multipolygon");
 
+	/** the maximum number of elements for which an {@link IndexGrid} is used to find overlaps */
+	private static final int GRID_MAX_ELEMENT_COUNT = 20_000;
+
+	/** the average number of elements per cell when an {@link IndexGrid} is used to find overlaps */
+	private static final int GRID_ELEMENTS_PER_CELL = 4;
+
 
 	public OSMToMapDataConverter(MapProjection mapProjection) {
 		this.mapProjection = mapProjection;
@@ -65,7 +75,7 @@ public class OSMToMapDataConverter {
 		MapData mapData = new MapData(mapNodes, mapWays, mapAreas, mapRelations,
 				calculateFileBoundary(osmData.getUnionOfExplicitBounds()));
 
-		calculateIntersectionsInMapData(mapData);
+		calculateIntersectionsInMapData(mapData, config != null ? config.threadCount() : 1);
 
 		return mapData;
 
@@ -314,79 +324,163 @@ public class OSMToMapDataConverter {
 	/**
 	 * calculates intersections and adds the information to the
 	 * {@link MapElement}s
+	 *
+	 * @param threadCount  number of threads for finding overlaps, the result does not depend on it
 	 */
-	private static void calculateIntersectionsInMapData(MapData mapData) {
+	private static void calculateIntersectionsInMapData(MapData mapData, int threadCount) {
+
+		List<MapElement> elements = new ArrayList<>();
+		mapData.getMapElements().forEach(elements::add);
+
+		Map<MapElement, Integer> elementIndices = new IdentityHashMap<>(elements.size());
+		for (int i = 0; i < elements.size(); i++) {
+			elementIndices.put(elements.get(i), i);
+		}
+
+		SpatialIndex<MapElement> index = createSpatialIndex(elements, mapData.getDataBoundary().pad(10));
+
+		/* find the overlaps of each element with all elements preceding it, possibly in parallel */
 
-		AxisAlignedRectangleXZ bounds = mapData.getDataBoundary().pad(10);
-		SpatialIndex<MapElement> index = new IndexGrid<>(bounds, bounds.sizeX() / 1000, bounds.sizeZ() / 1000);
+		ForkJoinPool pool = ParallelExecutionUtil.createPool(threadCount);
 
-		for (MapElement e1 : mapData.getMapElements()) {
+		List<List<MapOverlap<?, ?>>> overlapsPerElement;
 
-			/* collect all nearby elements */
+		try {
 
-			Iterable<MapElement> nearbyElements = index.insertAndProbe(e1);
+			overlapsPerElement = ParallelExecutionUtil.map(pool, elements, e1 -> {
 
-			for (MapElement e2 : nearbyElements) {
+				int i = elementIndices.get(e1);
 
-				if (e1 == e2) { continue; }
+				int[] candidateIndices = StreamSupport.stream(index.probe(e1).spliterator(), false)
+						.mapToInt(elementIndices::get)
+						.filter(j -> j < i)
+						.sorted()
+						.toArray();
 
-				addOverlapBetween(e1, e2);
+				List<MapOverlap<?, ?>> overlaps = new ArrayList<>();
 
+				for (int j : candidateIndices) {
+					MapOverlap<?, ?> overlap = calculateOverlap(e1, elements.get(j));
+					if (overlap != null) {
+						overlaps.add(overlap);
+					}
+				}
+
+				return overlaps;
+
+			});
+
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
 			}
+		}
+
+		/* add the overlaps to the elements (sequentially, and in an order that does not depend on threads) */
+
+		for (List<MapOverlap<?, ?>> overlaps : overlapsPerElement) {
+			overlaps.forEach(OSMToMapDataConverter::addOverlap);
+		}
+
+	}
+
+	/**
+	 * creates a {@link SpatialIndex} containing the elements, choosing the implementation based on the data.
+	 * A grid is cheap to build and works well for small datasets.
+	 * For larger datasets, the elements' density often varies a lot, and some elements cover large parts of the data,
+	 * so a {@link PackedRTree} is used instead.
+	 */
+	static SpatialIndex<MapElement> createSpatialIndex(List<MapElement> elements, AxisAlignedRectangleXZ bounds) {
 
+		if (elements.size() > GRID_MAX_ELEMENT_COUNT) {
+			return new PackedRTree<>(elements);
 		}
 
+		/* choose the number of cells based on the number of elements, with roughly square cells */
+
+		double cellCount = Math.max(1, elements.size() / (double) GRID_ELEMENTS_PER_CELL);
+		double aspectRatio = bounds.sizeX() / bounds.sizeZ();
+
+		int cellCountX = (int) Math.max(1, Math.min(cellCount, Math.round(Math.sqrt(cellCount * aspectRatio))));
+		int cellCountZ = (int) Math.max(1, Math.min(cellCount, Math.round(Math.sqrt(cellCount / aspectRatio))));
+
+		var index = new IndexGrid<MapElement>(bounds, cellCountX, cellCountZ);
+		elements.forEach(index::insert);
+		return index;
+
 	}
 
 	/**
 	 * adds the overlap between two {@link MapElement}s
-	 * to both, if it exists. It calls the appropriate
-	 * subtype-specific addOverlapBetween method
+	 * to both, if it exists.
 	 */
 	static void addOverlapBetween(MapElement e1, MapElement e2) {
+		MapOverlap<?, ?> overlap = calculateOverlap(e1, e2);
+		if (overlap != null) {
+			addOverlap(overlap);
+		}
+	}
+
+	/** adds an overlap to those of its elements which store overlaps */
+	private static void addOverlap(MapOverlap<?, ?> overlap) {
+		for (MapElement element : List.of(overlap.e1, overlap.e2)) {
+			if (element instanceof MapWaySegment s) {
+				s.addOverlap(overlap);
+			} else if (element instanceof MapArea area) {
+				area.addOverlap(overlap);
+			}
+		}
+	}
+
+	/**
+	 * calculates the overlap between two {@link MapElement}s without modifying them.
+	 * It calls the appropriate subtype-specific calculateOverlap method.
+	 *
+	 * @return  the overlap, or null if the elements don't overlap
+	 */
+	static @Nullable MapOverlap<?, ?> calculateOverlap(MapElement e1, MapElement e2) {
 
 		if (e1 instanceof MapWaySegment s1
 				&& e2 instanceof MapWaySegment s2) {
 
-			addOverlapBetween(s1, s2);
+			return calculateOverlap(s1, s2);
 
 		} else if (e1 instanceof MapWaySegment s
 				&& e2 instanceof MapArea area) {
 
-			addOverlapBetween(s, area);
+			return calculateOverlap(s, area);
 
 		} else if (e1 instanceof MapArea area
 				&& e2 instanceof MapWaySegment s) {
 
-			addOverlapBetween(s, area);
+			return calculateOverlap(s, area);
 
 		} else if (e1 instanceof MapArea area1
 				&& e2 instanceof MapArea area2) {
 
-			addOverlapBetween(area1, area2);
+			return calculateOverlap(area1, area2);
 
 		} else if (e1 instanceof MapNode node
 				&& e2 instanceof MapArea area) {
 
-			addOverlapBetween(node, area);
+			return calculateOverlap(node, area);
 
 		} else if (e1 instanceof MapArea area
 				&& e2 instanceof MapNode node) {
 
-			addOverlapBetween(node, area);
+			return calculateOverlap(node, area);
 
 		}
 
+		return null;
+
 	}
 
-	/**
-	 * adds the overlap between two {@link MapWaySegment}s
-	 * to both, if it exists
-	 */
-	private static void addOverlapBetween(
+	/** calculates the overlap between two {@link MapWaySegment}s, if it exists */
+	private static @Nullable MapIntersectionWW calculateOverlap(
 			MapWaySegment line1, MapWaySegment line2) {
 
-		if (line1.isConnectedTo(line2)) { return; }
+		if (line1.isConnectedTo(line2)) { return null; }
 
 		VectorXZ intersection = GeometryUtil.getLineSegmentIntersection(
 				line1.getStartNode().getPos(),
@@ -395,24 +489,18 @@ public class OSMToMapDataConverter {
 				line2.getEndNode().getPos());
 
 		if (intersection != null) {
-
-			/* add the intersection */
-
-			MapIntersectionWW newIntersection =
-				new MapIntersectionWW(line1, line2, intersection);
-
-			line1.addOverlap(newIntersection);
-			line2.addOverlap(newIntersection);
-
+			return new MapIntersectionWW(line1, line2, intersection);
+		} else {
+			return null;
 		}
 
 	}
 
 	/**
-	 * adds the overlap between a {@link MapWaySegment}
-	 * and a {@link MapArea} to both, if it exists
+	 * calculates the overlap between a {@link MapWaySegment}
+	 * and a {@link MapArea}, if it exists
 	 */
-	private static void addOverlapBetween(
+	private static @Nullable MapOverlapWA calculateOverlap(
 			MapWaySegment line, MapArea area) {
 
 		final LineSegmentXZ segmentXZ = line.getLineSegment();
@@ -422,15 +510,9 @@ public class OSMToMapDataConverter {
 		for (MapAreaSegment areaSegment : area.getAreaSegments()) {
 			if (areaSegment.sharesBothNodes(line)) {
 
-				MapOverlapWA newOverlap =
-					new MapOverlapWA(line, area, MapOverlapType.SHARE_SEGMENT,
-							Collections.<VectorXZ>emptyList(),
-							Collections.<MapAreaSegment>emptyList());
-
-				line.addOverlap(newOverlap);
-				area.addOverlap(newOverlap);
-
-				return;
+				return new MapOverlapWA(line, area, MapOverlapType.SHARE_SEGMENT,
+						Collections.<VectorXZ>emptyList(),
+						Collections.<MapAreaSegment>emptyList());
 
 			}
 		}
@@ -477,7 +559,7 @@ public class OSMToMapDataConverter {
 
 		}
 
-		/* add an overlap if detected */
+		/* create an overlap if detected */
 
 		if (contains || intersects) {
 
@@ -506,21 +588,18 @@ public class OSMToMapDataConverter {
 
 			}
 
-			/* add the overlap */
-
-			MapOverlapWA newOverlap = new MapOverlapWA(line, area,
+			return new MapOverlapWA(line, area,
 						intersects ? MapOverlapType.INTERSECT : MapOverlapType.CONTAIN,
 						intersectionPositions, intersectingSegments);
 
-			line.addOverlap(newOverlap);
-			area.addOverlap(newOverlap);
-
 		}
 
+		return null;
+
 	}
 
-	/** adds the overlap between two {@link MapArea}s to both, if it exists */
-	private static void addOverlapBetween(MapArea area1, MapArea area2) {
+	/** calculates the overlap between two {@link MapArea}s, if it exists */
+	private static @Nullable MapOverlapAA calculateOverlap(MapArea area1, MapArea area2) {
 
 		/* check whether the areas have a shared segment */
 
@@ -531,12 +610,7 @@ public class OSMToMapDataConverter {
 			for (MapAreaSegment area2Segment : area2Segments) {
 				if (area1Segment.sharesBothNodes(area2Segment)) {
 
-					MapOverlapAA newOverlap =
-						new MapOverlapAA(area1, area2, MapOverlapType.SHARE_SEGMENT);
-					area1.addOverlap(newOverlap);
-					area2.addOverlap(newOverlap);
-
-					return;
+					return new MapOverlapAA(area1, area2, MapOverlapType.SHARE_SEGMENT);
 
 				}
 			}
@@ -594,40 +668,27 @@ public class OSMToMapDataConverter {
 
 		}
 
-		/* add an overlap if detected */
-
-		if (contains1 || contains2 || intersects) {
-
-			/* add the overlap */
-
-			MapOverlapAA newOverlap = null;
-
-			if (contains1) {
-				newOverlap = new MapOverlapAA(area2, area1, MapOverlapType.CONTAIN);
-			} else if (contains2) {
-				newOverlap = new MapOverlapAA(area1, area2, MapOverlapType.CONTAIN);
-			} else {
-				newOverlap = new MapOverlapAA(area1, area2, MapOverlapType.INTERSECT);
-			}
-
-			area1.addOverlap(newOverlap);
-			area2.addOverlap(newOverlap);
+		/* create an overlap if detected */
 
+		if (contains1) {
+			return new MapOverlapAA(area2, area1, MapOverlapType.CONTAIN);
+		} else if (contains2) {
+			return new MapOverlapAA(area1, area2, MapOverlapType.CONTAIN);
+		} else if (intersects) {
+			return new MapOverlapAA(area1, area2, MapOverlapType.INTERSECT);
+		} else {
+			return null;
 		}
 
 	}
 
-	private static void addOverlapBetween(MapNode node, MapArea area) {
+	/** calculates the overlap between a {@link MapNode} and a {@link MapArea}, if it exists */
+	private static @Nullable MapOverlapNA calculateOverlap(MapNode node, MapArea area) {
 
 		if (area.getPolygon().contains(node.getPos())) {
-
-			/* add the overlap */
-
-			MapOverlapNA newOverlap =
-					new MapOverlapNA(node, area, MapOverlapType.CONTAIN);
-
-			area.addOverlap(newOverlap);
-
+			return new MapOverlapNA(node, area, MapOverlapType.CONTAIN);
+		} else {
+			return null;
 		}
 
 	}
@@ -206,9 +206,10 @@ public class MapArea extends MapRelationElement implements MapElement {
 	}
 
 	/**
-	 * adds a visual representation for this area
+	 * adds a visual representation for this area.
+	 * Can safely be called from multiple threads.
 	 */
-	public void addRepresentation(AreaWorldObject representation) {
+	public synchronized void addRepresentation(AreaWorldObject representation) {
 		this.representations.add(representation);
 	}
 
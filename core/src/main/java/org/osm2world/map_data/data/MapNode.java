@@ -184,9 +184,10 @@ public class MapNode extends MapRelationElement implements MapElement {
 	}
 
 	/**
-	 * adds a visual representation for this node
+	 * adds a visual representation for this node.
+	 * Can safely be called from multiple threads.
 	 */
-	public void addRepresentation(NodeWorldObject representation) {
+	public synchronized void addRepresentation(NodeWorldObject representation) {
 		this.representations.add(representation);
 	}
 
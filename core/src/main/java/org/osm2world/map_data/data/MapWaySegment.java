@@ -79,9 +79,10 @@ public class MapWaySegment extends MapSegment implements MapElement {
 	}
 
 	/**
-	 * adds a visual representation for this way segment
+	 * adds a visual representation for this way segment.
+	 * Can safely be called from multiple threads.
 	 */
-	public void addRepresentation(WaySegmentWorldObject representation) {
+	public synchronized void addRepresentation(WaySegmentWorldObject representation) {
 		this.representations.add(representation);
 	}
 
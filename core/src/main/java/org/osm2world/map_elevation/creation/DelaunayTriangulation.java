@@ -18,7 +18,6 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 
 //TODO: test performance effects of:
-// * starting point choice of the walk
 // * caching circumcircles
 // * only calculating area of triangles that are actually changed
 
@@ -44,6 +43,9 @@ public class DelaunayTriangulation {
 		private DelaunayTriangle neighbor1 = null;
 		private DelaunayTriangle neighbor2 = null;
 
+		/** whether this triangle has been replaced by a flip and is no longer part of the triangulation */
+		private boolean removed = false;
+
 		public DelaunayTriangle(VectorXYZ p0, VectorXYZ p1, VectorXYZ p2) {
 
 			this.p0 = p0;
@@ -137,16 +139,21 @@ public class DelaunayTriangulation {
 		}
 
 		public VectorXZ getCircumcircleCenter() {
+			return circumcircleCenter(p0.xz(), p1.xz(), p2.xz());
+		}
 
-			VectorXZ b = p1.subtract(p0).xz();
-			VectorXZ c = p2.subtract(p0).xz();
+		/** checks whether a point is strictly inside this triangle's circumcircle */
+		public boolean circumcircleContains(VectorXZ point) {
 
-			double d = 2 * (b.x * c.z - b.z * c.x);
+			double adx = p0.x - point.x, adz = p0.z - point.z;
+			double bdx = p1.x - point.x, bdz = p1.z - point.z;
+			double cdx = p2.x - point.x, cdz = p2.z - point.z;
 
-			double rX = (c.z * (b.x * b.x + b.z * b.z) - b.z * (c.x * c.x + c.z * c.z)) / d;
-			double rZ = (b.x * (c.x * c.x + c.z * c.z) - c.x * (b.x * b.x + b.z * b.z)) / d;
+			double det = (adx * adx + adz * adz) * (bdx * cdz - cdx * bdz)
+					- (bdx * bdx + bdz * bdz) * (adx * cdz - cdx * adz)
+					+ (cdx * cdx + cdz * cdz) * (adx * bdz - bdx * adz);
 
-			return new VectorXZ(rX, rZ).add(p0.xz());
+			return det > 0;
 
 		}
 
@@ -252,6 +259,8 @@ public class DelaunayTriangulation {
 				neighbor2.replaceNeighbor(originalTriangle, createdTriangles[2]);
 			}
 
+			originalTriangle.removed = true;
+
 		}
 
 		@Override
@@ -273,6 +282,11 @@ public class DelaunayTriangulation {
 				neighbor2.replaceNeighbor(createdTriangles[2], originalTriangle);
 			}
 
+			originalTriangle.removed = false;
+			for (DelaunayTriangle t : createdTriangles) {
+				t.removed = true;
+			}
+
 		}
 
 		@Override
@@ -353,6 +367,9 @@ public class DelaunayTriangulation {
 			if (neighbors[3] != null)
 				neighbors[3].replaceNeighbor(originalTriangles[1], createdTriangles[1]);
 
+			originalTriangles[0].removed = true;
+			originalTriangles[1].removed = true;
+
 		}
 
 		@Override
@@ -367,6 +384,11 @@ public class DelaunayTriangulation {
 			if (neighbors[3] != null)
 				neighbors[3].replaceNeighbor(createdTriangles[1], originalTriangles[1]);
 
+			originalTriangles[0].removed = false;
+			originalTriangles[1].removed = false;
+			createdTriangles[0].removed = true;
+			createdTriangles[1].removed = true;
+
 		}
 
 		@Override
@@ -483,8 +505,38 @@ public class DelaunayTriangulation {
 	 */
 	public final DelaunayTriangle handleTriangle;
 
+	/**
+	 * number of sites per cell of the {@link #seedTriangles} grid above which the grid is refined
+	 */
+	private static final int SITES_PER_GRID_CELL = 4;
+
+	private static final int MAX_GRID_SIZE = 1024;
+
+	/** order of the Hilbert curve used by {@link #insertAll(Collection)} */
+	private static final int HILBERT_ORDER = 15;
+
+	/** rounds of {@link #insertAll(Collection)} with fewer sites are merged into the first round */
+	private static final int MIN_ROUND_SIZE = 64;
+
+	private final AxisAlignedRectangleXZ bounds;
+
+	/**
+	 * coarse grid covering the bounds, with a recently created triangle near each cell (or null) as the
+	 * starting point for walks to points in that cell. Triangles may have been removed since.
+	 * The grid has {@link #gridSize} rows and columns and is refined as more sites are inserted.
+	 */
+	private DelaunayTriangle[] seedTriangles;
+	private int gridSize = 1;
+
+	private int siteCount = 0;
+
+	/** a triangle created by the most recent insertion, used to start the next insertion if there is no seed */
+	private DelaunayTriangle lastHit;
+
 	public DelaunayTriangulation(AxisAlignedRectangleXZ bounds) {
 
+		this.bounds = bounds;
+
 		VectorXYZ boundV0 = bounds.bottomLeft().xyz(0);
 		VectorXYZ boundV1 = bounds.bottomRight().xyz(0);
 		VectorXYZ boundV2 = bounds.topRight().xyz(0);
@@ -502,6 +554,9 @@ public class DelaunayTriangulation {
 		t1.setNeighbor(0, handleTriangle);
 		handleTriangle.setNeighbor(0, t1);
 
+		seedTriangles = new DelaunayTriangle[] {t1};
+		lastHit = handleTriangle;
+
 	}
 
 	/**
@@ -513,7 +568,66 @@ public class DelaunayTriangulation {
 
 	public Stack<Flip> insert(VectorXYZ point) {
 
-		DelaunayTriangle triangleEnclosingPoint = getEnclosingTriangle(point.xz());
+		Stack<Flip> flipStack = performInsertion(point);
+
+		/* remember a triangle near the point as a starting point for later walks */
+
+		siteCount++;
+
+		if (siteCount > SITES_PER_GRID_CELL * gridSize * gridSize && gridSize < MAX_GRID_SIZE) {
+			refineGrid();
+		}
+
+		seedTriangles[gridCellIndex(point.xz())] = flipStack.peek().getCreatedTriangles()[0];
+
+		return flipStack;
+
+	}
+
+	/**
+	 * inserts multiple points. Produces a valid Delaunay triangulation of the same points; with cocircular points,
+	 * the triangulation may differ from that of insertion in input order.
+	 * Faster than inserting the points individually for large point sets
+	 * because it inserts them in an order which keeps the walks through the triangulation short.
+	 * This is a biased randomized insertion order (BRIO): The points are shuffled and divided into rounds of
+	 * doubling size, and the points within each round are sorted along a Hilbert curve.
+	 */
+	public void insertAll(Collection<VectorXYZ> points) {
+
+		List<VectorXYZ> orderedPoints = new ArrayList<>(points);
+		Collections.shuffle(orderedPoints, new Random(0));
+
+		int end = orderedPoints.size();
+
+		while (end > 0) {
+			int start = (end > 2 * MIN_ROUND_SIZE) ? end / 2 : 0;
+			sortByHilbertIndex(orderedPoints.subList(start, end));
+			end = start;
+		}
+
+		for (VectorXYZ point : orderedPoints) {
+			insert(point);
+		}
+
+		/* replace seeds which have been removed by later insertions */
+
+		for (DelaunayTriangle triangle : getTriangles()) {
+			VectorXZ center = triangle.p0.xz().add(triangle.p1.xz()).add(triangle.p2.xz()).mult(1.0 / 3);
+			int cellIndex = gridCellIndex(center);
+			if (seedTriangles[cellIndex] == null || seedTriangles[cellIndex].removed) {
+				seedTriangles[cellIndex] = triangle;
+			}
+		}
+
+	}
+
+	/**
+	 * inserts a point without updating the {@link #seedTriangles}.
+	 * Used directly for insertions which are undone afterward.
+	 */
+	private Stack<Flip> performInsertion(VectorXYZ point) {
+
+		DelaunayTriangle triangleEnclosingPoint = walk(point.xz(), seedTriangle(point.xz(), lastHit));
 
 		if (triangleEnclosingPoint == null) {
 			System.out.println("null");
@@ -555,13 +669,17 @@ public class DelaunayTriangulation {
 
 		}
 
+		lastHit = flipStack.peek().getCreatedTriangles()[0];
+
 		return flipStack;
 
 	}
 
 	/**
 	 * temporarily inserts a point to calculate its natural neighbors,
-	 * then undoes the insertion
+	 * then undoes the insertion.
+	 *
+	 * @see #getNaturalNeighbors(VectorXZ)
 	 */
 	public NaturalNeighbors probe(VectorXZ point) {
 
@@ -569,7 +687,7 @@ public class DelaunayTriangulation {
 
 		/* insert the point */
 
-		Stack<Flip> flipStack = insert(probePoint);
+		Stack<Flip> flipStack = performInsertion(probePoint);
 
 		/* identify neighbors and modified triangles */
 
@@ -653,6 +771,119 @@ public class DelaunayTriangulation {
 
 	}
 
+	/**
+	 * calculates the natural neighbors of a point and their relative weights without modifying the triangulation.
+	 * The result matches that of {@link #probe(VectorXZ)} up to rounding errors, but this method can be used
+	 * by multiple threads at the same time. The results do not depend on the order of calls.
+	 *
+	 * Instead of inserting the point, this finds the triangles whose circumcircle contains the point.
+	 * These form the cavity which an insertion would re-triangulate (as in the Bowyer-Watson algorithm).
+	 * The weight of each neighbor is the area its Voronoi cell would lose to the point's cell.
+	 */
+	public NaturalNeighbors getNaturalNeighbors(VectorXZ point) {
+
+		DelaunayTriangle enclosingTriangle = getEnclosingTriangle(point);
+
+		for (int i = 0; i <= 2; i++) {
+			VectorXYZ p = enclosingTriangle.getPoint(i);
+			if (p.x == point.x && p.z == point.z) {
+				NaturalNeighbors result = new NaturalNeighbors(List.of(p));
+				result.relativeWeights[0] = 1;
+				return result;
+			}
+		}
+
+		/* find the triangles whose circumcircle contains the point */
+
+		Set<DelaunayTriangle> cavity = new LinkedHashSet<>();
+		cavity.add(enclosingTriangle);
+
+		Queue<DelaunayTriangle> uncheckedTriangles = new ArrayDeque<>();
+		uncheckedTriangles.offer(enclosingTriangle);
+
+		while (!uncheckedTriangles.isEmpty()) {
+			DelaunayTriangle triangle = uncheckedTriangles.poll();
+			for (int i = 0; i <= 2; i++) {
+				DelaunayTriangle neighbor = triangle.getNeighbor(i);
+				if (neighbor != null && neighbor != handleTriangle && !cavity.contains(neighbor)
+						&& neighbor.circumcircleContains(point)) {
+					cavity.add(neighbor);
+					uncheckedTriangles.offer(neighbor);
+				}
+			}
+		}
+
+		/* collect the cavity's boundary edges, indexed by their (counterclockwise) start point */
+
+		Map<VectorXYZ, DelaunayTriangle> boundaryTriangles = new IdentityHashMap<>();
+		Map<VectorXYZ, VectorXYZ> boundaryEdgeEnds = new IdentityHashMap<>();
+		VectorXYZ firstPoint = null;
+
+		for (DelaunayTriangle triangle : cavity) {
+			for (int i = 0; i <= 2; i++) {
+				if (!cavity.contains(triangle.getNeighbor(i))) {
+					VectorXYZ start = triangle.getPoint(i);
+					boundaryTriangles.put(start, triangle);
+					boundaryEdgeEnds.put(start, triangle.getPoint((i + 1) % 3));
+					if (firstPoint == null) {
+						firstPoint = start;
+					}
+				}
+			}
+		}
+
+		/* the neighbors are the points on the boundary, ordered counterclockwise */
+
+		List<VectorXYZ> neighbors = new ArrayList<>(boundaryEdgeEnds.size());
+
+		VectorXYZ currentPoint = firstPoint;
+		do {
+			neighbors.add(currentPoint);
+			currentPoint = boundaryEdgeEnds.get(currentPoint);
+		} while (currentPoint != firstPoint);
+
+		NaturalNeighbors result = new NaturalNeighbors(neighbors);
+
+		/* calculate the area which each neighbor's Voronoi cell would lose to the point's cell */
+
+		double areaSum = 0;
+
+		for (int i = 0; i < neighbors.size(); i++) {
+
+			VectorXYZ prev = neighbors.get((i + neighbors.size() - 1) % neighbors.size());
+			VectorXYZ current = neighbors.get(i);
+			VectorXYZ next = neighbors.get((i + 1) % neighbors.size());
+
+			// the lost area is bounded by the bisector between the neighbor and the point,
+			// and by the Voronoi edges around the neighbor which would be removed by the insertion
+
+			List<VectorXZ> polygon = new ArrayList<>();
+
+			polygon.add(circumcircleCenter(prev.xz(), current.xz(), point));
+
+			DelaunayTriangle triangle = boundaryTriangles.get(prev);
+			polygon.add(triangle.getCircumcircleCenter());
+
+			while (triangle != boundaryTriangles.get(current)) {
+				triangle = triangle.getRightNeighbor(current);
+				polygon.add(triangle.getCircumcircleCenter());
+			}
+
+			polygon.add(circumcircleCenter(current.xz(), next.xz(), point));
+
+			result.relativeWeights[i] = signedArea(polygon);
+			areaSum += result.relativeWeights[i];
+
+		}
+
+		for (int i = 0; i < neighbors.size(); i++) {
+			result.relativeWeights[i] /= areaSum;
+		}
+
+		return result;
+
+	}
+
 	public List<DelaunayTriangle> getIncidentTriangles(final VectorXYZ point) {
 
 		List<DelaunayTriangle> result = new ArrayList<DelaunayTriangle>();
@@ -795,11 +1026,36 @@ public class DelaunayTriangulation {
 	 * @param point  must lie within the triangulation; != null
 	 */
 	public DelaunayTriangle getEnclosingTriangle(VectorXZ point) {
+		return walk(point, seedTriangle(point, handleTriangle));
+	}
+
+	/**
+	 * returns a triangle to start the search for a point's enclosing triangle.
+	 * This is a nearby triangle from the {@link #seedTriangles} grid if possible.
+	 *
+	 * @param fallback  the triangle to use if there is no seed, replaced with {@link #handleTriangle} if it has
+	 *                  been removed
+	 */
+	private DelaunayTriangle seedTriangle(VectorXZ point, DelaunayTriangle fallback) {
 
-		/* use a 'visibility walk' through the triangulation,
-		 * starting at the handleTriangle */
+		DelaunayTriangle seed = seedTriangles[gridCellIndex(point)];
 
-		DelaunayTriangle currentTriangle = handleTriangle;
+		if (seed != null && !seed.removed) {
+			return seed;
+		} else if (!fallback.removed) {
+			return fallback;
+		} else {
+			return handleTriangle;
+		}
+
+	}
+
+	/**
+	 * finds the triangle containing a point using a 'visibility walk' through the triangulation
+	 */
+	private static DelaunayTriangle walk(VectorXZ point, DelaunayTriangle startTriangle) {
+
+		DelaunayTriangle currentTriangle = startTriangle;
 
 		boolean triangleContainsPoint = false;
 
@@ -831,4 +1087,121 @@ public class DelaunayTriangulation {
 
 	}
 
+	private static VectorXZ circumcircleCenter(VectorXZ a, VectorXZ b, VectorXZ c) {
+
+		VectorXZ ab = b.subtract(a);
+		VectorXZ ac = c.subtract(a);
+
+		double d = 2 * (ab.x * ac.z - ab.z * ac.x);
+
+		double rX = (ac.z * (ab.x * ab.x + ab.z * ab.z) - ab.z * (ac.x * ac.x + ac.z * ac.z)) / d;
+		double rZ = (ab.x * (ac.x * ac.x + ac.z * ac.z) - ac.x * (ab.x * ab.x + ab.z * ab.z)) / d;
+
+		return new VectorXZ(rX, rZ).add(a);
+
+	}
+
+	/** returns the area of a polygon, positive if its vertices are ordered clockwise */
+	private static double signedArea(List<VectorXZ> polygon) {
+		double sum = 0;
+		for (int i = 0; i < polygon.size(); i++) {
+			VectorXZ v1 = polygon.get(i);
+			VectorXZ v2 = polygon.get((i + 1) % polygon.size());
+			sum += v1.z * v2.x - v1.x * v2.z;
+		}
+		return sum / 2;
+	}
+
+	/** returns the index of the {@link #seedTriangles} grid cell containing a point */
+	private int gridCellIndex(VectorXZ point) {
+		int x = gridCoord(point.x, bounds.minX, bounds.sizeX(), gridSize);
+		int z = gridCoord(point.z, bounds.minZ, bounds.sizeZ(), gridSize);
+		return z * gridSize + x;
+	}
+
+	/** doubles the resolution of the {@link #seedTriangles} grid, each new cell inherits its parent's seed */
+	private void refineGrid() {
+
+		int newGridSize = gridSize * 2;
+		DelaunayTriangle[] newSeedTriangles = new DelaunayTriangle[newGridSize * newGridSize];
+
+		for (int z = 0; z < newGridSize; z++) {
+			for (int x = 0; x < newGridSize; x++) {
+				newSeedTriangles[z * newGridSize + x] = seedTriangles[(z / 2) * gridSize + (x / 2)];
+			}
+		}
+
+		seedTriangles = newSeedTriangles;
+		gridSize = newGridSize;
+
+	}
+
+	/** sorts points by their index on a Hilbert curve covering the bounds */
+	private void sortByHilbertIndex(List<VectorXYZ> points) {
+
+		int n = 1 << HILBERT_ORDER;
+
+		// each value contains the Hilbert index in the upper bits and the position in the list in the lower bits
+		long[] keys = new long[points.size()];
+
+		for (int i = 0; i < points.size(); i++) {
+			VectorXYZ p = points.get(i);
+			int x = gridCoord(p.x, bounds.minX, bounds.sizeX(), n);
+			int z = gridCoord(p.z, bounds.minZ, bounds.sizeZ(), n);
+			keys[i] = (hilbertIndex(n, x, z) << 32) | i;
+		}
+
+		Arrays.sort(keys);
+
+		List<VectorXYZ> sortedPoints = new ArrayList<>(points.size());
+		for (long key : keys) {
+			sortedPoints.add(points.get((int) key));
+		}
+
+		for (int i = 0; i < points.size(); i++) {
+			points.set(i, sortedPoints.get(i));
+		}
+
+	}
+
+	/**
+	 * returns the distance along a Hilbert curve filling an n×n grid for a cell of that grid
+	 *
+	 * @param n  side length of the grid, must be a power of 2
+	 */
+	static long hilbertIndex(int n, int x, int z) {
+
+		long d = 0;
+
+		for (int s = n / 2; s > 0; s /= 2) {
+
+			int rx = (x & s) > 0 ? 1 : 0;
+			int rz = (z & s) > 0 ? 1 : 0;
+
+			d += (long) s * s * ((3 * rx) ^ rz);
+
+			/* rotate the quadrant */
+
+			if (rz == 0) {
+				if (rx == 1) {
+					x = n - 1 - x;
+					z = n - 1 - z;
+				}
+				int t = x;
+				x = z;
+				z = t;
+			}
+
+		}
+
+		return d;
+
+	}
+
+	/** maps a coordinate to one of the cells of a grid with the given number of cells along that axis */
+	private static int gridCoord(double value, double min, double size, int cellCount) {
+		int result = (int) floor((value - min) / size * cellCount);
+		return max(0, min(cellCount - 1, result));
+	}
+
 }
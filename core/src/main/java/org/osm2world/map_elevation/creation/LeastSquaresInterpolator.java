@@ -1,18 +1,22 @@
 package org.osm2world.map_elevation.creation;
 
-import static java.lang.Math.max;
-import static java.lang.Math.min;
+import static java.lang.Math.*;
 import static org.osm2world.math.shapes.AxisAlignedRectangleXZ.bbox;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
-import org.apache.commons.lang.time.StopWatch;
-import org.apache.commons.math3.linear.*;
+import javax.annotation.Nullable;
+
+import org.osm2world.conversion.ConversionLog;
 import org.osm2world.math.BoundedObject;
 import org.osm2world.math.VectorXYZ;
 import org.osm2world.math.VectorXZ;
 import org.osm2world.math.datastructures.IndexGrid;
 import org.osm2world.math.shapes.AxisAlignedRectangleXZ;
+import org.osm2world.util.ParallelExecutionUtil;
 
 /**
  * uses least squares method to approximate a polynomial at each site,
@@ -24,9 +28,35 @@ public class LeastSquaresInterpolator implements TerrainInterpolator {
 	private static final int SITES_FOR_APPROX = 9;
 	private static final int SITES_FOR_INTERPOL = 29;
 
-	private Collection<SiteWithPolynomial> sites;
+	/* names of the counters with the time (in milliseconds) spent in each part of setKnownSites */
+	static final String GRID_TIME = "leastSquaresGridMillis";
+	static final String NEAREST_SITES_TIME = "leastSquaresNearestSitesMillis";
+	static final String POLYNOMIALS_TIME = "leastSquaresPolynomialsMillis";
+
+	/** scratch space for fitting polynomials, one per thread */
+	private static final ThreadLocal<PolynomialFitter> FITTER = ThreadLocal.withInitial(PolynomialFitter::new);
+
+	private final int threadCount;
+
+	private List<SiteWithPolynomial> sites;
 	private IndexGrid<SiteWithPolynomial> siteGrid;
 
+	/**
+	 * @param threadCount  number of threads used by {@link #setKnownSites(Collection)}, the result does not depend on it
+	 */
+	public LeastSquaresInterpolator(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	public LeastSquaresInterpolator() {
+		this(1);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The time spent on each step is recorded using {@link ConversionLog#count(String, long)}.
+	 */
 	@Override
 	public void setKnownSites(Collection<VectorXYZ> siteVectors) {
 
@@ -34,8 +64,7 @@ public class LeastSquaresInterpolator implements TerrainInterpolator {
 			throw new IllegalArgumentException("No sites with elevation available");
 		}
 
-		StopWatch stopWatch = new StopWatch();
-		stopWatch.start();
+		Instant stepStart = Instant.now();
 
 		sites = new ArrayList<SiteWithPolynomial>(siteVectors.size());
 
@@ -49,63 +78,51 @@ public class LeastSquaresInterpolator implements TerrainInterpolator {
 			siteGrid.insert(s);
 		}
 
-		System.out.println("  time grid: " + stopWatch);
-		stopWatch.reset();
-		stopWatch.start();
-
-		/* approximate a polynomial at each site */
+		stepStart = countTime(GRID_TIME, stepStart);
 
-		Map<SiteWithPolynomial, List<SiteWithPolynomial>> nearestSiteMap
-			= new HashMap<SiteWithPolynomial, List<SiteWithPolynomial>>();
+		@Nullable ForkJoinPool pool = ParallelExecutionUtil.createPool(threadCount);
 
-		for (SiteWithPolynomial site : sites) {
+		try {
 
-			List<SiteWithPolynomial> nearestSites =
-					findNearestSites(site.pos.xz(), SITES_FOR_APPROX, false);
+			/* find the nearest sites for each site */
 
-			nearestSiteMap.put(site, nearestSites);
-
-		}
+			List<List<SiteWithPolynomial>> nearestSitesPerSite = ParallelExecutionUtil.map(pool, sites,
+					site -> findNearestSites(site.pos.xz(), SITES_FOR_APPROX, false));
 
-		System.out.println("  time nearest sites: " + stopWatch);
-		stopWatch.reset();
-		stopWatch.start();
+			stepStart = countTime(NEAREST_SITES_TIME, stepStart);
 
-		calculatePolynomials:
-		for (SiteWithPolynomial site : sites) {
+			/* approximate a polynomial at each site */
 
-			List<SiteWithPolynomial> nearestSites =
-					nearestSiteMap.get(site);
-
-			RealVector vector = new ArrayRealVector(SITES_FOR_APPROX);
-			RealMatrix matrix = new Array2DRowRealMatrix(
-					SITES_FOR_APPROX, DefaultPolynomial.NUM_COEFFS);
-
-			for (int row = 0; row < SITES_FOR_APPROX; row++) {
-				SiteWithPolynomial nearSite = nearestSites.get(row);
-				DefaultPolynomial.populateMatrix(matrix, row, nearSite.pos.x, nearSite.pos.z);
-				vector.setEntry(row, nearSite.pos.y);
+			List<Integer> indices = new ArrayList<>(sites.size());
+			for (int i = 0; i < sites.size(); i++) {
+				indices.add(i);
 			}
 
-			QRDecomposition qr = new QRDecomposition(matrix);
-			RealVector solution = qr.getSolver().solve(vector);
+			List<DefaultPolynomial> polynomials = ParallelExecutionUtil.map(pool, indices,
+					i -> FITTER.get().fit(sites.get(i).pos, nearestSitesPerSite.get(i)));
 
-			double[] coeffs = solution.toArray();
-
-			for (double coeff : coeffs) {
-				if (coeff > 10e3) {
-					continue calculatePolynomials;
-				}
+			for (int i = 0; i < sites.size(); i++) {
+				sites.get(i).setPolynomial(polynomials.get(i));
 			}
 
-			site.setPolynomial(new DefaultPolynomial(coeffs));
+			countTime(POLYNOMIALS_TIME, stepStart);
 
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
 		}
 
-		System.out.println("  time polyonmials: " + stopWatch);
-		stopWatch.reset();
-		stopWatch.start();
+	}
 
+	/**
+	 * adds the time since the start of a step to a counter
+	 * @return  the current time, which is the start of the next step
+	 */
+	private static Instant countTime(String counter, Instant stepStart) {
+		Instant now = Instant.now();
+		ConversionLog.count(counter, Duration.between(stepStart, now).toMillis());
+		return now;
 	}
 
 	@Override
@@ -242,15 +259,28 @@ public class LeastSquaresInterpolator implements TerrainInterpolator {
 					+ coeffs[5] * z*z;
 		}
 
-		public static void populateMatrix(RealMatrix matrix, int row,
-				double x, double z) {
-
-			matrix.setEntry(row, 0, 1);
-			matrix.setEntry(row, 1, x);
-			matrix.setEntry(row, 2, z);
-			matrix.setEntry(row, 3, x*x);
-			matrix.setEntry(row, 4, x*z);
-			matrix.setEntry(row, 5, z*z);
+		/**
+		 * creates a polynomial from the coefficients of a polynomial which has been fitted in local coordinates,
+		 * i.e. one which is evaluated at ((x - center.x) / scale, (z - center.z) / scale)
+		 */
+		private static DefaultPolynomial fromLocalCoeffs(double[] c, VectorXZ center, double scale) {
+
+			double c1 = c[1] / scale;
+			double c2 = c[2] / scale;
+			double c3 = c[3] / (scale * scale);
+			double c4 = c[4] / (scale * scale);
+			double c5 = c[5] / (scale * scale);
+
+			double cx = center.x;
+			double cz = center.z;
+
+			return new DefaultPolynomial(new double[] {
+					c[0] - c1 * cx - c2 * cz + c3 * cx * cx + c4 * cx * cz + c5 * cz * cz,
+					c1 - 2 * c3 * cx - c4 * cz,
+					c2 - 2 * c5 * cz - c4 * cx,
+					c3,
+					c4,
+					c5});
 
 		}
 
@@ -264,6 +294,119 @@ public class LeastSquaresInterpolator implements TerrainInterpolator {
 
 	}
 
+	/**
+	 * fits a {@link DefaultPolynomial} to a small number of sites by solving the normal equations of the
+	 * least squares problem with a Cholesky decomposition. Reuses its arrays, so an instance must not be shared
+	 * between threads. The sites' coordinates are made relative to the site the polynomial belongs to,
+	 * which keeps the normal equations well-conditioned.
+	 */
+	private static final class PolynomialFitter {
+
+		private static final int N = DefaultPolynomial.NUM_COEFFS;
+
+		/** the matrix of the normal equations, A^T A, which is symmetric. Overwritten by its decomposition. */
+		private final double[] ata = new double[N * N];
+
+		/** the right-hand side of the normal equations, A^T y. Overwritten by the solution. */
+		private final double[] aty = new double[N];
+
+		private final double[] row = new double[N];
+
+		/**
+		 * @return  the polynomial, or null if the sites do not determine it (e.g. because they are collinear)
+		 *          or if it has implausibly large coefficients
+		 */
+		@Nullable DefaultPolynomial fit(VectorXYZ site, List<SiteWithPolynomial> nearSites) {
+
+			double scale = 0;
+			for (SiteWithPolynomial nearSite : nearSites) {
+				scale = max(scale, max(abs(nearSite.pos.x - site.x), abs(nearSite.pos.z - site.z)));
+			}
+
+			if (scale == 0) return null;
+
+			/* build the normal equations */
+
+			Arrays.fill(ata, 0);
+			Arrays.fill(aty, 0);
+
+			for (SiteWithPolynomial nearSite : nearSites) {
+
+				double u = (nearSite.pos.x - site.x) / scale;
+				double v = (nearSite.pos.z - site.z) / scale;
+
+				row[0] = 1;
+				row[1] = u;
+				row[2] = v;
+				row[3] = u * u;
+				row[4] = u * v;
+				row[5] = v * v;
+
+				for (int i = 0; i < N; i++) {
+					for (int j = 0; j <= i; j++) {
+						ata[i * N + j] += row[i] * row[j];
+					}
+					aty[i] += row[i] * nearSite.pos.y;
+				}
+
+			}
+
+			/* Cholesky decomposition A^T A = L L^T, with L stored in the lower triangle */
+
+			for (int j = 0; j < N; j++) {
+
+				double d = ata[j * N + j];
+				for (int k = 0; k < j; k++) {
+					d -= ata[j * N + k] * ata[j * N + k];
+				}
+
+				if (!(d > 1e-12 * nearSites.size())) return null; // not positive definite, the matrix is singular
+
+				d = sqrt(d);
+				ata[j * N + j] = d;
+
+				for (int i = j + 1; i < N; i++) {
+					double value = ata[i * N + j];
+					for (int k = 0; k < j; k++) {
+						value -= ata[i * N + k] * ata[j * N + k];
+					}
+					ata[i * N + j] = value / d;
+				}
+
+			}
+
+			/* solve L w = A^T y, then L^T c = w */
+
+			for (int i = 0; i < N; i++) {
+				double value = aty[i];
+				for (int k = 0; k < i; k++) {
+					value -= ata[i * N + k] * aty[k];
+				}
+				aty[i] = value / ata[i * N + i];
+			}
+
+			for (int i = N - 1; i >= 0; i--) {
+				double value = aty[i];
+				for (int k = i + 1; k < N; k++) {
+					value -= ata[k * N + i] * aty[k];
+				}
+				aty[i] = value / ata[i * N + i];
+			}
+
+			DefaultPolynomial polynomial = DefaultPolynomial.fromLocalCoeffs(aty, site.xz(), scale);
+
+			for (double coeff : polynomial.coeffs) {
+				if (coeff > 10e3) {
+					return null;
+				}
+			}
+
+			return polynomial;
+
+		}
+
+	}
+
 	public static final class SiteWithPolynomial implements BoundedObject {
 
 		public final VectorXYZ pos;
@@ -27,24 +27,14 @@ public class NaturalNeighborInterpolator implements TerrainInterpolator {
 		boundingBox = boundingBox.pad(100);
 
 		triangulation = new DelaunayTriangulation(boundingBox);
-
-		int i = 0; //TODO remove
-		int total = sites.size();
-		long startTime = System.currentTimeMillis();
-
-		for (VectorXYZ site : sites) {
-			if (++i % 1000 == 0) System.out.println("KS: " + i + "/" + total
-					+ " after " + ((System.currentTimeMillis() - startTime) / 1e3));
-			triangulation.insert(site);
-
-		}
+		triangulation.insertAll(sites);
 
 	}
 
 	@Override
 	public VectorXYZ interpolateEle(VectorXZ pos) {
 
-		NaturalNeighbors nn = triangulation.probe(pos);
+		NaturalNeighbors nn = triangulation.getNaturalNeighbors(pos);
 
 		double ele = 0;
 
@@ -0,0 +1,154 @@
+package org.osm2world.map_elevation.creation;
+
+import static java.lang.Math.floor;
+
+import java.util.Collection;
+
+import javax.annotation.Nullable;
+
+import org.osm2world.math.VectorXYZ;
+import org.osm2world.math.VectorXZ;
+import org.osm2world.math.geo.LatLon;
+
+/**
+ * interpolates elevation by sampling {@link RasterTerrainElevationData} directly.
+ * Unlike the interpolators based on sites with known elevation, this requires neither a triangulation
+ * nor an object for each raster sample, so setup is nearly free and each query takes constant time.
+ *
+ * If only sites with known elevation are available, this falls back to a {@link LinearInterpolator}.
+ */
+public class RasterInterpolator implements TerrainInterpolator {
+
+	public enum Method {
+		/** weighted average of the 2x2 surrounding samples */
+		BILINEAR,
+		/**
+		 * Catmull-Rom interpolation using the 4x4 surrounding samples. Smoother than {@link #BILINEAR}.
+		 * Falls back to bilinear interpolation next to samples without data.
+		 */
+		BICUBIC
+	}
+
+	private final Method method;
+
+	private @Nullable RasterTerrainElevationData raster = null;
+	private @Nullable TerrainInterpolator fallbackInterpolator = null;
+
+	public RasterInterpolator(Method method) {
+		this.method = method;
+	}
+
+	/**
+	 * sets the raster to sample from.
+	 * The raster data needs to have been loaded with {@link RasterTerrainElevationData#loadRaster}.
+	 */
+	public void setRasterData(RasterTerrainElevationData raster) {
+		this.raster = raster;
+		this.fallbackInterpolator = null;
+	}
+
+	/**
+	 * uses sites instead of raster data. As these need not be arranged in a raster,
+	 * interpolation is delegated to a {@link LinearInterpolator}.
+	 * Prefer {@link #setRasterData(RasterTerrainElevationData)} if raster data is available.
+	 */
+	@Override
+	public void setKnownSites(Collection<VectorXYZ> sites) {
+		this.raster = null;
+		this.fallbackInterpolator = new LinearInterpolator();
+		fallbackInterpolator.setKnownSites(sites);
+	}
+
+	@Override
+	public VectorXYZ interpolateEle(VectorXZ pos) {
+
+		if (fallbackInterpolator != null) {
+			return fallbackInterpolator.interpolateEle(pos);
+		} else if (raster == null) {
+			throw new IllegalStateException("neither raster data nor known sites have been set");
+		}
+
+		LatLon latLon = raster.getProjection().toLatLon(pos);
+
+		double x = latLon.lon * raster.samplesPerDegree() - raster.sampleOffset();
+		double y = latLon.lat * raster.samplesPerDegree() - raster.sampleOffset();
+
+		int x0 = (int) floor(x);
+		int y0 = (int) floor(y);
+		double fx = x - x0;
+		double fy = y - y0;
+
+		double ele = Double.NaN;
+
+		if (method == Method.BICUBIC) {
+			ele = bicubic(x0, y0, fx, fy);
+		}
+
+		if (Double.isNaN(ele)) {
+			ele = bilinear(x0, y0, fx, fy);
+		}
+
+		return pos.xyz(Double.isNaN(ele) ? 0 : ele);
+
+	}
+
+	/**
+	 * bilinear interpolation between the samples (x0, y0) and (x0 + 1, y0 + 1).
+	 * Samples without data are ignored and the weights of the remaining samples are scaled accordingly.
+	 *
+	 * @return  the interpolated value, or NaN if none of the samples has data
+	 */
+	private double bilinear(int x0, int y0, double fx, double fy) {
+
+		double weightedSum = 0;
+		double weightSum = 0;
+
+		for (int dy = 0; dy <= 1; dy++) {
+			for (int dx = 0; dx <= 1; dx++) {
+				double value = raster.getSample(x0 + dx, y0 + dy);
+				if (!Double.isNaN(value)) {
+					double weight = (dx == 0 ? 1 - fx : fx) * (dy == 0 ? 1 - fy : fy);
+					weightedSum += weight * value;
+					weightSum += weight;
+				}
+			}
+		}
+
+		if (weightSum > 0) {
+			return weightedSum / weightSum;
+		} else {
+			return Double.NaN;
+		}
+
+	}
+
+	/**
+	 * bicubic interpolation using the 4x4 samples from (x0 - 1, y0 - 1) to (x0 + 2, y0 + 2)
+	 *
+	 * @return  the interpolated value, or NaN if any of the samples lacks data
+	 */
+	private double bicubic(int x0, int y0, double fx, double fy) {
+
+		double[] rowValues = new double[4];
+
+		for (int dy = -1; dy <= 2; dy++) {
+			rowValues[dy + 1] = catmullRom(
+					raster.getSample(x0 - 1, y0 + dy),
+					raster.getSample(x0, y0 + dy),
+					raster.getSample(x0 + 1, y0 + dy),
+					raster.getSample(x0 + 2, y0 + dy),
+					fx);
+		}
+
+		return catmullRom(rowValues[0], rowValues[1], rowValues[2], rowValues[3], fy);
+
+	}
+
+	/** interpolates between p1 and p2 using a Catmull-Rom spline. NaN inputs result in NaN. */
+	static double catmullRom(double p0, double p1, double p2, double p3, double t) {
+		return p1 + 0.5 * t * (p2 - p0
+				+ t * (2 * p0 - 5 * p1 + 4 * p2 - p3
+				+ t * (3 * (p1 - p2) + p3 - p0)));
+	}
+
+}
@@ -0,0 +1,44 @@
+package org.osm2world.map_elevation.creation;
+
+import java.io.IOException;
+
+import org.osm2world.math.geo.MapProjection;
+import org.osm2world.math.shapes.AxisAlignedRectangleXZ;
+
+/**
+ * terrain elevation data which is a regular raster in geographic coordinates, such as SRTM.
+ * Allows the individual raster samples to be accessed without creating a site for each of them.
+ *
+ * Samples are identified by integer indices. The sample with indices (lonIndex, latIndex) is located at
+ * longitude (lonIndex + {@link #sampleOffset()}) / {@link #samplesPerDegree()}
+ * and latitude (latIndex + {@link #sampleOffset()}) / {@link #samplesPerDegree()}.
+ */
+public interface RasterTerrainElevationData extends TerrainElevationData {
+
+	/** the projection which relates the raster's geographic coordinates to the XZ plane */
+	MapProjection getProjection();
+
+	/** the number of raster samples per degree of latitude or longitude */
+	int samplesPerDegree();
+
+	/**
+	 * offset of the samples from the grid lines, in multiples of the sample spacing.
+	 * 0 if samples are located on the grid lines, 0.5 if they are located at the centers of the raster's cells.
+	 */
+	double sampleOffset();
+
+	/**
+	 * makes sure that the raster data within the bounds is available.
+	 * Must be called before {@link #getSample(int, int)} is used for samples within these bounds.
+	 */
+	void loadRaster(AxisAlignedRectangleXZ bounds) throws IOException;
+
+	/**
+	 * returns the elevation of a single raster sample.
+	 * Safe to call from multiple threads once the data has been loaded.
+	 *
+	 * @return  the elevation, or {@link Double#NaN} if there is no data for the sample
+	 */
+	double getSample(int lonIndex, int latIndex);
+
+}
@@ -4,12 +4,8 @@ import static java.lang.Math.*;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Optional;
-import java.util.regex.Pattern;
 
 import org.osm2world.conversion.ConversionLog;
 import org.osm2world.math.VectorXYZ;
@@ -21,18 +17,27 @@ import org.osm2world.math.shapes.AxisAlignedRectangleXZ;
 /**
  * SRTM data for a part of the planet
  */
-public class SRTMData implements TerrainElevationData {
+public class SRTMData implements RasterTerrainElevationData {
 
 	private final File tileDirectory;
 	private final MapProjection projection;
+	private final SRTMTileCache tileCache;
 	private final SRTMTile[][] tiles;
 
-	public SRTMData(File tileDirectory, MapProjection projection) {
+	/**
+	 * @param tileCache  cache to get the tiles from, usually {@link SRTMTileCache#shared()}
+	 */
+	public SRTMData(File tileDirectory, MapProjection projection, SRTMTileCache tileCache) {
 		this.tileDirectory = tileDirectory;
 		this.projection = projection;
+		this.tileCache = tileCache;
 		this.tiles = new SRTMTile[360][180];
 	}
 
+	public SRTMData(File tileDirectory, MapProjection projection) {
+		this(tileDirectory, projection, SRTMTileCache.shared());
+	}
+
 	public Collection<VectorXYZ> getSites(double minLon, double minLat,
 			double maxLon, double maxLat) throws IOException {
 
@@ -60,60 +65,99 @@ public class SRTMData implements TerrainElevationData {
 
 	@Override
 	public Collection<VectorXYZ> getSites(AxisAlignedRectangleXZ bounds) throws IOException {
+		LatLonBounds b = toPaddedLatLonBounds(bounds);
+		return getSites(b.minlon, b.minlat, b.maxlon, b.maxlat);
+	}
 
-		var latLonBounds = new LatLonBounds(
-				projection.toLatLon(bounds.bottomLeft()),
-				projection.toLatLon(bounds.topRight()));
+	@Override
+	public MapProjection getProjection() {
+		return projection;
+	}
+
+	/**
+	 * returns the number of samples per degree.
+	 * This matches the positions of the sites returned by {@link #getSites(AxisAlignedRectangleXZ)}.
+	 */
+	@Override
+	public int samplesPerDegree() {
+		return SRTMTile.PIXELS;
+	}
+
+	/** SRTM samples are placed at pixel centers, see {@link #getSites(AxisAlignedRectangleXZ)} */
+	@Override
+	public double sampleOffset() {
+		return 0.5;
+	}
 
-		double minLon = latLonBounds.minlon;
-		double minLat = latLonBounds.minlat;
-		double maxLon = latLonBounds.maxlon;
-		double maxLat = latLonBounds.maxlat;
+	@Override
+	public void loadRaster(AxisAlignedRectangleXZ bounds) throws IOException {
 
-		// add a small seam for robustness
-		minLon -= 0.005; minLat -= 0.005;
-		maxLon += 0.005; maxLat += 0.005;
+		LatLonBounds b = toPaddedLatLonBounds(bounds);
 
-		return getSites(minLon, minLat, maxLon, maxLat);
+		for (int lon = (int)floor(b.minlon); lon < (int)ceil(b.maxlon); lon++) {
+			for (int lat = (int)floor(b.minlat); lat < (int)ceil(b.maxlat); lat++) {
+				loadTileIfNecessary(lon, lat);
+			}
+		}
 
 	}
 
-	private void loadTileIfNecessary(int lon, int lat) throws IOException {
+	@Override
+	public double getSample(int lonIndex, int latIndex) {
 
-		if (getTile(lon, lat) == null) {
+		int tileLon = floorDiv(lonIndex, SRTMTile.PIXELS);
+		int tileLat = floorDiv(latIndex, SRTMTile.PIXELS);
 
-			String fileNameRegex = "";
+		if (tileLon < -180 || tileLon >= 180 || tileLat < -90 || tileLat >= 90) {
+			return Double.NaN;
+		}
 
-			if (lat >= 0) {
-				fileNameRegex += String.format("N%02d", lat);
-			} else {
-				fileNameRegex += String.format("S%02d", -lat);
-			}
+		SRTMTile tile = getTile(tileLon, tileLat);
 
-			if (lon >= 0) {
-				fileNameRegex += String.format("E%03d", lon);
-			} else {
-				fileNameRegex += String.format("W%03d", -lon);
-			}
+		if (tile == null) {
+			return Double.NaN;
+		}
+
+		short value = tile.getData(lonIndex - tileLon * SRTMTile.PIXELS, latIndex - tileLat * SRTMTile.PIXELS);
+
+		return value == SRTMTile.BLANK_VALUE ? Double.NaN : value;
+
+	}
+
+	private LatLonBounds toPaddedLatLonBounds(AxisAlignedRectangleXZ bounds) {
 
-			fileNameRegex += "(?:\\.SRTMGL3)?\\.hgt(?:\\.zip)?";
+		var latLonBounds = new LatLonBounds(
+				projection.toLatLon(bounds.bottomLeft()),
+				projection.toLatLon(bounds.topRight()));
+
+		// add a small seam for robustness
+		return new LatLonBounds(
+				latLonBounds.minlat - 0.005, latLonBounds.minlon - 0.005,
+				latLonBounds.maxlat + 0.005, latLonBounds.maxlon + 0.005);
+
+	}
+
+	private void loadTileIfNecessary(int lon, int lat) throws IOException {
 
-			Pattern pattern = Pattern.compile(fileNameRegex);
+		if (getTile(lon, lat) == null) {
 
-			Optional<Path> path = Files.list(tileDirectory.toPath())
-					.filter(it -> pattern.matcher(it.getFileName().toString()).matches())
-					.findFirst();
+			SRTMTile tile = tileCache.getTile(tileDirectory, lon, lat);
 
-			if (path.isPresent()) {
-				setTile(lon, lat, new SRTMTile(path.get().toFile()));
+			if (tile != null) {
+				setTile(lon, lat, tile);
 			} else {
-				ConversionLog.error("Missing SRTM tile " + fileNameRegex);
+				ConversionLog.error("Missing SRTM tile " + tileName(lon, lat));
 			}
 
 		}
 
 	}
 
+	/** returns the name of a tile, as used at the beginning of its file name (e.g. N04E033) */
+	private static String tileName(int lon, int lat) {
+		return String.format("%s%02d%s%03d", lat >= 0 ? "N" : "S", abs(lat), lon >= 0 ? "E" : "W", abs(lon));
+	}
+
 	private void addTileSites(Collection<VectorXYZ> result,
 			int tileLon, int tileLat,
 			double minLon, double minLat, double maxLon, double maxLat) {
@@ -1,11 +1,11 @@
 package org.osm2world.map_elevation.creation;
 
 import java.io.*;
-import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.ShortBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -61,7 +61,6 @@ class SRTMTile {
 						// convert bytes to string
 						byte[] zipFileBytes = bos.toByteArray();
 						payloadData = ByteBuffer.wrap(zipFileBytes);
-						payloadData.position(zipFileBytes.length);
 
 						break;
 
@@ -78,16 +77,10 @@ class SRTMTile {
 
 		} else {
 
-			try (
-				FileInputStream fis = new FileInputStream(file);
-				FileChannel fc = fis.getChannel()
-			) {
-
-				ByteBuffer bb = ByteBuffer.allocateDirect((int) fc.size());
-				while (bb.remaining() > 0) fc.read(bb);
-
-				return loadDataFromByteBuffer(bb);
+			/* map the file read-only, the OS will only page in the parts which are actually used */
 
+			try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				return loadDataFromByteBuffer(fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size()));
 			}
 
 		}
@@ -96,8 +89,6 @@ class SRTMTile {
 
 	private static ShortBuffer loadDataFromByteBuffer(@Nonnull ByteBuffer data) throws IOException {
 
-		((Buffer)data).flip();
-
 		// choose the right endianness
 		ShortBuffer shortBuffer = data.order(ByteOrder.BIG_ENDIAN).asShortBuffer();
 
@@ -109,6 +100,7 @@ class SRTMTile {
 
 	}
 
+	/** returns the elevation value of a pixel. Safe to call from multiple threads. */
 	public final short getData(int x, int y) {
 		assert 0 <= x && x < PIXELS && 0 <= y && y < PIXELS;
 		return data.get((1200 - y) * 1201 + x);
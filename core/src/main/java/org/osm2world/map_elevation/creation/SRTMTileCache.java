@@ -0,0 +1,159 @@
+package org.osm2world.map_elevation.creation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
+
+/**
+ * a thread-safe cache of {@link SRTMTile}s which can be shared by multiple {@link SRTMData} instances,
+ * so that converting many areas within one process doesn't read the same files again and again.
+ *
+ * Uncompressed tiles are memory-mapped and kept indefinitely, as they don't occupy heap memory.
+ * Zipped tiles need to be unzipped into memory and are therefore only kept for a limited number of tiles,
+ * with the least recently used ones being evicted first.
+ */
+public class SRTMTileCache {
+
+	/** the default value for the maximum number of unzipped tiles, each of which takes about 2.9 MB of memory */
+	public static final int DEFAULT_MAX_UNZIPPED_TILES = 32;
+
+	private static final SRTMTileCache SHARED = new SRTMTileCache(DEFAULT_MAX_UNZIPPED_TILES);
+
+	private static final Pattern FILE_NAME_PATTERN =
+			Pattern.compile("([NS])(\\d{2})([EW])(\\d{3})(?:\\.SRTMGL3)?\\.hgt(?:\\.zip)?");
+
+	private record TileKey(int lon, int lat) {}
+
+	/**
+	 * the tile files in a directory.
+	 * Also stores the directory's modification time in order to notice when files are added or removed.
+	 */
+	private record DirectoryIndex(long lastModified, Map<TileKey, Path> files) {}
+
+	private final Map<Path, DirectoryIndex> directoryIndexes = new ConcurrentHashMap<>();
+
+	private final Map<Path, SRTMTile> mappedTiles = new ConcurrentHashMap<>();
+
+	/** LRU cache of unzipped tiles, all access needs to be synchronized on the map */
+	private final Map<Path, SRTMTile> unzippedTiles;
+
+	/**
+	 * @param maxUnzippedTiles  the maximum number of tiles from zip files which are kept in memory.
+	 *                          If this is 0, zipped tiles are unzipped again each time they are requested.
+	 */
+	public SRTMTileCache(int maxUnzippedTiles) {
+
+		if (maxUnzippedTiles < 0) {
+			throw new IllegalArgumentException("invalid cache size: " + maxUnzippedTiles);
+		}
+
+		unzippedTiles = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Path, SRTMTile> eldest) {
+				return size() > maxUnzippedTiles;
+			}
+		};
+
+	}
+
+	/** returns the cache which is shared by all {@link SRTMData} instances unless they are given a different one */
+	public static SRTMTileCache shared() {
+		return SHARED;
+	}
+
+	/**
+	 * returns the tile for a 1x1 degree area from a directory of tile files, loading it if necessary.
+	 *
+	 * @param lon  the longitude of the tile's western edge
+	 * @param lat  the latitude of the tile's southern edge
+	 * @return  the tile, or null if the directory contains no file for this tile
+	 */
+	@Nullable SRTMTile getTile(File tileDirectory, int lon, int lat) throws IOException {
+
+		Path path = getIndex(tileDirectory.toPath()).files.get(new TileKey(lon, lat));
+
+		if (path == null) {
+			return null;
+		} else if (isZipFile(path)) {
+			return getUnzippedTile(path);
+		} else {
+			try {
+				return mappedTiles.computeIfAbsent(path, p -> {
+					try {
+						return new SRTMTile(p.toFile());
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		}
+
+	}
+
+	private SRTMTile getUnzippedTile(Path path) throws IOException {
+
+		synchronized (unzippedTiles) {
+			SRTMTile tile = unzippedTiles.get(path);
+			if (tile != null) return tile;
+		}
+
+		// unzip without holding the lock. Another thread may be unzipping the same tile, which is harmless.
+		SRTMTile tile = new SRTMTile(path.toFile());
+
+		synchronized (unzippedTiles) {
+			SRTMTile existingTile = unzippedTiles.putIfAbsent(path, tile);
+			return existingTile != null ? existingTile : tile;
+		}
+
+	}
+
+	/** returns the index of a directory's tile files, building it if it doesn't exist or is outdated */
+	private DirectoryIndex getIndex(Path directory) throws IOException {
+
+		long lastModified = directory.toFile().lastModified();
+
+		DirectoryIndex index = directoryIndexes.get(directory);
+
+		if (index == null || index.lastModified != lastModified) {
+
+			Map<TileKey, Path> files = new HashMap<>();
+
+			try (Stream<Path> paths = Files.list(directory)) {
+				paths.forEach(path -> {
+					Matcher matcher = FILE_NAME_PATTERN.matcher(path.getFileName().toString());
+					if (matcher.matches()) {
+						int lat = Integer.parseInt(matcher.group(2)) * (matcher.group(1).equals("N") ? 1 : -1);
+						int lon = Integer.parseInt(matcher.group(4)) * (matcher.group(3).equals("E") ? 1 : -1);
+						// prefer uncompressed files if both variants are present because they can be memory-mapped
+						files.merge(new TileKey(lon, lat), path, (p1, p2) -> isZipFile(p1) ? p2 : p1);
+					}
+				});
+			}
+
+			index = new DirectoryIndex(lastModified, files);
+			directoryIndexes.put(directory, index);
+
+		}
+
+		return index;
+
+	}
+
+	private static boolean isZipFile(Path path) {
+		return path.getFileName().toString().endsWith(".zip");
+	}
+
+}
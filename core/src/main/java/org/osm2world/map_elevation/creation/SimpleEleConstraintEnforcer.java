@@ -1,10 +1,9 @@
 package org.osm2world.map_elevation.creation;
 
-import static java.util.Arrays.asList;
-
 import java.util.*;
 
 import org.osm2world.map_elevation.data.EleConnector;
+import org.osm2world.math.VectorXZ;
 
 /**
  * enforcer implementation that ignores many of the constraints,
@@ -19,23 +18,31 @@ public final class SimpleEleConstraintEnforcer implements EleConstraintEnforcer
 	private Collection<EleConnector> connectors = new ArrayList<EleConnector>();
 
 	/**
-	 * associates each EleConnector with the {@link StiffConnectorSet}
-	 * it is part of (if any)
+	 * all connectors added so far, grouped by position.
+	 * Only connectors at the same position can connect to each other,
+	 * so these are the only candidates that need to be checked with {@link EleConnector#connectsTo(EleConnector)}.
 	 */
-	private Map<EleConnector, StiffConnectorSet> stiffSetMap =
-			new HashMap<EleConnector, StiffConnectorSet>();
+	private final Map<PositionKey, List<EleConnector>> connectorsByPosition = new HashMap<>();
+
+	/** the connectors which are part of a stiff set, along with their index in {@link #stiffSets} */
+	private final Map<EleConnector, Integer> stiffSetIndices = new HashMap<>();
+	private final List<EleConnector> stiffSetConnectors = new ArrayList<>();
+
+	/** the stiff sets, i.e. sets of connectors which are required to have the same elevation */
+	private final UnionFind stiffSets = new UnionFind();
 
 	@Override
 	public void addConnectors(Iterable<EleConnector> newConnectors) {
 
 		for (EleConnector c : newConnectors) {
 			connectors.add(c);
+			connectorsByPosition.computeIfAbsent(new PositionKey(c.pos), k -> new ArrayList<>(2)).add(c);
 		}
 
 		/* connect connectors */
 
 		for (EleConnector c1 : newConnectors) {
-			for (EleConnector c2 : connectors) {
+			for (EleConnector c2 : connectorsByPosition.get(new PositionKey(c1.pos))) {
 
 				if (c1 != c2 && c1.connectsTo(c2)) {
 					requireSameEle(c1, c2);
@@ -48,73 +55,31 @@ public final class SimpleEleConstraintEnforcer implements EleConstraintEnforcer
 
 	@Override
 	public void requireSameEle(EleConnector c1, EleConnector c2) {
-
-		//SUGGEST (performance): a special case implementation would be faster
-
-		requireSameEle(asList(c1, c2));
-
+		stiffSets.union(stiffSetIndex(c1), stiffSetIndex(c2));
 	}
 
 	@Override
 	public void requireSameEle(Iterable<EleConnector> cs) {
 
-		/* find stiff sets containing any of the affected connectors */
-
-		Set<EleConnector> looseConnectors = new HashSet<EleConnector>();
-		Set<StiffConnectorSet> existingStiffSets = new HashSet<StiffConnectorSet>();
+		int firstIndex = -1;
 
 		for (EleConnector c : cs) {
-
-			StiffConnectorSet stiffSet = stiffSetMap.get(c);
-
-			if (stiffSet != null) {
-				existingStiffSets.add(stiffSet);
+			int index = stiffSetIndex(c);
+			if (firstIndex < 0) {
+				firstIndex = index;
 			} else {
-				looseConnectors.add(c);
-			}
-
-		}
-
-		/* return if the connectors are already in a set together */
-
-		if (existingStiffSets.size() == 1 && looseConnectors.isEmpty()) return;
-
-		/* merge existing sets (if any) into a single set */
-
-		StiffConnectorSet commonStiffSet = null;
-
-		if (existingStiffSets.isEmpty()) {
-			commonStiffSet = new StiffConnectorSet();
-		} else {
-
-			for (StiffConnectorSet stiffSet : existingStiffSets) {
-
-				if (commonStiffSet == null) {
-					commonStiffSet = stiffSet;
-				} else {
-
-					for (EleConnector c : stiffSet) {
-						stiffSetMap.put(c, commonStiffSet);
-					}
-
-					commonStiffSet.mergeFrom(stiffSet);
-
-				}
-
+				stiffSets.union(firstIndex, index);
 			}
-
 		}
 
-		/* add remaining (loose) connectors into the common set */
-
-		for (EleConnector c : looseConnectors) {
-
-			commonStiffSet.add(c);
-
-			stiffSetMap.put(c, commonStiffSet);
-
-		}
+	}
 
+	/** returns a connector's index in {@link #stiffSets}, adding it as a new set of its own if necessary */
+	private int stiffSetIndex(EleConnector c) {
+		return stiffSetIndices.computeIfAbsent(c, k -> {
+			stiffSetConnectors.add(c);
+			return stiffSets.add();
+		});
 	}
 
 	@Override
@@ -149,9 +114,16 @@ public final class SimpleEleConstraintEnforcer implements EleConstraintEnforcer
 		/* assign elevation to stiff sets by averaging terrain elevation */
 		//TODO what for stiff sets above the ground?
 
-		for (StiffConnectorSet stiffSet : stiffSetMap.values()) {
+		Map<Integer, List<EleConnector>> connectorsByStiffSet = new LinkedHashMap<>();
+
+		for (int i = 0; i < stiffSetConnectors.size(); i++) {
+			connectorsByStiffSet.computeIfAbsent(stiffSets.find(i), k -> new ArrayList<>())
+					.add(stiffSetConnectors.get(i));
+		}
 
-			double averageEle = stiffSet.connectors.stream()
+		for (List<EleConnector> stiffSet : connectorsByStiffSet.values()) {
+
+			double averageEle = stiffSet.stream()
 					.filter(it -> it.getPosXYZ() != null)
 					.mapToDouble(it -> it.getPosXYZ().y)
 					.average().orElse(0.0);
@@ -184,43 +156,74 @@ public final class SimpleEleConstraintEnforcer implements EleConstraintEnforcer
 	}
 
 	/**
-	 * a set of connectors that are required to have the same elevation
-	 * TODO or a precise vertical offset
+	 * key for grouping connectors by position.
+	 * Treats positions as equal according to the same criteria as {@link VectorXZ#equals(Object)},
+	 * which (unlike {@link VectorXZ#hashCode()}) does not distinguish between 0.0 and -0.0.
 	 */
-	private static class StiffConnectorSet implements Iterable<EleConnector> {
+	private record PositionKey(double x, double z) {
+		PositionKey(VectorXZ pos) {
+			this(pos.x + 0.0, pos.z + 0.0); // adding 0.0 turns -0.0 into 0.0
+		}
+	}
 
-		//TODO maybe look for a more efficient set implementation
-		private Set<EleConnector> connectors = new HashSet<EleConnector>();
+	/**
+	 * union-find (disjoint set) structure for the stiff sets, identified by int indices.
+	 * Uses union by size and path compression, resulting in nearly constant time per operation.
+	 */
+	private static class UnionFind {
 
-		/**
-		 * adds a connector to this set, requiring it to be at the set's
-		 * reference elevation
-		 */
-		public void add(EleConnector connector) {
-			connectors.add(connector);
+		private int[] parents = new int[16];
+		private int[] sizes = new int[16];
+		private int count = 0;
+
+		/** adds a new set containing only a single element, and returns the index of that element */
+		public int add() {
+			if (count == parents.length) {
+				parents = Arrays.copyOf(parents, 2 * count);
+				sizes = Arrays.copyOf(sizes, 2 * count);
+			}
+			parents[count] = count;
+			sizes[count] = 1;
+			return count++;
 		}
 
-		/**
-		 * combines this set with another, and makes the other set unusable.
-		 * This set will contain all {@link EleConnector}s from the other set
-		 * afterwards.
-		 */
-		public void mergeFrom(StiffConnectorSet otherSet) {
+		/** returns the representative element of the set containing an element */
+		public int find(int element) {
 
-			connectors.addAll(otherSet.connectors);
+			int root = element;
+			while (parents[root] != root) {
+				root = parents[root];
+			}
 
-			// make sure that the other set cannot be used anymore
-			otherSet.connectors = null;
+			/* path compression */
 
-		}
+			while (parents[element] != root) {
+				int next = parents[element];
+				parents[element] = root;
+				element = next;
+			}
+
+			return root;
 
-		public double size() {
-			return connectors.size();
 		}
 
-		@Override
-		public Iterator<EleConnector> iterator() {
-			return connectors.iterator();
+		/** merges the sets containing two elements */
+		public void union(int element1, int element2) {
+
+			int root1 = find(element1);
+			int root2 = find(element2);
+
+			if (root1 == root2) return;
+
+			if (sizes[root1] < sizes[root2]) {
+				int temp = root1;
+				root1 = root2;
+				root2 = temp;
+			}
+
+			parents[root2] = root1;
+			sizes[root1] += sizes[root2];
+
 		}
 
 	}
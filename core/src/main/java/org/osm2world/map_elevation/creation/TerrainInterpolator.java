@@ -15,6 +15,11 @@ public interface TerrainInterpolator {
 	 */
 	void setKnownSites(Collection<VectorXYZ> sites);
 
+	/**
+	 * returns the interpolated elevation at a position.
+	 * Must not modify the interpolator, so it can be called by multiple threads once the known sites have been set.
+	 * The result must only depend on the position, not on previous calls.
+	 */
 	VectorXYZ interpolateEle(VectorXZ pos);
 
 }
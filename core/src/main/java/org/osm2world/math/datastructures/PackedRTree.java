@@ -0,0 +1,251 @@
+package org.osm2world.math.datastructures;
+
+import static java.lang.Math.ceil;
+import static java.lang.Math.sqrt;
+import static java.util.Comparator.comparingDouble;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+import javax.annotation.Nullable;
+
+import org.osm2world.math.BoundedObject;
+import org.osm2world.math.shapes.AxisAlignedRectangleXZ;
+
+/**
+ * an R-tree which is created from all its elements at once using the Sort-Tile-Recursive (STR) algorithm.
+ *
+ * Unlike {@link IndexGrid}, it adapts to the distribution of the elements,
+ * and large elements are stored only once instead of being added to each cell they cover.
+ * Elements which are inserted after the tree has been created are kept in a separate overflow leaf,
+ * which is searched linearly by each probe. So this works best if (almost) all elements are known upfront.
+ */
+public class PackedRTree<T extends BoundedObject> implements SpatialIndex<T> {
+
+	/** the default maximum number of children of each node */
+	public static final int DEFAULT_NODE_CAPACITY = 16;
+
+	private final List<Leaf<T>> leaves;
+	private final @Nullable Node root;
+
+	/**
+	 * elements inserted after the tree has been created, null until the first insert.
+	 * Its bounds are not updated by later inserts, which is fine because it is not part of the tree.
+	 */
+	private @Nullable Leaf<T> overflowLeaf = null;
+
+	public PackedRTree(Collection<? extends T> elements) {
+		this(elements, DEFAULT_NODE_CAPACITY);
+	}
+
+	public PackedRTree(Collection<? extends T> elements, int nodeCapacity) {
+
+		if (nodeCapacity < 2) {
+			throw new IllegalArgumentException("invalid node capacity: " + nodeCapacity);
+		}
+
+		/* pack the elements into leaves */
+
+		List<Entry<T>> entries = new ArrayList<>(elements.size());
+		for (T element : elements) {
+			AxisAlignedRectangleXZ bounds = element.boundingBox();
+			entries.add(new Entry<>(element, bounds, bounds.center().x, bounds.center().z));
+		}
+
+		leaves = new ArrayList<>();
+		for (List<Entry<T>> group : strPack(entries, Entry::centerX, Entry::centerZ, nodeCapacity)) {
+			leaves.add(new Leaf<>(group));
+		}
+
+		/* pack the nodes of each level into parent nodes until only the root remains */
+
+		List<Node> level = new ArrayList<>(leaves);
+
+		while (level.size() > 1) {
+			List<Node> parentLevel = new ArrayList<>();
+			for (List<Node> group : strPack(level, it -> it.centerX, it -> it.centerZ, nodeCapacity)) {
+				parentLevel.add(new InnerNode(group));
+			}
+			level = parentLevel;
+		}
+
+		root = level.isEmpty() ? null : level.get(0);
+
+	}
+
+	/**
+	 * adds an element to the overflow leaf. The tree is not re-packed,
+	 * so elements should be passed to the constructor instead where possible.
+	 */
+	@Override
+	public void insert(T e) {
+		AxisAlignedRectangleXZ bounds = e.boundingBox();
+		Entry<T> entry = new Entry<>(e, bounds, bounds.center().x, bounds.center().z);
+		if (overflowLeaf == null) {
+			overflowLeaf = new Leaf<>(new ArrayList<>(List.of(entry)));
+		} else {
+			overflowLeaf.entries.add(entry);
+		}
+	}
+
+	@Override
+	public Collection<Leaf<T>> probeLeaves(BoundedObject e) {
+		AxisAlignedRectangleXZ bounds = e.boundingBox();
+		List<Leaf<T>> result = new ArrayList<>();
+		if (root != null) {
+			root.collectLeaves(bounds, result);
+		}
+		if (overflowLeaf != null && overflowLeaf.entries.stream().anyMatch(it -> touches(it.bounds, bounds))) {
+			result.add(overflowLeaf);
+		}
+		return result;
+	}
+
+	/**
+	 * returns all elements with a bounding box touching that of the probed element.
+	 * Unlike the default implementation, no de-duplication is needed because each element is in only one leaf.
+	 */
+	@Override
+	public List<T> probe(BoundedObject e) {
+
+		AxisAlignedRectangleXZ bounds = e.boundingBox();
+
+		List<T> result = new ArrayList<>();
+
+		for (Leaf<T> leaf : probeLeaves(e)) {
+			for (Entry<T> entry : leaf.entries) {
+				if (touches(entry.bounds, bounds)) {
+					result.add(entry.element);
+				}
+			}
+		}
+
+		return result;
+
+	}
+
+	@Override
+	public List<Leaf<T>> getLeaves() {
+		if (overflowLeaf == null) {
+			return leaves;
+		} else {
+			List<Leaf<T>> result = new ArrayList<>(leaves);
+			result.add(overflowLeaf);
+			return result;
+		}
+	}
+
+	/**
+	 * splits items into groups of up to nodeCapacity items which are close to each other.
+	 * Sorts the items into vertical slices by their x coordinate, then fills groups within each slice by z.
+	 */
+	private static <I> List<List<I>> strPack(List<I> items, ToDoubleFunction<I> getCenterX,
+			ToDoubleFunction<I> getCenterZ, int nodeCapacity) {
+
+		int groupCount = (int) ceil(items.size() / (double) nodeCapacity);
+		int sliceCount = (int) ceil(sqrt(groupCount));
+		int sliceSize = sliceCount * nodeCapacity;
+
+		List<I> sortedItems = new ArrayList<>(items);
+		sortedItems.sort(comparingDouble(getCenterX));
+
+		List<List<I>> result = new ArrayList<>(groupCount);
+
+		for (int sliceStart = 0; sliceStart < sortedItems.size(); sliceStart += sliceSize) {
+
+			List<I> slice = sortedItems.subList(sliceStart, Math.min(sliceStart + sliceSize, sortedItems.size()));
+			slice.sort(comparingDouble(getCenterZ));
+
+			for (int groupStart = 0; groupStart < slice.size(); groupStart += nodeCapacity) {
+				result.add(new ArrayList<>(slice.subList(groupStart, Math.min(groupStart + nodeCapacity, slice.size()))));
+			}
+
+		}
+
+		return result;
+
+	}
+
+	/** like {@link AxisAlignedRectangleXZ#overlaps(AxisAlignedRectangleXZ)}, but also true if the boxes only touch */
+	private static boolean touches(AxisAlignedRectangleXZ b1, AxisAlignedRectangleXZ b2) {
+		return b1.minX <= b2.maxX && b2.minX <= b1.maxX
+				&& b1.minZ <= b2.maxZ && b2.minZ <= b1.maxZ;
+	}
+
+	private static AxisAlignedRectangleXZ union(List<AxisAlignedRectangleXZ> boxes) {
+		double minX = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+		for (AxisAlignedRectangleXZ box : boxes) {
+			minX = Math.min(minX, box.minX);
+			minZ = Math.min(minZ, box.minZ);
+			maxX = Math.max(maxX, box.maxX);
+			maxZ = Math.max(maxZ, box.maxZ);
+		}
+		return new AxisAlignedRectangleXZ(minX, minZ, maxX, maxZ);
+	}
+
+	private record Entry<T>(T element, AxisAlignedRectangleXZ bounds, double centerX, double centerZ) {}
+
+	private static abstract class Node {
+
+		final AxisAlignedRectangleXZ bounds;
+		final double centerX, centerZ;
+
+		Node(AxisAlignedRectangleXZ bounds) {
+			this.bounds = bounds;
+			this.centerX = (bounds.minX + bounds.maxX) / 2;
+			this.centerZ = (bounds.minZ + bounds.maxZ) / 2;
+		}
+
+		/** adds all leaves within this subtree which touch the query bounds to the result */
+		abstract <T> void collectLeaves(AxisAlignedRectangleXZ queryBounds, List<Leaf<T>> result);
+
+	}
+
+	private static class InnerNode extends Node {
+
+		private final List<Node> children;
+
+		InnerNode(List<Node> children) {
+			super(union(children.stream().map(it -> it.bounds).toList()));
+			this.children = children;
+		}
+
+		@Override
+		<T> void collectLeaves(AxisAlignedRectangleXZ queryBounds, List<Leaf<T>> result) {
+			for (Node child : children) {
+				if (touches(child.bounds, queryBounds)) {
+					child.collectLeaves(queryBounds, result);
+				}
+			}
+		}
+
+	}
+
+	/** a leaf of the tree, containing up to the node capacity of elements */
+	public static class Leaf<T> extends Node implements Iterable<T> {
+
+		private final List<Entry<T>> entries;
+
+		private Leaf(List<Entry<T>> entries) {
+			super(union(entries.stream().map(Entry::bounds).toList()));
+			this.entries = entries;
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			return entries.stream().map(Entry::element).iterator();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		<L> void collectLeaves(AxisAlignedRectangleXZ queryBounds, List<Leaf<L>> result) {
+			result.add((Leaf<L>) this);
+		}
+
+	}
+
+}
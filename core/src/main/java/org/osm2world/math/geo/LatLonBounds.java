@@ -53,6 +53,11 @@ public class LatLonBounds implements GeoBounds {
 		return new LatLon(minlat + sizeLat() / 2, minlon + sizeLon() / 2);
 	}
 
+	/** returns true if the position is within these bounds or on their border */
+	public boolean contains(double lat, double lon) {
+		return minlat <= lat && lat <= maxlat && minlon <= lon && lon <= maxlon;
+	}
+
 	public static LatLonBounds ofPoints(Iterable<LatLon> points) {
 
 		double minLat = POSITIVE_INFINITY;
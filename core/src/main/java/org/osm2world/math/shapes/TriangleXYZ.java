@@ -19,17 +19,31 @@ public class TriangleXYZ implements FlatSimplePolygonShapeXYZ {
 
 	public TriangleXYZ(VectorXYZ v1, VectorXYZ v2, VectorXYZ v3) {
 
+		this(v1, v2, v3, true);
+
+	}
+
+	private TriangleXYZ(VectorXYZ v1, VectorXYZ v2, VectorXYZ v3, boolean validate) {
+
 		this.v1 = v1;
 		this.v2 = v2;
 		this.v3 = v3;
 
-		if (getArea() < 1e-6) {
+		if (validate && getArea() < 1e-6) {
 			// degenerate triangle: all three points are (almost, to account for floating point arithmetic) in a line
 			throw new InvalidGeometryException("Degenerate triangle: " + v1 + ", " + v2 + ", " + v3);
 		}
 
 	}
 
+	/**
+	 * creates a triangle from vertices which are known to form a valid triangle, skipping the validity check.
+	 * Useful when re-creating triangles which have previously been stored in another form.
+	 */
+	public static TriangleXYZ ofValidVertices(VectorXYZ v1, VectorXYZ v2, VectorXYZ v3) {
+		return new TriangleXYZ(v1, v2, v3, false);
+	}
+
 	@Override
 	public List<VectorXYZ> verticesNoDup() {
 		return ImmutableList.of(v1, v2, v3);
@@ -0,0 +1,428 @@
+package org.osm2world.osm.creation;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static org.osm2world.map_data.creation.OSMToMapDataConverter.tagsOfEntity;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.osm2world.conversion.ConversionLog;
+import org.osm2world.math.geo.LatLonBounds;
+import org.osm2world.osm.creation.PbfBlockIndex.Block;
+import org.osm2world.osm.creation.PbfBlockIndex.BlockType;
+import org.osm2world.osm.creation.PbfBlockIndex.CellRange;
+import org.osm2world.osm.data.OSMData;
+import org.osm2world.osm.ruleset.HardcodedRuleset;
+
+import de.topobyte.osm4j.core.dataset.InMemoryMapDataSet;
+import de.topobyte.osm4j.core.model.iface.*;
+import de.topobyte.osm4j.core.model.impl.Bounds;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+
+/**
+ * {@link OSMDataReader} for an OSM PBF file which only decodes the parts of the file needed for a region.
+ * Uses a {@link PbfBlockIndex}, which is created when the file is first accessed and stored next to it.
+ *
+ * The result for a region contains all nodes within the region, all ways whose bounding box intersects it,
+ * and the relations with any of these nodes or ways as members. Multipolygon relations are also included if
+ * their bounding box intersects the region, even if none of their members does. This ensures that areas
+ * enclosing the region are not lost. The result is completed with the remaining nodes of the ways as well as
+ * the members of multipolygon relations, similar to what {@link GeodeskReader} returns.
+ * Files which are not sorted by id cannot be indexed, in that case the entire file is loaded.
+ *
+ * Instances can be used for several regions, also concurrently, and keep the index in memory.
+ */
+public class IndexedPbfReader implements OSMDataReader {
+
+	private final File file;
+
+	private @Nullable PbfBlockIndex index = null;
+	private boolean indexingFailed = false;
+
+	/** all relations in the file, decoded when they are first needed */
+	private @Nullable List<RelationWithExtent> relations = null;
+
+	private record RelationWithExtent(OsmRelation relation, @Nullable CellRange extent) {}
+
+	public IndexedPbfReader(File file) {
+		this.file = file;
+	}
+
+	@Override
+	public OSMData getAllData() throws IOException {
+		return new OSMFileReader(file).getAllData();
+	}
+
+	@Override
+	public OSMData getData(LatLonBounds bounds) throws IOException {
+
+		if (!file.exists()) {
+			throw new FileNotFoundException(file.toString());
+		}
+
+		PbfBlockIndex index = getIndex();
+
+		if (index == null) {
+			return getAllData();
+		}
+
+		try (FileChannel channel = FileChannel.open(file.toPath())) {
+			return getData(channel, index, bounds);
+		}
+
+	}
+
+	/** returns the index, building it when it is first needed. Returns null if the file cannot be indexed. */
+	private synchronized @Nullable PbfBlockIndex getIndex() {
+		if (index == null && !indexingFailed) {
+			try {
+				index = PbfBlockIndex.forFile(file);
+			} catch (IOException e) {
+				ConversionLog.warn("Could not index PBF file, loading all data instead", e);
+				indexingFailed = true;
+			}
+		}
+		return index;
+	}
+
+	private OSMData getData(FileChannel channel, PbfBlockIndex index, LatLonBounds bounds) throws IOException {
+
+		CellRange cellRange = CellRange.of(bounds);
+
+		TLongObjectMap<OsmNode> nodes = new TLongObjectHashMap<>();
+		TLongObjectMap<OsmWay> ways = new TLongObjectHashMap<>();
+		TLongObjectMap<OsmRelation> selectedRelations = new TLongObjectHashMap<>();
+
+		/* all decoded nodes and ways, including those not (yet) selected, for checking bounding boxes */
+
+		TLongObjectMap<OsmNode> decodedNodes = new TLongObjectHashMap<>();
+		TLongObjectMap<OsmWay> decodedWays = new TLongObjectHashMap<>();
+
+		/* collect the nodes within the bounds */
+
+		for (Block block : index.blocks(BlockType.NODES)) {
+			if (block.touches(cellRange)) {
+				for (EntityContainer container : PbfBlockIndex.decode(channel, index.headerBlock, block)) {
+					if (container.getEntity() instanceof OsmNode node) {
+						decodedNodes.put(node.getId(), node);
+						if (bounds.contains(node.getLatitude(), node.getLongitude())) {
+							nodes.put(node.getId(), node);
+						}
+					}
+				}
+			}
+		}
+
+		/*
+		 * collect the ways whose bounding box intersects the bounds.
+		 * Ways which do not have a node within the bounds become candidates if all their nodes are known
+		 * (then they are within the cells of the bounds) or if their extent in the index intersects the bounds.
+		 */
+
+		List<OsmWay> candidateWays = new ArrayList<>();
+
+		for (Block block : index.blocks(BlockType.WAYS)) {
+			if (block.touches(cellRange) || block.wayExtents().anyIntersects(cellRange)) {
+				for (EntityContainer container : PbfBlockIndex.decode(channel, index.headerBlock, block)) {
+					if (container.getEntity() instanceof OsmWay way) {
+						decodedWays.put(way.getId(), way);
+						if (hasNodeIn(way, nodes)) {
+							ways.put(way.getId(), way);
+						} else {
+							CellRange extent = block.wayExtents().get(way.getId());
+							if (extent != null ? extent.intersects(cellRange) : allNodesIn(way, decodedNodes)) {
+								candidateWays.add(way);
+							}
+						}
+					}
+				}
+			}
+		}
+
+		decodeMissingNodes(channel, index, candidateWays, decodedNodes);
+
+		for (OsmWay way : candidateWays) {
+			if (boundingBoxIntersects(bounds, nodeIds(way), decodedNodes)) {
+				ways.put(way.getId(), way);
+			}
+		}
+
+		/* collect multipolygons whose bounding box intersects the bounds */
+
+		List<RelationWithExtent> allRelations = getRelations(channel, index);
+
+		List<OsmRelation> candidateRelations = new ArrayList<>();
+
+		for (RelationWithExtent r : allRelations) {
+			if (r.extent != null && r.extent.intersects(cellRange) && membersShouldBeIncluded(r.relation)
+					&& !hasSelectedMember(r.relation, nodes, ways, selectedRelations)) {
+				candidateRelations.add(r.relation);
+			}
+		}
+
+		TLongSet missingWayIds = new TLongHashSet();
+
+		for (OsmRelation relation : candidateRelations) {
+			for (int i = 0; i < relation.getNumberOfMembers(); i++) {
+				OsmRelationMember member = relation.getMember(i);
+				if (member.getType() == EntityType.Way && !decodedWays.containsKey(member.getId())) {
+					missingWayIds.add(member.getId());
+				}
+			}
+		}
+
+		for (OsmEntity way : getEntitiesById(channel, index, BlockType.WAYS, missingWayIds)) {
+			decodedWays.put(way.getId(), (OsmWay) way);
+		}
+
+		List<OsmWay> candidateMemberWays = new ArrayList<>();
+
+		for (OsmRelation relation : candidateRelations) {
+			for (int i = 0; i < relation.getNumberOfMembers(); i++) {
+				OsmWay way = relation.getMember(i).getType() == EntityType.Way
+						? decodedWays.get(relation.getMember(i).getId())
+						: null;
+				if (way != null) {
+					candidateMemberWays.add(way);
+				}
+			}
+		}
+
+		decodeMissingNodes(channel, index, candidateMemberWays, decodedNodes);
+
+		for (OsmRelation relation : candidateRelations) {
+			TLongArrayList memberNodeIds = new TLongArrayList();
+			for (int i = 0; i < relation.getNumberOfMembers(); i++) {
+				OsmRelationMember member = relation.getMember(i);
+				if (member.getType() == EntityType.Node) {
+					memberNodeIds.add(member.getId());
+				} else if (member.getType() == EntityType.Way && decodedWays.containsKey(member.getId())) {
+					memberNodeIds.addAll(nodeIds(decodedWays.get(member.getId())));
+				}
+			}
+			if (boundingBoxIntersects(bounds, memberNodeIds, decodedNodes)) {
+				selectedRelations.put(relation.getId(), relation);
+			}
+		}
+
+		/* collect relations with members among the selected elements, including parent relations */
+
+		int maxRelationNestingDepth = 3;
+		for (int depth = 0; depth <= maxRelationNestingDepth; depth++) {
+			for (RelationWithExtent r : allRelations) {
+				if (!selectedRelations.containsKey(r.relation.getId())
+						&& hasSelectedMember(r.relation, nodes, ways, selectedRelations)) {
+					selectedRelations.put(r.relation.getId(), r.relation);
+				}
+			}
+		}
+
+		/* complete multipolygons and ways, preferring entities which have already been decoded */
+
+		missingWayIds.clear();
+		TLongSet requiredNodeIds = new TLongHashSet();
+
+		for (OsmRelation relation : selectedRelations.valueCollection()) {
+			if (membersShouldBeIncluded(relation)) {
+				for (int i = 0; i < relation.getNumberOfMembers(); i++) {
+					OsmRelationMember member = relation.getMember(i);
+					if (member.getType() == EntityType.Way && !ways.containsKey(member.getId())) {
+						OsmWay way = decodedWays.get(member.getId());
+						if (way != null) {
+							ways.put(way.getId(), way);
+						} else {
+							missingWayIds.add(member.getId());
+						}
+					} else if (member.getType() == EntityType.Node) {
+						requiredNodeIds.add(member.getId());
+					}
+				}
+			}
+		}
+
+		for (OsmEntity way : getEntitiesById(channel, index, BlockType.WAYS, missingWayIds)) {
+			ways.put(way.getId(), (OsmWay) way);
+		}
+
+		for (OsmWay way : ways.valueCollection()) {
+			requiredNodeIds.addAll(nodeIds(way));
+		}
+
+		TLongSet missingNodeIds = new TLongHashSet();
+
+		for (long nodeId : requiredNodeIds.toArray()) {
+			if (!decodedNodes.containsKey(nodeId)) {
+				missingNodeIds.add(nodeId);
+			}
+		}
+
+		for (OsmEntity node : getEntitiesById(channel, index, BlockType.NODES, missingNodeIds)) {
+			decodedNodes.put(node.getId(), (OsmNode) node);
+		}
+
+		for (long nodeId : requiredNodeIds.toArray()) {
+			OsmNode node = decodedNodes.get(nodeId);
+			if (node != null) {
+				nodes.put(nodeId, node);
+			}
+		}
+
+		/* create the result */
+
+		InMemoryMapDataSet data = new InMemoryMapDataSet();
+		data.setNodes(nodes);
+		data.setWays(ways);
+		data.setRelations(selectedRelations);
+		data.setBounds(new Bounds(bounds.minlon, bounds.maxlon, bounds.maxlat, bounds.minlat));
+		return new OSMData(data);
+
+	}
+
+	private synchronized List<RelationWithExtent> getRelations(FileChannel channel, PbfBlockIndex index)
+			throws IOException {
+
+		if (relations == null) {
+			List<RelationWithExtent> result = new ArrayList<>();
+			for (Block block : index.blocks(BlockType.RELATIONS)) {
+				for (EntityContainer container : PbfBlockIndex.decode(channel, index.headerBlock, block)) {
+					if (container.getEntity() instanceof OsmRelation relation) {
+						result.add(new RelationWithExtent(relation, block.relationExtents().get(relation.getId())));
+					}
+				}
+			}
+			relations = result;
+		}
+
+		return relations;
+
+	}
+
+	/** decodes those nodes of some ways which are not yet known and adds them to the known nodes */
+	private static void decodeMissingNodes(FileChannel channel, PbfBlockIndex index, Collection<OsmWay> ways,
+			TLongObjectMap<OsmNode> knownNodes) throws IOException {
+
+		TLongSet missingNodeIds = new TLongHashSet();
+
+		for (OsmWay way : ways) {
+			for (int i = 0; i < way.getNumberOfNodes(); i++) {
+				if (!knownNodes.containsKey(way.getNodeId(i))) {
+					missingNodeIds.add(way.getNodeId(i));
+				}
+			}
+		}
+
+		for (OsmEntity node : getEntitiesById(channel, index, BlockType.NODES, missingNodeIds)) {
+			knownNodes.put(node.getId(), (OsmNode) node);
+		}
+
+	}
+
+	/**
+	 * decodes the entities of a type with the given ids.
+	 * Only decodes blocks whose id range contains at least one of the ids.
+	 */
+	private static List<OsmEntity> getEntitiesById(FileChannel channel, PbfBlockIndex index, BlockType type,
+			TLongSet ids) throws IOException {
+
+		List<OsmEntity> result = new ArrayList<>();
+
+		if (ids.isEmpty()) return result;
+
+		long[] sortedIds = ids.toArray();
+		Arrays.sort(sortedIds);
+
+		EntityType entityType = (type == BlockType.NODES) ? EntityType.Node : EntityType.Way;
+
+		for (Block block : index.blocks(type)) {
+			if (block.mayContainAny(sortedIds)) {
+				for (EntityContainer container : PbfBlockIndex.decode(channel, index.headerBlock, block)) {
+					if (container.getType() == entityType && ids.contains(container.getEntity().getId())) {
+						result.add(container.getEntity());
+					}
+				}
+			}
+		}
+
+		return result;
+
+	}
+
+	private static boolean hasSelectedMember(OsmRelation relation, TLongObjectMap<OsmNode> nodes,
+			TLongObjectMap<OsmWay> ways, TLongObjectMap<OsmRelation> relations) {
+		for (int i = 0; i < relation.getNumberOfMembers(); i++) {
+			OsmRelationMember member = relation.getMember(i);
+			boolean selected = switch (member.getType()) {
+				case Node -> nodes.containsKey(member.getId());
+				case Way -> ways.containsKey(member.getId());
+				case Relation -> relations.containsKey(member.getId());
+			};
+			if (selected) return true;
+		}
+		return false;
+	}
+
+	private static boolean hasNodeIn(OsmWay way, TLongObjectMap<OsmNode> nodes) {
+		for (int i = 0; i < way.getNumberOfNodes(); i++) {
+			if (nodes.containsKey(way.getNodeId(i))) return true;
+		}
+		return false;
+	}
+
+	private static boolean allNodesIn(OsmWay way, TLongObjectMap<OsmNode> nodes) {
+		for (int i = 0; i < way.getNumberOfNodes(); i++) {
+			if (!nodes.containsKey(way.getNodeId(i))) return false;
+		}
+		return true;
+	}
+
+	private static TLongArrayList nodeIds(OsmWay way) {
+		TLongArrayList result = new TLongArrayList(way.getNumberOfNodes());
+		for (int i = 0; i < way.getNumberOfNodes(); i++) {
+			result.add(way.getNodeId(i));
+		}
+		return result;
+	}
+
+	/** checks whether the bounding box of some nodes intersects the bounds. Unknown nodes are ignored. */
+	private static boolean boundingBoxIntersects(LatLonBounds bounds, TLongArrayList nodeIds,
+			TLongObjectMap<OsmNode> knownNodes) {
+
+		double minLat = Double.POSITIVE_INFINITY;
+		double minLon = Double.POSITIVE_INFINITY;
+		double maxLat = Double.NEGATIVE_INFINITY;
+		double maxLon = Double.NEGATIVE_INFINITY;
+
+		for (int i = 0; i < nodeIds.size(); i++) {
+			OsmNode node = knownNodes.get(nodeIds.get(i));
+			if (node != null) {
+				minLat = min(minLat, node.getLatitude());
+				minLon = min(minLon, node.getLongitude());
+				maxLat = max(maxLat, node.getLatitude());
+				maxLon = max(maxLon, node.getLongitude());
+			}
+		}
+
+		return minLat <= bounds.maxlat && bounds.minlat <= maxLat
+				&& minLon <= bounds.maxlon && bounds.minlon <= maxLon;
+
+	}
+
+	private static boolean membersShouldBeIncluded(OsmRelation relation) {
+		var tags = tagsOfEntity(relation);
+		return tags.contains("type", "multipolygon") && new HardcodedRuleset().isRelevantRelation(tags);
+	}
+
+}
@@ -1,18 +1,35 @@
 package org.osm2world.osm.creation;
 
 import java.io.*;
+import java.util.concurrent.ExecutionException;
 
+import org.osm2world.math.geo.LatLonBounds;
 import org.osm2world.osm.creation.OSMStreamReader.CompressionMethod;
 import org.osm2world.osm.data.OSMData;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 /**
  * {@link OSMDataReader} providing information from a single .osm file, including common
  * non-standard variants such as those files produced by JOSM. The file is read
  * during the {@link #getAllData()} call, there will be no updates when the file is
  * changed later. This class internally uses osm4j to read the file.
+ *
+ * For PBF files, {@link #getData(LatLonBounds)} only decodes the relevant parts of the file
+ * using an {@link IndexedPbfReader}. The reader is shared between instances for the same file,
+ * so the file's index and relations only need to be loaded once.
  */
 public record OSMFileReader(File file) implements OSMDataReader {
 
+	private static final int MAX_CACHED_PBF_READERS = 8;
+
+	/** identifies a version of a file, so that a modified file is not read with an outdated reader */
+	private record FileVersion(File file, long length, long lastModified) {}
+
+	private static final Cache<FileVersion, IndexedPbfReader> pbfReaders =
+			CacheBuilder.newBuilder().maximumSize(MAX_CACHED_PBF_READERS).softValues().build();
+
 	@Override
 	public OSMData getAllData() throws IOException {
 
@@ -42,6 +59,28 @@ public record OSMFileReader(File file) implements OSMDataReader {
 
 	}
 
+	@Override
+	public OSMData getData(LatLonBounds bounds) throws IOException {
+		if (CompressionMethod.fromFileName(file.getName()) == CompressionMethod.PBF) {
+			return getPbfReader().getData(bounds);
+		} else {
+			return getAllData();
+		}
+	}
+
+	private IndexedPbfReader getPbfReader() throws IOException {
+		if (!file.exists()) {
+			throw new FileNotFoundException(file.toString());
+		}
+		File absoluteFile = file.getAbsoluteFile();
+		var key = new FileVersion(absoluteFile, absoluteFile.length(), absoluteFile.lastModified());
+		try {
+			return pbfReaders.get(key, () -> new IndexedPbfReader(absoluteFile));
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+	}
+
 	/**
 	 * Returns true if the file was identified as being generated by JOSM.
 	 * This method peeks into the first lines of the file,
@@ -11,6 +11,7 @@ import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -23,8 +24,8 @@ import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang.NotImplementedException;
 import org.osm2world.osm.data.OSMData;
+import org.osm2world.osm.data.PackedEntityStore;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -32,14 +33,20 @@ import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import de.topobyte.osm4j.core.access.OsmIterator;
-import de.topobyte.osm4j.core.dataset.InMemoryMapDataSet;
-import de.topobyte.osm4j.core.dataset.MapDataSetLoader;
+import de.topobyte.osm4j.core.model.iface.EntityContainer;
+import de.topobyte.osm4j.core.model.iface.OsmBounds;
+import de.topobyte.osm4j.core.model.iface.OsmNode;
+import de.topobyte.osm4j.core.model.iface.OsmRelation;
+import de.topobyte.osm4j.core.model.iface.OsmWay;
 import de.topobyte.osm4j.pbf.seq.PbfIterator;
 import de.topobyte.osm4j.xml.dynsax.OsmXmlIterator;
 
 /**
  * {@link OSMDataReader} providing information from a stream of OSM data (such as a {@link FileInputStream}).
  * This class internally uses osm4j to read the file.
+ *
+ * Compressed XML data is decompressed while it is being parsed, so the decompressed data is never stored completely.
+ * The entities are kept in a {@link PackedEntityStore} to reduce memory use.
  */
 public class OSMStreamReader implements OSMDataReader {
 
@@ -67,33 +74,77 @@ public class OSMStreamReader implements OSMDataReader {
 	private final InputStream inputStream;
 	private final CompressionMethod compressionMethod;
 	private final boolean useJosmWorkaround;
+	private final int threadCount;
 
-	public OSMStreamReader(InputStream inputStream, CompressionMethod compressionMethod, boolean useJosmWorkaround) {
+	/**
+	 * @param threadCount  the number of threads used for decompressing {@link CompressionMethod#BZip2} data
+	 */
+	public OSMStreamReader(InputStream inputStream, CompressionMethod compressionMethod, boolean useJosmWorkaround,
+			int threadCount) {
 		this.inputStream = inputStream;
 		this.compressionMethod = compressionMethod;
 		this.useJosmWorkaround = useJosmWorkaround;
+		this.threadCount = threadCount;
+	}
+
+	public OSMStreamReader(InputStream inputStream, CompressionMethod compressionMethod, boolean useJosmWorkaround) {
+		this(inputStream, compressionMethod, useJosmWorkaround, Runtime.getRuntime().availableProcessors());
 	}
 
 	@Override
 	public OSMData getAllData() throws IOException {
 		if (!useJosmWorkaround) {
-			return getDataFromStream(inputStream, compressionMethod);
+			return getDataFromStream(inputStream, compressionMethod, threadCount);
+		} else if (compressionMethod == CompressionMethod.GZip || compressionMethod == CompressionMethod.BZip2) {
+			try (InputStream xmlStream = decompress(inputStream, compressionMethod, threadCount)) {
+				return getDataFromStream(applyJosmWorkarounds(xmlStream), CompressionMethod.None, threadCount);
+			}
 		} else {
-			return getDataFromStream(applyJosmWorkarounds(inputStream), CompressionMethod.None);
+			return getDataFromStream(applyJosmWorkarounds(inputStream), CompressionMethod.None, threadCount);
 		}
 	}
 
-	protected static OSMData getDataFromStream(InputStream inputStream, CompressionMethod compressionMethod) {
+	protected static OSMData getDataFromStream(InputStream inputStream, CompressionMethod compressionMethod,
+			int threadCount) throws IOException {
+
+		if (compressionMethod == CompressionMethod.GZip || compressionMethod == CompressionMethod.BZip2) {
+			try (InputStream xmlStream = decompress(inputStream, compressionMethod, threadCount)) {
+				return getDataFromStream(xmlStream, CompressionMethod.None, threadCount);
+			}
+		}
 
 		OsmIterator iterator = switch (compressionMethod) {
 			case PBF -> new PbfIterator(inputStream, true);
-			case None -> new OsmXmlIterator(inputStream, true);
-			default -> throw new NotImplementedException("Compression method " + compressionMethod); // TODO: handle compression with GZip or BZip2!
+			default -> new OsmXmlIterator(inputStream, true);
 		};
 
-		InMemoryMapDataSet data = MapDataSetLoader.read(iterator, true, true, true);
-		return new OSMData(data);
+		var builder = new PackedEntityStore.Builder();
 
+		for (EntityContainer container : iterator) {
+			switch (container.getType()) {
+				case Node -> builder.addNode((OsmNode) container.getEntity());
+				case Way -> builder.addWay((OsmWay) container.getEntity());
+				case Relation -> builder.addRelation((OsmRelation) container.getEntity());
+			}
+		}
+
+		List<OsmBounds> bounds = iterator.hasBounds() ? List.of(iterator.getBounds()) : List.of();
+
+		return new OSMData(bounds, builder.build());
+
+	}
+
+	/**
+	 * wraps a compressed stream of OSM XML data into a stream decompressing it on the fly.
+	 * Closing the returned stream also closes the original stream.
+	 */
+	private static InputStream decompress(InputStream inputStream, CompressionMethod compressionMethod,
+			int threadCount) throws IOException {
+		return switch (compressionMethod) {
+			case GZip -> new GZIPInputStream(inputStream, 64 * 1024);
+			case BZip2 -> new ParallelBZip2InputStream(inputStream, threadCount);
+			case None, PBF -> throw new IllegalArgumentException("not a compression method for XML: " + compressionMethod);
+		};
 	}
 
 	/**
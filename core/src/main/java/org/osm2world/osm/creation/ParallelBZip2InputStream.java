@@ -0,0 +1,437 @@
+package org.osm2world.osm.creation;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+
+/**
+ * decompresses a bzip2 stream using multiple threads.
+ *
+ * The blocks of a bzip2 stream can be decompressed independently of each other.
+ * A background thread splits the compressed input at the block boundaries (which are not byte-aligned)
+ * and distributes the blocks to a pool of threads. The decompressed blocks are then handed to the reader
+ * in their original order. Only a limited number of blocks are in flight at any time,
+ * so neither the compressed nor the decompressed data is ever held in memory completely.
+ * Concatenated streams, such as those written by parallel compressors, are supported.
+ */
+class ParallelBZip2InputStream extends InputStream {
+
+	/** the 48 bit pattern starting each block */
+	private static final long BLOCK_MAGIC = 0x314159265359L;
+
+	/** the 48 bit pattern marking the end of a stream */
+	private static final long END_OF_STREAM_MAGIC = 0x177245385090L;
+
+	private static final long MAGIC_MASK = 0xFFFFFFFFFFFFL;
+
+	/** the largest number of consecutive segments merged when recovering from a false block boundary */
+	private static final int MAX_MERGED_SEGMENTS = 4;
+
+	private final InputStream compressedStream;
+	private final ExecutorService pool;
+	private final Thread splitterThread;
+
+	/** blocks being decompressed, in the order of the input. Bounds the memory use. */
+	private final BlockingQueue<DecodeTask> tasks;
+
+	private byte[] currentBlock = new byte[0];
+	private int currentPos = 0;
+	private boolean finished = false;
+	private boolean closed = false;
+
+	/**
+	 * @param compressedStream  the bzip2-compressed input. Will be closed when this stream is closed.
+	 * @param threadCount  the number of threads used for decompressing blocks, at least 1
+	 */
+	public ParallelBZip2InputStream(InputStream compressedStream, int threadCount) {
+
+		this.compressedStream = compressedStream;
+		this.pool = Executors.newFixedThreadPool(Math.max(1, threadCount), r -> {
+			Thread thread = new Thread(r, "bzip2-decoder");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.tasks = new ArrayBlockingQueue<>(2 * Math.max(1, threadCount));
+
+		splitterThread = new Thread(this::splitBlocks, "bzip2-splitter");
+		splitterThread.setDaemon(true);
+		splitterThread.start();
+
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		int count = read(b, 0, 1);
+		return count < 0 ? -1 : b[0] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+
+		if (closed) throw new IOException("stream closed");
+		if (len == 0) return 0;
+
+		while (currentPos >= currentBlock.length) {
+			if (finished || !nextBlock()) {
+				finished = true;
+				return -1;
+			}
+		}
+
+		int count = Math.min(len, currentBlock.length - currentPos);
+		System.arraycopy(currentBlock, currentPos, b, off, count);
+		currentPos += count;
+		return count;
+
+	}
+
+	@Override
+	public int available() {
+		return currentBlock.length - currentPos;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			splitterThread.interrupt();
+			pool.shutdownNow();
+			compressedStream.close();
+		}
+	}
+
+	/**
+	 * replaces {@link #currentBlock} with the next decompressed block.
+	 * @return  false if the end of the input has been reached
+	 */
+	private boolean nextBlock() throws IOException {
+
+		DecodeTask task = takeTask();
+
+		if (task.segment == null) {
+			getResult(task.result); // rethrows problems encountered while reading the input
+			return false;
+		}
+
+		try {
+			currentBlock = getResult(task.result);
+		} catch (IOException e) {
+
+			/* the segment might have been cut short by a block magic occurring within the compressed data */
+
+			Segment segment = task.segment;
+
+			for (int merged = 1; ; merged++) {
+
+				DecodeTask nextTask = takeTask();
+
+				if (merged >= MAX_MERGED_SEGMENTS || nextTask.segment == null || nextTask.segment.startsStream) {
+					throw e;
+				}
+
+				segment = Segment.concat(segment, nextTask.segment);
+
+				try {
+					currentBlock = decode(segment);
+					break;
+				} catch (IOException ignored) {
+					// try again with the next segment
+				}
+
+			}
+
+		}
+
+		currentPos = 0;
+		return true;
+
+	}
+
+	private DecodeTask takeTask() throws IOException {
+		try {
+			return tasks.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+	}
+
+	private static byte[] getResult(Future<byte[]> result) throws IOException {
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException ioException) {
+				throw ioException;
+			} else {
+				throw new IOException(e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * reads the compressed input and queues a {@link DecodeTask} for each block. Runs on {@link #splitterThread}.
+	 * Problems with reading the input are reported to the reader through the final task.
+	 */
+	private void splitBlocks() {
+
+		try {
+
+			byte[] buffer = new byte[64 * 1024];
+
+			@Nullable SegmentBuffer segmentBytes = null;
+			long segmentStart = 0;
+			boolean segmentStartsStream = true;
+
+			long bytePos = -1;
+			long bitPos = 0;
+			long recentBytes = 0;
+			long bits = 0;
+			long previousMagicEnd = -1;
+
+			int bytesRead;
+			while ((bytesRead = compressedStream.read(buffer)) >= 0) {
+
+				for (int i = 0; i < bytesRead; i++) {
+
+					int b = buffer[i] & 0xFF;
+
+					bytePos++;
+					recentBytes = (recentBytes << 8) | b;
+
+					if (segmentBytes != null) {
+						segmentBytes.add((byte) b);
+					}
+
+					for (int bit = 7; bit >= 0; bit--) {
+
+						bits = (bits << 1) | ((b >>> bit) & 1);
+						bitPos++;
+
+						long candidate = bits & MAGIC_MASK;
+
+						if (candidate != BLOCK_MAGIC && candidate != END_OF_STREAM_MAGIC) continue;
+
+						long magicStart = bitPos - 48;
+
+						/* the 32 bits after a magic are a CRC, which is not searched for another magic */
+						if (previousMagicEnd >= 0 && magicStart < previousMagicEnd + 32) continue;
+
+						if (segmentBytes != null) {
+							queue(segmentBytes.toSegment(segmentStart, magicStart, segmentStartsStream));
+						}
+
+						if (candidate == BLOCK_MAGIC) {
+							segmentStartsStream = (segmentBytes == null);
+							segmentBytes = new SegmentBuffer(magicStart / 8, bytePos, recentBytes);
+							segmentStart = magicStart;
+						} else {
+							segmentBytes = null;
+						}
+
+						previousMagicEnd = bitPos;
+
+					}
+
+				}
+
+			}
+
+			if (segmentBytes != null) {
+				throw new IOException("unexpected end of bzip2 stream");
+			} else if (previousMagicEnd < 0 && bitPos > 0) {
+				throw new IOException("input is not a bzip2 stream");
+			}
+
+			tasks.put(new DecodeTask(null, CompletableFuture.completedFuture(new byte[0])));
+
+		} catch (InterruptedException e) {
+			// the stream has been closed
+		} catch (IOException | RuntimeException e) {
+			try {
+				tasks.put(new DecodeTask(null, CompletableFuture.failedFuture(e)));
+			} catch (InterruptedException ignored) {
+				// the stream has been closed
+			}
+		}
+
+	}
+
+	private void queue(Segment segment) throws InterruptedException {
+		tasks.put(new DecodeTask(segment, pool.submit(() -> decode(segment))));
+	}
+
+	/**
+	 * decompresses a single block by wrapping it into a stream of its own
+	 */
+	static byte[] decode(Segment segment) throws IOException {
+
+		long blockCRC = segment.readBits(48, 32);
+
+		BitWriter writer = new BitWriter(segment.bitLength / 8 + 32);
+		writer.writeBits(8, 'B');
+		writer.writeBits(8, 'Z');
+		writer.writeBits(8, 'h');
+		writer.writeBits(8, '9');
+		segment.writeTo(writer);
+		writer.writeBits(48, END_OF_STREAM_MAGIC);
+		// with a single block, the combined CRC of the stream is identical to the block CRC
+		writer.writeBits(32, blockCRC);
+
+		try (var stream = new BZip2CompressorInputStream(new ByteArrayInputStream(writer.toByteArray()))) {
+			return stream.readAllBytes();
+		}
+
+	}
+
+	/**
+	 * a block of the compressed input and its decompressed content
+	 *
+	 * @param segment  the compressed block, null for the final task after the end of the input
+	 */
+	private record DecodeTask(@Nullable Segment segment, Future<byte[]> result) {}
+
+	/**
+	 * a sequence of bits from the compressed input, usually a single block
+	 *
+	 * @param bytes  the bytes containing the segment
+	 * @param startBit  the position of the first bit within the first byte
+	 * @param bitLength  the number of bits
+	 * @param startsStream  whether the segment is the first block of a stream
+	 */
+	record Segment(byte[] bytes, int startBit, long bitLength, boolean startsStream) {
+
+		/** reads up to 32 bits, starting at the given offset relative to the start of the segment */
+		long readBits(long offset, int count) {
+			long result = 0;
+			for (int i = 0; i < count; i++) {
+				long pos = startBit + offset + i;
+				result = (result << 1) | ((bytes[(int) (pos / 8)] >>> (7 - pos % 8)) & 1);
+			}
+			return result;
+		}
+
+		void writeTo(BitWriter writer) {
+			long pos = 0;
+			if (startBit == 0) {
+				/* fast path for byte-aligned segments */
+				for (; pos + 8 <= bitLength; pos += 8) {
+					writer.writeBits(8, bytes[(int) (pos / 8)]);
+				}
+			} else {
+				for (; pos + 8 <= bitLength; pos += 8) {
+					int i = (int) (pos / 8);
+					writer.writeBits(8, ((bytes[i] & 0xFF) << startBit) | ((bytes[i + 1] & 0xFF) >>> (8 - startBit)));
+				}
+			}
+			if (pos < bitLength) {
+				writer.writeBits((int) (bitLength - pos), readBits(pos, (int) (bitLength - pos)));
+			}
+		}
+
+		static Segment concat(Segment s1, Segment s2) {
+			BitWriter writer = new BitWriter((s1.bitLength + s2.bitLength) / 8 + 1);
+			s1.writeTo(writer);
+			s2.writeTo(writer);
+			return new Segment(writer.toByteArray(), 0, s1.bitLength + s2.bitLength, s1.startsStream);
+		}
+
+	}
+
+	/** collects the bytes of the segment which is currently being read */
+	private static class SegmentBuffer {
+
+		/** the position of {@link #bytes}[0] within the input */
+		private final long firstByte;
+
+		private byte[] bytes = new byte[1024];
+		private int size = 0;
+
+		/**
+		 * creates a buffer for a segment starting with a magic which has just been read
+		 *
+		 * @param firstByte  the position of the byte containing the start of the magic
+		 * @param currentByte  the position of the byte containing the end of the magic
+		 * @param recentBytes  the most recently read bytes, with the byte at currentByte as the lowest byte
+		 */
+		SegmentBuffer(long firstByte, long currentByte, long recentBytes) {
+			this.firstByte = firstByte;
+			for (long pos = firstByte; pos <= currentByte; pos++) {
+				add((byte) (recentBytes >>> (8 * (currentByte - pos))));
+			}
+		}
+
+		void add(byte b) {
+			if (size == bytes.length) {
+				bytes = Arrays.copyOf(bytes, bytes.length * 2);
+			}
+			bytes[size++] = b;
+		}
+
+		Segment toSegment(long startBitPos, long endBitPos, boolean startsStream) {
+			int startBit = (int) (startBitPos - firstByte * 8);
+			long bitLength = endBitPos - startBitPos;
+			int byteCount = (int) ((startBit + bitLength + 7) / 8);
+			return new Segment(Arrays.copyOf(bytes, byteCount), startBit, bitLength, startsStream);
+		}
+
+	}
+
+	/** writes a stream of bits, most significant bit first */
+	static class BitWriter {
+
+		private byte[] bytes;
+		private int size = 0;
+		private long buffer = 0;
+		private int bufferedBits = 0;
+
+		BitWriter(long expectedBytes) {
+			bytes = new byte[(int) Math.max(16, expectedBytes)];
+		}
+
+		/** writes the lowest count bits of value, count must not exceed 48 */
+		void writeBits(int count, long value) {
+			buffer = (buffer << count) | (value & ((1L << count) - 1));
+			bufferedBits += count;
+			while (bufferedBits >= 8) {
+				bufferedBits -= 8;
+				addByte((byte) (buffer >>> bufferedBits));
+			}
+		}
+
+		private void addByte(byte b) {
+			if (size == bytes.length) {
+				bytes = Arrays.copyOf(bytes, bytes.length * 2);
+			}
+			bytes[size++] = b;
+		}
+
+		/** returns the bytes written so far, padding the last byte with zeros */
+		byte[] toByteArray() {
+			if (bufferedBits > 0) {
+				addByte((byte) (buffer << (8 - bufferedBits)));
+				bufferedBits = 0;
+				buffer = 0;
+			}
+			return Arrays.copyOf(bytes, size);
+		}
+
+	}
+
+}
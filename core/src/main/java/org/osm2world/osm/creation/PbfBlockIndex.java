@@ -0,0 +1,633 @@
+package org.osm2world.osm.creation;
+
+import static java.lang.Math.floor;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.osm2world.math.geo.LatLonBounds;
+
+import de.topobyte.osm4j.core.model.iface.*;
+import de.topobyte.osm4j.pbf.seq.PbfIterator;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.set.hash.TIntHashSet;
+
+/**
+ * an index of the file blocks of an OSM PBF file. Makes it possible to decode only those blocks
+ * which are relevant for a region or which contain entities with certain ids.
+ *
+ * For each block, the index stores its position in the file, the type and id range of the entities in it,
+ * and the cells of a global lat/lon grid which are touched by its nodes (or, for ways, by the ways' nodes).
+ * Ways spanning several cells and relations also have their extent stored, because they can cover a region
+ * without any of their nodes being inside it. Building the index requires decoding the entire file once.
+ * It can then be stored in a small sidecar file next to the PBF file.
+ */
+final class PbfBlockIndex {
+
+	/** resolution of the grid of cells used for the spatial part of the index */
+	static final int CELLS_PER_DEGREE = 10;
+
+	private static final int CELLS_X = 360 * CELLS_PER_DEGREE;
+	private static final int CELLS_Y = 180 * CELLS_PER_DEGREE;
+
+	private static final String FORMAT_ID = "O2W-PBF-INDEX";
+	private static final int FORMAT_VERSION = 2;
+
+	/** the type of the entities in a file block */
+	enum BlockType { NODES, WAYS, RELATIONS, MIXED }
+
+	/**
+	 * a file block of the PBF file, consisting of a blob header and a blob
+	 *
+	 * @param cells  the sorted grid cells touched by the block's nodes or ways,
+	 *               null for blocks without spatial information (relations and mixed blocks)
+	 * @param wayExtents  extents of the block's ways which span more than one cell
+	 * @param relationExtents  extents of the block's relations, based on their node and way members
+	 */
+	record Block(long offset, int length, BlockType type, long minId, long maxId, @Nullable int[] cells,
+			Extents wayExtents, Extents relationExtents) {
+
+		/** returns true if the block's entities may touch the region covered by a range of cells */
+		boolean touches(CellRange range) {
+			if (cells == null) return true;
+			for (int cell : cells) {
+				if (range.contains(cell)) return true;
+			}
+			return false;
+		}
+
+		/** returns true if any of the (sorted) ids is within this block's id range */
+		boolean mayContainAny(long[] sortedIds) {
+			int i = Arrays.binarySearch(sortedIds, minId);
+			if (i >= 0) return true;
+			int insertionPoint = -i - 1;
+			return insertionPoint < sortedIds.length && sortedIds[insertionPoint] <= maxId;
+		}
+
+	}
+
+	/** a rectangular range of grid cells */
+	record CellRange(int minX, int minY, int maxX, int maxY) {
+
+		static CellRange of(LatLonBounds bounds) {
+			return new CellRange(cellX(bounds.minlon), cellY(bounds.minlat), cellX(bounds.maxlon), cellY(bounds.maxlat));
+		}
+
+		static CellRange ofCell(int cell) {
+			int x = cell % CELLS_X;
+			int y = cell / CELLS_X;
+			return new CellRange(x, y, x, y);
+		}
+
+		boolean contains(int cell) {
+			int x = cell % CELLS_X;
+			int y = cell / CELLS_X;
+			return minX <= x && x <= maxX && minY <= y && y <= maxY;
+		}
+
+		boolean intersects(CellRange other) {
+			return minX <= other.maxX && other.minX <= maxX && minY <= other.maxY && other.minY <= maxY;
+		}
+
+		boolean isSingleCell() {
+			return minX == maxX && minY == maxY;
+		}
+
+		CellRange union(@Nullable CellRange other) {
+			if (other == null) return this;
+			return new CellRange(min(minX, other.minX), min(minY, other.minY),
+					max(maxX, other.maxX), max(maxY, other.maxY));
+		}
+
+	}
+
+	/**
+	 * the extents of some entities in a block
+	 *
+	 * @param ids  the sorted ids of the entities
+	 * @param ranges  minX, minY, maxX and maxY of each entity's {@link CellRange}, in the same order as the ids
+	 */
+	record Extents(long[] ids, int[] ranges) {
+
+		static final Extents EMPTY = new Extents(new long[0], new int[0]);
+
+		/** returns the extent of an entity, or null if none is stored for it */
+		@Nullable CellRange get(long id) {
+			int i = Arrays.binarySearch(ids, id);
+			return i < 0 ? null : range(i);
+		}
+
+		boolean anyIntersects(CellRange range) {
+			for (int i = 0; i < ids.length; i++) {
+				if (range(i).intersects(range)) return true;
+			}
+			return false;
+		}
+
+		private CellRange range(int i) {
+			return new CellRange(ranges[4 * i], ranges[4 * i + 1], ranges[4 * i + 2], ranges[4 * i + 3]);
+		}
+
+	}
+
+	/** length and modification time of the indexed file, used to detect outdated index files */
+	private final long fileLength;
+	private final long fileLastModified;
+
+	/** the file block containing the OSMHeader, or null if the file has no header block */
+	final @Nullable Block headerBlock;
+
+	final List<Block> blocks;
+
+	private PbfBlockIndex(long fileLength, long fileLastModified, @Nullable Block headerBlock, List<Block> blocks) {
+		this.fileLength = fileLength;
+		this.fileLastModified = fileLastModified;
+		this.headerBlock = headerBlock;
+		this.blocks = blocks;
+	}
+
+	/** returns the blocks of a type, in file order. Mixed blocks are included for every type. */
+	List<Block> blocks(BlockType type) {
+		return blocks.stream().filter(b -> b.type == type || b.type == BlockType.MIXED).toList();
+	}
+
+	/**
+	 * returns the index for a PBF file. Reads it from the sidecar file if that exists and is up-to-date.
+	 * Otherwise, builds the index and tries to write it to the sidecar file.
+	 *
+	 * @throws IOException  if the file cannot be read, or if it cannot be indexed
+	 *                      because its nodes or ways are not sorted by id
+	 */
+	static PbfBlockIndex forFile(File pbfFile) throws IOException {
+
+		File indexFile = indexFileFor(pbfFile);
+
+		if (indexFile.exists()) {
+			try {
+				PbfBlockIndex index = read(indexFile);
+				if (index.fileLength == pbfFile.length() && index.fileLastModified == pbfFile.lastModified()) {
+					return index;
+				}
+			} catch (IOException e) {
+				// the index file is damaged or has an old format, build a new one
+			}
+		}
+
+		PbfBlockIndex index = build(pbfFile);
+
+		try {
+			index.write(indexFile);
+		} catch (IOException e) {
+			System.err.println("Could not write PBF index file " + indexFile + ": " + e.getMessage());
+		}
+
+		return index;
+
+	}
+
+	static File indexFileFor(File pbfFile) {
+		return new File(pbfFile.getPath() + ".o2widx");
+	}
+
+	/** builds the index by decoding every block of the file */
+	static PbfBlockIndex build(File pbfFile) throws IOException {
+
+		long fileLastModified = pbfFile.lastModified();
+
+		try (FileChannel channel = FileChannel.open(pbfFile.toPath())) {
+
+			Block headerBlock = null;
+			List<Block> blocks = new ArrayList<>();
+
+			/* cells of all nodes, sorted by node id, for looking up the cells of way nodes */
+
+			TLongArrayList nodeIds = new TLongArrayList();
+			TIntArrayList nodeCells = new TIntArrayList();
+
+			/* extents of all ways, sorted by way id, for calculating the extents of relations */
+
+			TLongArrayList wayIds = new TLongArrayList();
+			List<CellRange> wayExtents = new ArrayList<>();
+
+			long offset = 0;
+
+			while (offset < channel.size()) {
+
+				FileBlockHeader header = readFileBlockHeader(channel, offset);
+
+				if ("OSMHeader".equals(header.type)) {
+
+					headerBlock = new Block(offset, header.length, BlockType.MIXED, 0, 0, null,
+							Extents.EMPTY, Extents.EMPTY);
+
+				} else if ("OSMData".equals(header.type)) {
+
+					var blockBuilder = new BlockBuilder(offset, header.length);
+
+					for (EntityContainer container : decode(channel, headerBlock, blockBuilder.offset, header.length)) {
+						switch (container.getType()) {
+							case Node -> {
+								OsmNode node = (OsmNode) container.getEntity();
+								int cell = cell(node.getLatitude(), node.getLongitude());
+								if (!nodeIds.isEmpty() && nodeIds.get(nodeIds.size() - 1) >= node.getId()) {
+									throw new IOException("Cannot index PBF file, nodes are not sorted by id: " + pbfFile);
+								}
+								nodeIds.add(node.getId());
+								nodeCells.add(cell);
+								blockBuilder.add(BlockType.NODES, node.getId(), cell);
+							}
+							case Way -> {
+								OsmWay way = (OsmWay) container.getEntity();
+								if (!wayIds.isEmpty() && wayIds.get(wayIds.size() - 1) >= way.getId()) {
+									throw new IOException("Cannot index PBF file, ways are not sorted by id: " + pbfFile);
+								}
+								blockBuilder.add(BlockType.WAYS, way.getId(), -1);
+								CellRange extent = null;
+								for (int i = 0; i < way.getNumberOfNodes(); i++) {
+									int nodeIndex = nodeIds.binarySearch(way.getNodeId(i));
+									if (nodeIndex >= 0) {
+										blockBuilder.add(BlockType.WAYS, way.getId(), nodeCells.get(nodeIndex));
+										extent = CellRange.ofCell(nodeCells.get(nodeIndex)).union(extent);
+									}
+								}
+								if (extent != null) {
+									wayIds.add(way.getId());
+									wayExtents.add(extent);
+									if (!extent.isSingleCell()) {
+										blockBuilder.wayExtents.add(way.getId(), extent);
+									}
+								}
+							}
+							case Relation -> {
+								OsmRelation relation = (OsmRelation) container.getEntity();
+								blockBuilder.add(BlockType.RELATIONS, relation.getId(), -1);
+								CellRange extent = null;
+								for (int i = 0; i < relation.getNumberOfMembers(); i++) {
+									OsmRelationMember member = relation.getMember(i);
+									if (member.getType() == EntityType.Node) {
+										int nodeIndex = nodeIds.binarySearch(member.getId());
+										if (nodeIndex >= 0) {
+											extent = CellRange.ofCell(nodeCells.get(nodeIndex)).union(extent);
+										}
+									} else if (member.getType() == EntityType.Way) {
+										int wayIndex = wayIds.binarySearch(member.getId());
+										if (wayIndex >= 0) {
+											extent = wayExtents.get(wayIndex).union(extent);
+										}
+									}
+								}
+								if (extent != null) {
+									blockBuilder.relationExtents.add(relation.getId(), extent);
+								}
+							}
+						}
+					}
+
+					if (blockBuilder.type != null) {
+						blocks.add(blockBuilder.build());
+					}
+
+				}
+
+				offset += header.length;
+
+			}
+
+			return new PbfBlockIndex(channel.size(), fileLastModified, headerBlock, blocks);
+
+		}
+
+	}
+
+	/**
+	 * decodes a file block.
+	 * The block is read through a memory mapping, together with the header block (if any) which precedes it.
+	 */
+	static Iterable<EntityContainer> decode(FileChannel channel, @Nullable Block headerBlock, Block block)
+			throws IOException {
+		return decode(channel, headerBlock, block.offset, block.length);
+	}
+
+	private static Iterable<EntityContainer> decode(FileChannel channel, @Nullable Block headerBlock,
+			long offset, int length) throws IOException {
+
+		List<ByteBuffer> buffers = new ArrayList<>(2);
+
+		if (headerBlock != null) {
+			buffers.add(channel.map(FileChannel.MapMode.READ_ONLY, headerBlock.offset, headerBlock.length));
+		}
+
+		buffers.add(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+
+		return new PbfIterator(new ByteBuffersInputStream(buffers), false);
+
+	}
+
+	private record FileBlockHeader(String type, int length) {}
+
+	/**
+	 * reads the header of the file block at an offset.
+	 * Only the fields needed for the index are extracted from the BlobHeader message.
+	 */
+	private static FileBlockHeader readFileBlockHeader(FileChannel channel, long offset) throws IOException {
+
+		MappedByteBuffer lengthBuffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, 4);
+		int headerLength = lengthBuffer.order(ByteOrder.BIG_ENDIAN).getInt(0);
+
+		ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, offset + 4, headerLength);
+
+		String type = null;
+		int dataSize = -1;
+
+		while (header.hasRemaining()) {
+			long key = readVarint(header);
+			int fieldNumber = (int) (key >>> 3);
+			int wireType = (int) (key & 0x7);
+			if (wireType == 2) {
+				byte[] bytes = new byte[(int) readVarint(header)];
+				header.get(bytes);
+				if (fieldNumber == 1) {
+					type = new String(bytes, StandardCharsets.UTF_8);
+				}
+			} else if (wireType == 0) {
+				long value = readVarint(header);
+				if (fieldNumber == 3) {
+					dataSize = (int) value;
+				}
+			} else {
+				throw new IOException("Unexpected wire type " + wireType + " in BlobHeader at offset " + offset);
+			}
+		}
+
+		if (type == null || dataSize < 0) {
+			throw new IOException("Invalid BlobHeader at offset " + offset);
+		}
+
+		return new FileBlockHeader(type, 4 + headerLength + dataSize);
+
+	}
+
+	private static long readVarint(ByteBuffer buffer) {
+		long result = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = buffer.get();
+			result |= (long) (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) return result;
+		}
+	}
+
+	static int cellX(double lon) {
+		return max(0, min(CELLS_X - 1, (int) floor((lon + 180) * CELLS_PER_DEGREE)));
+	}
+
+	static int cellY(double lat) {
+		return max(0, min(CELLS_Y - 1, (int) floor((lat + 90) * CELLS_PER_DEGREE)));
+	}
+
+	static int cell(double lat, double lon) {
+		return cellY(lat) * CELLS_X + cellX(lon);
+	}
+
+	private void write(File indexFile) throws IOException {
+
+		try (var out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)))) {
+
+			out.writeUTF(FORMAT_ID);
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(CELLS_PER_DEGREE);
+			out.writeLong(fileLength);
+			out.writeLong(fileLastModified);
+
+			out.writeBoolean(headerBlock != null);
+			if (headerBlock != null) {
+				writeBlock(out, headerBlock);
+			}
+
+			out.writeInt(blocks.size());
+			for (Block block : blocks) {
+				writeBlock(out, block);
+			}
+
+		}
+
+	}
+
+	private static void writeBlock(DataOutputStream out, Block block) throws IOException {
+		out.writeLong(block.offset);
+		out.writeInt(block.length);
+		out.writeByte(block.type.ordinal());
+		out.writeLong(block.minId);
+		out.writeLong(block.maxId);
+		if (block.cells == null) {
+			out.writeInt(-1);
+		} else {
+			out.writeInt(block.cells.length);
+			for (int cell : block.cells) {
+				out.writeInt(cell);
+			}
+		}
+		writeExtents(out, block.wayExtents);
+		writeExtents(out, block.relationExtents);
+	}
+
+	private static void writeExtents(DataOutputStream out, Extents extents) throws IOException {
+		out.writeInt(extents.ids.length);
+		for (long id : extents.ids) {
+			out.writeLong(id);
+		}
+		for (int value : extents.ranges) {
+			out.writeInt(value);
+		}
+	}
+
+	private static PbfBlockIndex read(File indexFile) throws IOException {
+
+		try (var in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+
+			if (!FORMAT_ID.equals(in.readUTF())
+					|| in.readInt() != FORMAT_VERSION
+					|| in.readInt() != CELLS_PER_DEGREE) {
+				throw new IOException("Unsupported index file " + indexFile);
+			}
+
+			long fileLength = in.readLong();
+			long fileLastModified = in.readLong();
+
+			Block headerBlock = in.readBoolean() ? readBlock(in) : null;
+
+			int blockCount = in.readInt();
+			List<Block> blocks = new ArrayList<>(blockCount);
+			for (int i = 0; i < blockCount; i++) {
+				blocks.add(readBlock(in));
+			}
+
+			return new PbfBlockIndex(fileLength, fileLastModified, headerBlock, blocks);
+
+		}
+
+	}
+
+	private static Block readBlock(DataInputStream in) throws IOException {
+		long offset = in.readLong();
+		int length = in.readInt();
+		BlockType type = BlockType.values()[in.readByte()];
+		long minId = in.readLong();
+		long maxId = in.readLong();
+		int cellCount = in.readInt();
+		int[] cells = null;
+		if (cellCount >= 0) {
+			cells = new int[cellCount];
+			for (int i = 0; i < cellCount; i++) {
+				cells[i] = in.readInt();
+			}
+		}
+		return new Block(offset, length, type, minId, maxId, cells, readExtents(in), readExtents(in));
+	}
+
+	private static Extents readExtents(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		long[] ids = new long[count];
+		for (int i = 0; i < count; i++) {
+			ids[i] = in.readLong();
+		}
+		int[] ranges = new int[4 * count];
+		for (int i = 0; i < ranges.length; i++) {
+			ranges[i] = in.readInt();
+		}
+		return new Extents(ids, ranges);
+	}
+
+	/** collects the information about a block while its entities are decoded */
+	private static class BlockBuilder {
+
+		final long offset;
+		final int length;
+
+		@Nullable BlockType type = null;
+		long minId = Long.MAX_VALUE;
+		long maxId = Long.MIN_VALUE;
+		final TIntHashSet cells = new TIntHashSet();
+		final ExtentsBuilder wayExtents = new ExtentsBuilder();
+		final ExtentsBuilder relationExtents = new ExtentsBuilder();
+
+		BlockBuilder(long offset, int length) {
+			this.offset = offset;
+			this.length = length;
+		}
+
+		/** @param cell  a cell touched by the entity, or -1 if none is known */
+		void add(BlockType entityType, long id, int cell) {
+			if (type == null) {
+				type = entityType;
+			} else if (type != entityType) {
+				type = BlockType.MIXED;
+			}
+			minId = min(minId, id);
+			maxId = max(maxId, id);
+			if (cell >= 0) {
+				cells.add(cell);
+			}
+		}
+
+		Block build() {
+			int[] sortedCells = null;
+			if (type == BlockType.NODES || type == BlockType.WAYS) {
+				sortedCells = cells.toArray();
+				Arrays.sort(sortedCells);
+			}
+			return new Block(offset, length, type, minId, maxId, sortedCells,
+					wayExtents.build(), relationExtents.build());
+		}
+
+	}
+
+	/** collects the extents of some entities in a block, which may be added in any order */
+	private static class ExtentsBuilder {
+
+		final TLongArrayList ids = new TLongArrayList();
+		final List<CellRange> ranges = new ArrayList<>();
+
+		void add(long id, CellRange range) {
+			ids.add(id);
+			ranges.add(range);
+		}
+
+		Extents build() {
+
+			if (ids.isEmpty()) return Extents.EMPTY;
+
+			Integer[] order = new Integer[ids.size()];
+			Arrays.setAll(order, i -> i);
+			Arrays.sort(order, (i1, i2) -> Long.compare(ids.get(i1), ids.get(i2)));
+
+			long[] sortedIds = new long[order.length];
+			int[] sortedRanges = new int[4 * order.length];
+			for (int i = 0; i < order.length; i++) {
+				CellRange range = ranges.get(order[i]);
+				sortedIds[i] = ids.get(order[i]);
+				sortedRanges[4 * i] = range.minX;
+				sortedRanges[4 * i + 1] = range.minY;
+				sortedRanges[4 * i + 2] = range.maxX;
+				sortedRanges[4 * i + 3] = range.maxY;
+			}
+
+			return new Extents(sortedIds, sortedRanges);
+
+		}
+
+	}
+
+	/** an input stream reading the content of several buffers one after another, without copying them first */
+	private static class ByteBuffersInputStream extends InputStream {
+
+		private final List<ByteBuffer> buffers;
+		private int currentBuffer = 0;
+
+		ByteBuffersInputStream(List<ByteBuffer> buffers) {
+			this.buffers = buffers;
+		}
+
+		@Override
+		public int read() {
+			ByteBuffer buffer = nextNonEmptyBuffer();
+			return buffer == null ? -1 : buffer.get() & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) return 0;
+			ByteBuffer buffer = nextNonEmptyBuffer();
+			if (buffer == null) return -1;
+			int count = min(len, buffer.remaining());
+			buffer.get(b, off, count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			ByteBuffer buffer = nextNonEmptyBuffer();
+			return buffer == null ? 0 : buffer.remaining();
+		}
+
+		private @Nullable ByteBuffer nextNonEmptyBuffer() {
+			while (currentBuffer < buffers.size() && !buffers.get(currentBuffer).hasRemaining()) {
+				currentBuffer++;
+			}
+			return currentBuffer < buffers.size() ? buffers.get(currentBuffer) : null;
+		}
+
+	}
+
+}
@@ -21,12 +21,19 @@ import de.topobyte.osm4j.core.resolve.EntityNotFoundException;
 import de.topobyte.osm4j.core.resolve.OsmEntityProvider;
 
 /**
- * OSM dataset containing nodes, areas and relations
+ * OSM dataset containing nodes, areas and relations.
+ *
+ * The entities are either stored in an {@link InMemoryMapDataSet} or, for lower memory use,
+ * in a {@link PackedEntityStore}.
  */
 public class OSMData implements OsmEntityProvider {
 
 	private final Collection<OsmBounds> bounds;
-	private final InMemoryMapDataSet data;
+
+	/** the entities, null if they are stored in {@link #packedData} and have not been requested in this form */
+	private @Nullable InMemoryMapDataSet data;
+
+	private final @Nullable PackedEntityStore packedData;
 
 	public OSMData(InMemoryMapDataSet data) {
 
@@ -37,13 +44,21 @@ public class OSMData implements OsmEntityProvider {
 		}
 
 		this.data = data;
+		this.packedData = null;
+
+	}
 
+	public OSMData(Collection<OsmBounds> bounds, PackedEntityStore packedData) {
+		this.bounds = bounds;
+		this.data = null;
+		this.packedData = packedData;
 	}
 
 	public OSMData(Collection<OsmBounds> bounds, Collection<? extends OsmNode> nodes,
 			Collection<? extends OsmWay> ways, Collection<? extends OsmRelation> relations) {
 
 		this.bounds = bounds;
+		this.packedData = null;
 
 		data = new InMemoryMapDataSet();
 		for (OsmNode node : nodes) {
@@ -58,35 +73,80 @@ public class OSMData implements OsmEntityProvider {
 
 	}
 
-	public InMemoryMapDataSet getData() {
+	/**
+	 * returns the entities as an osm4j dataset.
+	 * If this dataset uses a {@link PackedEntityStore}, all entities are copied into a new dataset on the first call,
+	 * which undoes the memory savings.
+	 */
+	public synchronized InMemoryMapDataSet getData() {
+		if (data == null) {
+			data = new InMemoryMapDataSet();
+			packedData.nodes().forEach(it -> data.getNodes().put(it.getId(), it));
+			packedData.ways().forEach(it -> data.getWays().put(it.getId(), it));
+			packedData.relations().forEach(it -> data.getRelations().put(it.getId(), it));
+			if (bounds.size() == 1) {
+				data.setBounds(bounds.iterator().next());
+			}
+		}
 		return data;
 	}
 
 	public Collection<OsmNode> getNodes() {
-		return data.getNodes().valueCollection();
+		if (packedData != null) {
+			return packedData.nodes();
+		} else {
+			return data.getNodes().valueCollection();
+		}
 	}
 
 	@Override
 	public OsmNode getNode(long id) throws EntityNotFoundException {
-		return data.getNode(id);
+		if (packedData != null) {
+			return requireFound(packedData.getNodeById(id), "node", id);
+		} else {
+			return data.getNode(id);
+		}
 	}
 
 	public Collection<OsmWay> getWays() {
-		return data.getWays().valueCollection();
+		if (packedData != null) {
+			return packedData.ways();
+		} else {
+			return data.getWays().valueCollection();
+		}
 	}
 
 	@Override
 	public OsmWay getWay(long id) throws EntityNotFoundException {
-		return data.getWay(id);
+		if (packedData != null) {
+			return requireFound(packedData.getWayById(id), "way", id);
+		} else {
+			return data.getWay(id);
+		}
 	}
 
 	public Collection<OsmRelation> getRelations() {
-		return data.getRelations().valueCollection();
+		if (packedData != null) {
+			return packedData.relations();
+		} else {
+			return data.getRelations().valueCollection();
+		}
 	}
 
 	@Override
 	public OsmRelation getRelation(long id) throws EntityNotFoundException {
-		return data.getRelation(id);
+		if (packedData != null) {
+			return requireFound(packedData.getRelationById(id), "relation", id);
+		} else {
+			return data.getRelation(id);
+		}
+	}
+
+	private static <E> E requireFound(@Nullable E entity, String type, long id) throws EntityNotFoundException {
+		if (entity == null) {
+			throw new EntityNotFoundException("unable to find " + type + " with id " + id);
+		}
+		return entity;
 	}
 
 	public Collection<LatLonBounds> getExplicitBounds() {
@@ -0,0 +1,321 @@
+package org.osm2world.osm.data;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import de.topobyte.osm4j.core.model.iface.OsmEntity;
+import de.topobyte.osm4j.core.model.iface.OsmNode;
+import de.topobyte.osm4j.core.model.iface.OsmRelation;
+import de.topobyte.osm4j.core.model.iface.OsmTag;
+import de.topobyte.osm4j.core.model.iface.OsmWay;
+import de.topobyte.osm4j.core.model.impl.Node;
+import de.topobyte.osm4j.core.model.impl.Tag;
+import de.topobyte.osm4j.core.model.impl.Way;
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+
+/**
+ * memory-efficient storage of OSM entities, used as an alternative backend for {@link OSMData}.
+ *
+ * Instead of one object per node and way, the data is stored in parallel primitive arrays sorted by id.
+ * Way node lists are packed into a single array, and tags are stored as indices into a table of distinct strings.
+ * osm4j entities are created only when they are accessed, and are not retained.
+ * Relations are usually few in number and are stored as regular osm4j entities.
+ * Metadata such as versions and timestamps is not stored.
+ */
+public final class PackedEntityStore {
+
+	/** distinct tag keys and values, referenced by index */
+	private final String[] strings;
+
+	private final long[] nodeIds;
+	private final double[] nodeLats;
+	private final double[] nodeLons;
+	private final PackedInts nodeTags;
+
+	private final long[] wayIds;
+	private final PackedLongs wayNodes;
+	private final PackedInts wayTags;
+
+	private final long[] relationIds;
+	private final OsmRelation[] relations;
+
+	private PackedEntityStore(String[] strings,
+			long[] nodeIds, double[] nodeLats, double[] nodeLons, PackedInts nodeTags,
+			long[] wayIds, PackedLongs wayNodes, PackedInts wayTags,
+			long[] relationIds, OsmRelation[] relations) {
+		this.strings = strings;
+		this.nodeIds = nodeIds;
+		this.nodeLats = nodeLats;
+		this.nodeLons = nodeLons;
+		this.nodeTags = nodeTags;
+		this.wayIds = wayIds;
+		this.wayNodes = wayNodes;
+		this.wayTags = wayTags;
+		this.relationIds = relationIds;
+		this.relations = relations;
+	}
+
+	/** returns all nodes, ordered by id. Entities are created while accessing the list. */
+	public List<OsmNode> nodes() {
+		return new AbstractList<>() {
+			@Override public OsmNode get(int index) { return nodeAt(index); }
+			@Override public int size() { return nodeIds.length; }
+		};
+	}
+
+	/** returns all ways, ordered by id. Entities are created while accessing the list. */
+	public List<OsmWay> ways() {
+		return new AbstractList<>() {
+			@Override public OsmWay get(int index) { return wayAt(index); }
+			@Override public int size() { return wayIds.length; }
+		};
+	}
+
+	/** returns all relations, ordered by id */
+	public List<OsmRelation> relations() {
+		return Arrays.asList(relations);
+	}
+
+	public @Nullable OsmNode getNodeById(long id) {
+		int index = Arrays.binarySearch(nodeIds, id);
+		return index >= 0 ? nodeAt(index) : null;
+	}
+
+	public @Nullable OsmWay getWayById(long id) {
+		int index = Arrays.binarySearch(wayIds, id);
+		return index >= 0 ? wayAt(index) : null;
+	}
+
+	public @Nullable OsmRelation getRelationById(long id) {
+		int index = Arrays.binarySearch(relationIds, id);
+		return index >= 0 ? relations[index] : null;
+	}
+
+	private OsmNode nodeAt(int index) {
+		Node node = new Node(nodeIds[index], nodeLons[index], nodeLats[index]);
+		node.setTags(tags(nodeTags, index));
+		return node;
+	}
+
+	private OsmWay wayAt(int index) {
+		Way way = new Way(wayIds[index], new TLongArrayList(wayNodes.get(index)));
+		way.setTags(tags(wayTags, index));
+		return way;
+	}
+
+	private List<? extends OsmTag> tags(PackedInts packedTags, int index) {
+		int start = packedTags.offsets[index];
+		int end = packedTags.offsets[index + 1];
+		if (start == end) {
+			return List.of();
+		} else {
+			List<Tag> result = new ArrayList<>((end - start) / 2);
+			for (int i = start; i < end; i += 2) {
+				result.add(new Tag(strings[packedTags.values[i]], strings[packedTags.values[i + 1]]));
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * collects entities for a {@link PackedEntityStore}. Entities may be added in any order.
+	 * If multiple entities of the same type have the same id, the one added last is used.
+	 */
+	public static class Builder {
+
+		private final Map<String, Integer> stringIndices = new HashMap<>();
+		private final List<String> strings = new ArrayList<>();
+
+		private final TLongArrayList nodeIds = new TLongArrayList();
+		private final TDoubleArrayList nodeLats = new TDoubleArrayList();
+		private final TDoubleArrayList nodeLons = new TDoubleArrayList();
+		private final TIntArrayList nodeTagOffsets = new TIntArrayList(new int[] {0});
+		private final TIntArrayList nodeTags = new TIntArrayList();
+
+		private final TLongArrayList wayIds = new TLongArrayList();
+		private final TIntArrayList wayNodeOffsets = new TIntArrayList(new int[] {0});
+		private final TLongArrayList wayNodes = new TLongArrayList();
+		private final TIntArrayList wayTagOffsets = new TIntArrayList(new int[] {0});
+		private final TIntArrayList wayTags = new TIntArrayList();
+
+		private final List<OsmRelation> relations = new ArrayList<>();
+
+		public void addNode(OsmNode node) {
+			nodeIds.add(node.getId());
+			nodeLats.add(node.getLatitude());
+			nodeLons.add(node.getLongitude());
+			addTags(node, nodeTags, nodeTagOffsets);
+		}
+
+		public void addWay(OsmWay way) {
+			wayIds.add(way.getId());
+			for (int i = 0; i < way.getNumberOfNodes(); i++) {
+				wayNodes.add(way.getNodeId(i));
+			}
+			wayNodeOffsets.add(wayNodes.size());
+			addTags(way, wayTags, wayTagOffsets);
+		}
+
+		public void addRelation(OsmRelation relation) {
+			relations.add(relation);
+		}
+
+		private void addTags(OsmEntity entity, TIntArrayList tags, TIntArrayList tagOffsets) {
+			for (int i = 0; i < entity.getNumberOfTags(); i++) {
+				OsmTag tag = entity.getTag(i);
+				tags.add(stringIndex(tag.getKey()));
+				tags.add(stringIndex(tag.getValue()));
+			}
+			tagOffsets.add(tags.size());
+		}
+
+		private int stringIndex(String s) {
+			return stringIndices.computeIfAbsent(s, it -> {
+				strings.add(it);
+				return strings.size() - 1;
+			});
+		}
+
+		public PackedEntityStore build() {
+
+			/* nodes */
+
+			long[] nodeIdArray = nodeIds.toArray();
+			double[] nodeLatArray = nodeLats.toArray();
+			double[] nodeLonArray = nodeLons.toArray();
+			PackedInts packedNodeTags = new PackedInts(nodeTagOffsets.toArray(), nodeTags.toArray());
+
+			int[] nodeOrder = sortedOrder(nodeIdArray);
+
+			if (nodeOrder != null) {
+				nodeIdArray = reorder(nodeIdArray, nodeOrder);
+				nodeLatArray = reorder(nodeLatArray, nodeOrder);
+				nodeLonArray = reorder(nodeLonArray, nodeOrder);
+				packedNodeTags = packedNodeTags.reorder(nodeOrder);
+			}
+
+			/* ways */
+
+			long[] wayIdArray = wayIds.toArray();
+			PackedLongs packedWayNodes = new PackedLongs(wayNodeOffsets.toArray(), wayNodes.toArray());
+			PackedInts packedWayTags = new PackedInts(wayTagOffsets.toArray(), wayTags.toArray());
+
+			int[] wayOrder = sortedOrder(wayIdArray);
+
+			if (wayOrder != null) {
+				wayIdArray = reorder(wayIdArray, wayOrder);
+				packedWayNodes = packedWayNodes.reorder(wayOrder);
+				packedWayTags = packedWayTags.reorder(wayOrder);
+			}
+
+			/* relations */
+
+			long[] relationIdArray = relations.stream().mapToLong(OsmRelation::getId).toArray();
+			OsmRelation[] relationArray = relations.toArray(new OsmRelation[0]);
+
+			int[] relationOrder = sortedOrder(relationIdArray);
+
+			if (relationOrder != null) {
+				relationIdArray = reorder(relationIdArray, relationOrder);
+				OsmRelation[] unsortedRelations = relationArray;
+				relationArray = Arrays.stream(relationOrder).mapToObj(i -> unsortedRelations[i])
+						.toArray(OsmRelation[]::new);
+			}
+
+			return new PackedEntityStore(strings.toArray(new String[0]),
+					nodeIdArray, nodeLatArray, nodeLonArray, packedNodeTags,
+					wayIdArray, packedWayNodes, packedWayTags,
+					relationIdArray, relationArray);
+
+		}
+
+		/**
+		 * returns the indices of the ids in ascending order of id, omitting all but the last occurrence of an id.
+		 * Returns null if the ids are already strictly ascending, which is the case for most input files.
+		 */
+		private static @Nullable int[] sortedOrder(long[] ids) {
+
+			boolean sorted = true;
+			for (int i = 1; i < ids.length && sorted; i++) {
+				sorted = ids[i - 1] < ids[i];
+			}
+
+			if (sorted) return null;
+
+			Integer[] order = new Integer[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, (i1, i2) -> Long.compare(ids[i1], ids[i2])); // stable
+
+			TIntArrayList result = new TIntArrayList(ids.length);
+			for (int i = 0; i < order.length; i++) {
+				if (i + 1 == order.length || ids[order[i]] != ids[order[i + 1]]) {
+					result.add(order[i]);
+				}
+			}
+			return result.toArray();
+
+		}
+
+		private static long[] reorder(long[] values, int[] order) {
+			long[] result = new long[order.length];
+			for (int i = 0; i < order.length; i++) {
+				result[i] = values[order[i]];
+			}
+			return result;
+		}
+
+		private static double[] reorder(double[] values, int[] order) {
+			double[] result = new double[order.length];
+			for (int i = 0; i < order.length; i++) {
+				result[i] = values[order[i]];
+			}
+			return result;
+		}
+
+	}
+
+	/** variable-length sequences of ints, the sequence at index i is values[offsets[i]] to values[offsets[i+1]-1] */
+	private record PackedInts(int[] offsets, int[] values) {
+
+		PackedInts reorder(int[] order) {
+			TIntArrayList newValues = new TIntArrayList(values.length);
+			int[] newOffsets = new int[order.length + 1];
+			for (int i = 0; i < order.length; i++) {
+				newValues.add(values, offsets[order[i]], offsets[order[i] + 1] - offsets[order[i]]);
+				newOffsets[i + 1] = newValues.size();
+			}
+			return new PackedInts(newOffsets, newValues.toArray());
+		}
+
+	}
+
+	/** like {@link PackedInts}, but for longs */
+	private record PackedLongs(int[] offsets, long[] values) {
+
+		long[] get(int index) {
+			return Arrays.copyOfRange(values, offsets[index], offsets[index + 1]);
+		}
+
+		PackedLongs reorder(int[] order) {
+			TLongArrayList newValues = new TLongArrayList(values.length);
+			int[] newOffsets = new int[order.length + 1];
+			for (int i = 0; i < order.length; i++) {
+				newValues.add(values, offsets[order[i]], offsets[order[i] + 1] - offsets[order[i]]);
+				newOffsets[i + 1] = newValues.size();
+			}
+			return new PackedLongs(newOffsets, newValues.toArray());
+		}
+
+	}
+
+}
@@ -15,6 +15,7 @@ import org.osm2world.scene.mesh.LevelOfDetail;
 import org.osm2world.scene.mesh.Mesh;
 import org.osm2world.scene.mesh.MeshStore;
 import org.osm2world.scene.mesh.TriangleGeometry;
+import org.osm2world.scene.model.ModelInstance;
 import org.osm2world.world.data.WorldObject;
 
 /**
@@ -35,33 +36,47 @@ public interface DrawBasedOutput extends Output, CommonTarget {
 
 	/**
 	 * writes an entire {@link Scene} to this output.
+	 * The scene's {@link Scene#getContext()} is bound to the current thread while doing so.
 	 * @param keepOpen  false to call {@link #finish()} at the end,
 	 *                  true to allow further content to be written to this target.
 	 */
 	default void outputScene(Scene scene, boolean keepOpen) {
 
-		forEach(scene.getWorldObjects(), (WorldObject r) -> {
-			if (r.getParent() == null) {
-				if (requireNonNullElse(getConfiguration(), new O2WConfig()).renderUnderground() || r.getGroundState() != GroundState.BELOW) {
-					renderObject(r);
+		scene.getContext().runWith(() -> {
+
+			forEach(scene.getWorldObjects(), (WorldObject r) -> {
+				if (r.getParent() == null) {
+					if (requireNonNullElse(getConfiguration(), new O2WConfig()).renderUnderground() || r.getGroundState() != GroundState.BELOW) {
+						renderObject(scene, r);
+					}
 				}
+			}, (e, r) -> DEFAULT_EXCEPTION_HANDLER.accept(e, r.getPrimaryMapElement()));
+
+			if (!keepOpen) {
+				finish();
 			}
-		}, (e, r) -> DEFAULT_EXCEPTION_HANDLER.accept(e, r.getPrimaryMapElement()));
 
-		if (!keepOpen) {
-			finish();
-		}
+		});
 
 	}
 
 	/**
 	 * renders one {@link WorldObject} to this output.
 	 * Also sends {@link #beginObject(WorldObject)} calls.
+	 * Uses the meshes cached by the {@link Scene} instead of building them again for each output.
 	 */
-	private void renderObject(WorldObject object) {
+	private void renderObject(Scene scene, WorldObject object) {
 		beginObject(object);
-		object.buildMeshes().forEach(this::drawMesh);
-		object.getSubModels().forEach(it -> it.render(this));
+		scene.getMeshes(object).forEach(this::drawMesh);
+		scene.getSubModels(object).forEach(this::drawSubModel);
+	}
+
+	/**
+	 * draws one of the {@link WorldObject#getSubModels()} of the current object.
+	 * By default, the instance's meshes are drawn using {@link #drawMesh(Mesh)}.
+	 */
+	default void drawSubModel(ModelInstance subModel) {
+		subModel.render(this);
 	}
 
 	/**
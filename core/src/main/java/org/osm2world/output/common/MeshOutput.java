@@ -1,11 +1,16 @@
 package org.osm2world.output.common;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.osm2world.output.Output;
 import org.osm2world.scene.mesh.Mesh;
 import org.osm2world.scene.mesh.MeshStore;
 import org.osm2world.scene.mesh.MeshStore.MeshMetadata;
+import org.osm2world.scene.mesh.MeshStore.MeshWithMetadata;
+import org.osm2world.scene.mesh.MeshStore.ModelInstanceWithMetadata;
+import org.osm2world.scene.model.Model;
+import org.osm2world.scene.model.ModelInstance;
 import org.osm2world.world.data.WorldObject;
 
 /**
@@ -18,6 +23,30 @@ public class MeshOutput extends AbstractOutput implements DrawBasedOutput {
 
 	protected WorldObject currentWorldObject = null;
 
+	/**
+	 * whether sub-models which {@link Model#supportsInstancing()} are kept as {@link ModelInstance}s
+	 * instead of being added to {@link #meshStore}
+	 */
+	private final boolean keepModelInstances;
+
+	private final List<ModelInstanceWithMetadata> modelInstances = new ArrayList<>();
+
+	/** for each of the {@link #modelInstances}, the number of meshes which had been drawn before it */
+	private final List<Integer> modelInstanceMeshPositions = new ArrayList<>();
+
+	public MeshOutput() {
+		this(false);
+	}
+
+	/**
+	 * @param keepModelInstances  if true, sub-models which {@link Model#supportsInstancing()} are not converted
+	 *                            to meshes while drawing. They are available from
+	 *                            {@link #getModelInstancesWithMetadata()} instead.
+	 */
+	public MeshOutput(boolean keepModelInstances) {
+		this.keepModelInstances = keepModelInstances;
+	}
+
 	@Override
 	public void beginObject(WorldObject object) {
 		this.currentWorldObject = object;
@@ -25,22 +54,72 @@ public class MeshOutput extends AbstractOutput implements DrawBasedOutput {
 
 	@Override
 	public void drawMesh(Mesh mesh) {
+		meshStore.addMesh(mesh, currentMetadata());
+	}
+
+	@Override
+	public void drawSubModel(ModelInstance subModel) {
+		if (keepModelInstances && subModel.model().supportsInstancing()) {
+			modelInstances.add(new ModelInstanceWithMetadata(subModel, currentMetadata()));
+			modelInstanceMeshPositions.add(meshStore.size());
+		} else {
+			DrawBasedOutput.super.drawSubModel(subModel);
+		}
+	}
 
-		MeshMetadata metadata = (currentWorldObject != null)
+	private MeshMetadata currentMetadata() {
+		return (currentWorldObject != null)
 				? new MeshMetadata(currentWorldObject.getPrimaryMapElement().getElementWithId(),
 						currentWorldObject.getClass())
 				: new MeshMetadata(null, null);
-
-		meshStore.addMesh(mesh, metadata);
-
 	}
 
 	public List<Mesh> getMeshes() {
-		return meshStore.meshes();
+		return getMeshesWithMetadata().stream().map(MeshWithMetadata::mesh).toList();
 	}
 
-	public List<MeshStore.MeshWithMetadata> getMeshesWithMetadata() {
+	/**
+	 * returns all meshes which have been drawn.
+	 * This includes the meshes of kept {@link ModelInstance}s, in the order in which they were drawn.
+	 */
+	public List<MeshWithMetadata> getMeshesWithMetadata() {
+
+		List<MeshWithMetadata> meshes = meshStore.meshesWithMetadata();
+
+		if (modelInstances.isEmpty()) {
+			return meshes;
+		}
+
+		List<MeshWithMetadata> result = new ArrayList<>();
+
+		int nextMesh = 0;
+
+		for (int i = 0; i < modelInstances.size(); i++) {
+			int position = modelInstanceMeshPositions.get(i);
+			result.addAll(meshes.subList(nextMesh, position));
+			result.addAll(modelInstances.get(i).getMeshesWithMetadata());
+			nextMesh = position;
+		}
+
+		result.addAll(meshes.subList(nextMesh, meshes.size()));
+
+		return result;
+
+	}
+
+	/**
+	 * returns the meshes which have been drawn, except those belonging to kept {@link ModelInstance}s
+	 */
+	public List<MeshWithMetadata> getNonInstancedMeshesWithMetadata() {
 		return meshStore.meshesWithMetadata();
 	}
 
-}
\ No newline at end of file
+	/**
+	 * returns the {@link ModelInstance}s which have been kept instead of being converted to meshes.
+	 * Always empty unless this output has been created with keepModelInstances enabled.
+	 */
+	public List<ModelInstanceWithMetadata> getModelInstancesWithMetadata() {
+		return new ArrayList<>(modelInstances);
+	}
+
+}
@@ -2,7 +2,6 @@ package org.osm2world.output.frontend_pbf;
 
 import static java.lang.Math.round;
 import static java.util.Arrays.asList;
-import static java.util.Collections.binarySearch;
 import static java.util.Collections.emptyList;
 import static org.osm2world.math.VectorXYZ.NULL_VECTOR;
 import static org.osm2world.output.common.ExtrudeOption.END_CAP;
@@ -66,7 +65,6 @@ import org.osm2world.world.modules.BarrierModule.HandRail;
 import org.osm2world.world.modules.PowerModule.WindTurbine;
 import org.osm2world.world.modules.StreetFurnitureModule.*;
 
-import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 
@@ -125,11 +123,12 @@ public class FrontendPbfOutput extends MeshOutput {
 
 	/**
 	 * simple implementation of {@link Block}.
-	 * Works for any content type, but slow for large numbers of elements.
+	 * Works for any content type with consistent {@link Object#equals(Object)} and {@link Object#hashCode()}.
 	 */
 	static class SimpleBlock<T> implements Block<T> {
 
-		List<T> elements = new ArrayList<>();
+		private final List<T> elements = new ArrayList<>();
+		private final Map<T, Integer> indices = new HashMap<>();
 
 		@Override
 		public List<T> getElements() {
@@ -139,48 +138,29 @@ public class FrontendPbfOutput extends MeshOutput {
 		/** adds the element to the block if necessary, and returns its index */
 		@Override
 		public int toIndex(T element) {
-
-			int index = elements.indexOf(element);
-
-			if (index < 0) {
-				elements.add(element);
-				index = elements.size() - 1;
-			}
-
-			return index;
-
+			return indices.computeIfAbsent(element, e -> {
+				elements.add(e);
+				return elements.size() - 1;
+			});
 		}
 
 	}
 
 	/**
 	 * implementation of {@link Block} that's optimized for {@link Vector3D} instances.
+	 * Vectors are considered identical if their coordinates are identical after rounding them to the
+	 * precision used in the output (see {@link #COORD_PRECISION_FACTOR}).
+	 * Uses an open addressing hash table on the rounded coordinates, which avoids creating objects for each lookup.
 	 */
 	static class VectorBlock<T extends Vector3D> implements Block<T> {
 
-		private static class Entry<T extends Vector3D> implements Comparable<Entry<T>> {
+		private final List<T> elements = new ArrayList<>();
 
-			private final T element;
-			private final int index;
+		/** the rounded coordinates of each element, 3 values per element */
+		private long[] coords = new long[3 * 16];
 
-			public Entry(T element, int index) {
-				this.element = element;
-				this.index = index;
-			}
-
-			@Override
-			public int compareTo(Entry<T> o) {
-				return ComparisonChain.start()
-						.compare(this.element.getX(), o.element.getX())
-						.compare(this.element.getY(), o.element.getY())
-						.compare(this.element.getZ(), o.element.getZ())
-						.result();
-			}
-
-		}
-
-		List<T> elements = new ArrayList<>();
-		List<Entry<T>> sortedEntrys = new ArrayList<>();
+		/** hash table with linear probing. Contains element indices plus 1, 0 marks an empty slot. */
+		private int[] table = new int[32];
 
 		@Override
 		public List<T> getElements() {
@@ -191,30 +171,73 @@ public class FrontendPbfOutput extends MeshOutput {
 		@Override
 		public int toIndex(T element) {
 
-			int index = binarySearch(sortedEntrys, new Entry<>(element, -1));
+			long x = round(element.getX() * COORD_PRECISION_FACTOR);
+			long y = round(element.getY() * COORD_PRECISION_FACTOR);
+			long z = round(element.getZ() * COORD_PRECISION_FACTOR);
 
-			if (index >= 0) {
-				return sortedEntrys.get(index).index;
-			} else {
+			int mask = table.length - 1;
+
+			for (int slot = hash(x, y, z) & mask; ; slot = (slot + 1) & mask) {
 
-				elements.add(element);
+				int index = table[slot] - 1;
 
-				Entry<T> entry = new Entry<>(element, elements.size() - 1);
-				sortedEntrys.add(-(index + 1), entry);
+				if (index < 0) {
 
-				return entry.index;
+					index = elements.size();
+					elements.add(element);
 
+					if (coords.length < 3 * elements.size()) {
+						coords = Arrays.copyOf(coords, 2 * coords.length);
+					}
+					coords[3 * index] = x;
+					coords[3 * index + 1] = y;
+					coords[3 * index + 2] = z;
+
+					table[slot] = index + 1;
+
+					if (2 * elements.size() > table.length) {
+						rehash();
+					}
+
+					return index;
+
+				} else if (coords[3 * index] == x && coords[3 * index + 1] == y && coords[3 * index + 2] == z) {
+					return index;
+				}
+
+			}
+
+		}
+
+		/** doubles the size of the hash table */
+		private void rehash() {
+
+			table = new int[2 * table.length];
+			int mask = table.length - 1;
+
+			for (int index = 0; index < elements.size(); index++) {
+				int slot = hash(coords[3 * index], coords[3 * index + 1], coords[3 * index + 2]) & mask;
+				while (table[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = index + 1;
 			}
 
 		}
 
+		private static int hash(long x, long y, long z) {
+			long h = x * 0x9E3779B97F4A7C15L + y * 0xC2B2AE3D27D4EB4FL + z * 0x165667B19E3779F9L;
+			h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL; // mix high bits into the low bits used by the table
+			return (int) (h ^ (h >>> 33));
+		}
+
 	}
 
 	/** prefix for the URL of texture files */
 	private static final String TEXTURE_BASE_URL = "textures/";
 
 	/** factor applied to coordinate values before rounding to integers */
-	private final int COORD_PRECISION_FACTOR = 1000;
+	private static final int COORD_PRECISION_FACTOR = 1000;
 
 	private final @Nullable File outputFile;
 	private final OutputStream outputStream;
@@ -721,7 +744,7 @@ public class FrontendPbfOutput extends MeshOutput {
 			processingSteps.add(1, new ReplaceTexturesWithAtlas(textureAtlasGroup));
 		}
 
-		MeshStore meshStore = this.meshStore.process(processingSteps);
+		MeshStore meshStore = this.meshStore.process(processingSteps, config);
 
 		/* convert all WorldObjects */
 
@@ -814,4 +837,9 @@ public class FrontendPbfOutput extends MeshOutput {
 
 	}
 
+	@Override
+	public String toString() {
+		return outputFile != null ? "FrontendPbfOutput(" + outputFile + ")" : "FrontendPbfOutput";
+	}
+
 }
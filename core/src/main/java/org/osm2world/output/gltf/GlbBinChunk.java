@@ -0,0 +1,115 @@
+package org.osm2world.output.gltf;
+
+import static java.nio.file.StandardOpenOption.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * the content of a glb file's BIN chunk, which is appended to piece by piece while the glTF asset is being built.
+ * Keeps track of the total length so far, which is the byte offset of the next piece of data.
+ */
+abstract class GlbBinChunk implements Closeable {
+
+	private long length = 0;
+
+	/**
+	 * appends the entire content of a buffer (from index 0 to its capacity) to the chunk.
+	 *
+	 * @return  the byte offset of the appended data within the chunk
+	 */
+	final int append(ByteBuffer data) throws IOException {
+		int offset = Math.toIntExact(length);
+		ByteBuffer content = data.duplicate();
+		content.clear();
+		length += content.remaining();
+		write(content);
+		return offset;
+	}
+
+	/** returns the current length of the chunk's data in bytes */
+	final int length() {
+		return Math.toIntExact(length);
+	}
+
+	/** writes the chunk's data (without a chunk header) to a channel */
+	abstract void transferTo(WritableByteChannel channel) throws IOException;
+
+	protected abstract void write(ByteBuffer content) throws IOException;
+
+	/** creates a chunk which keeps its data on the heap */
+	static GlbBinChunk inMemory() {
+		return new InMemoryGlbBinChunk();
+	}
+
+	/** creates a chunk which spools its data to a temporary file, which will be deleted when the chunk is closed */
+	static GlbBinChunk spooledToFile() throws IOException {
+		return new SpooledGlbBinChunk();
+	}
+
+	static void writeFully(WritableByteChannel channel, ByteBuffer content) throws IOException {
+		while (content.hasRemaining()) {
+			channel.write(content);
+		}
+	}
+
+	private static class InMemoryGlbBinChunk extends GlbBinChunk {
+
+		private final List<ByteBuffer> buffers = new ArrayList<>();
+
+		@Override
+		protected void write(ByteBuffer content) {
+			buffers.add(content);
+		}
+
+		@Override
+		void transferTo(WritableByteChannel channel) throws IOException {
+			for (ByteBuffer buffer : buffers) {
+				writeFully(channel, buffer.duplicate());
+			}
+		}
+
+		@Override
+		public void close() {
+			buffers.clear();
+		}
+
+	}
+
+	private static class SpooledGlbBinChunk extends GlbBinChunk {
+
+		private final FileChannel fileChannel;
+
+		SpooledGlbBinChunk() throws IOException {
+			var tempFile = Files.createTempFile("osm2world-glb-", ".bin");
+			fileChannel = FileChannel.open(tempFile, READ, WRITE, DELETE_ON_CLOSE);
+		}
+
+		@Override
+		protected void write(ByteBuffer content) throws IOException {
+			writeFully(fileChannel, content);
+		}
+
+		@Override
+		void transferTo(WritableByteChannel channel) throws IOException {
+			long position = 0;
+			long size = fileChannel.size();
+			while (position < size) {
+				position += fileChannel.transferTo(position, size - position, channel);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			fileChannel.close();
+		}
+
+	}
+
+}
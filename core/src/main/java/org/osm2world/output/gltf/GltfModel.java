@@ -49,8 +49,17 @@ public class GltfModel implements Model {
 	private final Gltf gltf;
 	private final @Nullable File source;
 
+	/** names of the {@link ConversionLog} counters for {@link #meshCache} */
+	static final String MESH_CACHE_HITS = "gltfModelMeshCacheHits";
+	static final String MESH_CACHE_MISSES = "gltfModelMeshCacheMisses";
+
+	private record MeshCacheKey(LODRange lodRange, @Nullable Color instanceColor) {}
+
 	private final Map<Pair<GltfImage, Wrap>, TextureData> imageCache = new HashMap<>();
 
+	/** decoded meshes for instances at the origin, see {@link #getUntransformedMeshes(LODRange, Color)} */
+	private final Map<MeshCacheKey, List<Mesh>> meshCache = new HashMap<>();
+
 	public GltfModel(Gltf gltf, @Nullable File source) {
 
 		this.gltf = gltf;
@@ -69,13 +78,43 @@ public class GltfModel implements Model {
 	@Override
 	public List<Mesh> buildMeshes(InstanceParameters params) {
 
-		try {
+		List<Mesh> untransformedMeshes = getUntransformedMeshes(params.lodRange(), params.color());
+
+		Angle rotation = Angle.ofRadians(params.direction());
+
+		return untransformedMeshes.stream()
+				.map(m -> new Mesh(m.geometry.transform(null, rotation, null).transform(params.position(), null, null),
+						m.material, m.lodRange))
+				.toList();
 
-			@Nullable Color instanceColor = params.color();
+	}
+
+	/**
+	 * returns the meshes for an instance at the origin with direction 0.
+	 * These are only decoded once for each combination of LOD range and instance color.
+	 */
+	private synchronized List<Mesh> getUntransformedMeshes(LODRange lodRange, @Nullable Color instanceColor) {
+
+		var key = new MeshCacheKey(lodRange, instanceColor);
 
-			float rotAngle = (float) Angle.ofRadians(params.direction()).plus(Angle.ofDegrees(180)).radians;
+		if (meshCache.containsKey(key)) {
+			ConversionLog.count(MESH_CACHE_HITS);
+		} else {
+			ConversionLog.count(MESH_CACHE_MISSES);
+			meshCache.put(key, decodeMeshes(lodRange, instanceColor));
+		}
+
+		return meshCache.get(key);
+
+	}
+
+	private List<Mesh> decodeMeshes(LODRange lodRange, @Nullable Color instanceColor) {
+
+		try {
+
+			float rotAngle = (float) Angle.ofDegrees(180).radians;
 			TransformationMatrix rootTransform = TransformationMatrix.forTRS(
-					new float[] { (float)params.position().x, (float)params.position().y, (float)params.position().z },
+					new float[] { 0, 0, 0 },
 					new float[] { 0, (float)sin(rotAngle/2), 0, (float)cos(rotAngle/2) },
 					new float[] { 1, 1, 1 } // TODO provide scale
 			);
@@ -86,7 +125,7 @@ public class GltfModel implements Model {
 
 			GltfScene scene = gltf.scenes.get(gltf.scene);
 			for (int n : scene.nodes) {
-				result.addAll(buildMeshesForNode(gltf.nodes.get(n), rootTransform, params.lodRange(), instanceColor));
+				result.addAll(buildMeshesForNode(gltf.nodes.get(n), rootTransform, lodRange, instanceColor));
 			}
 
 			return result;
@@ -98,6 +137,11 @@ public class GltfModel implements Model {
 
 	}
 
+	@Override
+	public boolean supportsInstancing() {
+		return true;
+	}
+
 	private List<? extends Mesh> buildMeshesForNode(GltfNode node, TransformationMatrix parentTransform,
 				LODRange lodRange, @Nullable Color instanceColor) throws IOException {
 
@@ -3,13 +3,11 @@ package org.osm2world.output.gltf;
 import static java.util.Arrays.asList;
 import static java.util.Objects.requireNonNullElse;
 import static java.util.stream.Collectors.toList;
-import static org.osm2world.math.algorithms.NormalCalculationUtil.calculateTriangleNormals;
 import static org.osm2world.scene.mesh.MeshStore.*;
 import static org.osm2world.output.common.ResourceOutputSettings.ResourceOutputMode.EMBED;
 import static org.osm2world.output.common.ResourceOutputSettings.ResourceOutputMode.REFERENCE;
 import static org.osm2world.output.common.compression.Compression.*;
 import static org.osm2world.output.common.compression.CompressionUtil.writeFileWithCompression;
-import static org.osm2world.scene.material.Material.Interpolation.SMOOTH;
 import static org.osm2world.scene.texcoord.TexCoordUtil.mirroredVertically;
 import static org.osm2world.output.gltf.GltfOutput.GltfFlavor.GLB;
 import static org.osm2world.output.gltf.GltfOutput.GltfFlavor.GLTF;
@@ -17,6 +15,9 @@ import static org.osm2world.output.gltf.GltfOutput.GltfFlavor.GLTF;
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
 
 import javax.annotation.Nullable;
@@ -30,7 +31,6 @@ import org.osm2world.math.Vector3D;
 import org.osm2world.math.VectorXYZ;
 import org.osm2world.math.VectorXZ;
 import org.osm2world.math.shapes.SimpleClosedShapeXZ;
-import org.osm2world.math.shapes.TriangleXYZ;
 import org.osm2world.output.common.AbstractOutput;
 import org.osm2world.scene.mesh.MeshStore;
 import org.osm2world.scene.mesh.MeshStore.MergeMeshes.MergeOption;
@@ -43,6 +43,9 @@ import org.osm2world.scene.material.TextureLayer;
 import org.osm2world.scene.mesh.LevelOfDetail;
 import org.osm2world.scene.mesh.Mesh;
 import org.osm2world.scene.mesh.TriangleGeometry;
+import org.osm2world.scene.model.InstanceParameters;
+import org.osm2world.scene.model.Model;
+import org.osm2world.scene.model.ModelInstance;
 import org.osm2world.output.gltf.data.*;
 import org.osm2world.output.gltf.data.GltfMaterial.NormalTextureInfo;
 import org.osm2world.output.gltf.data.GltfMaterial.OcclusionTextureInfo;
@@ -63,6 +66,18 @@ public class GltfOutput extends AbstractOutput {
 
 	public enum GltfFlavor { GLTF, GLB }
 
+	/** how instances of models which {@link Model#supportsInstancing()} are represented in the output */
+	public enum ModelInstancing {
+		/** each instance is converted to separate meshes, like all other geometry */
+		NONE,
+		/** the model's geometry is written once, and there is a node referencing it for each instance */
+		NODES,
+		/** the model's geometry is written once and instanced using the EXT_mesh_gpu_instancing extension */
+		GPU_INSTANCING
+	}
+
+	private static final String EXT_MESH_GPU_INSTANCING = "EXT_mesh_gpu_instancing";
+
 	private final File outputFile;
 	private final GltfFlavor flavor;
 	private final Compression compression;
@@ -74,8 +89,8 @@ public class GltfOutput extends AbstractOutput {
 	private final Map<Material, Integer> materialIndexMap = new HashMap<>();
 	private final Map<TextureData, Integer> textureIndexMap = new HashMap<>();
 
-	/** data for the glb BIN chunk, only used if {@link #flavor} is {@link GltfFlavor#GLB} */
-	private final List<ByteBuffer> binChunkData = new ArrayList<>();
+	/** data for the glb BIN chunk, only used while writing a file with {@link #flavor} {@link GltfFlavor#GLB} */
+	private @Nullable GlbBinChunk binChunk = null;
 
 	/**
 	 * Sets up an output to write a scene as glTF.
@@ -123,19 +138,41 @@ public class GltfOutput extends AbstractOutput {
 
 	@Override
 	public void outputScene(Scene scene) {
+		scene.getContext().runWith(() -> writeScene(scene));
+	}
+
+	private void writeScene(Scene scene) {
 
-		MeshStore meshStore = new MeshStore(scene.getMeshesWithMetadata());
+		ModelInstancing modelInstancing = requireNonNullElse(
+				config.getEnum(ModelInstancing.class, "modelInstancing"), ModelInstancing.NONE);
+
+		/* apply those processing steps which do not depend on this output's settings,
+		 * their results are cached by the scene and can be shared with other glTF outputs for the same scene */
+
+		// with instancing, model instances are written separately instead of being part of the meshes
+		boolean keepModelInstances = modelInstancing != ModelInstancing.NONE;
+		MeshStore meshStore = scene.getProcessedMeshes(keepModelInstances, sharedProcessingSteps(), config);
+
+		List<ModelInstanceWithMetadata> modelInstances = keepModelInstances
+				? scene.getModelInstancesWithMetadata()
+				: List.of();
 
 		writeFileWithCompression(outputFile, compression, outputStream -> {
 
 			try {
 				if (flavor == GltfFlavor.GLTF) {
-					writeJson(meshStore, outputStream);
+					writeJson(meshStore, modelInstances, modelInstancing, outputStream);
 				} else {
-					try (var jsonChunkOutputStream = new ByteArrayOutputStream()) {
-						writeJson(meshStore, jsonChunkOutputStream);
+					/* with streamingGlb, binary data is spooled to a temporary file instead of being kept on the heap */
+					boolean streamingGlb = config.getBoolean("streamingGlb", false);
+					try (var binChunk = streamingGlb ? GlbBinChunk.spooledToFile() : GlbBinChunk.inMemory();
+							var jsonChunkOutputStream = new ByteArrayOutputStream()) {
+						this.binChunk = binChunk;
+						writeJson(meshStore, modelInstances, modelInstancing, jsonChunkOutputStream);
 						ByteBuffer jsonChunkData = asPaddedByteBuffer(jsonChunkOutputStream.toByteArray(), (byte) 0x20);
-						writeGlb(outputStream, jsonChunkData, binChunkData);
+						writeGlb(outputStream, jsonChunkData, binChunk);
+					} finally {
+						this.binChunk = null;
 					}
 				}
 			} catch (IOException | JsonIOException e) {
@@ -163,13 +200,28 @@ public class GltfOutput extends AbstractOutput {
 
 	/** creates a {@link GltfMesh} and returns its index in {@link Gltf#meshes} */
 	private int createMesh(Mesh mesh) throws IOException {
+		return createMesh(List.of(mesh));
+	}
+
+	/** creates a {@link GltfMesh} with one primitive per {@link Mesh} and returns its index in {@link Gltf#meshes} */
+	private int createMesh(List<Mesh> meshes) throws IOException {
 
 		GltfMesh gltfMesh = new GltfMesh();
 
+		for (Mesh mesh : meshes) {
+			gltfMesh.primitives.add(createPrimitive(mesh));
+		}
+
+		gltf.meshes.add(gltfMesh);
+		return gltf.meshes.size() - 1;
+
+	}
+
+	private GltfMesh.Primitive createPrimitive(Mesh mesh) throws IOException {
+
 		Material material = mesh.material;
 
 		TriangleGeometry triangleGeometry = mesh.geometry.asTriangles();
-		List<? extends TriangleXYZ> triangles = triangleGeometry.triangles;
 		List<List<VectorXZ>> texCoordLists = triangleGeometry.texCoords;
 		List<LColor> colors = triangleGeometry.colors == null ? null
 				: triangleGeometry.colors.stream().map(LColor::fromAWT).toList();
@@ -177,7 +229,6 @@ public class GltfOutput extends AbstractOutput {
 		texCoordLists = mirroredVertically(texCoordLists); // move texture coordinate origin to the top left
 
 		GltfMesh.Primitive primitive = new GltfMesh.Primitive();
-		gltfMesh.primitives.add(primitive);
 
 		/* convert material */
 
@@ -190,36 +241,87 @@ public class GltfOutput extends AbstractOutput {
 		primitive.material = materialIndex;
 
 		/* put geometry into buffers and set up accessors */
-		// TODO consider using indices
 
 		primitive.mode = GltfMesh.TRIANGLES;
 
-		List<VectorXYZ> positions = new ArrayList<>(3 * triangles.size());
-		triangles.forEach(t -> positions.addAll(t.verticesNoDup()));
-		primitive.attributes.put("POSITION", createAccessor(3, positions));
+		List<String> attributeNames = new ArrayList<>();
+		List<float[]> attributeValues = new ArrayList<>();
+		List<Integer> attributeComponentCounts = new ArrayList<>();
+
+		/* positions and normals are the geometry's shared arrays, they are converted to glTF coordinates
+		 * while writing them to the buffer. The other attributes are already converted by components(...). */
+		Set<String> attributesToConvert = Set.of("POSITION", "NORMAL");
+
+		attributeNames.add("POSITION");
+		attributeValues.add(triangleGeometry.vertexArray());
+		attributeComponentCounts.add(3);
 
-		List<VectorXYZ> normals = calculateTriangleNormals(triangles, material.getInterpolation() == SMOOTH);
-		primitive.attributes.put("NORMAL", createAccessor(3, normals));
+		attributeNames.add("NORMAL");
+		attributeValues.add(triangleGeometry.normalArray());
+		attributeComponentCounts.add(3);
 
 		if (material.getNumTextureLayers() > 0) {
-			primitive.attributes.put("TEXCOORD_0", createAccessor(2, texCoordLists.get(0)));
+			attributeNames.add("TEXCOORD_0");
+			attributeValues.add(components(2, texCoordLists.get(0)));
+			attributeComponentCounts.add(2);
 		}
 
 		if (colors != null) {
 			List<VectorXYZ> colorsAsVectors = colors.stream().map(c -> new VectorXYZ(c.red, c.green, -c.blue)).collect(toList());
-			primitive.attributes.put("COLOR_0", createAccessor(3, colorsAsVectors));
+			attributeNames.add("COLOR_0");
+			attributeValues.add(components(3, colorsAsVectors));
+			attributeComponentCounts.add(3);
 		}
 
-		gltf.meshes.add(gltfMesh);
-		return gltf.meshes.size() - 1;
+		int[] componentCounts = attributeComponentCounts.stream().mapToInt(Integer::intValue).toArray();
+		float[][] attributes = attributeValues.toArray(new float[0][]);
+
+		if (config.getBoolean("indexedGeometry", false)) {
+
+			IndexedVertexData indexedData = IndexedVertexData.weld(componentCounts, attributes);
+
+			if (config.getBoolean("optimizeVertexCache", false)) {
+				indexedData = indexedData.optimizedForVertexCache();
+			}
+
+			attributes = indexedData.attributes;
+			primitive.indices = createIndexAccessor(indexedData.indices, indexedData.vertexCount);
+
+		}
+
+		for (int i = 0; i < attributes.length; i++) {
+			String name = attributeNames.get(i);
+			primitive.attributes.put(name, createAccessor(componentCounts[i], attributes[i],
+					GltfBufferView.TARGET_ARRAY_BUFFER, attributesToConvert.contains(name)));
+		}
+
+		return primitive;
 
 	}
 
-	private int createAccessor(int numComponents, List<? extends Vector3D> vs) {
+	/**
+	 * creates an accessor for a vertex attribute
+	 *
+	 * @param values  the attribute values as returned by {@link #components(int, List)}
+	 */
+	private int createAccessor(int numComponents, float[] values) throws IOException {
+		return createAccessor(numComponents, values, GltfBufferView.TARGET_ARRAY_BUFFER, false);
+	}
+
+	/**
+	 * creates an accessor for float values
+	 *
+	 * @param target  the target of the buffer view, null if it's not used for vertex attributes or indices
+	 * @param toGltfCoordinates  whether the values are x, y and z components in OSM2World's coordinate system
+	 *   which need to be converted to glTF's coordinate system. The values array itself is not modified.
+	 */
+	private int createAccessor(int numComponents, float[] values, @Nullable Integer target,
+			boolean toGltfCoordinates) throws IOException {
 
 		String type = switch (numComponents) {
 			case 2 -> "VEC2";
 			case 3 -> "VEC3";
+			case 4 -> "VEC4";
 			default -> throw new UnsupportedOperationException("invalid numComponents: " + numComponents);
 		};
 
@@ -229,25 +331,30 @@ public class GltfOutput extends AbstractOutput {
 		Arrays.fill(min, Float.POSITIVE_INFINITY);
 		Arrays.fill(max, Float.NEGATIVE_INFINITY);
 
-		int byteLength = 4 /* FLOAT */ * numComponents * vs.size();
+		int byteLength = 4 /* FLOAT */ * values.length;
 
 		ByteBuffer byteBuffer = ByteBuffer.allocate(byteLength);
 		byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
+		FloatBuffer floatBuffer = byteBuffer.asFloatBuffer().put(values);
+		byteBuffer.position(byteLength);
 
-		for (Vector3D v : vs) {
-
-			float[] components = components(numComponents, v);
+		if (toGltfCoordinates) {
+			assert numComponents == 3;
+			for (int i = 2; i < values.length; i += 3) {
+				floatBuffer.put(i, -values[i]);
+			}
+		}
 
+		for (int v = 0; v < values.length; v += numComponents) {
 			for (int i = 0; i < numComponents; i++) {
-				byteBuffer.putFloat(components[i]);
-				min[i] = Math.min(min[i], components[i]);
-				max[i] = Math.max(max[i], components[i]);
+				float component = floatBuffer.get(v + i);
+				min[i] = Math.min(min[i], component);
+				max[i] = Math.max(max[i], component);
 			}
-
 		}
 
-		GltfAccessor accessor = new GltfAccessor(GltfAccessor.TYPE_FLOAT, vs.size(), type);
-		accessor.bufferView = createBufferView(byteBuffer, GltfBufferView.TARGET_ARRAY_BUFFER);
+		GltfAccessor accessor = new GltfAccessor(GltfAccessor.TYPE_FLOAT, values.length / numComponents, type);
+		accessor.bufferView = createBufferView(byteBuffer, target);
 		accessor.min = min;
 		accessor.max = max;
 		gltf.accessors.add(accessor);
@@ -256,7 +363,39 @@ public class GltfOutput extends AbstractOutput {
 
 	}
 
-	private int createBufferView(ByteBuffer byteBuffer, @Nullable Integer target) {
+	/**
+	 * creates an accessor for the vertex indices of a primitive.
+	 * Uses the smallest component type which can represent all indices.
+	 */
+	private int createIndexAccessor(int[] indices, int vertexCount) throws IOException {
+
+		boolean useShort = vertexCount <= 0xFFFF;
+
+		int byteLength = (useShort ? 2 : 4) * indices.length;
+		byteLength += (4 - byteLength % 4) % 4; // padding to 4-byte boundaries
+
+		ByteBuffer byteBuffer = ByteBuffer.allocate(byteLength);
+		byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
+
+		for (int index : indices) {
+			if (useShort) {
+				byteBuffer.putShort((short) index);
+			} else {
+				byteBuffer.putInt(index);
+			}
+		}
+
+		GltfAccessor accessor = new GltfAccessor(
+				useShort ? GltfAccessor.TYPE_UNSIGNED_SHORT : GltfAccessor.TYPE_UNSIGNED_INT,
+				indices.length, "SCALAR");
+		accessor.bufferView = createBufferView(byteBuffer, GltfBufferView.TARGET_ELEMENT_ARRAY_BUFFER);
+		gltf.accessors.add(accessor);
+
+		return gltf.accessors.size() - 1;
+
+	}
+
+	private int createBufferView(ByteBuffer byteBuffer, @Nullable Integer target) throws IOException {
 
 		GltfBufferView view = switch (flavor) {
 			case GLTF -> {
@@ -273,8 +412,7 @@ public class GltfOutput extends AbstractOutput {
 
 			}
 			case GLB -> {
-				int byteOffset = binChunkData.stream().mapToInt(ByteBuffer::capacity).sum();
-				binChunkData.add(byteBuffer);
+				int byteOffset = binChunk.append(byteBuffer);
 				var binBufferView = new GltfBufferView(0, byteBuffer.capacity());
 				binBufferView.byteOffset = byteOffset;
 				yield binBufferView;
@@ -403,16 +541,35 @@ public class GltfOutput extends AbstractOutput {
 
 	}
 
+	/**
+	 * returns the processing steps for this output's meshes which do not depend on output-specific settings,
+	 * see {@link Scene#getProcessedMeshes}
+	 */
+	private List<MeshProcessingStep> sharedProcessingSteps() {
+
+		LevelOfDetail lod = config.getLod();
+
+		return List.of(
+				new FilterLod(lod),
+				new ConvertToTriangles(lod),
+				new EmulateTextureLayers(lod.ordinal() <= 1 ? 1 : Integer.MAX_VALUE),
+				new MoveColorsToVertices()); // after EmulateTextureLayers because colorable is per layer
+
+	}
+
 	/**
 	 * constructs the JSON document after all parts of the glTF have been created
 	 * and outputs it to an {@link OutputStream}
 	 */
-	private void writeJson(MeshStore meshStore, OutputStream outputStream) throws IOException {
+	private void writeJson(MeshStore meshStore, List<ModelInstanceWithMetadata> modelInstances,
+			ModelInstancing modelInstancing, OutputStream outputStream) throws IOException {
 
 		boolean keepOsmElements = config.getBoolean("keepOsmElements", true);
 		boolean clipToBounds = config.getBoolean("clipToBounds", false);
 
-		/* process the meshes */
+		LevelOfDetail lod = config.getLod();
+
+		/* process the meshes (in addition to the shared processing steps) */
 
 		EnumSet<MergeOption> mergeOptions = EnumSet.noneOf(MergeOption.class);
 
@@ -420,21 +577,16 @@ public class GltfOutput extends AbstractOutput {
 			mergeOptions.add(MergeOption.MERGE_ELEMENTS);
 		}
 
-		LevelOfDetail lod = config.getLod();
-
 		List<MeshProcessingStep> processingSteps = new ArrayList<>(asList(
-				new FilterLod(lod),
-				new ConvertToTriangles(lod),
-				new EmulateTextureLayers(lod.ordinal() <= 1 ? 1 : Integer.MAX_VALUE),
-				new MoveColorsToVertices(), // after EmulateTextureLayers because colorable is per layer
 				new ReplaceTexturesWithAtlas(t -> getResourceOutputSettings().modeForTexture(t) == REFERENCE),
 				new MergeMeshes(mergeOptions)));
 
 		if (clipToBounds && bounds != null) {
-			processingSteps.add(1, new ClipToBounds(bounds, true));
+			// not part of the shared steps, so that outputs for different tiles of a scene can share them
+			processingSteps.add(0, new ClipToBounds(bounds, true));
 		}
 
-		MeshStore processedMeshStore = meshStore.process(processingSteps);
+		MeshStore processedMeshStore = meshStore.process(processingSteps, config);
 
 		Multimap<MeshMetadata, Mesh> meshesByMetadata = processedMeshStore.meshesByMetadata();
 
@@ -497,10 +649,32 @@ public class GltfOutput extends AbstractOutput {
 
 		}
 
+		/* generate the glTF nodes and meshes for model instances */
+
+		if (!modelInstances.isEmpty()) {
+
+			List<MeshProcessingStep> instanceProcessingSteps = List.of(
+					new FilterLod(lod),
+					new ConvertToTriangles(lod),
+					new EmulateTextureLayers(lod.ordinal() <= 1 ? 1 : Integer.MAX_VALUE),
+					new MoveColorsToVertices(),
+					new MergeMeshes(EnumSet.noneOf(MergeOption.class)));
+
+			if (clipToBounds && bounds != null) {
+				modelInstances = modelInstances.stream()
+						.filter(it -> bounds.contains(it.modelInstance().params().position().xz()))
+						.toList();
+			}
+
+			createModelInstanceNodes(modelInstances, modelInstancing, instanceProcessingSteps, keepOsmElements,
+					rootNode);
+
+		}
+
 		/* add a buffer for the BIN chunk */
 
 		if (flavor == GltfFlavor.GLB) {
-			gltf.buffers.add(0, new GltfBuffer(binChunkData.stream().mapToInt(ByteBuffer::capacity).sum()));
+			gltf.buffers.add(0, new GltfBuffer(binChunk.length()));
 		}
 
 		/* use null instead of [] when lists are empty */
@@ -545,58 +719,195 @@ public class GltfOutput extends AbstractOutput {
 
 	}
 
-	/** writes a binary glTF */
-	private static void writeGlb(OutputStream outputStream, ByteBuffer jsonChunkData, List<ByteBuffer> binChunkData)
+	/**
+	 * creates nodes for model instances and adds them to the root node.
+	 * The geometry for each distinct combination of model and {@link InstanceParameters#atOrigin()} is only written
+	 * once. Depending on the {@link ModelInstancing} mode, it is referenced either by one node per instance,
+	 * or by a single node which uses {@value #EXT_MESH_GPU_INSTANCING} for the instance transformations.
+	 */
+	private void createModelInstanceNodes(List<ModelInstanceWithMetadata> modelInstances,
+			ModelInstancing modelInstancing, List<MeshProcessingStep> processingSteps, boolean keepOsmElements,
+			GltfNode rootNode) {
+
+		Map<Pair<Model, InstanceParameters>, List<ModelInstanceWithMetadata>> instancesByPrototype =
+				new LinkedHashMap<>();
+
+		for (ModelInstanceWithMetadata instance : modelInstances) {
+			ModelInstance modelInstance = instance.modelInstance();
+			var prototype = Pair.of(modelInstance.model(), modelInstance.params().atOrigin());
+			instancesByPrototype.computeIfAbsent(prototype, k -> new ArrayList<>()).add(instance);
+		}
+
+		FaultTolerantIterationUtil.forEach(instancesByPrototype.entrySet(), entry -> {
+
+			Model model = entry.getKey().getLeft();
+			InstanceParameters prototypeParams = entry.getKey().getRight();
+			List<ModelInstanceWithMetadata> instances = entry.getValue();
+
+			List<Mesh> meshes = new MeshStore(model.buildMeshes(prototypeParams), null)
+					.process(processingSteps).meshes();
+
+			if (meshes.isEmpty()) return;
+
+			int meshIndex;
+
+			try {
+				meshIndex = createMesh(meshes);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+
+			switch (modelInstancing) {
+
+				case NODES -> {
+					for (ModelInstanceWithMetadata instance : instances) {
+						InstanceParameters params = instance.modelInstance().params();
+						int nodeIndex = createNode(meshIndex, null);
+						GltfNode node = gltf.nodes.get(nodeIndex);
+						node.translation = translation(params.position());
+						node.rotation = params.direction() == 0 ? null : rotation(params.direction());
+						if (keepOsmElements) {
+							addMeshNameAndId(node, instance.metadata());
+						}
+						rootNode.children.add(nodeIndex);
+					}
+				}
+
+				case GPU_INSTANCING -> {
+
+					float[] translations = new float[3 * instances.size()];
+					float[] rotations = new float[4 * instances.size()];
+					boolean rotated = false;
+
+					for (int i = 0; i < instances.size(); i++) {
+						InstanceParameters params = instances.get(i).modelInstance().params();
+						System.arraycopy(translation(params.position()), 0, translations, 3 * i, 3);
+						System.arraycopy(rotation(params.direction()), 0, rotations, 4 * i, 4);
+						rotated |= params.direction() != 0;
+					}
+
+					Map<String, Integer> attributes = new LinkedHashMap<>();
+
+					try {
+						attributes.put("TRANSLATION", createAccessor(3, translations, null, false));
+						if (rotated) {
+							attributes.put("ROTATION", createAccessor(4, rotations, null, false));
+						}
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+
+					int nodeIndex = createNode(meshIndex, null);
+					GltfNode node = gltf.nodes.get(nodeIndex);
+					node.extensions = Map.of(EXT_MESH_GPU_INSTANCING, Map.of("attributes", attributes));
+					rootNode.children.add(nodeIndex);
+
+					if (keepOsmElements) {
+						/* the extension has no per-instance metadata, so names and ids are stored in instance order */
+						List<Map<String, Object>> instanceExtras = new ArrayList<>(instances.size());
+						for (ModelInstanceWithMetadata instance : instances) {
+							Map<String, Object> extras = new HashMap<>();
+							extras.put("name", nodeName(instance.metadata()));
+							if (instance.metadata().mapElement() != null) {
+								extras.put("osmId", instance.metadata().mapElement().toString());
+							}
+							instanceExtras.add(extras);
+						}
+						node.extras = Map.of("instances", instanceExtras);
+					}
+
+					if (gltf.extensionsUsed == null) {
+						gltf.extensionsUsed = new ArrayList<>();
+					}
+					if (!gltf.extensionsUsed.contains(EXT_MESH_GPU_INSTANCING)) {
+						gltf.extensionsUsed.add(EXT_MESH_GPU_INSTANCING);
+					}
+
+				}
+
+			}
+
+		});
+
+	}
+
+	/** returns a position as a glTF translation */
+	private static float[] translation(VectorXYZ position) {
+		return new float[] { (float) position.x, (float) position.y, (float) -position.z };
+	}
+
+	/**
+	 * returns a glTF rotation quaternion for a clockwise rotation around the vertical axis.
+	 * The angle is negated because glTF's coordinate system has an inverted z axis compared to OSM2World's.
+	 */
+	private static float[] rotation(double direction) {
+		return new float[] { 0, (float) -Math.sin(direction / 2), 0, (float) Math.cos(direction / 2) };
+	}
+
+	/**
+	 * writes a binary glTF.
+	 * The BIN chunk's data is transferred directly from the {@link GlbBinChunk}
+	 * instead of assembling the entire file in memory first.
+	 */
+	private static void writeGlb(OutputStream outputStream, ByteBuffer jsonChunkData, GlbBinChunk binChunk)
 			throws IOException {
 
 		int jsonChunkDataLength = jsonChunkData.capacity();
-		int binChunkDataLength = binChunkData.stream().mapToInt(ByteBuffer::capacity).sum();
+		int binChunkDataLength = binChunk.length();
 
-		int length = 12 // header
-				+ 8 + jsonChunkDataLength // JSON chunk header + JSON chunk data
-				+ 8 + binChunkDataLength; // BIN chunk header + BIN chunk data
+		int length = Math.addExact(12 // header
+				+ 8 + jsonChunkDataLength, // JSON chunk header + JSON chunk data
+				8 + binChunkDataLength); // BIN chunk header + BIN chunk data
 
-		ByteBuffer result = ByteBuffer.allocate(length);
-		result.order(ByteOrder.LITTLE_ENDIAN);
+		ByteBuffer headers = ByteBuffer.allocate(20);
+		headers.order(ByteOrder.LITTLE_ENDIAN);
 
-		/* write the header */
+		WritableByteChannel channel = outputStream instanceof FileOutputStream fileOutputStream
+				? fileOutputStream.getChannel()
+				: Channels.newChannel(outputStream);
 
-		result.putInt(0x46546C67); // magic number
-		result.putInt(2); // version
-		result.putInt(length);
+		/* write the header and the JSON chunk */
 
-		/* write the JSON chunk */
+		headers.putInt(0x46546C67); // magic number
+		headers.putInt(2); // version
+		headers.putInt(length);
 
-		result.putInt(jsonChunkDataLength);
-		result.putInt(0x4E4F534A); // chunk type "JSON"
-		result.put(jsonChunkData.array());
+		headers.putInt(jsonChunkDataLength);
+		headers.putInt(0x4E4F534A); // chunk type "JSON"
 
-		/* write the BIN chunk */
+		GlbBinChunk.writeFully(channel, headers.flip());
+		GlbBinChunk.writeFully(channel, jsonChunkData.duplicate().clear());
 
-		result.putInt(binChunkDataLength);
-		result.putInt(0x004E4942); // chunk type "BIN"
-		binChunkData.forEach(it -> result.put(it.array()));
+		/* write the BIN chunk */
 
-		/* output the result */
+		headers.clear().limit(8);
+		headers.putInt(binChunkDataLength);
+		headers.putInt(0x004E4942); // chunk type "BIN"
 
-		outputStream.write(result.array());
+		GlbBinChunk.writeFully(channel, headers.flip());
+		binChunk.transferTo(channel);
 
 	}
 
-	private static float[] components(int numComponents, Vector3D v) {
-		if (numComponents == 2) {
-			return new float[] {
-					(float)((VectorXZ)v).x,
-					(float)((VectorXZ)v).z
-			};
-		} else {
-			assert numComponents == 3;
-			return new float[] {
-					(float)((VectorXYZ)v).x,
-					(float)((VectorXYZ)v).y,
-					(float)((VectorXYZ)v).z * -1
-			};
+	/**
+	 * returns the components of vectors as a flat array.
+	 * Converts from OSM2World's coordinate system to glTF's coordinate system.
+	 */
+	private static float[] components(int numComponents, List<? extends Vector3D> vs) {
+		float[] result = new float[numComponents * vs.size()];
+		int i = 0;
+		for (Vector3D v : vs) {
+			if (numComponents == 2) {
+				result[i++] = (float)((VectorXZ)v).x;
+				result[i++] = (float)((VectorXZ)v).z;
+			} else {
+				assert numComponents == 3;
+				result[i++] = (float)((VectorXYZ)v).x;
+				result[i++] = (float)((VectorXYZ)v).y;
+				result[i++] = (float)((VectorXYZ)v).z * -1;
+			}
 		}
+		return result;
 	}
 
 	/**
@@ -650,17 +961,25 @@ public class GltfOutput extends AbstractOutput {
 			node.extras = extras;
 		}
 
+		node.name = nodeName(metadata);
+
+	}
+
+	private static String nodeName(MeshMetadata metadata) {
+
+		MapRelationElement mapElement = metadata.mapElement();
+
 		if (metadata.modelClass() != null && mapElement != null) {
 			TagSet tags = mapElement.getTags();
 			if (tags.containsKey("name")) {
-				node.name = metadata.modelClass().getSimpleName() + " " + tags.getValue("name");
+				return metadata.modelClass().getSimpleName() + " " + tags.getValue("name");
 			} else if (tags.containsKey("ref")) {
-				node.name = metadata.modelClass().getSimpleName() + " " + tags.getValue("ref");
+				return metadata.modelClass().getSimpleName() + " " + tags.getValue("ref");
 			} else {
-				node.name = metadata.modelClass().getSimpleName() + " " + mapElement;
+				return metadata.modelClass().getSimpleName() + " " + mapElement;
 			}
 		} else {
-			node.name = "Multiple elements";
+			return "Multiple elements";
 		}
 
 	}
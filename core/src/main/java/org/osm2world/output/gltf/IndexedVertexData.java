@@ -0,0 +1,349 @@
+package org.osm2world.output.gltf;
+
+import static java.lang.Math.pow;
+
+import java.util.Arrays;
+
+/**
+ * vertex attributes and triangle indices for an indexed glTF primitive.
+ * Created from a non-indexed triangle list by merging ("welding") vertices with identical attribute values.
+ *
+ * Attributes are stored as flat float arrays, with a fixed number of components per vertex for each attribute.
+ */
+final class IndexedVertexData {
+
+	/** the number of components per vertex for each attribute */
+	final int[] componentCounts;
+
+	/** the values of each attribute, {@link #vertexCount} times the attribute's component count */
+	final float[][] attributes;
+
+	/** number of unique vertices */
+	final int vertexCount;
+
+	/** three indices for each triangle */
+	final int[] indices;
+
+	private IndexedVertexData(int[] componentCounts, float[][] attributes, int vertexCount, int[] indices) {
+		this.componentCounts = componentCounts;
+		this.attributes = attributes;
+		this.vertexCount = vertexCount;
+		this.indices = indices;
+	}
+
+	/**
+	 * creates indexed vertex data by merging vertices whose values are identical for all attributes.
+	 *
+	 * @param componentCounts  the number of components per vertex for each attribute
+	 * @param attributes  the values for each attribute, in the same order as componentCounts.
+	 *                    Each array contains the values for all vertices of a non-indexed triangle list.
+	 */
+	static IndexedVertexData weld(int[] componentCounts, float[][] attributes) {
+
+		int inputVertexCount = attributes[0].length / componentCounts[0];
+		int stride = Arrays.stream(componentCounts).sum();
+
+		/* interleave the attributes to get one key per vertex */
+
+		float[] keys = new float[inputVertexCount * stride];
+
+		for (int v = 0; v < inputVertexCount; v++) {
+			int offset = v * stride;
+			for (int a = 0; a < attributes.length; a++) {
+				for (int c = 0; c < componentCounts[a]; c++) {
+					// adding 0.0f turns -0.0f into 0.0f, so they are treated as identical
+					keys[offset++] = attributes[a][v * componentCounts[a] + c] + 0.0f;
+				}
+			}
+		}
+
+		/* merge vertices using an open addressing hash table of vertex indices */
+
+		int tableSize = Integer.highestOneBit(Math.max(4, inputVertexCount * 2 - 1)) << 1;
+		int[] table = new int[tableSize];
+		Arrays.fill(table, -1);
+
+		float[] uniqueKeys = new float[keys.length];
+		int[] indices = new int[inputVertexCount];
+		int vertexCount = 0;
+
+		for (int v = 0; v < inputVertexCount; v++) {
+
+			int slot = hash(keys, v * stride, stride) & (tableSize - 1);
+
+			while (table[slot] >= 0 && !keysEqual(keys, v * stride, uniqueKeys, table[slot] * stride, stride)) {
+				slot = (slot + 1) & (tableSize - 1);
+			}
+
+			if (table[slot] < 0) {
+				System.arraycopy(keys, v * stride, uniqueKeys, vertexCount * stride, stride);
+				table[slot] = vertexCount++;
+			}
+
+			indices[v] = table[slot];
+
+		}
+
+		/* split the interleaved unique vertices into separate attributes again */
+
+		float[][] result = new float[attributes.length][];
+
+		for (int a = 0, attributeOffset = 0; a < attributes.length; attributeOffset += componentCounts[a], a++) {
+			result[a] = new float[vertexCount * componentCounts[a]];
+			for (int v = 0; v < vertexCount; v++) {
+				System.arraycopy(uniqueKeys, v * stride + attributeOffset,
+						result[a], v * componentCounts[a], componentCounts[a]);
+			}
+		}
+
+		return new IndexedVertexData(componentCounts, result, vertexCount, indices);
+
+	}
+
+	private static int hash(float[] keys, int offset, int length) {
+		int h = 1;
+		for (int i = offset; i < offset + length; i++) {
+			h = 31 * h + Float.floatToIntBits(keys[i]);
+		}
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean keysEqual(float[] keys1, int offset1, float[] keys2, int offset2, int length) {
+		for (int i = 0; i < length; i++) {
+			if (Float.floatToIntBits(keys1[offset1 + i]) != Float.floatToIntBits(keys2[offset2 + i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * returns a copy with triangles reordered for better use of the post-transform vertex cache of GPUs,
+	 * and vertices reordered according to their first use by a triangle.
+	 * Uses Tom Forsyth's "Linear-Speed Vertex Cache Optimisation" algorithm.
+	 */
+	IndexedVertexData optimizedForVertexCache() {
+		int[] triangleOrder = new ForsythTriangleOrder(indices, vertexCount).triangleOrder();
+		return reordered(triangleOrder);
+	}
+
+	private IndexedVertexData reordered(int[] triangleOrder) {
+
+		int[] newIndexForOldIndex = new int[vertexCount];
+		Arrays.fill(newIndexForOldIndex, -1);
+		int[] oldIndexForNewIndex = new int[vertexCount];
+
+		int[] newIndices = new int[indices.length];
+		int nextIndex = 0;
+
+		for (int t = 0; t < triangleOrder.length; t++) {
+			for (int i = 0; i < 3; i++) {
+				int oldIndex = indices[3 * triangleOrder[t] + i];
+				if (newIndexForOldIndex[oldIndex] < 0) {
+					oldIndexForNewIndex[nextIndex] = oldIndex;
+					newIndexForOldIndex[oldIndex] = nextIndex++;
+				}
+				newIndices[3 * t + i] = newIndexForOldIndex[oldIndex];
+			}
+		}
+
+		float[][] newAttributes = new float[attributes.length][];
+
+		for (int a = 0; a < attributes.length; a++) {
+			int n = componentCounts[a];
+			newAttributes[a] = new float[nextIndex * n];
+			for (int v = 0; v < nextIndex; v++) {
+				System.arraycopy(attributes[a], oldIndexForNewIndex[v] * n, newAttributes[a], v * n, n);
+			}
+		}
+
+		return new IndexedVertexData(componentCounts, newAttributes, nextIndex, newIndices);
+
+	}
+
+	/**
+	 * implementation of Tom Forsyth's vertex cache optimization algorithm.
+	 * Greedily picks the next triangle based on the scores of its vertices,
+	 * which depend on their position in a simulated LRU cache and on the number of triangles still using them.
+	 */
+	private static final class ForsythTriangleOrder {
+
+		private static final int CACHE_SIZE = 32;
+		private static final double CACHE_DECAY_POWER = 1.5;
+		private static final double LAST_TRIANGLE_SCORE = 0.75;
+		private static final double VALENCE_BOOST_SCALE = 2.0;
+		private static final double VALENCE_BOOST_POWER = 0.5;
+
+		private final int[] indices;
+		private final int triangleCount;
+
+		/** for each vertex, the offset of its triangles in {@link #vertexTriangles} */
+		private final int[] vertexTriangleOffsets;
+		private final int[] vertexTriangles;
+
+		/** number of triangles using each vertex which have not yet been added to the output */
+		private final int[] remainingValence;
+		private final int[] cachePosition;
+		private final double[] vertexScores;
+
+		private final boolean[] triangleAdded;
+		private final double[] triangleScores;
+
+		ForsythTriangleOrder(int[] indices, int vertexCount) {
+
+			this.indices = indices;
+			this.triangleCount = indices.length / 3;
+
+			remainingValence = new int[vertexCount];
+			for (int index : indices) {
+				remainingValence[index]++;
+			}
+
+			vertexTriangleOffsets = new int[vertexCount + 1];
+			for (int v = 0; v < vertexCount; v++) {
+				vertexTriangleOffsets[v + 1] = vertexTriangleOffsets[v] + remainingValence[v];
+			}
+
+			vertexTriangles = new int[indices.length];
+			int[] fillCount = new int[vertexCount];
+			for (int i = 0; i < indices.length; i++) {
+				int v = indices[i];
+				vertexTriangles[vertexTriangleOffsets[v] + fillCount[v]++] = i / 3;
+			}
+
+			cachePosition = new int[vertexCount];
+			Arrays.fill(cachePosition, -1);
+
+			vertexScores = new double[vertexCount];
+			for (int v = 0; v < vertexCount; v++) {
+				vertexScores[v] = vertexScore(v);
+			}
+
+			triangleAdded = new boolean[triangleCount];
+			triangleScores = new double[triangleCount];
+			for (int t = 0; t < triangleCount; t++) {
+				triangleScores[t] = vertexScores[indices[3 * t]]
+						+ vertexScores[indices[3 * t + 1]]
+						+ vertexScores[indices[3 * t + 2]];
+			}
+
+		}
+
+		int[] triangleOrder() {
+
+			int[] result = new int[triangleCount];
+
+			int[] cache = new int[CACHE_SIZE + 3];
+			int cacheSize = 0;
+			int[] newCache = new int[CACHE_SIZE + 3];
+
+			int bestTriangle = findBestTriangle(cache, 0);
+			int scanStart = 0;
+
+			for (int outputPos = 0; outputPos < triangleCount; outputPos++) {
+
+				if (bestTriangle < 0) {
+					// no candidate among the cached vertices' triangles, continue with any remaining triangle
+					while (triangleAdded[scanStart]) { scanStart++; }
+					bestTriangle = scanStart;
+				}
+
+				result[outputPos] = bestTriangle;
+				triangleAdded[bestTriangle] = true;
+
+				/* put the triangle's vertices at the front of the cache, followed by the previous content */
+
+				int newCacheSize = 0;
+
+				for (int i = 0; i < 3; i++) {
+					int v = indices[3 * bestTriangle + i];
+					remainingValence[v]--;
+					newCache[newCacheSize++] = v;
+				}
+
+				for (int i = 0; i < cacheSize; i++) {
+					int v = cache[i];
+					if (v != newCache[0] && v != newCache[1] && v != newCache[2]) {
+						newCache[newCacheSize++] = v;
+					}
+				}
+
+				/* update vertex positions and scores */
+
+				for (int i = 0; i < newCacheSize; i++) {
+					cachePosition[newCache[i]] = i < CACHE_SIZE ? i : -1;
+				}
+
+				int[] swap = cache;
+				cache = newCache;
+				newCache = swap;
+				cacheSize = newCacheSize;
+
+				for (int i = 0; i < cacheSize; i++) {
+					int v = cache[i];
+					double newScore = vertexScore(v);
+					double delta = newScore - vertexScores[v];
+					vertexScores[v] = newScore;
+					for (int j = vertexTriangleOffsets[v]; j < vertexTriangleOffsets[v + 1]; j++) {
+						triangleScores[vertexTriangles[j]] += delta;
+					}
+				}
+
+				cacheSize = Math.min(cacheSize, CACHE_SIZE);
+
+				bestTriangle = findBestTriangle(cache, cacheSize);
+
+			}
+
+			return result;
+
+		}
+
+		/** finds the best remaining triangle using any of the cached vertices, or -1 if there is none */
+		private int findBestTriangle(int[] cache, int cacheSize) {
+
+			int bestTriangle = -1;
+			double bestScore = Double.NEGATIVE_INFINITY;
+
+			for (int i = 0; i < cacheSize; i++) {
+				int v = cache[i];
+				for (int j = vertexTriangleOffsets[v]; j < vertexTriangleOffsets[v + 1]; j++) {
+					int t = vertexTriangles[j];
+					if (!triangleAdded[t] && triangleScores[t] > bestScore) {
+						bestScore = triangleScores[t];
+						bestTriangle = t;
+					}
+				}
+			}
+
+			return bestTriangle;
+
+		}
+
+		private double vertexScore(int v) {
+
+			if (remainingValence[v] == 0) {
+				return -1;
+			}
+
+			double score = 0;
+			int position = cachePosition[v];
+
+			if (position >= 0) {
+				if (position < 3) {
+					score = LAST_TRIANGLE_SCORE;
+				} else {
+					double scaler = 1.0 / (CACHE_SIZE - 3);
+					score = pow(1.0 - (position - 3) * scaler, CACHE_DECAY_POWER);
+				}
+			}
+
+			score += VALENCE_BOOST_SCALE * pow(remainingValence[v], -VALENCE_BOOST_POWER);
+
+			return score;
+
+		}
+
+	}
+
+}
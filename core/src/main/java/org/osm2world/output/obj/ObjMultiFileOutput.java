@@ -143,4 +143,9 @@ public class ObjMultiFileOutput extends FaceOutput {
 		currentTarget.finish();
 	}
 
+	@Override
+	public String toString() {
+		return "ObjMultiFileOutput(" + objDirectory + ")";
+	}
+
 }
@@ -42,6 +42,7 @@ public class ObjOutput extends FaceOutput {
 
 	private final PrintWriter objWriter;
 	private final PrintWriter mtlWriter;
+	private final @Nullable File objFile;
 	private final @Nullable File objDirectory;
 	private final @Nullable File textureDirectory;
 
@@ -96,6 +97,7 @@ public class ObjOutput extends FaceOutput {
 
 		this.objWriter = objWriter;
 		this.mtlWriter = mtlWriter;
+		this.objFile = objFile;
 		this.objDirectory = objFile.getAbsoluteFile().getParentFile();
 		this.textureDirectory = getTextureDirectory(objDirectory, objFile.getName());
 
@@ -117,6 +119,7 @@ public class ObjOutput extends FaceOutput {
 		this.objWriter = new PrintWriter(objWriter, true);
 		this.mtlWriter = new PrintWriter(mtlWriter != null ? mtlWriter : Writer.nullWriter(), true);
 		this.objDirectory = objDirectory;
+		this.objFile = objDirectory == null || objName == null ? null : new File(objDirectory, objName);
 
 		this.textureDirectory = objDirectory == null || objName == null
 			? null : getTextureDirectory(objDirectory, objName);
@@ -412,5 +415,9 @@ public class ObjOutput extends FaceOutput {
 
 	}
 
-}
+	@Override
+	public String toString() {
+		return objFile != null ? "ObjOutput(" + objFile + ")" : "ObjOutput";
+	}
 
+}
@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.*;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.imageio.ImageIO;
 
 import org.osm2world.GlobalValues;
@@ -38,6 +39,7 @@ public class POVRayOutput extends AbstractOutput implements DrawBasedOutput {
 	private static final double SMALL_OFFSET = 1e-3;
 
 	private final PrintStream output;
+	private @Nullable File file = null;
 
 	private Map<TextureData, String> textureNames = new HashMap<TextureData, String>();
 
@@ -45,6 +47,7 @@ public class POVRayOutput extends AbstractOutput implements DrawBasedOutput {
 
 	public POVRayOutput(File file, Camera camera, Projection projection) throws FileNotFoundException {
 		this(new PrintStream(file), camera, projection);
+		this.file = file;
 	}
 
 	public POVRayOutput(PrintStream output, Camera camera, Projection projection) {
@@ -855,5 +858,9 @@ public class POVRayOutput extends AbstractOutput implements DrawBasedOutput {
 
 	}
 
-}
+	@Override
+	public String toString() {
+		return file != null ? "POVRayOutput(" + file + ")" : "POVRayOutput";
+	}
 
+}
@@ -1,18 +1,30 @@
 package org.osm2world.scene;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import javax.annotation.Nullable;
 
+import org.osm2world.conversion.ConversionContext;
+import org.osm2world.conversion.O2WConfig;
 import org.osm2world.map_data.data.MapData;
 import org.osm2world.math.geo.MapProjection;
 import org.osm2world.math.shapes.AxisAlignedRectangleXZ;
 import org.osm2world.output.common.MeshOutput;
 import org.osm2world.scene.mesh.MeshStore;
+import org.osm2world.scene.mesh.MeshStore.MeshProcessingStep;
 import org.osm2world.scene.mesh.Mesh;
+import org.osm2world.scene.model.Model;
+import org.osm2world.scene.model.ModelInstance;
 import org.osm2world.world.data.WorldObject;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 /**
  * A 3D scene created from map data.
@@ -20,15 +32,44 @@ import com.google.common.collect.Iterables;
  */
 public final class Scene {
 
+	/** maximum number of results of {@link #getProcessedMeshes(boolean, List, O2WConfig)} which are kept */
+	private static final int MAX_CACHED_PROCESSED_MESHES = 8;
+
 	private final @Nullable MapProjection mapProjection;
 	private final MapData mapData;
+	private final ConversionContext context;
+
+	/** caches the meshes and model instances of the scene's world objects */
+	private MeshOutput meshOutput = null;
 
 	/** caches the result of {@link #getMeshes()} and {@link #getMeshesWithMetadata()} */
 	private MeshStore meshStore = null;
 
+	/**
+	 * caches the meshes and sub-models of individual world objects, see {@link #getMeshes(WorldObject)}.
+	 * Soft values are used because the meshes can be re-built if memory runs low.
+	 */
+	private final Cache<WorldObject, ObjectMeshes> objectMeshes = CacheBuilder.newBuilder().softValues().build();
+
+	/**
+	 * caches the results of {@link #getProcessedMeshes(boolean, List, O2WConfig)}.
+	 * Soft values are used because the processed meshes can be re-calculated if memory runs low.
+	 */
+	private final Cache<ProcessedMeshesKey, MeshStore> processedMeshes = CacheBuilder.newBuilder()
+			.maximumSize(MAX_CACHED_PROCESSED_MESHES).softValues().build();
+
+	/**
+	 * creates a scene for the conversion running on the current thread,
+	 * see {@link ConversionContext#current()}
+	 */
 	public Scene(@Nullable MapProjection mapProjection, MapData mapData) {
+		this(mapProjection, mapData, ConversionContext.current());
+	}
+
+	public Scene(@Nullable MapProjection mapProjection, MapData mapData, ConversionContext context) {
 		this.mapProjection = mapProjection;
 		this.mapData = mapData;
+		this.context = context;
 	}
 
 	/**
@@ -45,6 +86,16 @@ public final class Scene {
 		return mapData.getBoundary();
 	}
 
+	/**
+	 * the context of the conversion which created this scene.
+	 * Needs to be bound when working with the scene's meshes and materials on other threads,
+	 * see {@link ConversionContext#callWith(java.util.function.Supplier)}.
+	 * The scene's own methods bind it automatically.
+	 */
+	public ConversionContext getContext() {
+		return context;
+	}
+
 	/**
 	 * returns the underlying {@link MapData}
 	 */
@@ -82,12 +133,104 @@ public final class Scene {
 		return this.meshStore.meshesWithMetadata();
 	}
 
-	private void loadMeshStore() {
+	/**
+	 * returns the same meshes as {@link #getMeshesWithMetadata()},
+	 * except for the meshes of {@link ModelInstance}s which are returned by {@link #getModelInstancesWithMetadata()}
+	 */
+	public List<MeshStore.MeshWithMetadata> getNonInstancedMeshesWithMetadata() {
+		loadMeshOutput();
+		return this.meshOutput.getNonInstancedMeshesWithMetadata();
+	}
+
+	/**
+	 * returns the instances of those models which {@link Model#supportsInstancing()}.
+	 * This allows outputs to represent them as instances instead of using {@link #getMeshesWithMetadata()},
+	 * where they have been converted to meshes.
+	 */
+	public List<MeshStore.ModelInstanceWithMetadata> getModelInstancesWithMetadata() {
+		loadMeshOutput();
+		return this.meshOutput.getModelInstancesWithMetadata();
+	}
+
+	/**
+	 * returns the result of applying a sequence of {@link MeshProcessingStep}s to this scene's meshes.
+	 * The result is cached, so outputs which use the same steps (such as the same {@link MeshStore.FilterLod}
+	 * and {@link MeshStore.ConvertToTriangles} for the same LOD) only need to process the meshes once.
+	 * This requires the steps to implement {@link Object#equals(Object)}.
+	 *
+	 * This is currently used by {@link org.osm2world.output.gltf.GltfOutput}, e.g. to share the work between
+	 * the outputs for the tiles of a batch conversion. Other outputs apply their own processing steps,
+	 * but those based on {@link org.osm2world.output.common.DrawBasedOutput} use the meshes cached by
+	 * {@link #getMeshes(WorldObject)}.
+	 *
+	 * @param nonInstanced  whether to use {@link #getNonInstancedMeshesWithMetadata()}
+	 *                      instead of {@link #getMeshesWithMetadata()} as the input
+	 */
+	public MeshStore getProcessedMeshes(boolean nonInstanced, List<MeshProcessingStep> steps,
+			O2WConfig config) {
+
+		var key = new ProcessedMeshesKey(nonInstanced, List.copyOf(steps), config.toPropertyMap());
+
+		return getCached(processedMeshes, key, () -> {
+			var input = new MeshStore(nonInstanced ? getNonInstancedMeshesWithMetadata() : getMeshesWithMetadata());
+			return context.callWith(() -> input.process(key.steps(), config));
+		});
+
+	}
+
+	/**
+	 * returns the result of {@link WorldObject#buildMeshes()} for one of this scene's world objects.
+	 * The result is cached, so outputs do not need to build the meshes again.
+	 */
+	public List<Mesh> getMeshes(WorldObject object) {
+		return loadObjectMeshes(object).meshes();
+	}
+
+	/**
+	 * returns the result of {@link WorldObject#getSubModels()} for one of this scene's world objects.
+	 * The result is cached like that of {@link #getMeshes(WorldObject)}.
+	 */
+	public List<ModelInstance> getSubModels(WorldObject object) {
+		return loadObjectMeshes(object).subModels();
+	}
+
+	private ObjectMeshes loadObjectMeshes(WorldObject object) {
+		return getCached(objectMeshes, object, () ->
+				context.callWith(() -> new ObjectMeshes(object.buildMeshes(), object.getSubModels())));
+	}
+
+	/** returns a cached value, or calculates it. Exceptions during the calculation are passed on unchanged. */
+	private static <K, V> V getCached(Cache<K, V> cache, K key, Callable<V> loader) {
+		try {
+			return cache.get(key, loader);
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			Throwables.throwIfUnchecked(e.getCause());
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private synchronized void loadMeshStore() {
 		if (this.meshStore == null) {
-			var output = new MeshOutput();
+			loadMeshOutput();
+			this.meshStore = new MeshStore(meshOutput.getMeshesWithMetadata());
+		}
+	}
+
+	private synchronized void loadMeshOutput() {
+		if (this.meshOutput == null) {
+			var output = new MeshOutput(true);
 			output.outputScene(this);
-			this.meshStore = new MeshStore(output.getMeshesWithMetadata());
+			this.meshOutput = output;
 		}
 	}
 
+	private record ObjectMeshes(List<Mesh> meshes, List<ModelInstance> subModels) {}
+
+	/**
+	 * a sequence of processing steps along with the meshes they are applied to
+	 * and the properties of the config used for processing
+	 */
+	private record ProcessedMeshesKey(boolean nonInstanced, List<MeshProcessingStep> steps,
+			Map<String, Object> config) {}
+
 }
@@ -3,9 +3,18 @@ package org.osm2world.scene.material;
 import java.awt.Color;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
+import org.osm2world.conversion.ConversionContext;
+
 
 /**
  * a material whose attributes can be configured at runtime.
+ *
+ * The attributes passed to the constructor are defaults.
+ * If the {@link MaterialRegistry} of the current {@link ConversionContext} contains configured attributes
+ * for this material, those are returned instead.
+ * Therefore, the same instance can be used by conversions with different configurations at the same time.
  */
 public class ConfMaterial extends Material {
 
@@ -25,35 +34,72 @@ public class ConfMaterial extends Material {
 		super(interpolation, color);
 	}
 
-	public void setInterpolation(Interpolation interpolation) {
-		this.interpolation = interpolation;
+	/**
+	 * the attributes of this material for the registry which has most recently been used.
+	 * Avoids looking up the configured attributes in the registry for every call of a getter.
+	 */
+	private volatile @Nullable ResolvedAttributes resolvedAttributes = null;
+
+	/** @param configured  the configured attributes, or null if the defaults are used */
+	private record ResolvedAttributes(MaterialRegistry registry, @Nullable Material configured) {}
+
+	/** returns the configured attributes for this material, or null if the defaults are used */
+	private @Nullable Material configured() {
+		MaterialRegistry registry = ConversionContext.current().materials();
+		ResolvedAttributes resolved = resolvedAttributes;
+		if (resolved == null || resolved.registry != registry) {
+			resolved = new ResolvedAttributes(registry, registry.getConfiguredAttributes(this));
+			resolvedAttributes = resolved;
+		}
+		return resolved.configured;
 	}
 
-	public void setColor(Color color) {
-		this.color = color;
+	/** returns the attributes passed to the constructor, ignoring any configuration */
+	Material getDefaultAttributes() {
+		return new ImmutableMaterial(interpolation, color, doubleSided,
+				transparency, shadow, ambientOcclusion, textureLayers);
 	}
 
-	public void setDoubleSided(boolean doubleSided) {
-		this.doubleSided = doubleSided;
+	@Override
+	public Interpolation getInterpolation() {
+		Material configured = configured();
+		return configured != null ? configured.getInterpolation() : interpolation;
 	}
 
-	public void setTransparency(Transparency transparency) {
-		this.transparency = transparency;
+	@Override
+	public Color getColor() {
+		Material configured = configured();
+		return configured != null ? configured.getColor() : color;
 	}
 
-	public void setShadow(Shadow shadow) {
-		this.shadow = shadow;
+	@Override
+	public boolean isDoubleSided() {
+		Material configured = configured();
+		return configured != null ? configured.isDoubleSided() : doubleSided;
 	}
 
-	public void setAmbientOcclusion(AmbientOcclusion ambientOcclusion) {
-		this.ambientOcclusion = ambientOcclusion;
+	@Override
+	public Transparency getTransparency() {
+		Material configured = configured();
+		return configured != null ? configured.getTransparency() : transparency;
 	}
 
-	public void setTextureLayers(List<TextureLayer> textureLayers) {
-		if (textureLayers.size() > MAX_TEXTURE_LAYERS) {
-			throw new IllegalArgumentException("too many texture layers: " + textureLayers.size());
-		}
-		this.textureLayers = textureLayers;
+	@Override
+	public Shadow getShadow() {
+		Material configured = configured();
+		return configured != null ? configured.getShadow() : shadow;
+	}
+
+	@Override
+	public AmbientOcclusion getAmbientOcclusion() {
+		Material configured = configured();
+		return configured != null ? configured.getAmbientOcclusion() : ambientOcclusion;
+	}
+
+	@Override
+	public List<TextureLayer> getTextureLayers() {
+		Material configured = configured();
+		return configured != null ? configured.getTextureLayers() : textureLayers;
 	}
 
 	@Override
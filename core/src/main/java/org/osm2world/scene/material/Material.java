@@ -128,7 +128,7 @@ public abstract class Material {
 	 * except with a different list of {@link TextureLayer}s
 	 */
 	public Material withLayers(List<TextureLayer> textureLayers) {
-		if (textureLayers.equals(this.textureLayers)) {
+		if (textureLayers.equals(this.getTextureLayers())) {
 			return this;
 		} else {
 		    return new ImmutableMaterial(getInterpolation(), getColor(), isDoubleSided(),
@@ -310,26 +310,27 @@ public abstract class Material {
 	}
 
 	public int getNumTextureLayers() {
-		return textureLayers.size();
+		return getTextureLayers().size();
 	}
 
 	public List<TextureDataDimensions> getTextureDimensions() {
-		return textureLayers.stream().map(l -> l.baseColorTexture.dimensions()).collect(toList());
+		return getTextureLayers().stream().map(l -> l.baseColorTexture.dimensions()).collect(toList());
 	}
 
 	public boolean equals(@Nonnull Material other, boolean ignoreNormalMode, boolean ignoreColor) {
-		return (ignoreNormalMode || interpolation == other.interpolation)
-				&& (ignoreColor || Objects.equals(color, other.color))
-				&& doubleSided == other.doubleSided
-				&& transparency == other.transparency
-				&& shadow == other.shadow
-				&& ambientOcclusion == other.ambientOcclusion
-				&& Objects.equals(textureLayers, other.textureLayers);
+		return (ignoreNormalMode || getInterpolation() == other.getInterpolation())
+				&& (ignoreColor || Objects.equals(getColor(), other.getColor()))
+				&& isDoubleSided() == other.isDoubleSided()
+				&& getTransparency() == other.getTransparency()
+				&& getShadow() == other.getShadow()
+				&& getAmbientOcclusion() == other.getAmbientOcclusion()
+				&& Objects.equals(getTextureLayers(), other.getTextureLayers());
 	}
 
 	@Override
 	public String toString() {
-		String colorString = String.format(Locale.ROOT, "#%06x", color.getRGB() & 0x00ffffff);
+		String colorString = String.format(Locale.ROOT, "#%06x", getColor().getRGB() & 0x00ffffff);
+		List<TextureLayer> textureLayers = getTextureLayers();
 		if (textureLayers.isEmpty() || textureLayers.stream().anyMatch(it -> it.colorable)) {
 			return colorString + ", " + textureLayers;
 		} else {
@@ -0,0 +1,376 @@
+package org.osm2world.scene.material;
+
+import java.awt.*;
+import java.io.File;
+import java.util.List;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+import org.osm2world.conversion.ConversionContext;
+import org.osm2world.conversion.O2WConfig;
+import org.osm2world.scene.material.Material.AmbientOcclusion;
+import org.osm2world.scene.material.Material.Interpolation;
+import org.osm2world.scene.material.Material.Shadow;
+import org.osm2world.scene.material.Material.Transparency;
+import org.osm2world.scene.material.TextTexture.FontStyle;
+import org.osm2world.scene.material.TextureData.Wrap;
+import org.osm2world.scene.texcoord.NamedTexCoordFunction;
+import org.osm2world.scene.texcoord.TexCoordFunction;
+
+/**
+ * the materials resulting from one {@link O2WConfig}.
+ * Contains the configured attributes of the {@link ConfMaterial}s in {@link Materials},
+ * as well as additional materials which are only defined in the configuration.
+ *
+ * Instances are immutable and can be shared between conversions running in parallel.
+ * The registry used during a conversion is part of its {@link ConversionContext}.
+ */
+public final class MaterialRegistry {
+
+	private static final Pattern CONF_KEY_PATTERN = Pattern.compile(
+					"material_(.+)_(interpolation|color|doubleSided|shadow|ssao|transparency|texture\\d*_.+)");
+
+	/** configured attributes for those {@link Materials} constants which are modified by the config */
+	private final Map<ConfMaterial, Material> configuredMaterials;
+
+	/** materials which are not defined in {@link Materials}, by name */
+	private final Map<String, ConfMaterial> externalMaterials;
+
+	private MaterialRegistry(Map<ConfMaterial, Material> configuredMaterials,
+			Map<String, ConfMaterial> externalMaterials) {
+		this.configuredMaterials = Map.copyOf(configuredMaterials);
+		this.externalMaterials = Map.copyOf(externalMaterials);
+	}
+
+	/**
+	 * returns the configured attributes for one of the materials defined in {@link Materials}.
+	 *
+	 * @return  the configured attributes, or null if the material's defaults are not modified by this registry
+	 */
+	@Nullable Material getConfiguredAttributes(ConfMaterial material) {
+		return configuredMaterials.get(material);
+	}
+
+	/**
+	 * returns a material which is not defined in {@link Materials}, but only in the configuration
+	 *
+	 * @param name  case-sensitive name of the material
+	 */
+	public @Nullable ConfMaterial getExternalMaterial(@Nullable String name) {
+		return name == null ? null : externalMaterials.get(name);
+	}
+
+	/**
+	 * creates a registry from the material-related properties of a configuration
+	 */
+	public static MaterialRegistry fromConfig(O2WConfig config) {
+
+		Map<ConfMaterial, Material> configuredMaterials = new HashMap<>();
+		Map<String, ConfMaterial> externalMaterials = new HashMap<>();
+
+		/* find all material-related properties and organize them by material */
+
+		Map<String, Set<String>> attributesPerMaterialName = new HashMap<>();
+
+		Iterator<String> keyIterator = config.getKeys();
+
+		while (keyIterator.hasNext()) {
+			String key = keyIterator.next();
+			Matcher matcher = CONF_KEY_PATTERN.matcher(key);
+			if (matcher.matches()) {
+				String materialName = matcher.group(1);
+				if (!attributesPerMaterialName.containsKey(materialName)) {
+					attributesPerMaterialName.put(materialName, new HashSet<>());
+				}
+				attributesPerMaterialName.get(materialName).add(matcher.group(2));
+			}
+		}
+
+		/* create each material */
+
+		for (var entry : attributesPerMaterialName.entrySet()) {
+
+			String materialName = entry.getKey();
+			Set<String> attributes = entry.getValue();
+
+			/* start with the defaults of the material defined in Materials.java, if any */
+
+			@Nullable ConfMaterial builtInMaterial = Materials.getBuiltInMaterial(materialName);
+			Material defaults = builtInMaterial != null
+					? builtInMaterial.getDefaultAttributes()
+					: new ImmutableMaterial(Interpolation.FLAT, Color.white);
+
+			Interpolation interpolation = defaults.getInterpolation();
+			Color color = defaults.getColor();
+			boolean doubleSided = defaults.isDoubleSided();
+			Transparency transparency = defaults.getTransparency();
+			Shadow shadow = defaults.getShadow();
+			AmbientOcclusion ambientOcclusion = defaults.getAmbientOcclusion();
+
+			String keyPrefix = "material_" + materialName + "_";
+
+			for (String attribute : attributes) {
+
+				String key = keyPrefix + attribute;
+
+				switch (attribute) {
+					case "doubleSided" -> doubleSided = config.getBoolean(key);
+					case "interpolation" -> {
+						Interpolation value = config.getEnum(Interpolation.class, key);
+						if (value != null) { interpolation = value; }
+					}
+					case "shadow" -> {
+						Shadow value = config.getEnum(Shadow.class, key);
+						if (value != null) { shadow = value; }
+					}
+					case "ssao" -> {
+						AmbientOcclusion value = config.getEnum(AmbientOcclusion.class, key);
+						if (value != null) { ambientOcclusion = value; }
+					}
+					case "transparency" -> {
+						Transparency value = config.getEnum(Transparency.class, key);
+						if (value != null) { transparency = value; }
+					}
+					case "color" -> {
+						Color value = config.getColor(key);
+						if (value != null) {
+							color = value;
+						} else {
+							System.err.println("incorrect color value: " + config.getString(key));
+						}
+					}
+					default -> {
+						if (!attribute.startsWith("texture")) {
+							System.err.println("unknown material attribute '" + attribute + "' for material " + materialName);
+						}
+					}
+				}
+
+			}
+
+			/* configure texture layers */
+
+			List<TextureLayer> textureLayers = new ArrayList<>();
+
+			for (int i = 0; i < Material.MAX_TEXTURE_LAYERS; i++) {
+				String attribute = "texture" + i;
+				if (attributes.stream().anyMatch(a -> a.startsWith(attribute))) {
+					boolean implicitColorTexture = attributes.stream().noneMatch(a -> a.startsWith(attribute + "_color_"));
+					TextureLayer textureLayer = createTextureLayer(config, keyPrefix + attribute, implicitColorTexture);
+					if (textureLayer != null) {
+						textureLayers.add(textureLayer);
+					}
+				} else {
+					break;
+				}
+			}
+
+			/* store the material */
+
+			if (builtInMaterial != null) {
+				configuredMaterials.put(builtInMaterial, new ImmutableMaterial(interpolation, color, doubleSided,
+						transparency, shadow, ambientOcclusion, textureLayers));
+			} else {
+				externalMaterials.put(materialName, new ConfMaterial(interpolation, color, doubleSided,
+						transparency, shadow, ambientOcclusion, textureLayers));
+			}
+
+		}
+
+		return new MaterialRegistry(configuredMaterials, externalMaterials);
+
+	}
+
+	private static @Nullable TextureLayer createTextureLayer(O2WConfig config, String keyPrefix, boolean implicitColorTexture) {
+
+		File baseColorTexture = null;
+		File ormTexture = null;
+		File normalTexture = null;
+		File displacementTexture = null;
+
+		if (config.containsKey(keyPrefix + "_dir")) {
+
+			File textureDir = config.resolveFileConfigProperty(config.getString(keyPrefix + "_dir"));
+			if (textureDir!= null && textureDir.exists() && textureDir.isDirectory()) {
+				for (File file : textureDir.listFiles()) {
+					if (file.getName().contains("_Color.")) {
+						baseColorTexture = file;
+					} else if (file.getName().contains("_ORM.")) {
+						ormTexture = file;
+					} else if (file.getName().contains("_Normal.")) {
+						normalTexture = file;
+					} else if (file.getName().contains("_Displacement.")) {
+						displacementTexture = file;
+					}
+				}
+			} else {
+				System.err.println("Not a directory: " + textureDir);
+			}
+		}
+
+		TextureData baseColorTextureData = createTextureData(
+				config, keyPrefix + (implicitColorTexture ? "" : "_color"), baseColorTexture);
+
+		if (baseColorTextureData == null) {
+			System.err.println("Config is missing base color texture for " + keyPrefix);
+			return null;
+		} else {
+			return new TextureLayer(
+					baseColorTextureData,
+					createTextureData(config, keyPrefix + "_normal", normalTexture),
+					createTextureData(config, keyPrefix + "_orm", ormTexture),
+					createTextureData(config, keyPrefix + "_displacement", displacementTexture),
+					config.getBoolean(keyPrefix + "_colorable", false));
+		}
+
+	}
+
+	/**
+	 * @param defaultFile  texture file to use if there's no _file attribute
+	 * @return  valid {@link TextureData} extracted from the config file, or null
+	 */
+	private static @Nullable TextureData createTextureData(O2WConfig config, String keyPrefix,
+			@Nullable File defaultFile) {
+
+		TextureDataDimensions dimensions = createTextureDataDimensions(config, keyPrefix);
+		Wrap wrap = getWrap(config.getString(keyPrefix + "_wrap"));
+		@Nullable Function<TextureDataDimensions, TexCoordFunction> coordFunction =
+				getCoordFunction(config.getString(keyPrefix + "_coord_function"));
+
+		//get texture layer type
+		String type = config.getString(keyPrefix + "_type", "image");
+
+		if ("text".equals(type)) {
+
+			String fontKey = keyPrefix + "_font";
+			String textKey = keyPrefix + "_text";
+			String topOffsetKey = keyPrefix + "_topOffset";
+			String leftOffsetKey = keyPrefix + "_leftOffset";
+			String relativeFontSizeKey = keyPrefix + "_relative_font_size";
+			String textColorKey = keyPrefix + "_textColor";
+
+			String text = "";
+
+			//get text configuration
+			if (config.getString(textKey) != null) {
+				text = config.getString(textKey);
+			}
+
+			//get font configuration
+			Font font = null;
+			if (config.getString(fontKey) == null) {
+
+				font = new Font("Dialog", Font.PLAIN, 100);
+
+			} else {
+
+				String[] values = config.getString(fontKey).split(",", 2);
+
+				if (values.length == 2) {
+					int fontStyle = FontStyle.getStyle(values[1].toUpperCase());
+					font = new Font(values[0], fontStyle, 100);
+				} else {
+					font = new Font("Dialog", Font.PLAIN, 100);
+				}
+			}
+
+			//get top/left offset configuration
+			String topOffset = config.getString(topOffsetKey);
+			if (topOffset != null) {
+				if (topOffset.endsWith("%")) {
+					topOffset = topOffset.substring(0, topOffset.length() - 1);
+				}
+			} else {
+				topOffset = Integer.toString(50);
+			}
+
+			String leftOffset = config.getString(leftOffsetKey);
+			if (leftOffset != null) {
+				if (leftOffset.endsWith("%")) {
+					leftOffset = leftOffset.substring(0, leftOffset.length() - 1);
+				}
+			} else {
+				leftOffset = Integer.toString(50);
+			}
+
+			//get text color configuration
+			Color color = config.getColor(textColorKey, Color.BLACK);
+
+			//get relative font size
+			double relativeFontSize = config.getDouble(relativeFontSizeKey, 60);
+
+			return new TextTexture(text, font, dimensions,
+					Double.parseDouble(topOffset), Double.parseDouble(leftOffset), color,
+					relativeFontSize, wrap, coordFunction);
+
+		} else if ("image".equals(type)) {
+			File file = config.resolveFileConfigProperty(config.getString(keyPrefix + "_file"));
+			
+			if (file == null || file.isDirectory()) {
+				file = null;
+			}
+
+			if (file == null) { file = defaultFile; }
+			if (file == null) { return null; }
+
+			return ImageFileTexture.create(file, dimensions, wrap, coordFunction);
+
+		} else {
+			System.err.println("unknown type value: " + type);
+			return null;
+		}
+
+	}
+
+	/**
+	 * @return  valid {@link TextureDataDimensions} extracted from the config file, possibly using default values
+	 */
+	private static TextureDataDimensions createTextureDataDimensions(O2WConfig config, String keyPrefix) {
+
+		double width = config.getDouble(keyPrefix + "_width", 1.0);
+		double height = config.getDouble(keyPrefix + "_height", 1.0);
+
+		Double widthPerEntity = config.getDouble(keyPrefix + "_widthPerEntity", null);
+		Double heightPerEntity = config.getDouble(keyPrefix + "_heightPerEntity", null);
+
+		double padding = config.getDouble(keyPrefix + "_padding", 0);
+
+		if (width <= 0) {
+			System.err.println("Error: illegal width for texture " + keyPrefix);
+			width = 1;
+		}
+
+		if (height <= 0) {
+			System.err.println("Error: illegal height for texture " + keyPrefix);
+			height = 1;
+		}
+
+		return new TextureDataDimensions(width, height, widthPerEntity, heightPerEntity, padding);
+
+	}
+
+	private static Wrap getWrap(String wrapString) {
+		if (wrapString != null && wrapString.toLowerCase().startsWith("clamp")) {
+			return Wrap.CLAMP;
+		} else {
+			return Wrap.REPEAT;
+		}
+	}
+
+	private static @Nullable Function<TextureDataDimensions, TexCoordFunction> getCoordFunction(
+			String coordFunctionString) {
+
+		Function<TextureDataDimensions, TexCoordFunction> result = null;
+
+		if (coordFunctionString != null) {
+			result = NamedTexCoordFunction.valueOf(coordFunctionString.toUpperCase());
+		}
+
+		return result;
+	}
+
+}
@@ -4,28 +4,20 @@ import static java.awt.Color.*;
 import static java.util.Collections.emptyList;
 
 import java.awt.*;
-import java.io.File;
 import java.lang.reflect.Field;
-import java.util.List;
 import java.util.*;
-import java.util.Map.Entry;
-import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import javax.annotation.Nullable;
 
-import org.osm2world.conversion.O2WConfig;
+import org.osm2world.conversion.ConversionContext;
 import org.osm2world.scene.material.Material.Interpolation;
 import org.osm2world.scene.material.Material.Transparency;
-import org.osm2world.scene.material.TextTexture.FontStyle;
-import org.osm2world.scene.material.TextureData.Wrap;
-import org.osm2world.scene.texcoord.NamedTexCoordFunction;
-import org.osm2world.scene.texcoord.TexCoordFunction;
 import org.osm2world.world.creation.WorldModule;
 
 /**
- * this class defines materials that can be used by all {@link WorldModule}s
+ * this class defines materials that can be used by all {@link WorldModule}s.
+ * The attributes of these materials can be modified through the configuration,
+ * see {@link MaterialRegistry}.
  */
 public final class Materials {
 
@@ -250,7 +242,7 @@ public final class Materials {
 
 	private static final Map<String, ConfMaterial> surfaceMaterialMap = new HashMap<>();
 	private static final Map<ConfMaterial, String> fieldNameMap = new HashMap<>();
-	private static final Map<String, ConfMaterial> externalMaterials = new HashMap<>();
+	private static final Map<String, ConfMaterial> materialsByLowerCaseName = new HashMap<>();
 
 	static {
 
@@ -288,6 +280,9 @@ public final class Materials {
 					fieldNameMap.put(
 							(ConfMaterial)field.get(null),
 							field.getName());
+					materialsByLowerCaseName.put(
+							field.getName().toLowerCase(Locale.ROOT),
+							(ConfMaterial)field.get(null));
 				}
 			}
 		} catch (Exception e) {
@@ -297,54 +292,57 @@ public final class Materials {
 	}
 
 	/** returns all materials defined here */
-	synchronized public static final Collection<ConfMaterial> getMaterials() {
-		return fieldNameMap.keySet();
+	public static final Collection<ConfMaterial> getMaterials() {
+		return Collections.unmodifiableSet(fieldNameMap.keySet());
 	}
 
 	/**
-	 * returns a material defined here based on its name
+	 * returns a material based on its name.
+	 * Looks for materials defined here first, then for materials defined only in the configuration
+	 * (using the {@link MaterialRegistry} of the current {@link ConversionContext}).
 	 *
 	 * @param name  case-insensitive name of the material
 	 */
-	synchronized public static final @Nullable ConfMaterial getMaterial(@Nullable String name) {
+	public static final @Nullable ConfMaterial getMaterial(@Nullable String name) {
 
 		if (name == null) return null;
 
 		/* look for materials defined as a constant first */
 
-		for (Entry<ConfMaterial, String> entry : fieldNameMap.entrySet()) {
-			if (entry.getValue().equalsIgnoreCase(name)) {
-				return entry.getKey();
-			}
-		}
+		ConfMaterial builtInMaterial = getBuiltInMaterial(name);
 
-		/*
-		 * If the material is not defined in Materials.java, loop
-		 * through externalMaterials map
-		 */
-		for (String key : externalMaterials.keySet()) {
-			if (name.equals(key)) {
-				return externalMaterials.get(name);
-			}
+		if (builtInMaterial != null) {
+			return builtInMaterial;
 		}
 
-		return null;
+		/* If the material is not defined in Materials.java, look for it in the configuration */
+
+		return ConversionContext.current().materials().getExternalMaterial(name);
 
 	}
 
+	/**
+	 * returns a material defined as a constant here based on its name
+	 *
+	 * @param name  case-insensitive name of the material
+	 */
+	static @Nullable ConfMaterial getBuiltInMaterial(String name) {
+		return materialsByLowerCaseName.get(name.toLowerCase(Locale.ROOT));
+	}
+
 	/** variant of {@link #getMaterial(String)} with a default value */
-	synchronized public static final Material getMaterial(@Nullable String name, Material defaultValue) {
+	public static final Material getMaterial(@Nullable String name, Material defaultValue) {
 		Material result = getMaterial(name);
 		return result == null ? defaultValue : result;
 	}
 
 	/** returns a material for a surface value; null if none is found */
-	synchronized public static final Material getSurfaceMaterial(String value) {
+	public static final Material getSurfaceMaterial(String value) {
 		return getSurfaceMaterial(value, null);
 	}
 
 	/** same as {@link #getSurfaceMaterial(String)}, but with fallback value */
-	synchronized public static final Material getSurfaceMaterial(String value, Material fallback) {
+	public static final Material getSurfaceMaterial(String value, Material fallback) {
 		Material material = value == null ? null : surfaceMaterialMap.get(value);
 		if (material != null) {
 			return material;
@@ -357,308 +355,8 @@ public final class Materials {
 	 * returns a human-readable, unique name for a material defined
 	 * within this class, null for all other materials.
 	 */
-	synchronized public static final String getUniqueName(Material material) {
+	public static final String getUniqueName(Material material) {
 		return fieldNameMap.get(material);
 	}
 
-	private static final Pattern CONF_KEY_PATTERN = Pattern.compile(
-					"material_(.+)_(interpolation|color|doubleSided|shadow|ssao|transparency|texture\\d*_.+)");
-
-	/**
-	 * configures the attributes of the materials within this class
-	 * based on external configuration settings
-	 */
-	synchronized public static final void configureMaterials(O2WConfig config) {
-
-		externalMaterials.clear();
-
-		/* find all material-related properties and organize them by material */
-
-		Map<String, Set<String>> attributesPerMaterialName = new HashMap<>();
-
-		Iterator<String> keyIterator = config.getKeys();
-
-		while (keyIterator.hasNext()) {
-			String key = keyIterator.next();
-			Matcher matcher = CONF_KEY_PATTERN.matcher(key);
-			if (matcher.matches()) {
-				String materialName = matcher.group(1);
-				if (!attributesPerMaterialName.containsKey(materialName)) {
-					attributesPerMaterialName.put(materialName, new HashSet<>());
-				}
-				attributesPerMaterialName.get(materialName).add(matcher.group(2));
-			}
-		}
-
-		/* create each material */
-
-		for (var entry : attributesPerMaterialName.entrySet()) {
-
-			String materialName = entry.getKey();
-			Set<String> attributes = entry.getValue();
-
-			ConfMaterial material = getMaterial(materialName);
-
-			/* If material is not defined in Materials.java, create new material
-			 * and add it to externalMaterials map */
-			if (material == null) {
-				material = new ConfMaterial(Interpolation.FLAT, Color.white);
-				externalMaterials.put(materialName, material);
-			}
-
-			String keyPrefix = "material_" + materialName + "_";
-
-			for (String attribute : attributes) {
-
-				String key = keyPrefix + attribute;
-
-				switch (attribute) {
-					case "doubleSided" -> {
-						boolean doubleSided = config.getBoolean(key);
-						material.setDoubleSided(doubleSided);
-					}
-					case "interpolation" -> {
-						Interpolation interpolation = config.getEnum(Interpolation.class, key);
-						if (interpolation != null) { material.setInterpolation(interpolation); }
-					}
-					case "shadow" -> {
-						Material.Shadow shadow = config.getEnum(Material.Shadow.class, key);
-						if (shadow != null) { material.setShadow(shadow); }
-					}
-					case "ssao" -> {
-						Material.AmbientOcclusion ao = config.getEnum(Material.AmbientOcclusion.class, key);
-						if (ao != null) { material.setAmbientOcclusion(ao); }
-					}
-					case "transparency" -> {
-						Transparency transparency = config.getEnum(Transparency.class, key);
-						if (transparency != null) { material.setTransparency(transparency); }
-					}
-					case "color" -> {
-						Color color = config.getColor(key);
-						if (color != null) {
-							material.setColor(color);
-						} else {
-							System.err.println("incorrect color value: " + config.getString(key));
-						}
-					}
-					default -> {
-						if (!attribute.startsWith("texture")) {
-							System.err.println("unknown material attribute '" + attribute + "' for material " + materialName);
-						}
-					}
-				}
-
-			}
-
-			/* configure texture layers */
-
-			List<TextureLayer> textureLayers = new ArrayList<>();
-
-			for (int i = 0; i < Material.MAX_TEXTURE_LAYERS; i++) {
-				String attribute = "texture" + i;
-				if (attributes.stream().anyMatch(a -> a.startsWith(attribute))) {
-					boolean implicitColorTexture = attributes.stream().noneMatch(a -> a.startsWith(attribute + "_color_"));
-					TextureLayer textureLayer = createTextureLayer(config, keyPrefix + attribute, implicitColorTexture);
-					if (textureLayer != null) {
-						textureLayers.add(textureLayer);
-					}
-				} else {
-					break;
-				}
-			}
-
-			material.setTextureLayers(textureLayers);
-
-		}
-
-	}
-
-	private static @Nullable TextureLayer createTextureLayer(O2WConfig config, String keyPrefix, boolean implicitColorTexture) {
-
-		File baseColorTexture = null;
-		File ormTexture = null;
-		File normalTexture = null;
-		File displacementTexture = null;
-
-		if (config.containsKey(keyPrefix + "_dir")) {
-
-			File textureDir = config.resolveFileConfigProperty(config.getString(keyPrefix + "_dir"));
-			if (textureDir!= null && textureDir.exists() && textureDir.isDirectory()) {
-				for (File file : textureDir.listFiles()) {
-					if (file.getName().contains("_Color.")) {
-						baseColorTexture = file;
-					} else if (file.getName().contains("_ORM.")) {
-						ormTexture = file;
-					} else if (file.getName().contains("_Normal.")) {
-						normalTexture = file;
-					} else if (file.getName().contains("_Displacement.")) {
-						displacementTexture = file;
-					}
-				}
-			} else {
-				System.err.println("Not a directory: " + textureDir);
-			}
-		}
-
-		TextureData baseColorTextureData = createTextureData(
-				config, keyPrefix + (implicitColorTexture ? "" : "_color"), baseColorTexture);
-
-		if (baseColorTextureData == null) {
-			System.err.println("Config is missing base color texture for " + keyPrefix);
-			return null;
-		} else {
-			return new TextureLayer(
-					baseColorTextureData,
-					createTextureData(config, keyPrefix + "_normal", normalTexture),
-					createTextureData(config, keyPrefix + "_orm", ormTexture),
-					createTextureData(config, keyPrefix + "_displacement", displacementTexture),
-					config.getBoolean(keyPrefix + "_colorable", false));
-		}
-
-	}
-
-	/**
-	 * @param defaultFile  texture file to use if there's no _file attribute
-	 * @return  valid {@link TextureData} extracted from the config file, or null
-	 */
-	private static @Nullable TextureData createTextureData(O2WConfig config, String keyPrefix,
-			@Nullable File defaultFile) {
-
-		TextureDataDimensions dimensions = createTextureDataDimensions(config, keyPrefix);
-		Wrap wrap = getWrap(config.getString(keyPrefix + "_wrap"));
-		@Nullable Function<TextureDataDimensions, TexCoordFunction> coordFunction =
-				getCoordFunction(config.getString(keyPrefix + "_coord_function"));
-
-		//get texture layer type
-		String type = config.getString(keyPrefix + "_type", "image");
-
-		if ("text".equals(type)) {
-
-			String fontKey = keyPrefix + "_font";
-			String textKey = keyPrefix + "_text";
-			String topOffsetKey = keyPrefix + "_topOffset";
-			String leftOffsetKey = keyPrefix + "_leftOffset";
-			String relativeFontSizeKey = keyPrefix + "_relative_font_size";
-			String textColorKey = keyPrefix + "_textColor";
-
-			String text = "";
-
-			//get text configuration
-			if (config.getString(textKey) != null) {
-				text = config.getString(textKey);
-			}
-
-			//get font configuration
-			Font font = null;
-			if (config.getString(fontKey) == null) {
-
-				font = new Font("Dialog", Font.PLAIN, 100);
-
-			} else {
-
-				String[] values = config.getString(fontKey).split(",", 2);
-
-				if (values.length == 2) {
-					int fontStyle = FontStyle.getStyle(values[1].toUpperCase());
-					font = new Font(values[0], fontStyle, 100);
-				} else {
-					font = new Font("Dialog", Font.PLAIN, 100);
-				}
-			}
-
-			//get top/left offset configuration
-			String topOffset = config.getString(topOffsetKey);
-			if (topOffset != null) {
-				if (topOffset.endsWith("%")) {
-					topOffset = topOffset.substring(0, topOffset.length() - 1);
-				}
-			} else {
-				topOffset = Integer.toString(50);
-			}
-
-			String leftOffset = config.getString(leftOffsetKey);
-			if (leftOffset != null) {
-				if (leftOffset.endsWith("%")) {
-					leftOffset = leftOffset.substring(0, leftOffset.length() - 1);
-				}
-			} else {
-				leftOffset = Integer.toString(50);
-			}
-
-			//get text color configuration
-			Color color = config.getColor(textColorKey, Color.BLACK);
-
-			//get relative font size
-			double relativeFontSize = config.getDouble(relativeFontSizeKey, 60);
-
-			return new TextTexture(text, font, dimensions,
-					Double.parseDouble(topOffset), Double.parseDouble(leftOffset), color,
-					relativeFontSize, wrap, coordFunction);
-
-		} else if ("image".equals(type)) {
-			File file = config.resolveFileConfigProperty(config.getString(keyPrefix + "_file"));
-			
-			if (file == null || file.isDirectory()) {
-				file = null;
-			}
-
-			if (file == null) { file = defaultFile; }
-			if (file == null) { return null; }
-
-			return ImageFileTexture.create(file, dimensions, wrap, coordFunction);
-
-		} else {
-			System.err.println("unknown type value: " + type);
-			return null;
-		}
-
-	}
-
-	/**
-	 * @return  valid {@link TextureDataDimensions} extracted from the config file, possibly using default values
-	 */
-	private static TextureDataDimensions createTextureDataDimensions(O2WConfig config, String keyPrefix) {
-
-		double width = config.getDouble(keyPrefix + "_width", 1.0);
-		double height = config.getDouble(keyPrefix + "_height", 1.0);
-
-		Double widthPerEntity = config.getDouble(keyPrefix + "_widthPerEntity", null);
-		Double heightPerEntity = config.getDouble(keyPrefix + "_heightPerEntity", null);
-
-		double padding = config.getDouble(keyPrefix + "_padding", 0);
-
-		if (width <= 0) {
-			System.err.println("Error: illegal width for texture " + keyPrefix);
-			width = 1;
-		}
-
-		if (height <= 0) {
-			System.err.println("Error: illegal height for texture " + keyPrefix);
-			height = 1;
-		}
-
-		return new TextureDataDimensions(width, height, widthPerEntity, heightPerEntity, padding);
-
-	}
-
-	private static Wrap getWrap(String wrapString) {
-		if (wrapString != null && wrapString.toLowerCase().startsWith("clamp")) {
-			return Wrap.CLAMP;
-		} else {
-			return Wrap.REPEAT;
-		}
-	}
-
-	private static @Nullable Function<TextureDataDimensions, TexCoordFunction> getCoordFunction(
-			String coordFunctionString) {
-
-		Function<TextureDataDimensions, TexCoordFunction> result = null;
-
-		if (coordFunctionString != null) {
-			result = NamedTexCoordFunction.valueOf(coordFunctionString.toUpperCase());
-		}
-
-		return result;
-	}
-
 }
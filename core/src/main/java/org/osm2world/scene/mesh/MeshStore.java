@@ -1,6 +1,7 @@
 package org.osm2world.scene.mesh;
 
 import static java.awt.Color.WHITE;
+import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.util.Arrays.stream;
 import static java.util.Collections.emptyList;
@@ -12,27 +13,32 @@ import static org.osm2world.scene.mesh.Geometry.combine;
 import java.awt.*;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import org.osm2world.conversion.O2WConfig;
 import org.osm2world.map_data.data.MapRelationElement;
 import org.osm2world.math.VectorXYZ;
 import org.osm2world.math.VectorXZ;
 import org.osm2world.math.algorithms.GeometryUtil;
+import org.osm2world.math.shapes.AxisAlignedRectangleXZ;
 import org.osm2world.math.shapes.LineSegmentXZ;
 import org.osm2world.math.shapes.SimpleClosedShapeXZ;
 import org.osm2world.math.shapes.TriangleXYZ;
 import org.osm2world.math.shapes.TriangleXZ;
 import org.osm2world.scene.material.*;
+import org.osm2world.scene.mesh.MeshStore.ReplaceTexturesWithAtlas.TextureAtlasGroup;
+import org.osm2world.scene.model.ModelInstance;
 import org.osm2world.util.FaultTolerantIterationUtil;
+import org.osm2world.util.ParallelExecutionUtil;
 import org.osm2world.scene.color.LColor;
 import org.osm2world.world.data.WorldObject;
 
 import com.google.common.base.Objects;
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
@@ -43,6 +49,26 @@ public class MeshStore {
 	@FunctionalInterface
 	public static interface MeshProcessingStep extends Function<MeshStore, MeshStore> {}
 
+	/**
+	 * a {@link MeshProcessingStep} which processes each mesh independently of all other meshes.
+	 * Consecutive steps of this type can be applied to each mesh in a single pass, see {@link #process(List, ForkJoinPool)}.
+	 */
+	public static interface PerMeshProcessingStep extends MeshProcessingStep {
+
+		/** returns the meshes replacing the input mesh, in order. May be empty. */
+		List<MeshWithMetadata> applyToMesh(MeshWithMetadata mesh);
+
+		@Override
+		default MeshStore apply(MeshStore meshStore) {
+			List<MeshWithMetadata> result = new ArrayList<>();
+			for (MeshWithMetadata mesh : meshStore.meshesWithMetadata()) {
+				result.addAll(applyToMesh(mesh));
+			}
+			return new MeshStore(result);
+		}
+
+	}
+
 	public record MeshMetadata(
 			@Nullable MapRelationElement mapElement,
 			@Nullable Class<? extends WorldObject> modelClass) {
@@ -79,6 +105,16 @@ public class MeshStore {
 
 	}
 
+	/** a {@link ModelInstance} which has not been converted to meshes yet, along with metadata */
+	public record ModelInstanceWithMetadata(@Nonnull ModelInstance modelInstance, @Nonnull MeshMetadata metadata) {
+
+		/** returns the meshes of the model instance, each with this object's metadata */
+		public List<MeshWithMetadata> getMeshesWithMetadata() {
+			return modelInstance.getMeshes().stream().map(m -> new MeshWithMetadata(m, metadata)).toList();
+		}
+
+	}
+
 	private final List<MeshWithMetadata> meshes = new ArrayList<>();
 
 	public MeshStore() {}
@@ -99,6 +135,10 @@ public class MeshStore {
 		meshes.add(meshWithMetadata);
 	}
 
+	public int size() {
+		return meshes.size();
+	}
+
 	public List<Mesh> meshes() {
 		return meshes.stream().map(m -> m.mesh).toList();
 	}
@@ -112,6 +152,9 @@ public class MeshStore {
 		return Multimaps.index(meshes(), m -> metadataMap.get(m).metadata);
 	}
 
+	/**
+	 * applies processing steps one after another, each of them to the entire result of the previous step
+	 */
 	public MeshStore process(List<MeshProcessingStep> processingSteps) {
 		MeshStore result = this;
 		for (MeshProcessingStep processingStep : processingSteps) {
@@ -120,8 +163,109 @@ public class MeshStore {
 		return result;
 	}
 
+	/**
+	 * applies processing steps with the same result as {@link #process(List)}, but usually faster.
+	 * Consecutive {@link PerMeshProcessingStep}s are fused: they are applied to each mesh in a single pass,
+	 * with meshes being distributed across the threads of the pool. Intermediate results are only collected
+	 * before other steps, such as {@link MergeMeshes} or the generation of a texture atlas.
+	 * The order of the resulting meshes does not depend on the number of threads.
+	 *
+	 * @param pool  the pool to use, or null to process all meshes on the calling thread
+	 */
+	public MeshStore process(List<MeshProcessingStep> processingSteps, @Nullable ForkJoinPool pool) {
+
+		List<MeshWithMetadata> currentMeshes = meshesWithMetadata();
+		List<PerMeshProcessingStep> pendingSteps = new ArrayList<>();
+
+		for (MeshProcessingStep step : processingSteps) {
+
+			if (step instanceof ReplaceTexturesWithAtlas atlasStep && atlasStep.textureAtlasGroup == null) {
+
+				/* generating the atlas requires all meshes, but replacing the textures can be fused with other steps */
 
-	public static class FilterLod implements MeshProcessingStep {
+				currentMeshes = applyFused(pendingSteps, currentMeshes, pool);
+				pendingSteps.clear();
+
+				TextureAtlasGroup atlasGroup = ReplaceTexturesWithAtlas.generateTextureAtlasGroup(
+						List.of(new MeshStore(currentMeshes)), atlasStep.excludeFromAtlas);
+
+				if (atlasGroup != null) {
+					pendingSteps.add(new ReplaceTexturesWithAtlas(atlasGroup));
+				}
+
+			} else if (step instanceof PerMeshProcessingStep perMeshStep) {
+
+				pendingSteps.add(perMeshStep);
+
+			} else {
+
+				currentMeshes = applyFused(pendingSteps, currentMeshes, pool);
+				pendingSteps.clear();
+
+				currentMeshes = step.apply(new MeshStore(currentMeshes)).meshes;
+
+			}
+
+		}
+
+		return new MeshStore(applyFused(pendingSteps, currentMeshes, pool));
+
+	}
+
+	/**
+	 * applies processing steps according to the configuration.
+	 * Uses {@link #process(List, ForkJoinPool)} with {@link O2WConfig#threadCount()} threads
+	 * if {@link O2WConfig#fuseMeshProcessing()} is enabled, and {@link #process(List)} otherwise.
+	 */
+	public MeshStore process(List<MeshProcessingStep> processingSteps, O2WConfig config) {
+
+		if (!config.fuseMeshProcessing()) {
+			return process(processingSteps);
+		}
+
+		ForkJoinPool pool = ParallelExecutionUtil.createPool(config.threadCount());
+
+		try {
+			return process(processingSteps, pool);
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+
+	}
+
+	private static List<MeshWithMetadata> applyFused(List<PerMeshProcessingStep> steps,
+			List<MeshWithMetadata> meshes, @Nullable ForkJoinPool pool) {
+
+		if (steps.isEmpty()) return meshes;
+
+		List<PerMeshProcessingStep> fusedSteps = List.copyOf(steps);
+
+		List<List<MeshWithMetadata>> resultsPerMesh = ParallelExecutionUtil.map(pool, meshes, mesh -> {
+			List<MeshWithMetadata> result = List.of(mesh);
+			for (PerMeshProcessingStep step : fusedSteps) {
+				if (result.size() == 1) {
+					result = step.applyToMesh(result.get(0));
+				} else {
+					List<MeshWithMetadata> stepResult = new ArrayList<>();
+					for (MeshWithMetadata m : result) {
+						stepResult.addAll(step.applyToMesh(m));
+					}
+					result = stepResult;
+				}
+			}
+			return result;
+		});
+
+		List<MeshWithMetadata> result = new ArrayList<>(meshes.size());
+		resultsPerMesh.forEach(result::addAll);
+		return result;
+
+	}
+
+
+	public static class FilterLod implements PerMeshProcessingStep {
 
 		private final LevelOfDetail targetLod;
 
@@ -130,16 +274,24 @@ public class MeshStore {
 		}
 
 		@Override
-		public MeshStore apply(MeshStore meshStore) {
-			return new MeshStore(meshStore.meshesWithMetadata().stream()
-					.filter(m -> m.mesh().lodRange.contains(targetLod))
-					.toList());
+		public List<MeshWithMetadata> applyToMesh(MeshWithMetadata mesh) {
+			return mesh.mesh().lodRange.contains(targetLod) ? List.of(mesh) : List.of();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof FilterLod other && targetLod == other.targetLod;
+		}
+
+		@Override
+		public int hashCode() {
+			return targetLod.hashCode();
 		}
 
 	}
 
 	/** converts all geometry to {@link TriangleGeometry} */
-	public record ConvertToTriangles(double desiredMaxError) implements MeshProcessingStep {
+	public record ConvertToTriangles(double desiredMaxError) implements PerMeshProcessingStep {
 
 		public ConvertToTriangles {
 			if (!Double.isFinite(desiredMaxError)) {
@@ -158,11 +310,9 @@ public class MeshStore {
 		}
 
 		@Override
-		public MeshStore apply(MeshStore meshStore) {
-			return new MeshStore(meshStore.meshesWithMetadata().stream()
-					.map(m -> new MeshWithMetadata(new Mesh(applyToGeometry(m.mesh().geometry),
-							m.mesh().material, m.mesh().lodRange), m.metadata()))
-					.toList());
+		public List<MeshWithMetadata> applyToMesh(MeshWithMetadata m) {
+			return List.of(new MeshWithMetadata(new Mesh(applyToGeometry(m.mesh().geometry),
+					m.mesh().material, m.mesh().lodRange), m.metadata()));
 		}
 
 		public TriangleGeometry applyToGeometry(Geometry g) {
@@ -206,65 +356,99 @@ public class MeshStore {
 			this.options = options;
 		}
 
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof MergeMeshes other && options.equals(other.options);
+		}
+
+		@Override
+		public int hashCode() {
+			return options.hashCode();
+		}
+
 		/** checks if two meshes should be merged according to the MergeOptions */
 		public boolean shouldBeMerged(MeshWithMetadata m1, MeshWithMetadata m2) {
+			MergeKey key = mergeKey(m1);
+			return key != null && key.equals(mergeKey(m2));
+		}
 
-			if (m1.mesh().lodRange.min() != m2.mesh().lodRange.min()
-					|| m1.mesh().lodRange.max() != m2.mesh().lodRange.max()) {
-				return false;
-			}
-
-			if (!options.contains(MergeOption.MERGE_ELEMENTS)
-					&& !java.util.Objects.equals(m1.metadata(), m2.metadata())) {
-				return false;
-			}
+		/**
+		 * returns a key which is equal for two meshes if and only if they should be merged.
+		 * Returns null for meshes which should not be merged with any other mesh.
+		 */
+		@Nullable MergeKey mergeKey(MeshWithMetadata m) {
 
 			if (options.contains(MergeOption.PRESERVE_GEOMETRY_TYPES)
-					&& (!java.util.Objects.equals(m1.mesh().geometry.getClass(), TriangleGeometry.class)
-					|| !java.util.Objects.equals(m2.mesh().geometry.getClass(), TriangleGeometry.class))) {
-				return false;
+					&& m.mesh().geometry.getClass() != TriangleGeometry.class) {
+				return null;
 			}
 
-			return m1.mesh().material.equals(m2.mesh().material,
-					!options.contains(MergeOption.SEPARATE_NORMAL_MODES),
-					!options.contains(MergeOption.SINGLE_COLOR_MESHES));
+			Material material = m.mesh().material;
+
+			return new MergeKey(
+					m.mesh().lodRange,
+					options.contains(MergeOption.MERGE_ELEMENTS) ? null : m.metadata(),
+					options.contains(MergeOption.SEPARATE_NORMAL_MODES) ? material.getInterpolation() : null,
+					options.contains(MergeOption.SINGLE_COLOR_MESHES) ? material.getColor() : null,
+					material.isDoubleSided(),
+					material.getTransparency(),
+					material.getShadow(),
+					material.getAmbientOcclusion(),
+					material.getTextureLayers());
 
 		}
 
+		/**
+		 * the properties of a mesh which need to be identical for it to be merged with another mesh.
+		 * Properties which are irrelevant due to the {@link MergeOption}s are null.
+		 */
+		record MergeKey(
+				LODRange lodRange,
+				@Nullable MeshMetadata metadata,
+				@Nullable Material.Interpolation interpolation,
+				@Nullable Color color,
+				boolean doubleSided,
+				Material.Transparency transparency,
+				Material.Shadow shadow,
+				Material.AmbientOcclusion ambientOcclusion,
+				List<TextureLayer> textureLayers) {}
+
+		/**
+		 * merges meshes with the same {@link #mergeKey(MeshWithMetadata)}.
+		 * The result is ordered by the first occurrence of each group of merged meshes in the input,
+		 * and the meshes within each group retain their order. The output is therefore deterministic.
+		 */
 		@Override
 		public MeshStore apply(MeshStore meshStore) {
 
-			/* form sets of meshes that should be merged with each other.
-			 * To improve performance, sets are indexed by the hash code of the mesh material's texture layer list. */
+			/* form sets of meshes that should be merged with each other */
 
-			Multimap<Integer, List<MeshWithMetadata>> meshSetsByHashCode = HashMultimap.create();
+			Map<MergeKey, List<MeshWithMetadata>> meshSetsByKey = new HashMap<>();
+			List<List<MeshWithMetadata>> meshSets = new ArrayList<>();
 
-			meshLoop:
 			for (MeshWithMetadata mesh : meshStore.meshesWithMetadata()) {
 
-				int hashCode = mesh.mesh().material.getTextureLayers().hashCode();
-				if (!options.contains(MergeOption.MERGE_ELEMENTS)) {
-					hashCode ^= mesh.metadata().hashCode();
-				}
+				MergeKey key = mergeKey(mesh);
 
-				for (List<MeshWithMetadata> set : meshSetsByHashCode.get(hashCode)) {
-					if (shouldBeMerged(mesh, set.get(0))) {
-						set.add(mesh);
-						continue meshLoop;
+				List<MeshWithMetadata> set = (key == null) ? null : meshSetsByKey.get(key);
+
+				if (set == null) {
+					set = new ArrayList<>();
+					meshSets.add(set);
+					if (key != null) {
+						meshSetsByKey.put(key, set);
 					}
 				}
 
-				ArrayList<MeshWithMetadata> newSet = new ArrayList<>();
-				newSet.add(mesh);
-				meshSetsByHashCode.put(hashCode, newSet);
+				set.add(mesh);
 
 			}
 
 			/* merge meshes in the same set to produce the result */
 
-			List<MeshWithMetadata> result = new ArrayList<>();
+			List<MeshWithMetadata> result = new ArrayList<>(meshSets.size());
 
-			for (List<MeshWithMetadata> meshSet : meshSetsByHashCode.values()) {
+			for (List<MeshWithMetadata> meshSet : meshSets) {
 				result.add(MeshWithMetadata.merge(meshSet));
 			}
 
@@ -275,7 +459,7 @@ public class MeshStore {
 	}
 
 	/** replaces meshes that have multiple layers of textures with multiple meshes, each of which have only one layer */
-	public static class EmulateTextureLayers implements MeshProcessingStep {
+	public static class EmulateTextureLayers implements PerMeshProcessingStep {
 
 		private static final double OFFSET_PER_LAYER = 5e-2;
 
@@ -291,113 +475,122 @@ public class MeshStore {
 		}
 
 		@Override
-		public MeshStore apply(MeshStore meshStore) {
-
-			/* replace any multi-layer meshes with multiple meshes */
+		public boolean equals(Object obj) {
+			return obj instanceof EmulateTextureLayers other && maxLayers == other.maxLayers;
+		}
 
-			List<MeshWithMetadata> result = new ArrayList<>();
+		@Override
+		public int hashCode() {
+			return Integer.hashCode(maxLayers);
+		}
 
-			for (MeshWithMetadata meshWithMetadata : meshStore.meshesWithMetadata()) {
+		/** replaces a multi-layer mesh with multiple meshes */
+		@Override
+		public List<MeshWithMetadata> applyToMesh(MeshWithMetadata meshWithMetadata) {
 
-				Mesh mesh = meshWithMetadata.mesh();
+			Mesh mesh = meshWithMetadata.mesh();
 
-				if (mesh.material.getNumTextureLayers() <= 1) {
-					result.add(meshWithMetadata);
-				} else {
+			if (mesh.material.getNumTextureLayers() <= 1) {
+				return List.of(meshWithMetadata);
+			}
 
-					TriangleGeometry tg = mesh.geometry.asTriangles();
+			List<MeshWithMetadata> result = new ArrayList<>();
 
-					for (int layer = 0; layer < min(maxLayers, mesh.material.getNumTextureLayers()); layer++) {
+			TriangleGeometry tg = mesh.geometry.asTriangles();
 
-						double offset = layer * OFFSET_PER_LAYER;
+			for (int layer = 0; layer < min(maxLayers, mesh.material.getNumTextureLayers()); layer++) {
 
-						TriangleGeometry.Builder builder = new TriangleGeometry.Builder(1, null, null);
-						List<TriangleXYZ> offsetTriangles = tg.triangles.stream()
-								.map(t -> t.shift(t.getNormal().mult(offset)))
-								.collect(toList());
-						List<List<VectorXZ>> texCoords = List.of(tg.texCoords.get(layer));
-						builder.addTriangles(offsetTriangles, texCoords, tg.colors, tg.normalData.normals());
-						TriangleGeometry newGeometry = builder.build();
+				double offset = layer * OFFSET_PER_LAYER;
 
-						Material singleLayerMaterial = mesh.material
-								.withTransparency(layer > 0 ? Material.Transparency.BINARY : null)
-								.withLayers(List.of(mesh.material.getTextureLayers().get(layer)));
+				TriangleGeometry.Builder builder = new TriangleGeometry.Builder(1, null, null);
+				List<TriangleXYZ> offsetTriangles = tg.triangles.stream()
+						.map(t -> t.shift(t.getNormal().mult(offset)))
+						.collect(toList());
+				List<List<VectorXZ>> texCoords = List.of(tg.texCoords.get(layer));
+				builder.addTriangles(offsetTriangles, texCoords, tg.colors, tg.normalData.normals());
+				TriangleGeometry newGeometry = builder.build();
 
-						Mesh newMesh = new Mesh(newGeometry, singleLayerMaterial, mesh.lodRange);
+				Material singleLayerMaterial = mesh.material
+						.withTransparency(layer > 0 ? Material.Transparency.BINARY : null)
+						.withLayers(List.of(mesh.material.getTextureLayers().get(layer)));
 
-						result.add(new MeshWithMetadata(newMesh, meshWithMetadata.metadata()));
+				Mesh newMesh = new Mesh(newGeometry, singleLayerMaterial, mesh.lodRange);
 
-					}
+				result.add(new MeshWithMetadata(newMesh, meshWithMetadata.metadata()));
 
-				}
 			}
 
-			return new MeshStore(result);
+			return result;
 
 		}
 
 	}
 
 	/** adds the {@link Material}'s colors directly to the {@link Mesh} as vertex colors */
-	public static class MoveColorsToVertices implements MeshProcessingStep {
+	public static class MoveColorsToVertices implements PerMeshProcessingStep {
 
 		@Override
-		public MeshStore apply(MeshStore meshStore) {
-
-			List<MeshWithMetadata> result = new ArrayList<>();
-
-			for (MeshWithMetadata meshWithMetadata : meshStore.meshesWithMetadata()) {
+		public List<MeshWithMetadata> applyToMesh(MeshWithMetadata meshWithMetadata) {
 
-				if (!meshWithMetadata.mesh().material.getTextureLayers().isEmpty()
-						&& meshWithMetadata.mesh().material.getTextureLayers().stream().noneMatch(it -> it.colorable)) {
-					result.add(meshWithMetadata);
-					continue;
-				}
+			if (!meshWithMetadata.mesh().material.getTextureLayers().isEmpty()
+					&& meshWithMetadata.mesh().material.getTextureLayers().stream().noneMatch(it -> it.colorable)) {
+				return List.of(meshWithMetadata);
+			}
 
-				Mesh mesh = meshWithMetadata.mesh();
-				Material newMaterial = mesh.material.withColor(WHITE);
-				Geometry newGeometry;
+			Mesh mesh = meshWithMetadata.mesh();
+			Material newMaterial = mesh.material.withColor(WHITE);
+			Geometry newGeometry;
 
-				if (mesh.geometry instanceof TriangleGeometry tg) {
+			if (mesh.geometry instanceof TriangleGeometry tg) {
 
-					List<Color> colors = (tg.colors != null) ? tg.colors
-							: nCopies(tg.vertices().size(), mesh.material.getColor());
+				List<Color> colors = (tg.colors != null) ? tg.colors
+						: nCopies(tg.vertices().size(), mesh.material.getColor());
 
-					TriangleGeometry.Builder builder = new TriangleGeometry.Builder(tg.texCoords.size(), null, null);
-					builder.addTriangles(tg.triangles, tg.texCoords, colors, tg.normalData.normals());
-					newGeometry = builder.build();
+				TriangleGeometry.Builder builder = new TriangleGeometry.Builder(tg.texCoords.size(), null, null);
+				builder.addTriangles(tg.triangles, tg.texCoords, colors, tg.normalData.normals());
+				newGeometry = builder.build();
 
-				} else if (mesh.geometry instanceof ShapeGeometry sg) {
+			} else if (mesh.geometry instanceof ShapeGeometry sg) {
 
-					LColor existingColor = sg.color == null ? LColor.WHITE : LColor.fromAWT(sg.color);
-					LColor newColor = existingColor.multiply(mesh.material.getLColor());
+				LColor existingColor = sg.color == null ? LColor.WHITE : LColor.fromAWT(sg.color);
+				LColor newColor = existingColor.multiply(mesh.material.getLColor());
 
-					newGeometry = new ShapeGeometry(sg.shape, sg.point, sg.frontVector, sg.upVector, sg.scaleFactor,
-							newColor.toAWT(), sg.normalMode, sg.textureDimensions);
+				newGeometry = new ShapeGeometry(sg.shape, sg.point, sg.frontVector, sg.upVector, sg.scaleFactor,
+						newColor.toAWT(), sg.normalMode, sg.textureDimensions);
 
-				} else if (mesh.geometry instanceof ExtrusionGeometry eg) {
+			} else if (mesh.geometry instanceof ExtrusionGeometry eg) {
 
-					LColor existingColor = eg.color == null ? LColor.WHITE : LColor.fromAWT(eg.color);
-					LColor newColor = existingColor.multiply(LColor.fromAWT(mesh.material.getColor()));
+				LColor existingColor = eg.color == null ? LColor.WHITE : LColor.fromAWT(eg.color);
+				LColor newColor = existingColor.multiply(LColor.fromAWT(mesh.material.getColor()));
 
-					newGeometry = new ExtrusionGeometry(eg.shape, eg.path, eg.upVectors, eg.scaleFactors,
-							newColor.toAWT(), eg.options, eg.textureDimensions);
+				newGeometry = new ExtrusionGeometry(eg.shape, eg.path, eg.upVectors, eg.scaleFactors,
+						newColor.toAWT(), eg.options, eg.textureDimensions);
 
-				} else {
-					throw new Error("unsupported geometry type: " + mesh.geometry.getClass());
-				}
+			} else {
+				throw new Error("unsupported geometry type: " + mesh.geometry.getClass());
+			}
 
-				result.add(new MeshWithMetadata(new Mesh(newGeometry, newMaterial), meshWithMetadata.metadata()));
+			return List.of(new MeshWithMetadata(new Mesh(newGeometry, newMaterial), meshWithMetadata.metadata()));
 
-			}
+		}
 
-			return new MeshStore(result);
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof MoveColorsToVertices;
+		}
 
+		@Override
+		public int hashCode() {
+			return MoveColorsToVertices.class.hashCode();
 		}
 
 	}
 
-	public static class ReplaceTexturesWithAtlas implements MeshProcessingStep {
+	/**
+	 * replaces textures with texture atlases where possible.
+	 * Processes each mesh independently if a pre-existing {@link TextureAtlasGroup} is used.
+	 */
+	public static class ReplaceTexturesWithAtlas implements PerMeshProcessingStep {
 
 		/** a group of {@link TextureAtlas}es, one for each texture type in a {@link TextureLayer} */
 		public static class TextureAtlasGroup {
@@ -477,11 +670,26 @@ public class MeshStore {
 			if (atlasGroup == null) {
 				return meshStore;
 			} else {
-				return replaceTexturesWithAtlas(meshStore, atlasGroup);
+				List<MeshWithMetadata> result = new ArrayList<>();
+				for (MeshWithMetadata meshWithMetadata : meshStore.meshesWithMetadata()) {
+					result.add(replaceTexturesWithAtlas(meshWithMetadata, atlasGroup));
+				}
+				return new MeshStore(result);
 			}
 
 		}
 
+		/**
+		 * @throws IllegalStateException  if this step has been created without a pre-existing texture atlas group
+		 */
+		@Override
+		public List<MeshWithMetadata> applyToMesh(MeshWithMetadata mesh) {
+			if (textureAtlasGroup == null) {
+				throw new IllegalStateException("the texture atlas group needs to be generated from all meshes");
+			}
+			return List.of(replaceTexturesWithAtlas(mesh, textureAtlasGroup));
+		}
+
 		/**
 		 * finds suitable textures in one or more {@link MeshStore}s and creates a {@link TextureAtlasGroup} for them.
 		 * @param excludeFromAtlas  identifies texture layers which should never be included in a texture atlas
@@ -522,217 +730,334 @@ public class MeshStore {
 		}
 
 		/** replaces textures with the atlas texture and translate texture coordinates */
-		private static MeshStore replaceTexturesWithAtlas(MeshStore meshStore, TextureAtlasGroup atlasGroup) {
+		private static MeshWithMetadata replaceTexturesWithAtlas(MeshWithMetadata meshWithMetadata,
+				TextureAtlasGroup atlasGroup) {
 
-			List<MeshWithMetadata> result = new ArrayList<>();
+			Mesh mesh = meshWithMetadata.mesh();
 
-			for (MeshWithMetadata meshWithMetadata : meshStore.meshesWithMetadata()) {
+			if (!mesh.material.getTextureLayers().stream().anyMatch(atlasGroup::canReplaceLayer)) {
+				return meshWithMetadata;
+			}
 
-				Mesh mesh = meshWithMetadata.mesh();
+			TriangleGeometry tg = mesh.geometry.asTriangles();
 
-				if (!mesh.material.getTextureLayers().stream().anyMatch(atlasGroup::canReplaceLayer)) {
-					result.add(meshWithMetadata);
-				} else {
+			List<TextureLayer> newTextureLayers = new ArrayList<>(mesh.material.getTextureLayers());
+			List<List<VectorXZ>> newTexCoords = new ArrayList<>(tg.texCoords);
 
-					TriangleGeometry tg = mesh.geometry.asTriangles();
+			for (int layer = 0; layer < newTextureLayers.size(); layer ++) {
 
-					List<TextureLayer> newTextureLayers = new ArrayList<>(mesh.material.getTextureLayers());
-					List<List<VectorXZ>> newTexCoords = new ArrayList<>(tg.texCoords);
+				TextureLayer oldLayer = newTextureLayers.get(layer);
 
-					for (int layer = 0; layer < newTextureLayers.size(); layer ++) {
+				if (atlasGroup.canReplaceLayer(oldLayer)) {
+					TextureLayer newLayer = new TextureLayer(atlasGroup.baseColorAtlas,
+							oldLayer.normalTexture == null ? null : atlasGroup.normalAtlas,
+							oldLayer.ormTexture == null ? null : atlasGroup.ormAtlas,
+							oldLayer.displacementTexture == null ? null : atlasGroup.displacementAtlas,
+							true);
+					newTextureLayers.set(layer, newLayer);
+					newTexCoords.set(layer, atlasGroup.baseColorAtlas.mapTexCoords(
+							oldLayer.baseColorTexture, newTexCoords.get(layer)));
+				}
 
-						TextureLayer oldLayer = newTextureLayers.get(layer);
+			}
 
-						if (atlasGroup.canReplaceLayer(oldLayer)) {
-							TextureLayer newLayer = new TextureLayer(atlasGroup.baseColorAtlas,
-									oldLayer.normalTexture == null ? null : atlasGroup.normalAtlas,
-									oldLayer.ormTexture == null ? null : atlasGroup.ormAtlas,
-									oldLayer.displacementTexture == null ? null : atlasGroup.displacementAtlas,
-									true);
-							newTextureLayers.set(layer, newLayer);
-							newTexCoords.set(layer, atlasGroup.baseColorAtlas.mapTexCoords(
-									oldLayer.baseColorTexture, newTexCoords.get(layer)));
-						}
+			TriangleGeometry.Builder builder = new TriangleGeometry.Builder(tg.texCoords.size(), null, null);
+			builder.addTriangles(tg.triangles, newTexCoords, tg.colors, tg.normalData.normals());
 
-					}
+			Material newMaterial = mesh.material.withLayers(newTextureLayers);
+			Mesh newMesh = new Mesh(builder.build(), newMaterial, mesh.lodRange);
 
-					TriangleGeometry.Builder builder = new TriangleGeometry.Builder(tg.texCoords.size(), null, null);
-					builder.addTriangles(tg.triangles, newTexCoords, tg.colors, tg.normalData.normals());
+			return new MeshWithMetadata(newMesh, meshWithMetadata.metadata());
 
-					Material newMaterial = mesh.material.withLayers(newTextureLayers);
-					Mesh newMesh = new Mesh(builder.build(), newMaterial, mesh.lodRange);
+		}
 
-					result.add(new MeshWithMetadata(newMesh, meshWithMetadata.metadata()));
+	}
 
-				}
-			}
+	/**
+	 * removes all geometry outside a bounding shape.
+	 *
+	 * Before splitting triangles at the bounds, meshes and triangles are compared with an outer box around the bounds
+	 * and (if possible) an inner box within the bounds. Only those which are in neither box are actually clipped.
+	 */
+	public static class ClipToBounds implements PerMeshProcessingStep {
 
-			return new MeshStore(result);
+		/**
+		 * distance from the bounds which is treated as safely inside or outside.
+		 * Larger than the tolerance of {@link TriangleXYZ#split}.
+		 */
+		private static final double CULLING_MARGIN = 1e-2;
 
+		private final SimpleClosedShapeXZ bounds;
+		private final boolean splitTriangles;
+
+		private final AxisAlignedRectangleXZ outerBox;
+		private final @Nullable AxisAlignedRectangleXZ innerBox;
+
+		public ClipToBounds(SimpleClosedShapeXZ bounds, boolean splitTriangles) {
+			this.bounds = bounds;
+			this.splitTriangles = splitTriangles;
+			this.outerBox = bounds.boundingBox().pad(CULLING_MARGIN);
+			this.innerBox = innerBox(bounds);
 		}
 
-	}
+		public SimpleClosedShapeXZ bounds() {
+			return bounds;
+		}
 
-	/** removes all geometry outside a bounding shape */
-	public record ClipToBounds(SimpleClosedShapeXZ bounds, boolean splitTriangles) implements MeshProcessingStep {
+		public boolean splitTriangles() {
+			return splitTriangles;
+		}
 
 		@Override
-		public MeshStore apply(MeshStore meshStore) {
+		public boolean equals(Object obj) {
+			return obj instanceof ClipToBounds other
+					&& splitTriangles == other.splitTriangles && bounds.equals(other.bounds);
+		}
 
-			List<MeshWithMetadata> result = new ArrayList<>();
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(bounds, splitTriangles);
+		}
 
-			for (MeshWithMetadata meshWithMetadata : meshStore.meshesWithMetadata()) {
+		@Override
+		public List<MeshWithMetadata> applyToMesh(MeshWithMetadata meshWithMetadata) {
 
-				Mesh mesh = meshWithMetadata.mesh();
-				TriangleGeometry tg = mesh.geometry.asTriangles();
+			Mesh mesh = meshWithMetadata.mesh();
+			TriangleGeometry tg = mesh.geometry.asTriangles();
 
-				Map<TriangleXYZ, Collection<TriangleXYZ>> trianglesToReplace = new HashMap<>();
+			/* accept or reject the entire mesh if possible */
 
-				if (!splitTriangles) {
+			if (tg.triangles.isEmpty()) {
+				return List.of(meshWithMetadata);
+			}
 
-					/* mark triangles outside the bounds for removal */
+			AxisAlignedRectangleXZ meshBox = bbox(tg, 0, tg.vertexCount());
 
-					for (TriangleXYZ t : tg.triangles) {
-						if (!bounds.contains(t.getCenter().xz())) {
-							trianglesToReplace.put(t, emptyList());
-						}
+			if (innerBox != null && innerBox.contains(meshBox)) {
+				return List.of(meshWithMetadata);
+			} else if (!outerBox.overlaps(meshBox)) {
+				return List.of();
+			}
+
+			/* replacements for triangles, indexed by the triangle's position in the geometry */
+			Map<Integer, Collection<TriangleXYZ>> trianglesToReplace = new HashMap<>();
+
+			if (!splitTriangles) {
+
+				/* mark triangles outside the bounds for removal */
+
+				for (int i = 0; i < tg.triangles.size(); i++) {
+					VectorXZ center = new VectorXZ(
+							(tg.vertexX(3 * i) + tg.vertexX(3 * i + 1) + tg.vertexX(3 * i + 2)) / 3,
+							(tg.vertexZ(3 * i) + tg.vertexZ(3 * i + 1) + tg.vertexZ(3 * i + 2)) / 3);
+					if (!bounds.contains(center)) {
+						trianglesToReplace.put(i, emptyList());
 					}
+				}
 
-				} else {
+			} else {
 
-					List<LineSegmentXZ> boundingSegments = getSegmentsCCW(bounds);
+				List<LineSegmentXZ> boundingSegments = getSegmentsCCW(bounds);
 
-					// TODO: speed up by calculating an inner box for bounds
-					// -> if it contains tBbox, the triangle is safely inside the bounds
-					// var tBbox = AxisAlignedRectangleXZ.bbox(t.vertices());
+				for (int i = 0; i < tg.triangles.size(); i++) {
 
-					for (TriangleXYZ originalTriangle : tg.triangles) {
-						Collection<TriangleXYZ> splitTriangles = clipToBounds(originalTriangle, boundingSegments);
-						if (splitTriangles.size() != 1 || !splitTriangles.contains(originalTriangle)) {
-							trianglesToReplace.put(originalTriangle, splitTriangles);
-						}
+					/* only clip triangles which are neither safely inside nor safely outside the bounds */
+
+					AxisAlignedRectangleXZ triangleBox = bbox(tg, 3 * i, 3 * i + 3);
+
+					if (innerBox != null && innerBox.contains(triangleBox)) {
+						continue;
+					} else if (!outerBox.overlaps(triangleBox)) {
+						trianglesToReplace.put(i, emptyList());
+						continue;
 					}
 
+					TriangleXYZ originalTriangle = tg.triangles.get(i);
+
+					Collection<TriangleXYZ> splitTriangles = clipToBounds(originalTriangle, boundingSegments);
+					if (splitTriangles.size() != 1 || !splitTriangles.contains(originalTriangle)) {
+						trianglesToReplace.put(i, splitTriangles);
+					}
 				}
 
-				/* build a new mesh without the triangles outside the bounds */
+			}
 
-				if (trianglesToReplace.isEmpty()) {
-					result.add(meshWithMetadata);
-				} else {
+			/* build a new mesh without the triangles outside the bounds */
 
-					List<VectorXYZ> normals = tg.normalData.normals();
+			if (trianglesToReplace.isEmpty()) {
+				return List.of(meshWithMetadata);
+			} else {
 
-					List<TriangleXYZ> newTriangles = new ArrayList<>();
-					List<Color> newColors = tg.colors == null ? null : new ArrayList<>();
-					List<VectorXYZ> newNormals = new ArrayList<>();
-					List<List<VectorXZ>> newTexCoords = new ArrayList<>(tg.texCoords.size());
+				List<VectorXYZ> normals = tg.normalData.normals();
 
-					for (int layer = 0; layer < tg.texCoords.size(); layer++) {
-						newTexCoords.add(new ArrayList<>());
-					}
+				List<TriangleXYZ> newTriangles = new ArrayList<>();
+				List<Color> newColors = tg.colors == null ? null : new ArrayList<>();
+				List<VectorXYZ> newNormals = new ArrayList<>();
+				List<List<VectorXZ>> newTexCoords = new ArrayList<>(tg.texCoords.size());
 
-					for (int i = 0; i < tg.triangles.size(); i++) {
+				for (int layer = 0; layer < tg.texCoords.size(); layer++) {
+					newTexCoords.add(new ArrayList<>());
+				}
 
-						TriangleXYZ triangle = tg.triangles.get(i);
+				for (int i = 0; i < tg.triangles.size(); i++) {
 
-						if (!trianglesToReplace.containsKey(triangle)) {
+					TriangleXYZ triangle = tg.triangles.get(i);
 
-							newTriangles.add(triangle);
+					if (!trianglesToReplace.containsKey(i)) {
 
-							for (int j = 0; j <= 2; j++) {
+						newTriangles.add(triangle);
 
-								if (newColors != null) {
-									newColors.add(tg.colors.get(3 * i + j));
-								}
+						for (int j = 0; j <= 2; j++) {
 
-								newNormals.add(normals.get(3 * i + j));
+							if (newColors != null) {
+								newColors.add(tg.colors.get(3 * i + j));
+							}
 
-								for (int layer = 0; layer < tg.texCoords.size(); layer ++) {
-									newTexCoords.get(layer).add(tg.texCoords.get(layer).get(3 * i + j));
-								}
+							newNormals.add(normals.get(3 * i + j));
 
+							for (int layer = 0; layer < tg.texCoords.size(); layer ++) {
+								newTexCoords.get(layer).add(tg.texCoords.get(layer).get(3 * i + j));
 							}
 
-						} else if (!trianglesToReplace.get(triangle).isEmpty()) {
+						}
+
+					} else if (!trianglesToReplace.get(i).isEmpty()) {
+
+						/* get the triangle's original vertex attributes */
+
+						LColor[] origColors = newColors == null ? null : new LColor[3];
+						VectorXYZ[] origNormals = new VectorXYZ[3];
+						List<VectorXZ[]> origTexCoords = new ArrayList<>(tg.texCoords.size());
+
+						for (int layer = 0; layer < tg.texCoords.size(); layer++) {
+							origTexCoords.add(new VectorXZ[3]);
+						}
+
+						for (int j = 0; j <= 2; j++) {
 
-							/* get the triangle's original vertex attributes */
+							if (origColors != null) {
+								origColors[j] = LColor.fromAWT(tg.colors.get(3 * i + j));
+							}
 
-							LColor[] origColors = newColors == null ? null : new LColor[3];
-							VectorXYZ[] origNormals = new VectorXYZ[3];
-							List<VectorXZ[]> origTexCoords = new ArrayList<>(tg.texCoords.size());
+							origNormals[j] = normals.get(3 * i + j);
 
-							for (int layer = 0; layer < tg.texCoords.size(); layer++) {
-								origTexCoords.add(new VectorXZ[3]);
+							for (int layer = 0; layer < tg.texCoords.size(); layer ++) {
+								origTexCoords.get(layer)[j] = tg.texCoords.get(layer).get(3 * i + j);
 							}
 
+						}
+
+						/* determine the new triangles' vertex attributes by interpolating on the original triangle */
+
+						TriangleXZ projectedTriangle = new TriangleXZ(
+								triangle.toFacePlane(triangle.v1),
+								triangle.toFacePlane(triangle.v2),
+								triangle.toFacePlane(triangle.v3)
+						);
+
+						for (TriangleXYZ newTriangle : trianglesToReplace.get(i)) {
+
+							newTriangles.add(newTriangle);
+
 							for (int j = 0; j <= 2; j++) {
 
+								VectorXZ projectedV = triangle.toFacePlane(newTriangle.vertices().get(j));
+
 								if (origColors != null) {
-									origColors[j] = LColor.fromAWT(tg.colors.get(3 * i + j));
+									newColors.add(GeometryUtil.interpolateOnTriangle(projectedV, projectedTriangle,
+											origColors[0], origColors[1], origColors[2]).toAWT());
 								}
 
-								origNormals[j] = normals.get(3 * i + j);
+								newNormals.add(GeometryUtil.interpolateOnTriangle(projectedV, projectedTriangle,
+										origNormals[0], origNormals[1], origNormals[2]));
 
 								for (int layer = 0; layer < tg.texCoords.size(); layer ++) {
-									origTexCoords.get(layer)[j] = tg.texCoords.get(layer).get(3 * i + j);
+									newTexCoords.get(layer).add(
+											GeometryUtil.interpolateOnTriangle(projectedV, projectedTriangle,
+													origTexCoords.get(layer)[0],
+													origTexCoords.get(layer)[1],
+													origTexCoords.get(layer)[2])
+									);
 								}
 
 							}
 
-							/* determine the new triangles' vertex attributes by interpolating on the original triangle */
+						}
 
-							TriangleXZ projectedTriangle = new TriangleXZ(
-									triangle.toFacePlane(triangle.v1),
-									triangle.toFacePlane(triangle.v2),
-									triangle.toFacePlane(triangle.v3)
-							);
+					}
 
-							for (TriangleXYZ newTriangle : trianglesToReplace.get(triangle)) {
+				}
 
-								newTriangles.add(newTriangle);
+				if (!newTriangles.isEmpty()) {
+					TriangleGeometry.Builder builder = new TriangleGeometry.Builder(newTexCoords.size(), null, null);
+					builder.addTriangles(newTriangles, newTexCoords, newColors, newNormals);
+					return List.of(new MeshWithMetadata(new Mesh(builder.build(), mesh.material),
+							meshWithMetadata.metadata()));
+				} else {
+					return List.of();
+				}
 
-								for (int j = 0; j <= 2; j++) {
+			}
 
-									VectorXZ projectedV = triangle.toFacePlane(newTriangle.vertices().get(j));
+		}
 
-									if (origColors != null) {
-										newColors.add(GeometryUtil.interpolateOnTriangle(projectedV, projectedTriangle,
-												origColors[0], origColors[1], origColors[2]).toAWT());
-									}
+		/**
+		 * returns a box which is inside the bounds and at least {@link #CULLING_MARGIN} away from their outline,
+		 * or null if no useful box can be found. Assumes that the bounds are convex.
+		 * Works best for bounds which are (almost) axis-aligned rectangles, such as those of tiles.
+		 */
+		static @Nullable AxisAlignedRectangleXZ innerBox(SimpleClosedShapeXZ bounds) {
 
-									newNormals.add(GeometryUtil.interpolateOnTriangle(projectedV, projectedTriangle,
-											origNormals[0], origNormals[1], origNormals[2]));
+			if (bounds instanceof AxisAlignedRectangleXZ box) {
+				return box.pad(-CULLING_MARGIN);
+			}
 
-									for (int layer = 0; layer < tg.texCoords.size(); layer ++) {
-										newTexCoords.get(layer).add(
-												GeometryUtil.interpolateOnTriangle(projectedV, projectedTriangle,
-														origTexCoords.get(layer)[0],
-														origTexCoords.get(layer)[1],
-														origTexCoords.get(layer)[2])
-										);
-									}
+			/* use the second-lowest and second-highest coordinates as a candidate, then check the corners.
+			 * For convex bounds, the area at least CULLING_MARGIN away from the outline is convex as well,
+			 * so it contains the candidate if it contains all of its corners. */
 
-								}
+			List<VectorXZ> vertices = bounds.vertices();
 
-							}
+			if (vertices.size() > 1 && vertices.get(0).equals(vertices.get(vertices.size() - 1))) {
+				vertices = vertices.subList(0, vertices.size() - 1);
+			}
 
-						}
+			if (vertices.size() < 4) return null;
 
-					}
+			double[] xs = vertices.stream().mapToDouble(v -> v.x).sorted().toArray();
+			double[] zs = vertices.stream().mapToDouble(v -> v.z).sorted().toArray();
 
-					if (!newTriangles.isEmpty()) {
-						TriangleGeometry.Builder builder = new TriangleGeometry.Builder(newTexCoords.size(), null, null);
-						builder.addTriangles(newTriangles, newTexCoords, newColors, newNormals);
-						result.add(new MeshWithMetadata(new Mesh(builder.build(), mesh.material), meshWithMetadata.metadata()));
-					}
+			var candidate = new AxisAlignedRectangleXZ(xs[1], zs[1], xs[xs.length - 2], zs[zs.length - 2])
+					.pad(-CULLING_MARGIN);
 
-				}
+			List<LineSegmentXZ> segments = bounds.getSegments();
 
+			if (candidate.minX < candidate.maxX && candidate.minZ < candidate.maxZ
+					&& candidate.vertices().stream().allMatch(v -> bounds.contains(v)
+							&& segments.stream().allMatch(s -> GeometryUtil.distanceFromLineSegment(v, s) >= CULLING_MARGIN))) {
+				return candidate;
+			} else {
+				return null;
 			}
 
-			return new MeshStore(result);
+		}
 
+		/**
+		 * calculates the bounding box of a range of vertices of a geometry.
+		 * Faster than the general-purpose implementations because it reads the packed coordinates directly.
+		 */
+		private static AxisAlignedRectangleXZ bbox(TriangleGeometry tg, int fromVertex, int toVertex) {
+			double minX = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+			for (int v = fromVertex; v < toVertex; v++) {
+				double x = tg.vertexX(v);
+				double z = tg.vertexZ(v);
+				minX = min(minX, x);
+				minZ = min(minZ, z);
+				maxX = max(maxX, x);
+				maxZ = max(maxZ, z);
+			}
+			return new AxisAlignedRectangleXZ(minX, minZ, maxX, maxZ);
 		}
 
 		static List<LineSegmentXZ> getSegmentsCCW(SimpleClosedShapeXZ bounds) {
@@ -768,7 +1093,7 @@ public class MeshStore {
 	}
 
 	/** replaces meshes' {@link Material}s with equivalents that omit certain texture types */
-	public record RemoveTextures(EnumSet<TextureLayer.TextureType> textureTypesToRemove) implements MeshProcessingStep {
+	public record RemoveTextures(EnumSet<TextureLayer.TextureType> textureTypesToRemove) implements PerMeshProcessingStep {
 
 		public RemoveTextures {
 			if (textureTypesToRemove.contains(TextureLayer.TextureType.BASE_COLOR)) {
@@ -777,29 +1102,21 @@ public class MeshStore {
 		}
 
 		@Override
-		public MeshStore apply(MeshStore meshStore) {
+		public List<MeshWithMetadata> applyToMesh(MeshWithMetadata m) {
 
-			List<MeshWithMetadata> result = new ArrayList<>();
-
-			for (MeshWithMetadata m : meshStore.meshesWithMetadata()) {
-
-				Material oldMaterial = m.mesh().material;
-
-				Material newMaterial = oldMaterial.withLayers(oldMaterial.getTextureLayers().stream().map(
-						l -> new TextureLayer(
-								l.baseColorTexture,
-								textureTypesToRemove.contains(TextureLayer.TextureType.NORMAL) ? null : l.normalTexture,
-								textureTypesToRemove.contains(TextureLayer.TextureType.ORM) ? null : l.ormTexture,
-								textureTypesToRemove.contains(TextureLayer.TextureType.DISPLACEMENT) ? null : l.displacementTexture,
-								l.colorable
-						)
-				).toList());
+			Material oldMaterial = m.mesh().material;
 
-				result.add(new MeshWithMetadata(new Mesh(m.mesh().geometry, newMaterial), m.metadata()));
+			Material newMaterial = oldMaterial.withLayers(oldMaterial.getTextureLayers().stream().map(
+					l -> new TextureLayer(
+							l.baseColorTexture,
+							textureTypesToRemove.contains(TextureLayer.TextureType.NORMAL) ? null : l.normalTexture,
+							textureTypesToRemove.contains(TextureLayer.TextureType.ORM) ? null : l.ormTexture,
+							textureTypesToRemove.contains(TextureLayer.TextureType.DISPLACEMENT) ? null : l.displacementTexture,
+							l.colorable
+					)
+			).toList());
 
-			}
-
-			return new MeshStore(result);
+			return List.of(new MeshWithMetadata(new Mesh(m.mesh().geometry, newMaterial), m.metadata()));
 
 		}
 
@@ -0,0 +1,227 @@
+package org.osm2world.scene.mesh;
+
+import static java.util.Collections.nCopies;
+
+import java.awt.*;
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import javax.annotation.Nullable;
+
+import org.osm2world.math.VectorXYZ;
+import org.osm2world.math.VectorXZ;
+import org.osm2world.math.shapes.TriangleXYZ;
+
+/**
+ * immutable lists of the vertex data used by {@link TriangleGeometry}, backed by primitive arrays.
+ * The list elements are only created when they are accessed. Compared to a list of objects,
+ * this reduces the memory used for each vertex to less than half, at the cost of allocations during access.
+ */
+final class PackedLists {
+
+	private PackedLists() {}
+
+	/** returns a packed equivalent of a list of triangles */
+	static List<TriangleXYZ> packTriangles(List<TriangleXYZ> triangles) {
+		if (triangles instanceof PackedTriangleList) {
+			return triangles;
+		} else {
+			double[] coords = new double[triangles.size() * 9];
+			int i = 0;
+			for (TriangleXYZ t : triangles) {
+				i = putCoords(coords, i, t.v1);
+				i = putCoords(coords, i, t.v2);
+				i = putCoords(coords, i, t.v3);
+			}
+			return new PackedTriangleList(coords);
+		}
+	}
+
+	/** returns a packed equivalent of a list of vectors */
+	static List<VectorXYZ> packVectorsXYZ(List<VectorXYZ> vs) {
+		if (vs instanceof PackedVectorXYZList) {
+			return vs;
+		} else {
+			double[] coords = new double[vs.size() * 3];
+			int i = 0;
+			for (VectorXYZ v : vs) {
+				i = putCoords(coords, i, v);
+			}
+			return new PackedVectorXYZList(coords);
+		}
+	}
+
+	/** returns a packed equivalent of a list of vectors */
+	static List<VectorXZ> packVectorsXZ(List<VectorXZ> vs) {
+		if (vs instanceof PackedVectorXZList) {
+			return vs;
+		} else {
+			double[] coords = new double[vs.size() * 2];
+			int i = 0;
+			for (VectorXZ v : vs) {
+				coords[i++] = v.x;
+				coords[i++] = v.z;
+			}
+			return new PackedVectorXZList(coords);
+		}
+	}
+
+	/**
+	 * returns a packed equivalent of a list of colors, some of which may be null.
+	 * Lists where all colors are identical are represented by a list with just one element reference.
+	 */
+	static @Nullable List<Color> packColors(@Nullable List<Color> colors) {
+
+		if (colors == null || colors.isEmpty() || colors instanceof PackedColorList) {
+			return colors;
+		} else if (colors.stream().allMatch(c -> Objects.equals(c, colors.get(0)))) {
+			return nCopies(colors.size(), colors.get(0));
+		}
+
+		int[] argb = new int[colors.size()];
+		@Nullable BitSet nulls = null;
+
+		for (int i = 0; i < colors.size(); i++) {
+			Color c = colors.get(i);
+			if (c == null) {
+				if (nulls == null) {
+					nulls = new BitSet(colors.size());
+				}
+				nulls.set(i);
+			} else {
+				argb[i] = c.getRGB();
+			}
+		}
+
+		return new PackedColorList(argb, nulls);
+
+	}
+
+	/** returns the x, y and z coordinates of the vectors as a flat array */
+	static float[] toFloatArray(List<VectorXYZ> vs) {
+		return toFloatArray(((PackedVectorXYZList) packVectorsXYZ(vs)).coords);
+	}
+
+	/**
+	 * returns the array backing a list created by {@link #packTriangles(List)},
+	 * with x, y and z coordinates for each vertex of each triangle. The array must not be modified.
+	 */
+	static double[] triangleCoords(List<TriangleXYZ> packedTriangles) {
+		return ((PackedTriangleList) packedTriangles).coords;
+	}
+
+	static float[] toFloatArray(double[] values) {
+		float[] result = new float[values.length];
+		for (int i = 0; i < values.length; i++) {
+			result[i] = (float) values[i];
+		}
+		return result;
+	}
+
+	private static int putCoords(double[] coords, int index, VectorXYZ v) {
+		coords[index] = v.x;
+		coords[index + 1] = v.y;
+		coords[index + 2] = v.z;
+		return index + 3;
+	}
+
+	private static VectorXYZ getVectorXYZ(double[] coords, int index) {
+		return new VectorXYZ(coords[index], coords[index + 1], coords[index + 2]);
+	}
+
+	private static final class PackedTriangleList extends AbstractList<TriangleXYZ> implements RandomAccess {
+
+		private final double[] coords;
+
+		PackedTriangleList(double[] coords) {
+			this.coords = coords;
+		}
+
+		@Override
+		public TriangleXYZ get(int index) {
+			int i = 9 * index;
+			return TriangleXYZ.ofValidVertices(
+					getVectorXYZ(coords, i),
+					getVectorXYZ(coords, i + 3),
+					getVectorXYZ(coords, i + 6));
+		}
+
+		@Override
+		public int size() {
+			return coords.length / 9;
+		}
+
+	}
+
+	private static final class PackedVectorXYZList extends AbstractList<VectorXYZ> implements RandomAccess {
+
+		private final double[] coords;
+
+		PackedVectorXYZList(double[] coords) {
+			this.coords = coords;
+		}
+
+		@Override
+		public VectorXYZ get(int index) {
+			return getVectorXYZ(coords, 3 * index);
+		}
+
+		@Override
+		public int size() {
+			return coords.length / 3;
+		}
+
+	}
+
+	private static final class PackedVectorXZList extends AbstractList<VectorXZ> implements RandomAccess {
+
+		private final double[] coords;
+
+		PackedVectorXZList(double[] coords) {
+			this.coords = coords;
+		}
+
+		@Override
+		public VectorXZ get(int index) {
+			return new VectorXZ(coords[2 * index], coords[2 * index + 1]);
+		}
+
+		@Override
+		public int size() {
+			return coords.length / 2;
+		}
+
+	}
+
+	private static final class PackedColorList extends AbstractList<Color> implements RandomAccess {
+
+		private final int[] argb;
+
+		/** indices of null values, null if there are none */
+		private final @Nullable BitSet nulls;
+
+		PackedColorList(int[] argb, @Nullable BitSet nulls) {
+			this.argb = argb;
+			this.nulls = nulls;
+		}
+
+		@Override
+		public @Nullable Color get(int index) {
+			if (nulls != null && nulls.get(index)) {
+				return null;
+			} else {
+				return new Color(argb[index], true);
+			}
+		}
+
+		@Override
+		public int size() {
+			return argb.length;
+		}
+
+	}
+
+}
@@ -21,7 +21,14 @@ import org.osm2world.math.shapes.TriangleXYZ;
 import org.osm2world.scene.material.Material.Interpolation;
 import org.osm2world.scene.texcoord.TexCoordFunction;
 
-/** a geometry composed of triangles */
+/**
+ * a geometry composed of triangles.
+ *
+ * The vertex data is stored in primitive arrays to reduce memory use, see {@link PackedLists}.
+ * The public lists are views of these arrays which create vector objects when elements are accessed.
+ * Hot loops can read vertex coordinates by index with {@link #vertexX(int)} etc. instead,
+ * and bulk access to the data is available through {@link #vertexArray()} and {@link #normalArray()}.
+ */
 public class TriangleGeometry implements Geometry {
 
 	public final List<TriangleXYZ> triangles;
@@ -34,10 +41,65 @@ public class TriangleGeometry implements Geometry {
 	/** vertex colors, one for each entry in {@link #vertices()}. Each color value can be null. null if all are null. */
 	public final @Nullable List</* @Nullable */ Color> colors;
 
+	/** the array backing {@link #triangles}, with x, y and z coordinates for each vertex */
+	private final double[] vertexCoords;
+
+	/** lazily calculated result of {@link #vertexArray()} */
+	private volatile @Nullable float[] vertexArray = null;
+
+	/** lazily calculated result of {@link #normalArray()} */
+	private volatile @Nullable float[] normalArray = null;
+
 	public List<VectorXYZ> vertices() {
 		return vertices(triangles);
 	}
 
+	/** returns the number of entries in {@link #vertices()}, three for each triangle */
+	public int vertexCount() {
+		return vertexCoords.length / 3;
+	}
+
+	/** returns the x coordinate of an entry in {@link #vertices()} without creating any objects */
+	public double vertexX(int vertexIndex) {
+		return vertexCoords[3 * vertexIndex];
+	}
+
+	/** returns the y coordinate of an entry in {@link #vertices()} without creating any objects */
+	public double vertexY(int vertexIndex) {
+		return vertexCoords[3 * vertexIndex + 1];
+	}
+
+	/** returns the z coordinate of an entry in {@link #vertices()} without creating any objects */
+	public double vertexZ(int vertexIndex) {
+		return vertexCoords[3 * vertexIndex + 2];
+	}
+
+	/**
+	 * returns the coordinates of {@link #vertices()} as a flat array with x, y and z for each vertex.
+	 * The array is calculated only once and shared between all callers, so it must not be modified.
+	 */
+	public float[] vertexArray() {
+		float[] result = vertexArray;
+		if (result == null) {
+			result = PackedLists.toFloatArray(vertexCoords);
+			vertexArray = result;
+		}
+		return result;
+	}
+
+	/**
+	 * returns the {@link NormalData#normals()} as a flat array with x, y and z for each vertex.
+	 * The array is calculated only once and shared between all callers, so it must not be modified.
+	 */
+	public float[] normalArray() {
+		float[] result = normalArray;
+		if (result == null) {
+			result = PackedLists.toFloatArray(normalData.normals());
+			normalArray = result;
+		}
+		return result;
+	}
+
 	private static List<VectorXYZ> vertices(List<TriangleXYZ> triangles) {
 		List<VectorXYZ> result = new ArrayList<>(triangles.size() * 3);
 		for (TriangleXYZ triangle : triangles) {
@@ -54,10 +116,11 @@ public class TriangleGeometry implements Geometry {
 	private TriangleGeometry(List<TriangleXYZ> triangles, List<VectorXYZ> normals,
 			List<List<VectorXZ>> texCoords, @Nullable List<Color> colors) {
 
-		this.triangles = triangles;
-		this.texCoords = texCoords;
+		this.triangles = PackedLists.packTriangles(triangles);
+		this.vertexCoords = PackedLists.triangleCoords(this.triangles);
+		this.texCoords = packTexCoords(texCoords);
 		this.normalData = new ExplicitNormals(normals);
-		this.colors = colors;
+		this.colors = PackedLists.packColors(colors);
 
 		validate();
 
@@ -67,15 +130,20 @@ public class TriangleGeometry implements Geometry {
 	public TriangleGeometry(List<TriangleXYZ> triangles, Interpolation normalMode,
 			List<List<VectorXZ>> texCoords, @Nullable List<Color> colors) {
 
-		this.triangles = triangles;
-		this.texCoords = texCoords;
+		this.triangles = PackedLists.packTriangles(triangles);
+		this.vertexCoords = PackedLists.triangleCoords(this.triangles);
+		this.texCoords = packTexCoords(texCoords);
 		this.normalData = new CalculatedNormals(normalMode);
-		this.colors = colors;
+		this.colors = PackedLists.packColors(colors);
 
 		validate();
 
 	}
 
+	private static List<List<VectorXZ>> packTexCoords(List<List<VectorXZ>> texCoords) {
+		return texCoords.stream().map(PackedLists::packVectorsXZ).toList();
+	}
+
 	/* perform validation during construction */
 	private void validate() {
 
@@ -105,7 +173,7 @@ public class TriangleGeometry implements Geometry {
 	public class ExplicitNormals implements NormalData {
 		public final List<VectorXYZ> normals;
 		public ExplicitNormals(List<VectorXYZ> normals) {
-			this.normals = normals;
+			this.normals = PackedLists.packVectorsXYZ(normals);
 		}
 		@Override
 		public List<VectorXYZ> normals() {
@@ -117,14 +185,27 @@ public class TriangleGeometry implements Geometry {
 		}
 	}
 
+	/** normals which are calculated from the triangles when they are first needed, then cached */
 	public class CalculatedNormals implements NormalData {
 		public final Interpolation normalMode;
+		private volatile @Nullable List<VectorXYZ> normals = null;
 		public CalculatedNormals(Interpolation normalMode) {
 			this.normalMode = normalMode;
 		}
 		@Override
 		public List<VectorXYZ> normals() {
-			return NormalCalculationUtil.calculateTriangleNormals(triangles, normalMode == Interpolation.SMOOTH);
+			List<VectorXYZ> result = normals;
+			if (result == null) {
+				synchronized (this) {
+					result = normals;
+					if (result == null) {
+						result = PackedLists.packVectorsXYZ(NormalCalculationUtil.calculateTriangleNormals(
+								triangles, normalMode == Interpolation.SMOOTH));
+						normals = result;
+					}
+				}
+			}
+			return result;
 		}
 		@Override
 		public String toString() {
@@ -1,5 +1,6 @@
 package org.osm2world.scene.model;
 
+import static org.osm2world.math.VectorXYZ.NULL_VECTOR;
 import static org.osm2world.scene.mesh.LevelOfDetail.LOD0;
 import static org.osm2world.scene.mesh.LevelOfDetail.LOD4;
 
@@ -39,4 +40,11 @@ public record InstanceParameters(VectorXYZ position, double direction, Double he
 		this(position, direction, null, new LODRange(LOD0, LOD4));
 	}
 
+	/**
+	 * returns parameters for an instance at the origin with direction 0, but otherwise identical to these
+	 */
+	public InstanceParameters atOrigin() {
+		return new InstanceParameters(NULL_VECTOR, 0, height, color, lodRange);
+	}
+
 }
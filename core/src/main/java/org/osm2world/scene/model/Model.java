@@ -23,4 +23,14 @@ public interface Model {
 	 */
 	List<Mesh> buildMeshes(InstanceParameters params);
 
+	/**
+	 * returns true if the meshes of an instance are identical to those of an instance at the origin
+	 * (see {@link InstanceParameters#atOrigin()}), translated by the instance's position and rotated clockwise
+	 * around the vertical axis by its direction.
+	 * This allows outputs to store the model's geometry only once and reference it for each instance.
+	 */
+	default boolean supportsInstancing() {
+		return false;
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package org.osm2world.scene.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+import org.osm2world.conversion.ConversionContext;
+import org.osm2world.conversion.O2WConfig;
+import org.osm2world.output.gltf.GltfModel;
+
+/**
+ * the {@link Model}s defined by one {@link O2WConfig}.
+ *
+ * Instances are immutable and can be shared between conversions running in parallel.
+ * The registry used during a conversion is part of its {@link ConversionContext}.
+ */
+public final class ModelRegistry {
+
+	private static final Pattern CONF_KEY_PATTERN = Pattern.compile("model_(.+)");
+
+	/** map with all known models; keys are in lower case */
+	private final Map<String, List<Model>> models;
+
+	private ModelRegistry(Map<String, List<Model>> models) {
+		this.models = Map.copyOf(models);
+	}
+
+	/**
+	 * returns a model based on its name, if one is available
+	 *
+	 * @param name  case-insensitive name of the model
+	 */
+	public @Nullable Model getModel(@Nullable String name) {
+
+		if (name == null) return null;
+
+		List<Model> knownModels = models.get(name.toLowerCase(Locale.ROOT));
+		if (knownModels != null && !knownModels.isEmpty()) {
+			return knownModels.get(0);
+		} else {
+			return null;
+		}
+
+	}
+
+	/**
+	 * variant of {@link #getModel(String)} which picks one of several available models randomly.
+	 */
+	public @Nullable Model getModel(@Nullable String name, Random random) {
+
+		if (name == null) return null;
+
+		List<Model> knownModels = models.get(name.toLowerCase(Locale.ROOT));
+		if (knownModels != null && !knownModels.isEmpty()) {
+			return knownModels.get(random.nextInt(knownModels.size()));
+		} else {
+			return null;
+		}
+
+	}
+
+	/**
+	 * creates a registry by loading the model files referenced in a configuration
+	 */
+	public static ModelRegistry fromConfig(O2WConfig config) {
+
+		Map<String, List<Model>> models = new HashMap<>();
+
+		Iterator<String> keyIterator = config.getKeys();
+
+		while (keyIterator.hasNext()) {
+
+			String key = keyIterator.next();
+
+			Matcher matcher = CONF_KEY_PATTERN.matcher(key);
+
+			if (matcher.matches()) {
+
+				String modelName = matcher.group(1);
+				List<String> fileNames = config.getList(key).stream().map(f -> f.toString()).toList();
+
+				try {
+					List<Model> ms = new ArrayList<>(fileNames.size());
+					for (String fileName : fileNames) {
+						File modelFile = config.resolveFileConfigProperty(fileName);
+						if (modelFile == null) {
+							System.err.println("Can't read model file " + fileName);
+						}
+						ms.add(GltfModel.loadFromFile(modelFile));
+					}
+					models.put(modelName.toLowerCase(Locale.ROOT), List.copyOf(ms));
+				} catch (IOException e) {
+					System.err.println("Unable to load model " + modelName + ":");
+					e.printStackTrace();
+				}
+
+			}
+		}
+
+		return new ModelRegistry(models);
+
+	}
+
+}
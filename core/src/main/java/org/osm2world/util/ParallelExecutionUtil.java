@@ -0,0 +1,153 @@
+package org.osm2world.util;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+import org.osm2world.conversion.ConversionContext;
+import org.osm2world.conversion.ConversionLog;
+
+/**
+ * utility class for distributing work on independent elements across multiple threads.
+ *
+ * The elements are split into contiguous chunks, which are processed by the threads of a {@link ForkJoinPool}.
+ * Results and {@link ConversionLog} entries are handed back to the calling thread in the order of the input,
+ * so the outcome does not depend on the scheduling of the threads.
+ * The calling thread's {@link ConversionContext} is made available on the worker threads.
+ */
+public final class ParallelExecutionUtil {
+
+	/** number of chunks per thread, more than one chunk per thread allows for load balancing */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private ParallelExecutionUtil() {}
+
+	/**
+	 * creates a pool for use with the other methods of this class.
+	 *
+	 * @param threadCount  the number of threads, e.g. from {@link org.osm2world.conversion.O2WConfig#threadCount()}
+	 * @return  a new pool; null if threadCount is 1 or less, indicating that work should happen on the calling thread
+	 */
+	public static @Nullable ForkJoinPool createPool(int threadCount) {
+		return threadCount > 1 ? new ForkJoinPool(threadCount) : null;
+	}
+
+	/**
+	 * applies an action to each element of a list.
+	 * Elements within the same chunk are processed in list order by the same thread.
+	 * If the action throws an exception for any element, the first such exception (in list order) will be rethrown
+	 * after all chunks have finished.
+	 *
+	 * @param pool  the pool to use, or null to process all elements on the calling thread
+	 */
+	public static <T> void forEach(@Nullable ForkJoinPool pool, List<? extends T> elements,
+			Consumer<? super T> action) {
+		map(pool, elements, t -> {
+			action.accept(t);
+			return null;
+		});
+	}
+
+	/**
+	 * applies a function to each element of a list.
+	 * Behaves like {@link #forEach(ForkJoinPool, List, Consumer)}, but also collects the results.
+	 *
+	 * @return  the results, in the same order as the input elements
+	 */
+	public static <T, R> List<R> map(@Nullable ForkJoinPool pool, List<? extends T> elements,
+			Function<? super T, ? extends R> function) {
+
+		if (pool == null || pool.getParallelism() <= 1 || elements.size() <= 1) {
+			List<R> results = new ArrayList<>(elements.size());
+			for (T element : elements) {
+				results.add(function.apply(element));
+			}
+			return results;
+		}
+
+		int chunkCount = min(elements.size(), pool.getParallelism() * CHUNKS_PER_THREAD);
+		int chunkSize = max(1, (elements.size() + chunkCount - 1) / chunkCount);
+
+		@Nullable ConversionContext context = ConversionContext.boundToCurrentThread();
+
+		List<Callable<ChunkResult<R>>> tasks = new ArrayList<>();
+
+		for (int start = 0; start < elements.size(); start += chunkSize) {
+			List<? extends T> chunk = elements.subList(start, min(start + chunkSize, elements.size()));
+			if (context != null) {
+				tasks.add(() -> context.callWith(() -> processChunk(chunk, function)));
+			} else {
+				tasks.add(() -> processChunk(chunk, function));
+			}
+		}
+
+		List<R> results = new ArrayList<>(elements.size());
+		@Nullable RuntimeException firstException = null;
+
+		for (Future<ChunkResult<R>> future : pool.invokeAll(tasks)) {
+
+			ChunkResult<R> chunkResult;
+
+			try {
+				chunkResult = future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+
+			ConversionLog.logAll(chunkResult.log);
+			results.addAll(chunkResult.results);
+
+			if (firstException == null && chunkResult.exception != null) {
+				firstException = chunkResult.exception;
+			}
+
+		}
+
+		if (firstException != null) {
+			throw firstException;
+		}
+
+		return results;
+
+	}
+
+	private static <T, R> ChunkResult<R> processChunk(List<? extends T> chunk,
+			Function<? super T, ? extends R> function) {
+
+		List<R> results = new ArrayList<>(chunk.size());
+		RuntimeException[] exception = {null};
+
+		ConversionLog.CapturedLog log = ConversionLog.capture(() -> {
+			try {
+				for (T element : chunk) {
+					results.add(function.apply(element));
+				}
+			} catch (RuntimeException e) {
+				exception[0] = e;
+			}
+		});
+
+		return new ChunkResult<>(results, log, exception[0]);
+
+	}
+
+	private record ChunkResult<R>(
+			List<R> results,
+			ConversionLog.CapturedLog log,
+			@Nullable RuntimeException exception
+	) {}
+
+}
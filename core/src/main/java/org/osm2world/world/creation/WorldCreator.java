@@ -2,16 +2,20 @@ package org.osm2world.world.creation;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.annotation.Nullable;
 
 import org.osm2world.conversion.O2WConfig;
 import org.osm2world.map_data.data.MapData;
+import org.osm2world.util.ParallelExecutionUtil;
+import org.osm2world.world.modules.common.AbstractModule;
 import org.osm2world.world.network.NetworkCalculator;
 
 public class WorldCreator {
 
 	private List<? extends WorldModule> modules;
+	private final int threadCount;
 
 	public WorldCreator(@Nullable O2WConfig config, WorldModule... modules) {
 		this(config, Arrays.asList(modules));
@@ -29,12 +33,31 @@ public class WorldCreator {
 			module.setConfiguration(config);
 		}
 
+		this.threadCount = config.threadCount();
+
 	}
 
+	/**
+	 * applies all modules to the map data, one after another.
+	 * If multiple threads are configured, each {@link AbstractModule} is applied in parallel.
+	 * The representations are added in the same order as with sequential application.
+	 */
 	public void addRepresentationsTo(MapData mapData) {
 
-		for (WorldModule module : modules) {
-			module.applyTo(mapData);
+		ForkJoinPool pool = ParallelExecutionUtil.createPool(threadCount);
+
+		try {
+			for (WorldModule module : modules) {
+				if (module instanceof AbstractModule abstractModule) {
+					abstractModule.applyTo(mapData, pool);
+				} else {
+					module.applyTo(mapData);
+				}
+			}
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
 		}
 
 		NetworkCalculator.calculateNetworkInformationInMapData(mapData);
@@ -57,6 +57,11 @@ public class BicycleParkingModule extends AbstractModule {
 	private static final List<Color> BIKE_COLORS = List.of(
 			BLACK, BLACK, BLUE, RED, LIGHT_GRAY, WHITE, GREEN, YELLOW, ORANGE, PINK);
 
+	@Override
+	protected boolean supportsParallelApplication() {
+		return true;
+	}
+
 	@Override
 	protected void applyToElement(MapElement element) {
 		if (element.getTags().contains("amenity", "bicycle_parking")) {
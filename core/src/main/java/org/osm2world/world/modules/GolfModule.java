@@ -54,6 +54,11 @@ public class GolfModule extends AbstractModule {
 	private static final double HOLE_RADIUS = 0.108 / 2;
 	private static final double HOLE_DEPTH = 0.102;
 
+	@Override
+	protected boolean supportsParallelApplication() {
+		return true;
+	}
+
 	@Override
 	public void applyToArea(MapArea area) {
 
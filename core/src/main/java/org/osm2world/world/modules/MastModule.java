@@ -29,6 +29,11 @@ import org.osm2world.world.modules.common.AbstractModule;
 /** places various towers and masts (currently only freestanding mobile phone communication masts) */
 public class MastModule extends AbstractModule {
 
+	@Override
+	protected boolean supportsParallelApplication() {
+		return true;
+	}
+
 	@Override
 	protected void applyToNode(MapNode node) {
 
@@ -43,6 +43,11 @@ public class ParkingModule extends AbstractModule {
 			LIGHT_GRAY, LIGHT_GRAY, // silver
 			RED, GREEN, BLUE, YELLOW, CYAN);
 
+	@Override
+	protected boolean supportsParallelApplication() {
+		return true;
+	}
+
 	@Override
 	protected void applyToArea(MapArea area) {
 		if (area.getTags().contains("amenity","parking")) {
@@ -37,6 +37,11 @@ import org.osm2world.world.modules.common.AbstractModule;
  */
 public class PoolModule extends AbstractModule {
 
+	@Override
+	protected boolean supportsParallelApplication() {
+		return true;
+	}
+
 	@Override
 	protected void applyToArea(MapArea area) {
 		if (area.getTags().contains("leisure", "swimming_pool")) {
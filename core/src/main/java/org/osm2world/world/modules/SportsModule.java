@@ -43,6 +43,11 @@ import org.osm2world.world.modules.common.AbstractModule;
  */
 public class SportsModule extends AbstractModule {
 
+	@Override
+	protected boolean supportsParallelApplication() {
+		return true;
+	}
+
 	@Override
 	public void applyToArea(MapArea area) {
 
@@ -67,6 +67,11 @@ import org.osm2world.world.modules.common.AbstractModule;
  */
 public class StreetFurnitureModule extends AbstractModule {
 
+	@Override
+	protected boolean supportsParallelApplication() {
+		return true;
+	}
+
 	@Override
 	protected void applyToNode(MapNode node) {
 		if (node.getTags().contains("playground", "swing")) {
@@ -9,6 +9,7 @@ import static org.osm2world.util.ValueParseUtil.parseMeasureWithSpecialDefaultUn
 import static org.osm2world.world.modules.common.WorldModuleGeometryUtil.filterWorldObjectCollisions;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -242,28 +243,13 @@ public class TreeModule extends ConfigurableWorldModule {
 			leafType = r.nextBoolean() ? LeafType.NEEDLELEAVED : LeafType.BROADLEAVED;
 		}
 
-		TreeModel model = null;
+		// geometry models are never mirrored, so the mirrored flag is only part of the key for billboards
+		var key = new TreeModelKey(leafType, leafCycle, species, useBillboards && mirrored, dimensions, useBillboards);
 
-		for (TreeModel existingModel : existingModels) {
-			if (existingModel.leafType() == leafType
-					&& existingModel.leafCycle() == leafCycle
-					&& existingModel.species() == species
-					&& existingModel.mirrored() == mirrored
-					&& Objects.equals(existingModel.dimensions(), dimensions)
-					&& (existingModel instanceof TreeBillboardModel) == useBillboards) {
-				model = existingModel;
-				break;
-			}
-		}
-
-		if (model == null) {
-			model = useBillboards
-					? new TreeBillboardModel(leafType, leafCycle, species, mirrored, dimensions)
-					: new TreeGeometryModel(leafType, leafCycle, species, dimensions);
-			existingModels.add(model);
-		}
-
-		return model;
+		// a concurrent map because world objects on different threads may request models at the same time
+		return existingModels.computeIfAbsent(key, k -> k.billboard()
+				? new TreeBillboardModel(k.leafType(), k.leafCycle(), k.species(), k.mirrored(), k.dimensions())
+				: new TreeGeometryModel(k.leafType(), k.leafCycle(), k.species(), k.dimensions()));
 
 	}
 
@@ -276,6 +262,12 @@ public class TreeModule extends ConfigurableWorldModule {
 		double defaultHeightToWidth();
 		@Nullable TreeDimensions dimensions();
 
+		/** trees are never rotated, and their position only affects the geometry through a translation */
+		@Override
+		default boolean supportsInstancing() {
+			return true;
+		}
+
 	}
 
 	private record TreeBillboardModel(
@@ -370,7 +362,11 @@ public class TreeModule extends ConfigurableWorldModule {
 		}
 	}
 
-	private final List<TreeModel> existingModels = new ArrayList<>();
+	/** the parameters which determine a {@link TreeModel}, used to look up existing models */
+	private record TreeModelKey(LeafType leafType, LeafCycle leafCycle, @Nullable TreeSpecies species,
+			boolean mirrored, @Nullable TreeDimensions dimensions, boolean billboard) {}
+
+	private final Map<TreeModelKey, TreeModel> existingModels = new ConcurrentHashMap<>();
 
 	public class Tree extends NoOutlineNodeWorldObject implements ProceduralWorldObject {
 
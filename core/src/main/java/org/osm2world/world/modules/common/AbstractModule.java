@@ -1,11 +1,17 @@
 package org.osm2world.world.modules.common;
 
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.annotation.Nullable;
+
 import org.osm2world.map_data.data.MapArea;
 import org.osm2world.map_data.data.MapData;
 import org.osm2world.map_data.data.MapElement;
 import org.osm2world.map_data.data.MapNode;
 import org.osm2world.map_data.data.MapWay;
 import org.osm2world.map_data.data.MapWaySegment;
+import org.osm2world.util.ParallelExecutionUtil;
 import org.osm2world.world.creation.WorldModule;
 import org.osm2world.world.data.WorldObject;
 
@@ -14,12 +20,38 @@ import org.osm2world.world.data.WorldObject;
  *
  * Subclasses need to be able to create {@link WorldObject}s
  * for each {@link MapElement} in isolation.
- * This can make parallel application of the module possible.
+ * This makes parallel application of the module possible,
+ * see {@link #applyTo(MapData, ForkJoinPool)}.
  */
 public abstract class AbstractModule extends ConfigurableWorldModule {
 
 	@Override
 	public final void applyTo(MapData mapData) {
+		applyTo(mapData, null);
+	}
+
+	/**
+	 * variant of {@link #applyTo(MapData)} which distributes the {@link MapElement}s across multiple threads.
+	 * Nodes, ways, way segments and areas are still processed one after another,
+	 * but the elements of each type are split into chunks which are processed in parallel.
+	 *
+	 * @param pool  the pool providing the threads, can be null for sequential application
+	 */
+	public final void applyTo(MapData mapData, @Nullable ForkJoinPool pool) {
+
+		if (pool == null || !supportsParallelApplication()) {
+			applyToSequentially(mapData);
+			return;
+		}
+
+		ParallelExecutionUtil.forEach(pool, new ArrayList<>(mapData.getMapNodes()), this::applyToNode);
+		ParallelExecutionUtil.forEach(pool, new ArrayList<>(mapData.getMapWays()), this::applyToWay);
+		ParallelExecutionUtil.forEach(pool, new ArrayList<>(mapData.getMapWaySegments()), this::applyToWaySegment);
+		ParallelExecutionUtil.forEach(pool, new ArrayList<>(mapData.getMapAreas()), this::applyToArea);
+
+	}
+
+	private void applyToSequentially(MapData mapData) {
 
 		for (MapNode node : mapData.getMapNodes()) {
 			applyToNode(node);
@@ -39,6 +71,16 @@ public abstract class AbstractModule extends ConfigurableWorldModule {
 
 	}
 
+	/**
+	 * whether this module can be applied in parallel using {@link #applyTo(MapData, ForkJoinPool)}.
+	 * This requires that the module only adds representations to the element it is currently applied to
+	 * and does not read the representations of any other elements.
+	 * Defaults to false, subclasses which have been checked against these requirements can overwrite this method.
+	 */
+	protected boolean supportsParallelApplication() {
+		return false;
+	}
+
 	/**
 	 * create {@link WorldObject}s for a {@link MapElement}.
 	 * Can be overwritten by subclasses.
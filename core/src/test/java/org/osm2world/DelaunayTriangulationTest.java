@@ -5,16 +5,23 @@ import static org.junit.Assert.*;
 import static org.osm2world.test.TestUtil.assertAlmostEquals;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 
 import org.junit.Test;
 import org.osm2world.map_elevation.creation.DelaunayTriangulation;
 import org.osm2world.map_elevation.creation.DelaunayTriangulation.DelaunayTriangle;
+import org.osm2world.map_elevation.creation.DelaunayTriangulation.NaturalNeighbors;
 import org.osm2world.math.VectorXYZ;
 import org.osm2world.math.VectorXZ;
 import org.osm2world.math.shapes.AxisAlignedRectangleXZ;
 
+import com.google.common.collect.Iterables;
+
 
 public class DelaunayTriangulationTest {
 
@@ -66,6 +73,107 @@ public class DelaunayTriangulationTest {
 
 	}
 
+	@Test
+	public void testInsertAll() {
+
+		Random random = new Random(42);
+
+		AxisAlignedRectangleXZ bounds = new AxisAlignedRectangleXZ(
+				-SIZE, -SIZE, +SIZE, +SIZE);
+
+		List<VectorXYZ> points = new ArrayList<>();
+
+		for (int i = 0; i < 300; i++) {
+			double x = (random.nextDouble() * 2 * SIZE) - SIZE;
+			double z = (random.nextDouble() * 2 * SIZE) - SIZE;
+			points.add(new VectorXYZ(x, 0, z));
+		}
+
+		DelaunayTriangulation triangulation = new DelaunayTriangulation(bounds);
+		triangulation.insertAll(points);
+
+		DelaunayTriangulation triangulation2 = new DelaunayTriangulation(bounds);
+		for (VectorXYZ point : points) {
+			triangulation2.insert(point);
+		}
+
+		/*
+		 * the result may differ from sequential insertion where points are co-circular
+		 * (such as the corners of the bounds), so check validity instead of equality
+		 */
+
+		assertTriangulationProperties(triangulation, points);
+		assertNeighborsShareEdges(triangulation);
+		assertEquals(vertices(triangulation2.getTriangles()), vertices(triangulation.getTriangles()));
+		assertEquals(Iterables.size(triangulation2.getTriangles()), Iterables.size(triangulation.getTriangles()));
+
+		/* check that point location works with the seeds left behind by the insertions */
+
+		for (int i = 0; i < 1000; i++) {
+
+			VectorXZ point = new VectorXZ(
+					(random.nextDouble() * 2 * SIZE) - SIZE,
+					(random.nextDouble() * 2 * SIZE) - SIZE);
+
+			if (i % 10 == 0) {
+				triangulation.probe(point);
+			}
+
+			DelaunayTriangle triangle = triangulation.getEnclosingTriangle(point);
+			assertTrue(triangle.asTriangleXZ().contains(point));
+
+		}
+
+	}
+
+	@Test
+	public void testGetNaturalNeighbors() {
+
+		Random random = new Random(3);
+
+		AxisAlignedRectangleXZ bounds = new AxisAlignedRectangleXZ(
+				-SIZE, -SIZE, +SIZE, +SIZE);
+
+		List<VectorXYZ> points = new ArrayList<>();
+
+		for (int i = 0; i < 300; i++) {
+			double x = (random.nextDouble() * 1.6 * SIZE) - 0.8 * SIZE;
+			double z = (random.nextDouble() * 1.6 * SIZE) - 0.8 * SIZE;
+			points.add(new VectorXYZ(x, random.nextDouble(), z));
+		}
+
+		DelaunayTriangulation triangulation = new DelaunayTriangulation(bounds);
+		triangulation.insertAll(points);
+
+		for (int i = 0; i < 100; i++) {
+
+			VectorXZ point = new VectorXZ(
+					(random.nextDouble() * 1.2 * SIZE) - 0.6 * SIZE,
+					(random.nextDouble() * 1.2 * SIZE) - 0.6 * SIZE);
+
+			NaturalNeighbors expected = triangulation.probe(point);
+			NaturalNeighbors actual = triangulation.getNaturalNeighbors(point);
+
+			assertEquals(expected.neighbors.length, actual.neighbors.length);
+
+			List<VectorXYZ> expectedNeighbors = asList(expected.neighbors);
+
+			for (int n = 0; n < actual.neighbors.length; n++) {
+				int index = expectedNeighbors.indexOf(actual.neighbors[n]);
+				assertTrue(index >= 0);
+				assertEquals(expected.relativeWeights[index], actual.relativeWeights[n], 1e-9);
+			}
+
+		}
+
+		/* points which coincide with a site */
+
+		NaturalNeighbors result = triangulation.getNaturalNeighbors(points.get(0).xz());
+		assertSame(points.get(0), result.neighbors[0]);
+		assertEquals(1.0, result.relativeWeights[0], 0);
+
+	}
+
 	/**
 	 * asserts that two triangulations are equal
 	 */
@@ -106,6 +214,48 @@ public class DelaunayTriangulationTest {
 
 	}
 
+	/**
+	 * asserts that each triangle shares exactly one edge (i.e. two vertices) with each of its neighbors,
+	 * and that no two triangles share an edge without being neighbors
+	 */
+	private static void assertNeighborsShareEdges(DelaunayTriangulation triangulation) {
+
+		Map<Set<VectorXYZ>, DelaunayTriangle> edgeOwners = new HashMap<>();
+
+		for (DelaunayTriangle triangle : triangulation.getTriangles()) {
+
+			for (int i = 0; i <= 2; i++) {
+
+				DelaunayTriangle neighbor = triangle.getNeighbor(i);
+
+				if (neighbor != null) {
+					Set<VectorXYZ> sharedVertices = vertices(List.of(triangle));
+					sharedVertices.retainAll(vertices(List.of(neighbor)));
+					assertEquals(2, sharedVertices.size());
+				}
+
+				Set<VectorXYZ> edge = Set.of(triangle.getPoint(i), triangle.getPoint((i + 1) % 3));
+				DelaunayTriangle otherOwner = edgeOwners.put(edge, triangle);
+				if (otherOwner != null) {
+					assertTrue(otherOwner.indexOfNeighbor(triangle) >= 0);
+				}
+
+			}
+
+		}
+
+	}
+
+	private static Set<VectorXYZ> vertices(Iterable<DelaunayTriangle> triangles) {
+		Set<VectorXYZ> result = new HashSet<>();
+		for (DelaunayTriangle triangle : triangles) {
+			result.add(triangle.p0);
+			result.add(triangle.p1);
+			result.add(triangle.p2);
+		}
+		return result;
+	}
+
 	/**
 	 * asserts that a triangulation confirms to a set of required properties
 	 */
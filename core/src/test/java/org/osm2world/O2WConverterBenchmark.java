@@ -0,0 +1,74 @@
+package org.osm2world;
+
+import static org.osm2world.output.common.compression.Compression.NONE;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import org.osm2world.conversion.O2WConfig;
+import org.osm2world.math.geo.LatLonBounds;
+import org.osm2world.math.geo.MapProjection;
+import org.osm2world.math.geo.MetricMapProjection;
+import org.osm2world.math.geo.TileNumber;
+import org.osm2world.math.shapes.AxisAlignedRectangleXZ;
+import org.osm2world.osm.creation.OSMFileReader;
+import org.osm2world.output.common.rendering.OrthographicUtil;
+import org.osm2world.output.frontend_pbf.FrontendPbfOutput;
+import org.osm2world.test.BenchmarkUtil;
+
+/**
+ * compares converting tiles in a batch using {@link O2WConverter#convertTiles}
+ * with converting them one at a time. See {@link BenchmarkUtil} for how to run it.
+ */
+public class O2WConverterBenchmark {
+
+	public static void main(String[] args) throws IOException {
+
+		File inputFile = new File(O2WConverterBenchmark.class.getClassLoader().getResource("simpleTest01.osm").getFile());
+		LatLonBounds bounds = new LatLonBounds(48.5639199, 13.4471425, 48.5655842, 13.4497191);
+		List<TileNumber> tiles = TileNumber.tilesForBounds(19, bounds);
+		MapProjection mapProjection = new MetricMapProjection(bounds.getCenter());
+
+		var o2w = new O2WConverter();
+		o2w.setConfig(new O2WConfig(Map.of("threadCount", 0)));
+
+		File outputDir = Files.createTempDirectory("o2w-benchmark-").toFile();
+
+		for (int run = 0; run < 5; run++) {
+
+			long start = System.nanoTime();
+
+			for (TileNumber tile : tiles) {
+				File outputFile = new File(outputDir, "single_" + tile.toString("_") + ".o2w.pbf");
+				AxisAlignedRectangleXZ tileBounds = OrthographicUtil.boundsForTile(mapProjection, tile);
+				o2w.convert(new OSMFileReader(inputFile), tile, mapProjection,
+						new FrontendPbfOutput(outputFile, NONE, tileBounds));
+			}
+
+			double singleMinutes = (System.nanoTime() - start) / 60e9;
+
+			start = System.nanoTime();
+
+			o2w.convertTiles(new OSMFileReader(inputFile), tiles, mapProjection, (tile, tileBounds) -> {
+				try {
+					File outputFile = new File(outputDir, "batch_" + tile.toString("_") + ".o2w.pbf");
+					return List.of(new FrontendPbfOutput(outputFile, NONE, tileBounds));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+
+			double batchMinutes = (System.nanoTime() - start) / 60e9;
+
+			System.out.printf("%d tiles: %.1f tiles/min independently, %.1f tiles/min as a batch%n",
+					tiles.size(), tiles.size() / singleMinutes, tiles.size() / batchMinutes);
+
+		}
+
+	}
+
+}
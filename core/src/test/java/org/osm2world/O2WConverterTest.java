@@ -1,14 +1,19 @@
 package org.osm2world;
 
+import static java.util.Objects.requireNonNullElse;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.osm2world.output.common.compression.Compression.NONE;
 import static org.osm2world.output.gltf.GltfOutput.GltfFlavor.GLTF;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.junit.Test;
 import org.osm2world.conversion.O2WConfig;
@@ -17,10 +22,20 @@ import org.osm2world.map_data.data.MapData;
 import org.osm2world.map_data.data.MapNode;
 import org.osm2world.map_data.data.TagSet;
 import org.osm2world.math.geo.LatLon;
+import org.osm2world.math.geo.LatLonBounds;
 import org.osm2world.math.geo.MapProjection;
 import org.osm2world.math.geo.MetricMapProjection;
+import org.osm2world.math.geo.TileNumber;
+import org.osm2world.math.shapes.AxisAlignedRectangleXZ;
+import org.osm2world.osm.creation.OSMFileReader;
 import org.osm2world.output.Output;
+import org.osm2world.output.frontend_pbf.FrontendPbfOutput;
 import org.osm2world.output.gltf.GltfOutput;
+import org.osm2world.output.gltf.data.Gltf;
+import org.osm2world.output.gltf.data.GltfAccessor;
+import org.osm2world.output.gltf.data.GltfMesh;
+
+import com.google.gson.Gson;
 
 public class O2WConverterTest {
 
@@ -79,4 +94,89 @@ public class O2WConverterTest {
 
 	}
 
+	@Test
+	public void testConvertTiles() throws IOException {
+
+		File inputFile = new File(getClass().getClassLoader().getResource("simpleTest01.osm").getFile());
+		LatLonBounds bounds = new LatLonBounds(48.5639199, 13.4471425, 48.5655842, 13.4497191);
+
+		List<TileNumber> tiles = TileNumber.tilesForBounds(18, bounds);
+		assertTrue(tiles.size() > 1);
+
+		Map<TileNumber, File> outputFiles = new ConcurrentHashMap<>();
+
+		var o2w = new O2WConverter();
+		o2w.setConfig(new O2WConfig(Map.of("threadCount", 2)));
+		o2w.convertTiles(new OSMFileReader(inputFile), tiles, null, (tile, tileBounds) -> {
+			try {
+				File outputFile = Files.createTempFile("o2w-test-", ".o2w.pbf").toFile();
+				outputFile.deleteOnExit();
+				outputFiles.put(tile, outputFile);
+				return List.of(new FrontendPbfOutput(outputFile, NONE, tileBounds));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+
+		assertEquals(Set.copyOf(tiles), outputFiles.keySet());
+
+		for (File outputFile : outputFiles.values()) {
+			assertTrue(outputFile.length() > 0);
+		}
+
+	}
+
+	/** checks that the glTF output for each tile of a batch contains only geometry within the tile */
+	@Test
+	public void testConvertTilesGltf() throws IOException {
+
+		File inputFile = new File(getClass().getClassLoader().getResource("simpleTest01.osm").getFile());
+		LatLonBounds bounds = new LatLonBounds(48.5639199, 13.4471425, 48.5655842, 13.4497191);
+
+		List<TileNumber> tiles = TileNumber.tilesForBounds(18, bounds);
+		assertTrue(tiles.size() > 1);
+
+		Map<File, AxisAlignedRectangleXZ> outputFiles = new ConcurrentHashMap<>();
+
+		var o2w = new O2WConverter();
+		o2w.setConfig(new O2WConfig(Map.of("threadCount", 2)));
+		o2w.convertTiles(new OSMFileReader(inputFile), tiles, null, (tile, tileBounds) -> {
+			try {
+				File outputFile = Files.createTempFile("o2w-test-", ".gltf").toFile();
+				outputFile.deleteOnExit();
+				outputFiles.put(outputFile, tileBounds);
+				return List.of(new GltfOutput(outputFile, GLTF, NONE, tileBounds));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+
+		assertEquals(tiles.size(), outputFiles.size());
+
+		int positionCount = 0;
+
+		for (var entry : outputFiles.entrySet()) {
+
+			Gltf gltf = new Gson().fromJson(Files.readString(entry.getKey().toPath()), Gltf.class);
+			AxisAlignedRectangleXZ tileBounds = entry.getValue();
+			double tolerance = 0.01;
+
+			for (GltfMesh mesh : requireNonNullElse(gltf.meshes, List.<GltfMesh>of())) {
+				for (GltfMesh.Primitive primitive : mesh.primitives) {
+					GltfAccessor positions = gltf.accessors.get(primitive.attributes.get("POSITION"));
+					/* glTF's z axis points in the opposite direction */
+					assertTrue(positions.min[0] >= tileBounds.minX - tolerance);
+					assertTrue(positions.max[0] <= tileBounds.maxX + tolerance);
+					assertTrue(-positions.max[2] >= tileBounds.minZ - tolerance);
+					assertTrue(-positions.min[2] <= tileBounds.maxZ + tolerance);
+					positionCount += positions.count;
+				}
+			}
+
+		}
+
+		assertTrue(positionCount > 0);
+
+	}
+
 }
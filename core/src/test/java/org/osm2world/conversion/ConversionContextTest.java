@@ -0,0 +1,112 @@
+package org.osm2world.conversion;
+
+import static org.junit.Assert.*;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.osm2world.scene.material.ConfMaterial;
+import org.osm2world.scene.material.Materials;
+
+public class ConversionContextTest {
+
+	@Test
+	public void testSharedForEqualConfigs() {
+
+		var config1 = new O2WConfig(Map.of("material_BRICK_color", "#ff0000"));
+		var config2 = new O2WConfig(Map.of("material_BRICK_color", "#ff0000"));
+		var config3 = new O2WConfig(Map.of("material_BRICK_color", "#00ff00"));
+
+		assertSame(ConversionContext.forConfig(config1), ConversionContext.forConfig(config2));
+		assertNotSame(ConversionContext.forConfig(config1), ConversionContext.forConfig(config3));
+
+	}
+
+	@Test
+	public void testNotSharedForDifferentBasePaths() throws IOException {
+
+		/* relative resource paths are resolved against the config file's location, so the contexts must differ */
+
+		File dir1 = Files.createTempDirectory("o2w-config").toFile();
+		File dir2 = Files.createTempDirectory("o2w-config").toFile();
+		dir1.deleteOnExit();
+		dir2.deleteOnExit();
+
+		List<File> configFiles = new ArrayList<>();
+
+		for (File dir : List.of(dir1, dir2)) {
+			File configFile = new File(dir, "config.properties");
+			configFile.deleteOnExit();
+			Files.writeString(configFile.toPath(), "material_BRICK_texture0_dir = textures\n");
+			configFiles.add(configFile);
+		}
+
+		var config1 = new O2WConfig(Map.of(), configFiles.get(0));
+		var config2 = new O2WConfig(Map.of(), configFiles.get(1));
+
+		assertNotSame(ConversionContext.forConfig(config1), ConversionContext.forConfig(config2));
+		assertSame(ConversionContext.forConfig(config1), ConversionContext.forConfig(new O2WConfig(Map.of(), configFiles.get(0))));
+
+	}
+
+	@Test
+	public void testMaterialsPerContext() {
+
+		var redContext = ConversionContext.forConfig(new O2WConfig(Map.of("material_BRICK_color", "#ff0000")));
+		var greenContext = ConversionContext.forConfig(new O2WConfig(Map.of("material_BRICK_color", "#00ff00")));
+
+		redContext.runWith(() -> {
+			assertEquals(Color.RED, Materials.BRICK.getColor());
+			greenContext.runWith(() -> assertEquals(Color.GREEN, Materials.BRICK.getColor()));
+			assertEquals(Color.RED, Materials.BRICK.getColor());
+		});
+
+	}
+
+	@Test
+	public void testUnboundThreadUsesDefaultConfig() {
+
+		var redContext = ConversionContext.forConfig(new O2WConfig(Map.of("material_BRICK_color", "#ff0000")));
+
+		redContext.runWith(() -> assertEquals(Color.RED, Materials.BRICK.getColor()));
+
+		/* neither this thread nor a new thread may see the configuration of the previous conversion */
+
+		assertNotEquals(Color.RED, Materials.BRICK.getColor());
+
+		Color[] otherThreadColor = new Color[1];
+		redContext.runWith(() -> {
+			Thread thread = new Thread(() -> otherThreadColor[0] = Materials.BRICK.getColor());
+			thread.start();
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		});
+		assertNotEquals(Color.RED, otherThreadColor[0]);
+
+	}
+
+	@Test
+	public void testExternalMaterial() {
+
+		var context = ConversionContext.forConfig(new O2WConfig(Map.of("material_FOO_color", "#0000ff")));
+
+		context.runWith(() -> {
+			ConfMaterial foo = Materials.getMaterial("FOO");
+			assertNotNull(foo);
+			assertEquals(Color.BLUE, foo.getColor());
+		});
+
+		ConversionContext.forConfig(new O2WConfig()).runWith(() -> assertNull(Materials.getMaterial("FOO")));
+
+	}
+
+}
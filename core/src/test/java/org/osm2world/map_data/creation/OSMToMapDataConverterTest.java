@@ -7,11 +7,14 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Ignore;
 import org.junit.Test;
+import org.osm2world.conversion.O2WConfig;
 import org.osm2world.map_data.data.MapArea;
 import org.osm2world.map_data.data.MapData;
+import org.osm2world.map_data.data.MapElement;
 import org.osm2world.map_data.data.MapNode;
 import org.osm2world.math.VectorXZ;
 import org.osm2world.math.geo.LatLon;
@@ -216,4 +219,32 @@ public class OSMToMapDataConverterTest {
 
 	}
 
+	@Test
+	public void testOverlapsIndependentOfThreadCount() throws IOException, EntityNotFoundException {
+
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		File testFile = new File(classLoader.getResource("simpleTest01.osm").getFile());
+
+		OSMData osmData = new OSMFileReader(testFile).getAllData();
+		MapProjection mapProjection = new MetricMapProjection(osmData.getCenter());
+
+		List<String> sequentialOverlaps = overlapStrings(new OSMToMapDataConverter(mapProjection)
+				.createMapData(osmData, new O2WConfig(Map.of("threadCount", 1))));
+		List<String> parallelOverlaps = overlapStrings(new OSMToMapDataConverter(mapProjection)
+				.createMapData(osmData, new O2WConfig(Map.of("threadCount", 4))));
+
+		assertFalse(sequentialOverlaps.stream().allMatch("[]"::equals));
+		assertEquals(sequentialOverlaps, parallelOverlaps);
+
+	}
+
+	/** returns a description of each element's overlaps, in the order of the elements */
+	private static List<String> overlapStrings(MapData mapData) {
+		List<String> result = new ArrayList<>();
+		for (MapElement element : mapData.getMapElements()) {
+			result.add(element.getOverlaps().toString());
+		}
+		return result;
+	}
+
 }
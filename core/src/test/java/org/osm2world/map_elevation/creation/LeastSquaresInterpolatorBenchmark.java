@@ -0,0 +1,30 @@
+package org.osm2world.map_elevation.creation;
+
+import static org.osm2world.test.BenchmarkUtil.timeMillis;
+
+import java.util.List;
+import java.util.Random;
+
+import org.osm2world.conversion.ConversionLog;
+import org.osm2world.math.VectorXYZ;
+import org.osm2world.test.BenchmarkUtil;
+
+/**
+ * measures {@link LeastSquaresInterpolator#setKnownSites(java.util.Collection)} for one million sites,
+ * single-threaded and with one thread per core. See {@link BenchmarkUtil} for how to run it.
+ */
+public class LeastSquaresInterpolatorBenchmark {
+
+	public static void main(String[] args) {
+
+		List<VectorXYZ> sites = LeastSquaresInterpolatorTest.gridSites(1000, new Random(1));
+
+		for (int threadCount : List.of(1, Runtime.getRuntime().availableProcessors())) {
+			ConversionLog.clear();
+			long millis = timeMillis(() -> new LeastSquaresInterpolator(threadCount).setKnownSites(sites));
+			System.out.printf("%d threads: %d ms %s%n", threadCount, millis, ConversionLog.getCounters());
+		}
+
+	}
+
+}
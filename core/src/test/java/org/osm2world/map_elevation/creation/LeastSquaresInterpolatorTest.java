@@ -0,0 +1,73 @@
+package org.osm2world.map_elevation.creation;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.osm2world.math.VectorXYZ;
+import org.osm2world.math.VectorXZ;
+
+public class LeastSquaresInterpolatorTest {
+
+	@Test
+	public void testQuadraticSurface() {
+
+		List<VectorXYZ> sites = gridSites(40, new Random(1));
+
+		var interpolator = new LeastSquaresInterpolator();
+		interpolator.setKnownSites(sites);
+
+		assertTrue(interpolator.getSitesWithPolynomials().stream().allMatch(s -> s.getPolynomial() != null));
+
+		Random random = new Random(2);
+
+		for (int i = 0; i < 100; i++) {
+			VectorXZ pos = new VectorXZ(5200 + random.nextDouble() * 700, -2800 + random.nextDouble() * 700);
+			assertEquals(surfaceEle(pos.x, pos.z), interpolator.interpolateEle(pos).y, 1e-6);
+		}
+
+	}
+
+	@Test
+	public void testThreadCount() {
+
+		List<VectorXYZ> sites = gridSites(40, new Random(1));
+
+		var interpolator1 = new LeastSquaresInterpolator(1);
+		interpolator1.setKnownSites(sites);
+
+		var interpolator4 = new LeastSquaresInterpolator(4);
+		interpolator4.setKnownSites(sites);
+
+		Random random = new Random(2);
+
+		for (int i = 0; i < 100; i++) {
+			VectorXZ pos = new VectorXZ(5200 + random.nextDouble() * 700, -2800 + random.nextDouble() * 700);
+			assertEquals(interpolator1.interpolateEle(pos).y, interpolator4.interpolateEle(pos).y, 0);
+		}
+
+	}
+
+	/** returns sites on a slightly irregular grid with a spacing of about 30 meters */
+	static List<VectorXYZ> gridSites(int size, Random random) {
+		List<VectorXYZ> sites = new ArrayList<>(size * size);
+		for (int x = 0; x < size; x++) {
+			for (int z = 0; z < size; z++) {
+				double posX = 5000 + x * 30 + random.nextDouble();
+				double posZ = -3000 + z * 30 + random.nextDouble();
+				sites.add(new VectorXYZ(posX, surfaceEle(posX, posZ), posZ));
+			}
+		}
+		return sites;
+	}
+
+	private static double surfaceEle(double x, double z) {
+		double u = (x - 5600) / 1000;
+		double v = (z + 2400) / 1000;
+		return 100 + 3 * u - 2 * v + 0.5 * u * u + 0.1 * u * v - 0.3 * v * v;
+	}
+
+}
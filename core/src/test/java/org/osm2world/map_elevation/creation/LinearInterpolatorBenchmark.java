@@ -0,0 +1,28 @@
+package org.osm2world.map_elevation.creation;
+
+import static org.osm2world.test.BenchmarkUtil.timeMillis;
+
+import java.util.List;
+import java.util.Random;
+
+import org.osm2world.math.VectorXYZ;
+import org.osm2world.test.BenchmarkUtil;
+
+/**
+ * measures the time {@link LinearInterpolator#setKnownSites(java.util.Collection)} needs
+ * to triangulate one million sites. See {@link BenchmarkUtil} for how to run it.
+ */
+public class LinearInterpolatorBenchmark {
+
+	public static void main(String[] args) {
+
+		List<VectorXYZ> sites = LinearInterpolatorTest.randomSites(1_000_000, 100_000, new Random(1));
+
+		for (int run = 0; run < 3; run++) {
+			long millis = timeMillis(() -> new LinearInterpolator().setKnownSites(sites));
+			System.out.printf("%d sites: %d ms%n", sites.size(), millis);
+		}
+
+	}
+
+}
@@ -0,0 +1,44 @@
+package org.osm2world.map_elevation.creation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.osm2world.math.VectorXYZ;
+import org.osm2world.math.VectorXZ;
+
+public class LinearInterpolatorTest {
+
+	@Test
+	public void testPlane() {
+
+		var interpolator = new LinearInterpolator();
+		interpolator.setKnownSites(randomSites(1000, 1000, new Random(1)));
+
+		Random random = new Random(2);
+
+		for (int i = 0; i < 100; i++) {
+			VectorXZ pos = new VectorXZ(random.nextDouble() * 900 + 50, random.nextDouble() * 900 + 50);
+			assertEquals(planeEle(pos.x, pos.z), interpolator.interpolateEle(pos).y, 1e-6);
+		}
+
+	}
+
+	static List<VectorXYZ> randomSites(int count, double size, Random random) {
+		List<VectorXYZ> sites = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			double x = random.nextDouble() * size;
+			double z = random.nextDouble() * size;
+			sites.add(new VectorXYZ(x, planeEle(x, z), z));
+		}
+		return sites;
+	}
+
+	private static double planeEle(double x, double z) {
+		return 0.5 * x - 0.25 * z + 10;
+	}
+
+}
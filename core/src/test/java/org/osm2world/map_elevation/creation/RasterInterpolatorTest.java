@@ -0,0 +1,144 @@
+package org.osm2world.map_elevation.creation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntBinaryOperator;
+
+import org.junit.Test;
+import org.osm2world.map_elevation.creation.RasterInterpolator.Method;
+import org.osm2world.math.VectorXYZ;
+import org.osm2world.math.VectorXZ;
+import org.osm2world.math.geo.LatLon;
+import org.osm2world.math.geo.MapProjection;
+import org.osm2world.math.geo.MetricMapProjection;
+import org.osm2world.math.geo.OrthographicAzimuthalMapProjection;
+import org.osm2world.math.shapes.AxisAlignedRectangleXZ;
+
+public class RasterInterpolatorTest {
+
+	private static final MapProjection PROJECTION = new MetricMapProjection(new LatLon(50, 10));
+
+	@Test
+	public void testLinearSurface() {
+
+		var raster = new TestRaster((x, y) -> 2 * x + 3 * y);
+
+		for (Method method : Method.values()) {
+
+			var interpolator = new RasterInterpolator(method);
+			interpolator.setRasterData(raster);
+
+			for (LatLon latLon : new LatLon[] { new LatLon(50, 10), new LatLon(50.25, 10.125), new LatLon(50.01, 9.99) }) {
+				double expected = 2 * latLon.lon * TestRaster.SAMPLES + 3 * latLon.lat * TestRaster.SAMPLES;
+				double actual = interpolator.interpolateEle(PROJECTION.toXZ(latLon)).y;
+				assertEquals(method.toString(), expected, actual, 1e-3);
+			}
+
+		}
+
+	}
+
+	@Test
+	public void testBlankSamples() {
+
+		// only samples with an even lon index have data
+		var raster = new TestRaster((x, y) -> x % 2 == 0 ? 100 : Integer.MIN_VALUE);
+
+		for (Method method : Method.values()) {
+			var interpolator = new RasterInterpolator(method);
+			interpolator.setRasterData(raster);
+			double ele = interpolator.interpolateEle(PROJECTION.toXZ(new LatLon(50.05, 10.05))).y;
+			assertEquals(method.toString(), 100, ele, 1e-6);
+		}
+
+	}
+
+	@Test
+	public void testSrtmSites() throws IOException {
+
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		File srtmDir = new File(classLoader.getResource("srtm").getFile());
+
+		var projection = new OrthographicAzimuthalMapProjection(new LatLon(4, 33));
+		var srtmData = new SRTMData(srtmDir, projection);
+
+		var bounds = AxisAlignedRectangleXZ.bbox(List.of(
+				projection.toXZ(new LatLon(4.1, 33.1)), projection.toXZ(new LatLon(4.12, 33.12))));
+
+		Collection<VectorXYZ> sites = srtmData.getSites(bounds);
+		srtmData.loadRaster(bounds);
+
+		for (Method method : Method.values()) {
+			var interpolator = new RasterInterpolator(method);
+			interpolator.setRasterData(srtmData);
+			for (VectorXYZ site : sites) {
+				assertEquals(method.toString(), site.y, interpolator.interpolateEle(site.xz()).y, 1e-3);
+			}
+		}
+
+	}
+
+	@Test
+	public void testKnownSites() {
+
+		List<VectorXYZ> sites = List.of(
+				new VectorXYZ(0, 10, 0), new VectorXYZ(100, 20, 0),
+				new VectorXYZ(0, 30, 100), new VectorXYZ(100, 40, 100));
+
+		for (Method method : Method.values()) {
+			var interpolator = new RasterInterpolator(method);
+			interpolator.setKnownSites(sites);
+			assertEquals(method.toString(), 25, interpolator.interpolateEle(new VectorXZ(50, 50)).y, 1e-6);
+		}
+
+	}
+
+	@Test
+	public void testCatmullRom() {
+		assertEquals(1, RasterInterpolator.catmullRom(0, 1, 2, 3, 0), 0);
+		assertEquals(2, RasterInterpolator.catmullRom(0, 1, 2, 3, 1), 0);
+		assertEquals(1.5, RasterInterpolator.catmullRom(0, 1, 2, 3, 0.5), 1e-10);
+		assertEquals(1.5, RasterInterpolator.catmullRom(5, 1, 2, -2, 0.5), 1e-10);
+	}
+
+	/** synthetic raster data with values defined by a function. {@link Integer#MIN_VALUE} represents missing data. */
+	private record TestRaster(IntBinaryOperator values) implements RasterTerrainElevationData {
+
+		static final int SAMPLES = 10;
+
+		@Override
+		public MapProjection getProjection() {
+			return PROJECTION;
+		}
+
+		@Override
+		public int samplesPerDegree() {
+			return SAMPLES;
+		}
+
+		@Override
+		public double sampleOffset() {
+			return 0;
+		}
+
+		@Override
+		public void loadRaster(AxisAlignedRectangleXZ bounds) {}
+
+		@Override
+		public double getSample(int lonIndex, int latIndex) {
+			int value = values.applyAsInt(lonIndex, latIndex);
+			return value == Integer.MIN_VALUE ? Double.NaN : value;
+		}
+
+		@Override
+		public Collection<VectorXYZ> getSites(AxisAlignedRectangleXZ bounds) {
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+}
@@ -30,6 +30,23 @@ public class SRTMDataTest {
 
 	}
 
+	@Test
+	public void testGetSample() throws IOException {
+
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		File srtmDir = new File(classLoader.getResource("srtm").getFile());
+
+		var projection = new OrthographicAzimuthalMapProjection(new LatLon(4, 33));
+		var srtmData = new SRTMData(srtmDir, projection);
+
+		srtmData.loadRaster(projectBounds(projection, new LatLonBounds(4.1, 33.1, 4.2, 33.2)));
+
+		int samplesPerDegree = srtmData.samplesPerDegree();
+		Assert.assertFalse(Double.isNaN(srtmData.getSample(33 * samplesPerDegree + 150, 4 * samplesPerDegree + 150)));
+		Assert.assertTrue(Double.isNaN(srtmData.getSample(40 * samplesPerDegree, 4 * samplesPerDegree)));
+
+	}
+
 	private static AxisAlignedRectangleXZ projectBounds(OrthographicAzimuthalMapProjection projection, LatLonBounds latLonBounds) {
 		return AxisAlignedRectangleXZ.bbox(List.of(
 				projection.toXZ(latLonBounds.getMin()), projection.toXZ(latLonBounds.getMax())));
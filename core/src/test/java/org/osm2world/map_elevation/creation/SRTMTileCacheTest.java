@@ -0,0 +1,58 @@
+package org.osm2world.map_elevation.creation;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class SRTMTileCacheTest {
+
+	private final File srtmDir = new File(Thread.currentThread().getContextClassLoader().getResource("srtm").getFile());
+
+	@Test
+	public void testMappedTile() throws IOException {
+
+		var cache = new SRTMTileCache(0);
+
+		SRTMTile tile = cache.getTile(srtmDir, 33, 4);
+		assertNotNull(tile);
+		assertSame(tile, cache.getTile(srtmDir, 33, 4));
+
+	}
+
+	@Test
+	public void testZippedTile() throws IOException {
+
+		var cache = new SRTMTileCache(1);
+
+		SRTMTile tile = cache.getTile(srtmDir, 34, 4);
+		assertNotNull(tile);
+		assertSame(tile, cache.getTile(srtmDir, 34, 4));
+
+		var uncachedCache = new SRTMTileCache(0);
+		assertNotSame(uncachedCache.getTile(srtmDir, 34, 4), uncachedCache.getTile(srtmDir, 34, 4));
+
+	}
+
+	@Test
+	public void testAdjacentTilesMatch() throws IOException {
+
+		var cache = new SRTMTileCache(1);
+
+		SRTMTile west = cache.getTile(srtmDir, 33, 4);
+		SRTMTile east = cache.getTile(srtmDir, 34, 4);
+
+		for (int y = 0; y < SRTMTile.PIXELS; y += 100) {
+			assertEquals(west.getData(SRTMTile.PIXELS - 1, y), east.getData(0, y));
+		}
+
+	}
+
+	@Test
+	public void testMissingTile() throws IOException {
+		assertNull(new SRTMTileCache(1).getTile(srtmDir, 35, 4));
+	}
+
+}
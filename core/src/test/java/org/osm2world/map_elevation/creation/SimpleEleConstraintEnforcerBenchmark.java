@@ -0,0 +1,22 @@
+package org.osm2world.map_elevation.creation;
+
+import static org.osm2world.test.BenchmarkUtil.timeMillis;
+
+import java.util.List;
+
+import org.osm2world.test.BenchmarkUtil;
+
+/**
+ * shows how the runtime of {@link SimpleEleConstraintEnforcer} scales with the number of connectors.
+ * See {@link BenchmarkUtil} for how to run it.
+ */
+public class SimpleEleConstraintEnforcerBenchmark {
+
+	public static void main(String[] args) {
+		for (int n : List.of(100_000, 200_000, 500_000, 1_000_000)) {
+			long millis = timeMillis(() -> SimpleEleConstraintEnforcerTest.runWithConnectorGrid(n));
+			System.out.printf("%d connectors: %d ms%n", n, millis);
+		}
+	}
+
+}
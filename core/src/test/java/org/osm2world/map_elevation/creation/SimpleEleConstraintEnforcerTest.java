@@ -0,0 +1,120 @@
+package org.osm2world.map_elevation.creation;
+
+import static org.junit.Assert.assertEquals;
+import static org.osm2world.map_elevation.data.GroundState.ABOVE;
+import static org.osm2world.map_elevation.data.GroundState.ON;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.osm2world.map_elevation.data.EleConnector;
+import org.osm2world.map_elevation.data.GroundState;
+import org.osm2world.math.VectorXZ;
+
+public class SimpleEleConstraintEnforcerTest {
+
+	@Test
+	public void testConnectorsAtSamePosition() {
+
+		EleConnector c1 = connector(new VectorXZ(1, 2), null, ON, 10);
+		EleConnector c2 = connector(new VectorXZ(1, 2), null, ON, 20);
+		EleConnector c3 = connector(new VectorXZ(-0.0, 5), null, ON, 30);
+		EleConnector c4 = connector(new VectorXZ(0.0, 5), null, ON, 40);
+		EleConnector c5 = connector(new VectorXZ(1, 3), null, ON, 50);
+
+		var enforcer = new SimpleEleConstraintEnforcer();
+		enforcer.addConnectors(List.of(c1, c2, c3));
+		enforcer.addConnectors(List.of(c4, c5));
+		enforcer.enforceConstraints();
+
+		assertEquals(15, c1.getPosXYZ().y, 1e-10);
+		assertEquals(15, c2.getPosXYZ().y, 1e-10);
+		assertEquals(35, c3.getPosXYZ().y, 1e-10);
+		assertEquals(35, c4.getPosXYZ().y, 1e-10);
+		assertEquals(50, c5.getPosXYZ().y, 1e-10);
+
+	}
+
+	@Test
+	public void testConnectorsWithReference() {
+
+		Object reference = new Object();
+
+		EleConnector c1 = connector(new VectorXZ(0, 0), reference, ABOVE, 10);
+		EleConnector c2 = connector(new VectorXZ(0, 0), reference, ABOVE, 20);
+		EleConnector c3 = connector(new VectorXZ(0, 0), null, ON, 30);
+
+		var enforcer = new SimpleEleConstraintEnforcer();
+		enforcer.addConnectors(List.of(c1, c2, c3));
+		enforcer.enforceConstraints();
+
+		assertEquals(15 + 5, c1.getPosXYZ().y, 1e-10);
+		assertEquals(15 + 5, c2.getPosXYZ().y, 1e-10);
+		assertEquals(30, c3.getPosXYZ().y, 1e-10);
+
+	}
+
+	@Test
+	public void testMergeStiffSets() {
+
+		List<EleConnector> cs = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			cs.add(connector(new VectorXZ(i, 0), null, ON, i));
+		}
+
+		var enforcer = new SimpleEleConstraintEnforcer();
+		enforcer.addConnectors(cs);
+		enforcer.requireSameEle(cs.get(0), cs.get(1));
+		enforcer.requireSameEle(List.of(cs.get(2), cs.get(3), cs.get(4)));
+		enforcer.requireSameEle(cs.get(4), cs.get(1));
+		enforcer.enforceConstraints();
+
+		for (int i = 0; i < 5; i++) {
+			assertEquals(2, cs.get(i).getPosXYZ().y, 1e-10);
+		}
+		assertEquals(5, cs.get(5).getPosXYZ().y, 1e-10);
+
+	}
+
+	@Test
+	public void testManyConnectors() {
+		runWithConnectorGrid(100_000);
+	}
+
+	/**
+	 * adds n connectors arranged as pairs on a grid, in batches as they would be added by individual world objects
+	 */
+	static void runWithConnectorGrid(int n) {
+
+		int gridSize = (int) Math.ceil(Math.sqrt(n / 2.0));
+
+		List<EleConnector> cs = new ArrayList<>(n);
+
+		for (int i = 0; i < n; i++) {
+			int cell = i / 2;
+			VectorXZ pos = new VectorXZ(cell % gridSize, cell / gridSize);
+			cs.add(connector(pos, null, ON, i % 2 == 0 ? 0 : 2));
+		}
+
+		var enforcer = new SimpleEleConstraintEnforcer();
+
+		for (int i = 0; i < n; i += 10) {
+			enforcer.addConnectors(cs.subList(i, Math.min(i + 10, n)));
+		}
+
+		enforcer.enforceConstraints();
+
+		for (int i = 0; i + 1 < n; i += 2) {
+			assertEquals(1, cs.get(i).getPosXYZ().y, 1e-10);
+		}
+
+	}
+
+	private static EleConnector connector(VectorXZ pos, Object reference, GroundState groundState, double ele) {
+		var connector = new EleConnector(pos, reference, groundState);
+		connector.setPosXYZ(pos.xyz(ele));
+		return connector;
+	}
+
+}
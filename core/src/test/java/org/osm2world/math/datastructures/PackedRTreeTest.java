@@ -0,0 +1,86 @@
+package org.osm2world.math.datastructures;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.osm2world.math.shapes.AxisAlignedRectangleXZ;
+
+public class PackedRTreeTest {
+
+	@Test
+	public void testProbeMatchesBruteForce() {
+
+		Random random = new Random(42);
+
+		List<AxisAlignedRectangleXZ> boxes = new ArrayList<>();
+
+		for (int i = 0; i < 2000; i++) {
+			double x = random.nextDouble() * 1000;
+			double z = random.nextDouble() * 1000;
+			double size = random.nextInt(10) == 0 ? random.nextDouble() * 300 : random.nextDouble() * 5;
+			boxes.add(new AxisAlignedRectangleXZ(x, z, x + size, z + random.nextDouble() * size));
+		}
+
+		var tree = new PackedRTree<>(boxes, 8);
+
+		Set<AxisAlignedRectangleXZ> elementsInLeaves = new HashSet<>();
+		tree.getLeaves().forEach(leaf -> leaf.forEach(elementsInLeaves::add));
+		assertEquals(new HashSet<>(boxes), elementsInLeaves);
+
+		for (int i = 0; i < 200; i++) {
+
+			AxisAlignedRectangleXZ query = boxes.get(random.nextInt(boxes.size()));
+
+			Set<AxisAlignedRectangleXZ> expected = new HashSet<>();
+			for (AxisAlignedRectangleXZ box : boxes) {
+				if (box.minX <= query.maxX && query.minX <= box.maxX
+						&& box.minZ <= query.maxZ && query.minZ <= box.maxZ) {
+					expected.add(box);
+				}
+			}
+
+			assertEquals(expected, new HashSet<>(tree.probe(query)));
+
+		}
+
+	}
+
+	@Test
+	public void testEmpty() {
+		var tree = new PackedRTree<AxisAlignedRectangleXZ>(List.of());
+		assertTrue(tree.probe(new AxisAlignedRectangleXZ(0, 0, 1, 1)).isEmpty());
+		assertFalse(tree.getLeaves().iterator().hasNext());
+	}
+
+	@Test
+	public void testInsert() {
+
+		var box1 = new AxisAlignedRectangleXZ(0, 0, 1, 1);
+		var box2 = new AxisAlignedRectangleXZ(0.5, 0.5, 2, 2);
+		var box3 = new AxisAlignedRectangleXZ(10, 10, 11, 11);
+
+		var tree = new PackedRTree<>(List.of(box1));
+
+		assertEquals(Set.of(box1, box2), toSet(tree.insertAndProbe(box2)));
+		assertEquals(Set.of(box3), toSet(tree.insertAndProbe(box3)));
+		assertEquals(Set.of(box2), toSet(tree.probe(new AxisAlignedRectangleXZ(1.5, 1.5, 3, 3))));
+
+		Set<AxisAlignedRectangleXZ> elementsInLeaves = new HashSet<>();
+		tree.getLeaves().forEach(leaf -> leaf.forEach(elementsInLeaves::add));
+		assertEquals(Set.of(box1, box2, box3), elementsInLeaves);
+
+	}
+
+	private static <T> Set<T> toSet(Iterable<T> elements) {
+		Set<T> result = new HashSet<>();
+		elements.forEach(result::add);
+		return result;
+	}
+
+}
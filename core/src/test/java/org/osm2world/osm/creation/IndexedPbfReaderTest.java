@@ -0,0 +1,192 @@
+package org.osm2world.osm.creation;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osm2world.math.geo.LatLonBounds;
+import org.osm2world.math.geo.TileNumber;
+import org.osm2world.osm.data.OSMData;
+
+import de.topobyte.osm4j.core.model.iface.EntityType;
+import de.topobyte.osm4j.core.model.iface.OsmNode;
+import de.topobyte.osm4j.core.model.iface.OsmRelation;
+import de.topobyte.osm4j.core.model.iface.OsmWay;
+import de.topobyte.osm4j.core.model.impl.*;
+import de.topobyte.osm4j.pbf.seq.PbfWriter;
+import gnu.trove.list.array.TLongArrayList;
+
+public class IndexedPbfReaderTest {
+
+	private File pbfFile;
+
+	/** copies the test file to a temporary location because the reader writes an index next to it */
+	@Before
+	public void setUp() throws IOException {
+		URL testFile = Thread.currentThread().getContextClassLoader().getResource("simpleTest01.osm.pbf");
+		assertNotNull(testFile);
+		pbfFile = File.createTempFile("osm2world-test-", ".osm.pbf");
+		Files.copy(new File(testFile.getFile()).toPath(), pbfFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	@After
+	public void tearDown() {
+		PbfBlockIndex.indexFileFor(pbfFile).delete();
+		pbfFile.delete();
+	}
+
+	@Test
+	public void testTile() throws IOException {
+
+		LatLonBounds bounds = new TileNumber(13, 4402, 2828).latLonBounds();
+
+		OSMData allData = new OSMFileReader(pbfFile).getAllData();
+		OSMData data = new IndexedPbfReader(pbfFile).getData(bounds);
+
+		assertFalse(data.getNodes().isEmpty());
+		assertFalse(data.getWays().isEmpty());
+		assertTrue(PbfBlockIndex.indexFileFor(pbfFile).exists());
+
+		Set<Long> nodeIds = data.getNodes().stream().map(OsmNode::getId).collect(Collectors.toSet());
+		Set<Long> wayIds = data.getWays().stream().map(OsmWay::getId).collect(Collectors.toSet());
+
+		/* all nodes within the bounds, and all ways using them, need to be included */
+
+		for (OsmNode node : allData.getNodes()) {
+			if (bounds.contains(node.getLatitude(), node.getLongitude())) {
+				assertTrue(nodeIds.contains(node.getId()));
+			}
+		}
+
+		for (OsmWay way : allData.getWays()) {
+			for (int i = 0; i < way.getNumberOfNodes(); i++) {
+				if (nodeIds.contains(way.getNodeId(i))) {
+					assertTrue(wayIds.contains(way.getId()));
+				}
+			}
+		}
+
+		/* the ways need to be complete */
+
+		for (OsmWay way : data.getWays()) {
+			for (int i = 0; i < way.getNumberOfNodes(); i++) {
+				assertTrue(nodeIds.contains(way.getNodeId(i)));
+			}
+		}
+
+	}
+
+	@Test
+	public void testIndexIsReused() throws IOException {
+
+		LatLonBounds bounds = new TileNumber(13, 4402, 2828).latLonBounds();
+
+		OSMData data1 = new IndexedPbfReader(pbfFile).getData(bounds);
+		long indexModified = PbfBlockIndex.indexFileFor(pbfFile).lastModified();
+		OSMData data2 = new IndexedPbfReader(pbfFile).getData(bounds);
+
+		assertEquals(indexModified, PbfBlockIndex.indexFileFor(pbfFile).lastModified());
+		assertEquals(data1.getNodes().size(), data2.getNodes().size());
+		assertEquals(data1.getWays().size(), data2.getWays().size());
+		assertEquals(data1.getRelations().size(), data2.getRelations().size());
+
+	}
+
+	/** areas which enclose the tile without having any nodes inside it still need to be included */
+	@Test
+	public void testEnclosingAreas() throws IOException {
+
+		LatLonBounds bounds = new TileNumber(13, 4402, 2828).latLonBounds();
+
+		File areaFile = File.createTempFile("osm2world-test-", ".osm.pbf");
+
+		try {
+
+			try (var out = new FileOutputStream(areaFile)) {
+
+				PbfWriter writer = new PbfWriter(out, false);
+
+				/* nodes of a square around the tile, a larger square for the multipolygon, and a distant way */
+
+				double[] offsets = {0.05, 0.15};
+				for (int i = 0; i < offsets.length; i++) {
+					double o = offsets[i];
+					writer.write(new Node(4 * i + 1, bounds.minlon - o, bounds.minlat - o));
+					writer.write(new Node(4 * i + 2, bounds.maxlon + o, bounds.minlat - o));
+					writer.write(new Node(4 * i + 3, bounds.maxlon + o, bounds.maxlat + o));
+					writer.write(new Node(4 * i + 4, bounds.minlon - o, bounds.maxlat + o));
+				}
+				writer.write(new Node(9, bounds.maxlon + 1, bounds.maxlat + 1));
+				writer.write(new Node(10, bounds.maxlon + 1.1, bounds.maxlat + 1));
+
+				/* a closed way and the sides of a multipolygon */
+
+				writer.write(new Way(1, TLongArrayList.wrap(new long[] {1, 2, 3, 4, 1}),
+						List.of(new Tag("natural", "water"))));
+				writer.write(new Way(2, TLongArrayList.wrap(new long[] {5, 6}), List.of()));
+				writer.write(new Way(3, TLongArrayList.wrap(new long[] {6, 7}), List.of()));
+				writer.write(new Way(4, TLongArrayList.wrap(new long[] {7, 8}), List.of()));
+				writer.write(new Way(5, TLongArrayList.wrap(new long[] {8, 5}), List.of()));
+				writer.write(new Way(6, TLongArrayList.wrap(new long[] {9, 10}),
+						List.of(new Tag("highway", "residential"))));
+
+				writer.write(new Relation(1, List.of(
+								new RelationMember(2, EntityType.Way, "outer"),
+								new RelationMember(3, EntityType.Way, "outer"),
+								new RelationMember(4, EntityType.Way, "outer"),
+								new RelationMember(5, EntityType.Way, "outer")),
+						List.of(new Tag("type", "multipolygon"), new Tag("landuse", "forest"))));
+
+				writer.complete();
+
+			}
+
+			OSMData data = new IndexedPbfReader(areaFile).getData(bounds);
+
+			Set<Long> nodeIds = data.getNodes().stream().map(OsmNode::getId).collect(Collectors.toSet());
+			Set<Long> wayIds = data.getWays().stream().map(OsmWay::getId).collect(Collectors.toSet());
+			Set<Long> relationIds = data.getRelations().stream().map(OsmRelation::getId).collect(Collectors.toSet());
+
+			assertEquals(Set.of(1L, 2L, 3L, 4L, 5L), wayIds);
+			assertEquals(Set.of(1L), relationIds);
+			assertEquals(Set.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L), nodeIds);
+
+		} finally {
+			PbfBlockIndex.indexFileFor(areaFile).delete();
+			areaFile.delete();
+		}
+
+	}
+
+	@Test
+	public void testReaderIsShared() throws IOException {
+
+		LatLonBounds bounds = new TileNumber(13, 4402, 2828).latLonBounds();
+
+		OSMData data1 = new OSMFileReader(pbfFile).getData(bounds);
+		PbfBlockIndex.indexFileFor(pbfFile).delete();
+		OSMData data2 = new OSMFileReader(pbfFile).getData(bounds);
+
+		/* the second call uses the index kept in memory instead of writing a new index file */
+		assertFalse(PbfBlockIndex.indexFileFor(pbfFile).exists());
+		assertEquals(data1.getWays().size(), data2.getWays().size());
+
+	}
+
+	@Test(expected = IOException.class)
+	public void testMissingFile() throws IOException {
+		new IndexedPbfReader(new File("noSuchFile.osm.pbf")).getData(new LatLonBounds(-90, -180, 90, 180));
+	}
+
+}
@@ -5,8 +5,14 @@ import static de.topobyte.osm4j.core.model.util.OsmModelUtil.nodesAsList;
 import static org.junit.Assert.*;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
 
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.junit.Test;
 import org.osm2world.osm.data.OSMData;
 
@@ -66,4 +72,62 @@ public class OSMFileReaderTest {
 
 	}
 
+	@Test
+	public void testGZipFile() throws IOException, EntityNotFoundException {
+		File testFile = File.createTempFile("osm2world-test-", ".osm.gz");
+		try {
+			try (OutputStream os = new GZIPOutputStream(new FileOutputStream(testFile))) {
+				Files.copy(getSimpleTestFile().toPath(), os);
+			}
+			assertSameContent(new OSMFileReader(getSimpleTestFile()).getAllData(),
+					new OSMFileReader(testFile).getAllData());
+		} finally {
+			testFile.delete();
+		}
+	}
+
+	/** reads a bzip2 file with multiple blocks, consisting of two concatenated streams */
+	@Test
+	public void testBZip2File() throws IOException, EntityNotFoundException {
+
+		byte[] uncompressedContent = Files.readAllBytes(getSimpleTestFile().toPath());
+		int splitPos = uncompressedContent.length / 3;
+
+		File testFile = File.createTempFile("osm2world-test-", ".osm.bz2");
+
+		try {
+
+			try (OutputStream os = new FileOutputStream(testFile)) {
+				try (var bz2 = new BZip2CompressorOutputStream(CloseShieldOutputStream.wrap(os), 1)) {
+					bz2.write(uncompressedContent, 0, splitPos);
+				}
+				try (var bz2 = new BZip2CompressorOutputStream(CloseShieldOutputStream.wrap(os), 1)) {
+					bz2.write(uncompressedContent, splitPos, uncompressedContent.length - splitPos);
+				}
+			}
+
+			assertSameContent(new OSMFileReader(getSimpleTestFile()).getAllData(),
+					new OSMFileReader(testFile).getAllData());
+
+		} finally {
+			testFile.delete();
+		}
+
+	}
+
+	private static File getSimpleTestFile() {
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		return new File(classLoader.getResource("simpleTest01.osm").getFile());
+	}
+
+	private static void assertSameContent(OSMData expected, OSMData actual) throws EntityNotFoundException {
+		assertEquals(expected.getNodes().size(), actual.getNodes().size());
+		assertEquals(expected.getWays().size(), actual.getWays().size());
+		assertEquals(expected.getRelations().size(), actual.getRelations().size());
+		for (OsmWay way : expected.getWays()) {
+			assertEquals(nodesAsList(way), nodesAsList(actual.getWay(way.getId())));
+			assertEquals(getTagsAsMap(way), getTagsAsMap(actual.getWay(way.getId())));
+		}
+	}
+
 }
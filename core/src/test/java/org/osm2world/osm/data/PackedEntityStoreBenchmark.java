@@ -0,0 +1,79 @@
+package org.osm2world.osm.data;
+
+import static org.osm2world.test.BenchmarkUtil.usedMemory;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import org.osm2world.test.BenchmarkUtil;
+
+import de.topobyte.osm4j.core.dataset.InMemoryMapDataSet;
+import de.topobyte.osm4j.core.model.iface.OsmNode;
+import de.topobyte.osm4j.core.model.iface.OsmWay;
+import de.topobyte.osm4j.core.model.impl.Node;
+import de.topobyte.osm4j.core.model.impl.Tag;
+import de.topobyte.osm4j.core.model.impl.Way;
+import gnu.trove.list.array.TLongArrayList;
+
+/**
+ * compares the heap use of {@link InMemoryMapDataSet} and {@link PackedEntityStore}
+ * for synthetic data resembling an urban extract. See {@link BenchmarkUtil} for how to run it.
+ */
+public class PackedEntityStoreBenchmark {
+
+	public static void main(String[] args) {
+
+		int nodeCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+		long baseline = usedMemory();
+		InMemoryMapDataSet dataSet = new InMemoryMapDataSet();
+		generateData(nodeCount, n -> dataSet.getNodes().put(n.getId(), n), w -> dataSet.getWays().put(w.getId(), w));
+		long dataSetBytes = usedMemory() - baseline;
+		System.out.printf("InMemoryMapDataSet: %.1f bytes per node%n", dataSetBytes / (double) nodeCount);
+
+		dataSet.getNodes().clear();
+		dataSet.getWays().clear();
+
+		baseline = usedMemory();
+		var builder = new PackedEntityStore.Builder();
+		generateData(nodeCount, builder::addNode, builder::addWay);
+		PackedEntityStore store = builder.build();
+		builder = null;
+		long storeBytes = usedMemory() - baseline;
+		System.out.printf("PackedEntityStore: %.1f bytes per node%n", storeBytes / (double) nodeCount);
+
+		if (store.nodes().size() != nodeCount) {
+			throw new AssertionError("unexpected node count: " + store.nodes().size());
+		}
+
+	}
+
+	/** generates nodes, of which 10% are tagged, and ways with 10 nodes each */
+	private static void generateData(int nodeCount, Consumer<OsmNode> nodeSink, Consumer<OsmWay> waySink) {
+
+		Random random = new Random(0);
+		String[] values = {"yes", "residential", "tree", "bench", "traffic_signals"};
+
+		for (int i = 0; i < nodeCount; i++) {
+			Node node = new Node(i, 13 + random.nextDouble(), 52 + random.nextDouble());
+			if (i % 10 == 0) {
+				node.setTags(List.of(new Tag("natural", values[random.nextInt(values.length)])));
+			}
+			nodeSink.accept(node);
+		}
+
+		for (int i = 0; i < nodeCount / 10; i++) {
+			TLongArrayList nodeIds = new TLongArrayList();
+			for (int j = 0; j < 10; j++) {
+				nodeIds.add(10L * i + j);
+			}
+			Way way = new Way(i, nodeIds);
+			way.setTags(List.of(new Tag("building", values[random.nextInt(values.length)]),
+					new Tag("name", "Way " + i)));
+			waySink.accept(way);
+		}
+
+	}
+
+}
@@ -0,0 +1,114 @@
+package org.osm2world.osm.data;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.topobyte.osm4j.core.model.iface.OsmNode;
+import de.topobyte.osm4j.core.model.iface.OsmWay;
+import de.topobyte.osm4j.core.model.impl.Node;
+import de.topobyte.osm4j.core.model.impl.Tag;
+import de.topobyte.osm4j.core.model.impl.Way;
+import gnu.trove.list.array.TLongArrayList;
+
+public class PackedEntityStoreTest {
+
+	@Test
+	public void testNodes() {
+
+		var builder = new PackedEntityStore.Builder();
+		builder.addNode(node(5, 1.0, 2.0, "highway", "traffic_signals"));
+		builder.addNode(node(3, 3.0, 4.0));
+		builder.addNode(node(7, 5.0, 6.0, "name", "A", "amenity", "bench"));
+		PackedEntityStore store = builder.build();
+
+		List<OsmNode> nodes = store.nodes();
+		assertEquals(3, nodes.size());
+		assertEquals(3, nodes.get(0).getId());
+		assertEquals(5, nodes.get(1).getId());
+		assertEquals(7, nodes.get(2).getId());
+
+		OsmNode node7 = store.getNodeById(7);
+		assertNotNull(node7);
+		assertEquals(5.0, node7.getLongitude(), 0);
+		assertEquals(6.0, node7.getLatitude(), 0);
+		assertEquals(2, node7.getNumberOfTags());
+		assertEquals("name", node7.getTag(0).getKey());
+		assertEquals("A", node7.getTag(0).getValue());
+		assertEquals("amenity", node7.getTag(1).getKey());
+		assertEquals("bench", node7.getTag(1).getValue());
+
+		assertEquals(0, store.getNodeById(3).getNumberOfTags());
+		assertNull(store.getNodeById(4));
+
+	}
+
+	@Test
+	public void testDuplicateIds() {
+
+		var builder = new PackedEntityStore.Builder();
+		builder.addNode(node(2, 0, 0, "version", "1"));
+		builder.addNode(node(1, 0, 0));
+		builder.addNode(node(2, 1, 1, "version", "2"));
+		PackedEntityStore store = builder.build();
+
+		assertEquals(2, store.nodes().size());
+		assertEquals("2", store.getNodeById(2).getTag(0).getValue());
+		assertEquals(1.0, store.getNodeById(2).getLatitude(), 0);
+
+	}
+
+	@Test
+	public void testWays() {
+
+		var builder = new PackedEntityStore.Builder();
+		builder.addWay(way(20, new long[] {1, 2, 3, 1}, "building", "yes"));
+		builder.addWay(way(10, new long[] {4, 5}, "highway", "residential", "name", "Main Street"));
+		builder.addWay(way(15, new long[] {}));
+		PackedEntityStore store = builder.build();
+
+		List<OsmWay> ways = store.ways();
+		assertEquals(3, ways.size());
+		assertEquals(10, ways.get(0).getId());
+		assertEquals(15, ways.get(1).getId());
+		assertEquals(20, ways.get(2).getId());
+
+		OsmWay way20 = store.getWayById(20);
+		assertEquals(4, way20.getNumberOfNodes());
+		assertEquals(1, way20.getNodeId(0));
+		assertEquals(3, way20.getNodeId(2));
+		assertEquals("building", way20.getTag(0).getKey());
+
+		OsmWay way10 = store.getWayById(10);
+		assertEquals(2, way10.getNumberOfNodes());
+		assertEquals(5, way10.getNodeId(1));
+		assertEquals("Main Street", way10.getTag(1).getValue());
+
+		assertEquals(0, store.getWayById(15).getNumberOfNodes());
+
+	}
+
+	private static Node node(long id, double lon, double lat, String... tags) {
+		Node node = new Node(id, lon, lat);
+		node.setTags(tags(tags));
+		return node;
+	}
+
+	private static Way way(long id, long[] nodeIds, String... tags) {
+		Way way = new Way(id, new TLongArrayList(nodeIds));
+		way.setTags(tags(tags));
+		return way;
+	}
+
+	private static List<Tag> tags(String... keysAndValues) {
+		List<Tag> result = new ArrayList<>();
+		for (int i = 0; i + 1 < keysAndValues.length; i += 2) {
+			result.add(new Tag(keysAndValues[i], keysAndValues[i + 1]));
+		}
+		return result;
+	}
+
+}
@@ -18,6 +18,7 @@ import org.osm2world.map_data.creation.MapDataBuilder;
 import org.osm2world.map_data.data.MapData;
 import org.osm2world.map_data.data.MapNode;
 import org.osm2world.map_data.data.TagSet;
+import org.osm2world.math.VectorXYZ;
 import org.osm2world.math.VectorXZ;
 import org.osm2world.math.shapes.AxisAlignedRectangleXZ;
 import org.osm2world.output.common.compression.Compression;
@@ -61,6 +62,36 @@ public class FrontendPbfOutputTest {
 		testBlock(new VectorBlock<>());
 	}
 
+	@Test
+	public void testVectorBlock_rounding() {
+
+		Block<VectorXYZ> block = new VectorBlock<>();
+
+		assertEquals(0, block.toIndex(new VectorXYZ(1, 2, 3)));
+		assertEquals(0, block.toIndex(new VectorXYZ(1.0001, 2, 2.9999)));
+		assertEquals(1, block.toIndex(new VectorXYZ(1.001, 2, 3)));
+		assertEquals(2, block.toIndex(new VectorXYZ(-1, -2, -3)));
+
+		assertEquals(List.of(new VectorXYZ(1, 2, 3), new VectorXYZ(1.001, 2, 3), new VectorXYZ(-1, -2, -3)),
+				block.getElements());
+
+	}
+
+	@Test
+	public void testVectorBlock_manyElements() {
+
+		Block<VectorXZ> block = new VectorBlock<>();
+
+		for (int pass = 0; pass < 2; pass++) {
+			for (int i = 0; i < 10000; i++) {
+				assertEquals(i, block.toIndex(new VectorXZ(i % 100, i / 100)));
+			}
+		}
+
+		assertEquals(10000, block.getElements().size());
+
+	}
+
 	@Test
 	public void testWritePbfFile_empty() throws IOException {
 
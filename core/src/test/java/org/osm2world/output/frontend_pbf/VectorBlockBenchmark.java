@@ -0,0 +1,51 @@
+package org.osm2world.output.frontend_pbf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.osm2world.math.VectorXYZ;
+import org.osm2world.output.frontend_pbf.FrontendPbfOutput.Block;
+import org.osm2world.output.frontend_pbf.FrontendPbfOutput.VectorBlock;
+import org.osm2world.test.BenchmarkUtil;
+
+/**
+ * measures how fast {@link VectorBlock} de-duplicates the vertices of a large terrain-like mesh.
+ * See {@link BenchmarkUtil} for how to run it.
+ */
+public class VectorBlockBenchmark {
+
+	public static void main(String[] args) {
+
+		/* create a grid of 10^6 vertices, each vertex is referenced by up to 6 triangles */
+
+		int size = 1000;
+		List<VectorXYZ> vertexReferences = new ArrayList<>();
+
+		for (int x = 0; x < size - 1; x++) {
+			for (int z = 0; z < size - 1; z++) {
+				VectorXYZ v00 = new VectorXYZ(x * 0.5, (x * z) % 7 * 0.1, z * 0.5);
+				VectorXYZ v10 = new VectorXYZ((x + 1) * 0.5, ((x + 1) * z) % 7 * 0.1, z * 0.5);
+				VectorXYZ v01 = new VectorXYZ(x * 0.5, (x * (z + 1)) % 7 * 0.1, (z + 1) * 0.5);
+				VectorXYZ v11 = new VectorXYZ((x + 1) * 0.5, ((x + 1) * (z + 1)) % 7 * 0.1, (z + 1) * 0.5);
+				vertexReferences.addAll(List.of(v00, v10, v11, v00, v11, v01));
+			}
+		}
+
+		for (int run = 0; run < 5; run++) {
+
+			long start = System.nanoTime();
+
+			Block<VectorXYZ> block = new VectorBlock<>();
+			for (VectorXYZ v : vertexReferences) {
+				block.toIndex(v);
+			}
+
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("%d vertices, %d references: %.3f s%n",
+					block.getElements().size(), vertexReferences.size(), seconds);
+
+		}
+
+	}
+
+}
@@ -1,5 +1,6 @@
 package org.osm2world.output.gltf;
 
+import static java.lang.Math.PI;
 import static org.junit.Assert.assertEquals;
 import static org.osm2world.output.gltf.GltfModel.readComponent;
 
@@ -9,6 +10,7 @@ import java.nio.ByteBuffer;
 import java.util.List;
 
 import org.junit.Test;
+import org.osm2world.conversion.ConversionLog;
 import org.osm2world.math.VectorXYZ;
 import org.osm2world.math.shapes.TriangleXYZ;
 import org.osm2world.scene.model.InstanceParameters;
@@ -89,6 +91,31 @@ public class GltfModelTest {
 
 	}
 
+	@Test
+	public void testMeshCache() throws IOException {
+
+		ConversionLog.clear();
+
+		var model = loadGltfTestModel("Triangle", ".gltf");
+
+		var originMeshes = model.buildMeshes(new InstanceParameters(VectorXYZ.NULL_VECTOR, 0));
+		var instanceMeshes = model.buildMeshes(new InstanceParameters(new VectorXYZ(10, 0, 5), PI / 2));
+
+		assertEquals(1, (long) ConversionLog.getCounters().get(GltfModel.MESH_CACHE_MISSES));
+		assertEquals(1, (long) ConversionLog.getCounters().get(GltfModel.MESH_CACHE_HITS));
+
+		List<VectorXYZ> originVertices = originMeshes.get(0).geometry.asTriangles().vertices();
+		List<VectorXYZ> instanceVertices = instanceMeshes.get(0).geometry.asTriangles().vertices();
+
+		for (int i = 0; i < originVertices.size(); i++) {
+			VectorXYZ expected = originVertices.get(i).rotateY(PI / 2).add(10, 0, 5);
+			assertEquals(0, expected.distanceTo(instanceVertices.get(i)), 1e-5);
+		}
+
+		ConversionLog.clear();
+
+	}
+
 	private static GltfModel loadGltfTestModel(String assetName, String extension) throws IOException {
 
 		String fileName = "gltf" + File.separator + assetName + File.separator + assetName + extension;
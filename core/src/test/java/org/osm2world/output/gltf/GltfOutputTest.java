@@ -1,19 +1,37 @@
 package org.osm2world.output.gltf;
 
+import static org.junit.Assert.*;
 import static org.osm2world.math.VectorXYZ.NULL_VECTOR;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.junit.Test;
+import org.osm2world.conversion.O2WConfig;
 import org.osm2world.map_data.creation.MapDataBuilder;
 import org.osm2world.map_data.data.MapNode;
+import org.osm2world.math.VectorXYZ;
+import org.osm2world.output.gltf.data.Gltf;
+import org.osm2world.output.gltf.data.GltfNode;
 import org.osm2world.scene.material.Materials;
 import org.osm2world.scene.mesh.ExtrusionGeometry;
 import org.osm2world.scene.mesh.Mesh;
+import org.osm2world.scene.model.InstanceParameters;
+import org.osm2world.scene.model.Model;
+import org.osm2world.scene.model.ModelInstance;
 import org.osm2world.scene.Scene;
 import org.osm2world.test.TestWorldModule;
 
+import com.google.gson.Gson;
+
 public class GltfOutputTest {
 
 	@Test
@@ -46,24 +64,201 @@ public class GltfOutputTest {
 		createTemporaryTestGltf(".glb.zip");
 	}
 
-	private static void createTemporaryTestGltf(String fileExtension) throws IOException {
+	@Test
+	public void testIndexedGlb() throws IOException {
+		createTemporaryTestGltf(".glb", new O2WConfig(Map.of("indexedGeometry", true)));
+		createTemporaryTestGltf(".glb", new O2WConfig(Map.of("indexedGeometry", true, "optimizeVertexCache", true)));
+	}
+
+	@Test
+	public void testStreamingGlb() throws IOException {
+
+		File inMemoryGlb = createTemporaryTestGltf(".glb");
+		File streamedGlb = createTemporaryTestGltf(".glb", new O2WConfig(Map.of("streamingGlb", true)));
+
+		assertArrayEquals(Files.readAllBytes(inMemoryGlb.toPath()), Files.readAllBytes(streamedGlb.toPath()));
+
+		createTemporaryTestGltf(".glb.gz", new O2WConfig(Map.of("streamingGlb", true)));
+
+	}
+
+	@Test
+	public void testModelInstancing() throws IOException {
+
+		Model model = new Model() {
+
+			@Override
+			public List<Mesh> buildMeshes(InstanceParameters params) {
+				return List.of(createTestMesh(params.position()));
+			}
+
+			@Override
+			public boolean supportsInstancing() {
+				return true;
+			}
+
+		};
+
+		List<ModelInstance> subModels = List.of(
+				new ModelInstance(model, new InstanceParameters(new VectorXYZ(10, 0, 0), 0)),
+				new ModelInstance(model, new InstanceParameters(new VectorXYZ(20, 0, 5), 0)),
+				new ModelInstance(model, new InstanceParameters(new VectorXYZ(30, 0, 10), 1.0)));
+
+		/* without instancing, there are no nodes with transformations */
+
+		Gltf gltf = readGltf(createTemporaryTestGltf(".gltf", new O2WConfig(), subModels));
+		assertTrue(gltf.nodes.stream().allMatch(n -> n.translation == null && n.extensions == null));
+
+		/* with nodes, each instance has a node referencing the same mesh */
+
+		gltf = readGltf(createTemporaryTestGltf(".gltf",
+				new O2WConfig(Map.of("modelInstancing", "nodes")), subModels));
+
+		List<GltfNode> instanceNodes = gltf.nodes.stream().filter(n -> n.translation != null).toList();
+		assertEquals(3, instanceNodes.size());
+		assertEquals(1, instanceNodes.stream().map(n -> n.mesh).distinct().count());
+		assertArrayEquals(new float[] {20, 0, -5}, instanceNodes.get(1).translation, 0);
+		assertNull(instanceNodes.get(0).rotation);
+		assertNotNull(instanceNodes.get(2).rotation);
+
+		/* with GPU instancing, there is a single node using the extension */
+
+		gltf = readGltf(createTemporaryTestGltf(".glb",
+				new O2WConfig(Map.of("modelInstancing", "gpu_instancing")), subModels));
+
+		assertEquals(List.of("EXT_mesh_gpu_instancing"), gltf.extensionsUsed);
+		instanceNodes = gltf.nodes.stream().filter(n -> n.extensions != null).toList();
+		assertEquals(1, instanceNodes.size());
+
+		/* the instances' metadata is kept as extras */
+
+		var instanceExtras = ((Map<?, ?>) instanceNodes.get(0).extras).get("instances");
+		assertEquals(3, ((List<?>) instanceExtras).size());
+
+	}
+
+	@Test
+	public void testWeldVertices() {
+
+		/* two triangles forming a quad, with identical normals */
+
+		float[] positions = {
+				0, 0, 0,   1, 0, 0,   1, 1, 0,
+				0, 0, -0.0f,   1, 1, 0,   0, 1, 0 };
+		float[] normals = {
+				0, 0, 1,   0, 0, 1,   0, 0, 1,
+				0, 0, 1,   0, 0, 1,   0, 0, 1 };
+
+		IndexedVertexData data = IndexedVertexData.weld(new int[] {3, 3}, new float[][] {positions, normals});
+
+		assertEquals(4, data.vertexCount);
+		assertEquals(6, data.indices.length);
+		assertEquals(12, data.attributes[0].length);
+		assertEquals(data.indices[0], data.indices[3]);
+		assertEquals(data.indices[2], data.indices[4]);
+
+		/* vertices with different normals must not be merged */
+
+		normals[11] = -1;
+
+		assertEquals(5, IndexedVertexData.weld(new int[] {3, 3}, new float[][] {positions, normals}).vertexCount);
+
+	}
+
+	@Test
+	public void testOptimizeVertexCache() {
+
+		/* a strip of 20 quads */
+
+		int quads = 20;
+		float[] positions = new float[quads * 6 * 3];
+
+		for (int q = 0, i = 0; q < quads; q++) {
+			float[][] corners = {{q, 0}, {q + 1, 0}, {q + 1, 1}, {q, 0}, {q + 1, 1}, {q, 1}};
+			for (float[] c : corners) {
+				positions[i++] = c[0];
+				positions[i++] = c[1];
+				positions[i++] = 0;
+			}
+		}
+
+		IndexedVertexData data = IndexedVertexData.weld(new int[] {3}, new float[][] {positions});
+		IndexedVertexData optimized = data.optimizedForVertexCache();
+
+		assertEquals(data.vertexCount, optimized.vertexCount);
+		assertEquals(triangleSet(data), triangleSet(optimized));
+
+	}
+
+	/** returns the triangles' positions as strings, to compare data sets with different indices */
+	private static Set<String> triangleSet(IndexedVertexData data) {
+		Set<String> result = new HashSet<>();
+		for (int t = 0; t < data.indices.length; t += 3) {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 3; i++) {
+				int index = data.indices[t + i];
+				sb.append(data.attributes[0][3 * index]).append(",").append(data.attributes[0][3 * index + 1]).append(";");
+			}
+			result.add(sb.toString());
+		}
+		return result;
+	}
+
+	private static File createTemporaryTestGltf(String fileExtension) throws IOException {
+		return createTemporaryTestGltf(fileExtension, new O2WConfig());
+	}
+
+	private static File createTemporaryTestGltf(String fileExtension, O2WConfig config) throws IOException {
+		return createTemporaryTestGltf(fileExtension, config, List.of());
+	}
+
+	private static File createTemporaryTestGltf(String fileExtension, O2WConfig config,
+			List<ModelInstance> subModels) throws IOException {
 
 		File tempFile = File.createTempFile("osm2world-test-", fileExtension);
 		tempFile.deleteOnExit();
 
-		var mesh = new Mesh(ExtrusionGeometry.createColumn(
-				null, NULL_VECTOR, 10, 2, 0, true, false, null,
-						Materials.STEEL.getTextureDimensions()), Materials.STEEL);
-
 		MapDataBuilder dataBuilder = new MapDataBuilder();
 		MapNode node = dataBuilder.createNode(0, 0);
-		node.addRepresentation(new TestWorldModule.TestNodeWorldObject(node, mesh));
+		node.addRepresentation(new TestWorldModule.TestNodeWorldObject(node, createTestMesh(NULL_VECTOR)) {
+			@Override
+			public List<ModelInstance> getSubModels() {
+				return subModels;
+			}
+		});
 
 		Scene scene = new Scene(null, dataBuilder.build());
 
 		var target = new GltfOutput(tempFile);
+		target.setConfiguration(config);
 		target.outputScene(scene);
 
+		return tempFile;
+
+	}
+
+	private static Mesh createTestMesh(VectorXYZ base) {
+		return new Mesh(ExtrusionGeometry.createColumn(
+				null, base, 10, 2, 0, true, false, null,
+						Materials.STEEL.getTextureDimensions()), Materials.STEEL);
+	}
+
+	/** reads the JSON of a glTF or glb file */
+	private static Gltf readGltf(File file) throws IOException {
+
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		String json;
+
+		if (file.getName().endsWith(".glb")) {
+			ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+			int jsonChunkLength = buffer.getInt(12);
+			json = new String(bytes, 20, jsonChunkLength, StandardCharsets.UTF_8);
+		} else {
+			json = new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		return new Gson().fromJson(json, Gltf.class);
+
 	}
 
 }
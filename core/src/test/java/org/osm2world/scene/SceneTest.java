@@ -0,0 +1,73 @@
+package org.osm2world.scene;
+
+import static org.junit.Assert.*;
+import static org.osm2world.scene.mesh.LevelOfDetail.LOD1;
+import static org.osm2world.scene.mesh.LevelOfDetail.LOD3;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.osm2world.conversion.O2WConfig;
+import org.osm2world.map_data.creation.MapDataBuilder;
+import org.osm2world.map_data.data.MapNode;
+import org.osm2world.scene.mesh.Mesh;
+import org.osm2world.scene.mesh.MeshStore;
+import org.osm2world.scene.mesh.MeshStore.ConvertToTriangles;
+import org.osm2world.scene.mesh.MeshStore.FilterLod;
+import org.osm2world.scene.mesh.MeshStore.MeshProcessingStep;
+import org.osm2world.test.TestWorldModule.TestNodeWorldObject;
+
+public class SceneTest {
+
+	@Test
+	public void testGetMeshesCached() {
+
+		MapDataBuilder dataBuilder = new MapDataBuilder();
+		MapNode node = dataBuilder.createNode(0, 0);
+
+		int[] buildCount = {0};
+
+		var worldObject = new TestNodeWorldObject(node) {
+			@Override
+			public List<Mesh> buildMeshes() {
+				buildCount[0]++;
+				return super.buildMeshes();
+			}
+		};
+		node.addRepresentation(worldObject);
+
+		Scene scene = new Scene(null, dataBuilder.build());
+
+		List<Mesh> meshes = scene.getMeshes(worldObject);
+		assertEquals(1, meshes.size());
+		assertSame(meshes, scene.getMeshes(worldObject));
+		assertEquals(1, scene.getMeshes().size());
+		assertEquals(1, buildCount[0]);
+
+	}
+
+	@Test
+	public void testGetProcessedMeshesCached() {
+
+		MapDataBuilder dataBuilder = new MapDataBuilder();
+		MapNode node = dataBuilder.createNode(0, 0);
+		node.addRepresentation(new TestNodeWorldObject(node));
+
+		Scene scene = new Scene(null, dataBuilder.build());
+		O2WConfig config = new O2WConfig();
+
+		List<MeshProcessingStep> stepsLod3 = List.of(new FilterLod(LOD3), new ConvertToTriangles(LOD3));
+		List<MeshProcessingStep> stepsLod1 = List.of(new FilterLod(LOD1), new ConvertToTriangles(LOD1));
+
+		MeshStore result = scene.getProcessedMeshes(false, stepsLod3, config);
+		assertEquals(1, result.meshes().size());
+
+		assertSame(result, scene.getProcessedMeshes(false,
+				List.of(new FilterLod(LOD3), new ConvertToTriangles(LOD3)), config));
+		assertNotSame(result, scene.getProcessedMeshes(false, stepsLod1, config));
+		assertNotSame(result, scene.getProcessedMeshes(true, stepsLod3, config));
+		assertNotSame(result, scene.getProcessedMeshes(false, stepsLod3, config.withProperty("threadCount", 2)));
+
+	}
+
+}
@@ -0,0 +1,90 @@
+package org.osm2world.scene.mesh;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.osm2world.conversion.ConversionLog;
+import org.osm2world.math.shapes.AxisAlignedRectangleXZ;
+import org.osm2world.scene.mesh.MeshStore.*;
+import org.osm2world.test.BenchmarkUtil;
+
+/**
+ * measures the processing of a large number of meshes by {@link MeshStore}.
+ * See {@link BenchmarkUtil} for how to run it.
+ */
+public class MeshStoreBenchmark {
+
+	public static void main(String[] args) {
+		// clipping the buildings which touch the bounds logs errors for degenerate triangles
+		ConversionLog.setConsoleLogLevels(EnumSet.noneOf(ConversionLog.LogLevel.class));
+		benchmarkFusedProcessing();
+		benchmarkClipToBounds();
+	}
+
+	/**
+	 * compares the runtime of {@link MeshStore#process(List)} and {@link MeshStore#process(List, ForkJoinPool)}
+	 */
+	private static void benchmarkFusedProcessing() {
+
+		MeshStore meshStore = MeshStoreTest.createCity(300);
+
+		List<MeshProcessingStep> steps = List.of(
+				new FilterLod(LevelOfDetail.LOD3),
+				new ClipToBounds(new AxisAlignedRectangleXZ(-500, -500, 1000, 1000), true),
+				new ConvertToTriangles(LevelOfDetail.LOD3),
+				new EmulateTextureLayers(),
+				new MoveColorsToVertices(),
+				new MergeMeshes(EnumSet.noneOf(MergeMeshes.MergeOption.class)));
+
+		var pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+		try {
+			for (int run = 0; run < 3; run++) {
+
+				long start = System.nanoTime();
+				meshStore.process(steps);
+				long stepwiseTime = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				meshStore.process(steps, (ForkJoinPool) null);
+				long fusedTime = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				meshStore.process(steps, pool);
+				long fusedParallelTime = System.nanoTime() - start;
+
+				System.out.printf("stepwise: %d ms, fused: %d ms, fused with %d threads: %d ms%n",
+						stepwiseTime / 1_000_000, fusedTime / 1_000_000,
+						pool.getParallelism(), fusedParallelTime / 1_000_000);
+
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+	}
+
+	/**
+	 * measures the throughput of {@link ClipToBounds} for a large number of meshes,
+	 * most of which are not close to the bounds
+	 */
+	private static void benchmarkClipToBounds() {
+
+		MeshStore meshStore = MeshStoreTest.createCity(300);
+		var step = new ClipToBounds(new AxisAlignedRectangleXZ(10.5, 10.5, 1000.5, 1000.5), true);
+
+		long triangleCount = meshStore.meshes().stream()
+				.mapToLong(m -> m.geometry.asTriangles().triangles.size()).sum();
+
+		for (int run = 0; run < 5; run++) {
+			long start = System.nanoTime();
+			step.apply(meshStore);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("%d triangles in %.3f s: %.0f triangles/s%n",
+					triangleCount, seconds, triangleCount / seconds);
+		}
+
+	}
+
+}
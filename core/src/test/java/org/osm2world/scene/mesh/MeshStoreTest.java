@@ -1,16 +1,26 @@
 package org.osm2world.scene.mesh;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 import static org.osm2world.scene.mesh.MeshStore.ClipToBounds.clipToBounds;
 import static org.osm2world.scene.mesh.MeshStore.ClipToBounds.getSegmentsCCW;
 import static org.osm2world.test.TestUtil.assertAlmostEquals;
 
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import org.junit.Test;
 import org.osm2world.math.VectorXYZ;
 import org.osm2world.math.VectorXZ;
 import org.osm2world.math.shapes.AxisAlignedRectangleXZ;
+import org.osm2world.math.shapes.SimplePolygonXZ;
 import org.osm2world.math.shapes.TriangleXYZ;
 import org.osm2world.math.shapes.TriangleXZ;
+import org.osm2world.scene.material.ImmutableMaterial;
+import org.osm2world.scene.material.Material;
+import org.osm2world.scene.mesh.MeshStore.*;
 
 public class MeshStoreTest {
 
@@ -34,4 +44,176 @@ public class MeshStoreTest {
 
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void testClipToBoundsCulling() {
+
+		var bounds = new AxisAlignedRectangleXZ(0, 0, 100, 100);
+
+		var inside = new TriangleXYZ(new VectorXYZ(10, 0, 10), new VectorXYZ(20, 0, 10), new VectorXYZ(10, 0, 20));
+		var outside = new TriangleXYZ(new VectorXYZ(110, 0, 10), new VectorXYZ(120, 0, 10), new VectorXYZ(110, 0, 20));
+		var crossing = new TriangleXYZ(new VectorXYZ(90, 0, 10), new VectorXYZ(110, 0, 10), new VectorXYZ(90, 0, 30));
+
+		/* entire meshes inside or outside */
+
+		var step = new ClipToBounds(bounds, true);
+
+		MeshWithMetadata insideMesh = meshWithTriangles(List.of(inside));
+		assertEquals(List.of(insideMesh), step.applyToMesh(insideMesh));
+		assertEquals(List.of(), step.applyToMesh(meshWithTriangles(List.of(outside))));
+
+		/* a mesh with triangles in each category */
+
+		List<MeshWithMetadata> result = step.applyToMesh(meshWithTriangles(List.of(inside, outside, crossing)));
+
+		assertEquals(1, result.size());
+		List<TriangleXYZ> resultTriangles = result.get(0).mesh().geometry.asTriangles().triangles;
+		assertEquals(inside.verticesNoDup(), resultTriangles.get(0).verticesNoDup());
+		assertAlmostEquals(inside.getArea() + 0.75 * crossing.getArea(),
+				resultTriangles.stream().mapToDouble(TriangleXYZ::getArea).sum());
+
+	}
+
+	@Test
+	public void testClipToBoundsInnerBox() {
+
+		var rotatedSquare = new SimplePolygonXZ(List.of(new VectorXZ(0, 0.1), new VectorXZ(10, 0),
+				new VectorXZ(10.1, 10), new VectorXZ(0.1, 10.1), new VectorXZ(0, 0.1)));
+
+		AxisAlignedRectangleXZ innerBox = ClipToBounds.innerBox(rotatedSquare);
+		assertNotNull(innerBox);
+		assertTrue(innerBox.sizeX() > 9.5 && innerBox.sizeZ() > 9.5);
+		assertTrue(innerBox.vertices().stream().allMatch(rotatedSquare::contains));
+		assertTrue(innerBox.vertices().stream().allMatch(v -> rotatedSquare.distanceToSegments(v) >= 1e-2));
+
+		var diamond = new SimplePolygonXZ(List.of(new VectorXZ(0, 1), new VectorXZ(1, 0),
+				new VectorXZ(2, 1), new VectorXZ(1, 2), new VectorXZ(0, 1)));
+
+		assertNull(ClipToBounds.innerBox(diamond));
+
+	}
+
+	@Test
+	public void testMergeMeshes() {
+
+		Color[] colors = {Color.RED, Color.BLUE, Color.RED, Color.GREEN, Color.BLUE};
+
+		List<Mesh> meshes = new ArrayList<>();
+		for (int i = 0; i < colors.length; i++) {
+			var builder = new TriangleGeometry.Builder(0, null, Material.Interpolation.FLAT);
+			builder.addTriangleStrip(List.of(new VectorXYZ(i, 0, 0), new VectorXYZ(i + 1, 0, 0), new VectorXYZ(i, 0, 1)));
+			meshes.add(new Mesh(builder.build(), new ImmutableMaterial(Material.Interpolation.FLAT, colors[i])));
+		}
+
+		MeshStore meshStore = new MeshStore(meshes, null);
+
+		/* single color meshes, ordered by first occurrence of each color */
+
+		var singleColorStep = new MergeMeshes(EnumSet.of(MergeMeshes.MergeOption.SINGLE_COLOR_MESHES));
+		List<Mesh> result = singleColorStep.apply(meshStore).meshes();
+
+		assertEquals(3, result.size());
+		assertEquals(Color.RED, result.get(0).material.getColor());
+		assertEquals(Color.BLUE, result.get(1).material.getColor());
+		assertEquals(Color.GREEN, result.get(2).material.getColor());
+		assertEquals(2, result.get(0).geometry.asTriangles().triangles.size());
+		assertEquals(2, result.get(1).geometry.asTriangles().triangles.size());
+		assertEquals(1, result.get(2).geometry.asTriangles().triangles.size());
+		assertEquals(new VectorXYZ(2, 0, 0), result.get(0).geometry.asTriangles().triangles.get(1).v1);
+
+		/* a single mesh if colors are ignored */
+
+		var mergeAllStep = new MergeMeshes(EnumSet.noneOf(MergeMeshes.MergeOption.class));
+		assertEquals(1, mergeAllStep.apply(meshStore).size());
+
+	}
+
+	@Test
+	public void testFusedProcessing() {
+
+		MeshStore meshStore = createCity(20);
+
+		List<MeshProcessingStep> steps = List.of(
+				new FilterLod(LevelOfDetail.LOD3),
+				new ConvertToTriangles(LevelOfDetail.LOD3),
+				new ClipToBounds(new AxisAlignedRectangleXZ(-5.5, -5.5, 50.5, 50.5), true),
+				new MergeMeshes(EnumSet.of(MergeMeshes.MergeOption.SINGLE_COLOR_MESHES)),
+				new MoveColorsToVertices());
+
+		MeshStore expected = meshStore.process(steps);
+
+		var pool = new ForkJoinPool(3);
+
+		try {
+			for (ForkJoinPool p : new ForkJoinPool[] {null, pool}) {
+
+				MeshStore actual = meshStore.process(steps, p);
+
+				assertEquals(expected.size(), actual.size());
+
+				for (int i = 0; i < expected.size(); i++) {
+					Mesh expectedMesh = expected.meshes().get(i);
+					Mesh actualMesh = actual.meshes().get(i);
+					assertEquals(expectedMesh.material, actualMesh.material);
+					assertEquals(expectedMesh.geometry.asTriangles().vertices(),
+							actualMesh.geometry.asTriangles().vertices());
+					assertEquals(expectedMesh.geometry.asTriangles().colors,
+							actualMesh.geometry.asTriangles().colors);
+				}
+
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+	}
+
+	/** creates a grid of box-shaped buildings in a few different colors, each with its own wall and roof mesh */
+	static MeshStore createCity(int size) {
+
+		Color[] colors = {Color.WHITE, Color.RED, Color.GRAY, Color.ORANGE};
+
+		List<Mesh> meshes = new ArrayList<>();
+
+		for (int x = 0; x < size; x++) {
+			for (int z = 0; z < size; z++) {
+
+				Material wallMaterial = new ImmutableMaterial(Material.Interpolation.FLAT, colors[(x + z) % colors.length]);
+				Material roofMaterial = new ImmutableMaterial(Material.Interpolation.FLAT, colors[x % colors.length]);
+
+				double height = 3 + (x * 7 + z * 3) % 10;
+
+				VectorXYZ[] corners = {
+						new VectorXYZ(x * 5, 0, z * 5),
+						new VectorXYZ(x * 5 + 3, 0, z * 5),
+						new VectorXYZ(x * 5 + 3, 0, z * 5 + 3),
+						new VectorXYZ(x * 5, 0, z * 5 + 3)};
+
+				var wallBuilder = new TriangleGeometry.Builder(0, null, Material.Interpolation.FLAT);
+				List<VectorXYZ> wallStrip = new ArrayList<>();
+				for (int i = 0; i <= 4; i++) {
+					wallStrip.add(corners[i % 4]);
+					wallStrip.add(corners[i % 4].addY(height));
+				}
+				wallBuilder.addTriangleStrip(wallStrip);
+				meshes.add(new Mesh(wallBuilder.build(), wallMaterial));
+
+				var roofBuilder = new TriangleGeometry.Builder(0, null, Material.Interpolation.FLAT);
+				roofBuilder.addTriangleStrip(List.of(corners[0].addY(height), corners[3].addY(height),
+						corners[1].addY(height), corners[2].addY(height)));
+				meshes.add(new Mesh(roofBuilder.build(), roofMaterial));
+
+			}
+		}
+
+		return new MeshStore(meshes, null);
+
+	}
+
+	private static MeshWithMetadata meshWithTriangles(List<TriangleXYZ> triangles) {
+		var builder = new TriangleGeometry.Builder(0, null, Material.Interpolation.FLAT);
+		builder.addTriangles(triangles);
+		Mesh mesh = new Mesh(builder.build(), new ImmutableMaterial(Material.Interpolation.FLAT, Color.WHITE));
+		return new MeshWithMetadata(mesh, new MeshMetadata(null, null));
+	}
+
+}
@@ -0,0 +1,56 @@
+package org.osm2world.scene.mesh;
+
+import static org.osm2world.test.BenchmarkUtil.usedMemory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.osm2world.math.VectorXYZ;
+import org.osm2world.math.VectorXZ;
+import org.osm2world.math.shapes.TriangleXYZ;
+import org.osm2world.test.BenchmarkUtil;
+
+/**
+ * prints the memory used by the vertex data of a large number of triangles,
+ * both as lists of vector objects and packed into a {@link TriangleGeometry}.
+ * See {@link BenchmarkUtil} for how to run it.
+ */
+public class TriangleGeometryBenchmark {
+
+	public static void main(String[] args) {
+
+		int triangleCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+		long baseline = usedMemory();
+		List<TriangleXYZ> triangles = new ArrayList<>(triangleCount);
+		List<VectorXYZ> normals = new ArrayList<>(3 * triangleCount);
+		List<VectorXZ> texCoords = new ArrayList<>(3 * triangleCount);
+		for (int i = 0; i < triangleCount; i++) {
+			var t = new TriangleXYZ(new VectorXYZ(i, 0, 0), new VectorXYZ(i + 1, 0, 0), new VectorXYZ(i, 1, 0.5));
+			triangles.add(t);
+			for (VectorXYZ v : t.verticesNoDup()) {
+				normals.add(t.getNormal());
+				texCoords.add(new VectorXZ(v.x, v.y));
+			}
+		}
+		long objectBytes = usedMemory() - baseline;
+		System.out.printf("object lists: %.1f bytes per vertex%n", objectBytes / (3.0 * triangleCount));
+
+		baseline = usedMemory();
+		var builder = new TriangleGeometry.Builder(1, null, null);
+		builder.addTriangles(triangles, List.of(texCoords), null, normals);
+		triangles = null;
+		normals = null;
+		texCoords = null;
+		TriangleGeometry geometry = builder.build();
+		builder = null;
+		long packedBytes = usedMemory() - baseline + objectBytes;
+		System.out.printf("TriangleGeometry: %.1f bytes per vertex%n", packedBytes / (3.0 * triangleCount));
+
+		if (geometry.vertexCount() != 3 * triangleCount) {
+			throw new AssertionError("unexpected vertex count: " + geometry.vertexCount());
+		}
+
+	}
+
+}
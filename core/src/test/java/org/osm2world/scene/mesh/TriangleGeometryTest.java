@@ -6,11 +6,11 @@ import static java.lang.Math.PI;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.nCopies;
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 import static org.osm2world.scene.mesh.MeshTestUtil.containsTriangle;
 import static org.osm2world.test.TestUtil.assertSameCyclicOrder;
 
+import java.awt.*;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -18,6 +18,7 @@ import java.util.Map;
 import org.junit.Test;
 import org.osm2world.math.Angle;
 import org.osm2world.math.VectorXYZ;
+import org.osm2world.math.VectorXZ;
 import org.osm2world.math.shapes.TriangleXYZ;
 import org.osm2world.scene.material.Material.Interpolation;
 
@@ -94,4 +95,53 @@ public class TriangleGeometryTest {
 
 	}
 
+	@Test
+	public void testCachedArrays() {
+
+		TriangleGeometry.Builder builder = new TriangleGeometry.Builder(0, null, Interpolation.FLAT);
+		builder.addTriangles(new TriangleXYZ(
+				new VectorXYZ(0, 0, 0), new VectorXYZ(1, 0, 0), new VectorXYZ(0, 2, 0)));
+		TriangleGeometry geometry = builder.build();
+
+		assertSame(geometry.normalData.normals(), geometry.normalData.normals());
+
+		assertArrayEquals(new float[] {0, 0, 0, 1, 0, 0, 0, 2, 0}, geometry.vertexArray(), 0);
+		assertArrayEquals(new float[] {0, 0, -1, 0, 0, -1, 0, 0, -1}, geometry.normalArray(), 1e-6f);
+		assertSame(geometry.vertexArray(), geometry.vertexArray());
+		assertSame(geometry.normalArray(), geometry.normalArray());
+
+	}
+
+	@Test
+	public void testPackedData() {
+
+		List<TriangleXYZ> triangles = List.of(
+				new TriangleXYZ(new VectorXYZ(0, 0, 0), new VectorXYZ(1, 0, 0), new VectorXYZ(0, 2, 0)),
+				new TriangleXYZ(new VectorXYZ(5, 0, 0), new VectorXYZ(6, 0.5, 0), new VectorXYZ(5, 2, 1)));
+		List<VectorXZ> texCoords = List.of(new VectorXZ(0, 0), new VectorXZ(1, 0), new VectorXZ(0, 1),
+				new VectorXZ(0.25, 0), new VectorXZ(1, 0.5), new VectorXZ(0, 1));
+		List<Color> colors = asList(RED, null, YELLOW, new Color(1, 2, 3, 4), RED, null);
+
+		var geometry = new TriangleGeometry(triangles, Interpolation.SMOOTH, List.of(texCoords), colors);
+
+		assertEquals(triangles.size(), geometry.triangles.size());
+		for (int i = 0; i < triangles.size(); i++) {
+			assertEquals(triangles.get(i).verticesNoDup(), geometry.triangles.get(i).verticesNoDup());
+		}
+
+		assertEquals(6, geometry.vertexCount());
+		for (int i = 0; i < geometry.vertexCount(); i++) {
+			VectorXYZ v = geometry.vertices().get(i);
+			assertEquals(v, new VectorXYZ(geometry.vertexX(i), geometry.vertexY(i), geometry.vertexZ(i)));
+		}
+
+		assertEquals(texCoords, geometry.texCoords.get(0));
+		assertEquals(colors, geometry.colors);
+		assertEquals(4, geometry.colors.get(3).getAlpha());
+
+		var uniformColorGeometry = new TriangleGeometry(triangles, Interpolation.FLAT, List.of(), nCopies(6, RED));
+		assertEquals(nCopies(6, RED), uniformColorGeometry.colors);
+
+	}
+
 }
@@ -0,0 +1,33 @@
+package org.osm2world.test;
+
+/**
+ * helpers for the benchmarks in the test sources.
+ *
+ * Benchmarks are classes named *Benchmark with a main method. Unlike tests, they are not run by the build,
+ * because they take a while and only print their measurements. To run one after compiling the tests, use e.g.
+ * <pre>mvn -pl core test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=[benchmark class]</pre>
+ */
+public final class BenchmarkUtil {
+
+	private BenchmarkUtil() {}
+
+	/** runs an action and returns the elapsed wall clock time in milliseconds */
+	public static long timeMillis(Runnable action) {
+		long start = System.nanoTime();
+		action.run();
+		return (System.nanoTime() - start) / 1_000_000;
+	}
+
+	/**
+	 * returns the currently used heap memory in bytes, after requesting garbage collection.
+	 * Differences between calls are only approximate, as the JVM does not guarantee a full collection.
+	 */
+	public static long usedMemory() {
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+		}
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
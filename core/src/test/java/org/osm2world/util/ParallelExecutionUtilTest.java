@@ -0,0 +1,131 @@
+package org.osm2world.util;
+
+import static org.junit.Assert.*;
+
+import java.awt.*;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.osm2world.conversion.ConversionContext;
+import org.osm2world.conversion.ConversionLog;
+import org.osm2world.conversion.O2WConfig;
+import org.osm2world.scene.material.Materials;
+
+public class ParallelExecutionUtilTest {
+
+	@Test
+	public void testMapPreservesOrder() {
+
+		List<Integer> input = IntStream.range(0, 1000).boxed().toList();
+
+		ForkJoinPool pool = ParallelExecutionUtil.createPool(4);
+
+		try {
+			List<Integer> result = ParallelExecutionUtil.map(pool, input, i -> 2 * i);
+			assertEquals(IntStream.range(0, 1000).map(i -> 2 * i).boxed().toList(), result);
+		} finally {
+			pool.shutdown();
+		}
+
+	}
+
+	@Test
+	public void testContextOnWorkerThreads() {
+
+		var context = ConversionContext.forConfig(new O2WConfig(Map.of("material_BRICK_color", "#ff0000")));
+
+		List<Integer> input = IntStream.range(0, 100).boxed().toList();
+
+		ForkJoinPool pool = ParallelExecutionUtil.createPool(4);
+
+		try {
+			List<Color> colors = context.callWith(() ->
+					ParallelExecutionUtil.map(pool, input, i -> Materials.BRICK.getColor()));
+			assertTrue(colors.stream().allMatch(Color.RED::equals));
+			/* the workers must not keep the context after the call */
+			colors = ParallelExecutionUtil.map(pool, input, i -> Materials.BRICK.getColor());
+			assertTrue(colors.stream().noneMatch(Color.RED::equals));
+		} finally {
+			pool.shutdown();
+		}
+
+	}
+
+	@Test
+	public void testLogEntriesInOrder() {
+
+		ConversionLog.clear();
+		ConversionLog.setConsoleLogLevels(EnumSet.noneOf(ConversionLog.LogLevel.class));
+
+		List<Integer> input = IntStream.range(0, 100).boxed().toList();
+
+		ForkJoinPool pool = ParallelExecutionUtil.createPool(4);
+
+		try {
+			ParallelExecutionUtil.forEach(pool, input, i -> ConversionLog.warn(Integer.toString(i)));
+		} finally {
+			pool.shutdown();
+		}
+
+		List<ConversionLog.Entry> log = ConversionLog.getLog();
+		assertEquals(100, log.size());
+		for (int i = 0; i < 100; i++) {
+			assertEquals(Integer.toString(i), log.get(i).message());
+		}
+
+		ConversionLog.clear();
+
+	}
+
+	@Test
+	public void testCountersAreMerged() {
+
+		ConversionLog.clear();
+
+		List<Integer> input = IntStream.range(0, 100).boxed().toList();
+
+		ForkJoinPool pool = ParallelExecutionUtil.createPool(4);
+
+		try {
+			ParallelExecutionUtil.forEach(pool, input, i -> ConversionLog.count("test", i));
+		} finally {
+			pool.shutdown();
+		}
+
+		assertEquals(4950, (long) ConversionLog.getCounters().get("test"));
+
+		ConversionLog.clear();
+
+	}
+
+	@Test
+	public void testFirstExceptionIsRethrown() {
+
+		List<Integer> input = IntStream.range(0, 100).boxed().toList();
+
+		ForkJoinPool pool = ParallelExecutionUtil.createPool(4);
+
+		try {
+			ParallelExecutionUtil.forEach(pool, input, i -> {
+				if (i == 42 || i == 99) throw new IllegalArgumentException(Integer.toString(i));
+			});
+			fail("expected exception");
+		} catch (IllegalArgumentException e) {
+			assertEquals("42", e.getMessage());
+		} finally {
+			pool.shutdown();
+		}
+
+	}
+
+	@Test
+	public void testNoPool() {
+		assertNull(ParallelExecutionUtil.createPool(1));
+		assertEquals(List.of(1, 2, 3), ParallelExecutionUtil.map(null, List.of(0, 1, 2), i -> i + 1));
+	}
+
+}
@@ -138,4 +138,11 @@ public interface CLIArguments {
 	File getParameterFileDir();
 	boolean isParameterFileDir();
 
+	@Option(description="with parameterFileDir: keep waiting for new files instead of exiting once the directory is empty")
+	boolean getWatch();
+
+	@Option(description="with parameterFileDir: maximum run time in seconds for each parameter file",
+			defaultToNull=true)
+	@Nullable Integer getJobTimeout();
+
 }
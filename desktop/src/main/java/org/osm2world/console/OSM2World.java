@@ -8,9 +8,11 @@ import static org.osm2world.GlobalValues.VERSION_STRING;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.*;
 import java.util.stream.Stream;
 
+import javax.annotation.Nullable;
 import javax.swing.*;
 
 import org.osm2world.console.CLIArgumentsUtil.ProgramMode;
@@ -62,10 +64,42 @@ public class OSM2World {
 		/* check for parameter file directory mode */
 
 		if (args.isParameterFileDir()) {
-			ParamFileDirMode.run(args.getParameterFileDir());
+			Duration jobTimeout = args.getJobTimeout() == null ? null : Duration.ofSeconds(args.getJobTimeout());
+			ParamFileDirMode.run(args.getParameterFileDir(), args.getWatch(), jobTimeout,
+					args.isLogDir() ? args.getLogDir() : null);
 			return;
 		}
 
+		try {
+			execute(args, OSM2World::loadConfig);
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+
+	}
+
+	/**
+	 * loads the configuration for a conversion.
+	 * Implementations may return previously loaded configurations, see {@link ParamFileDirMode}.
+	 */
+	@FunctionalInterface
+	interface ConfigLoader {
+		O2WConfig load(List<File> configFiles, @Nullable LevelOfDetail lod) throws Exception;
+	}
+
+	static O2WConfig loadConfig(List<File> configFiles, @Nullable LevelOfDetail lod) throws Exception {
+		Map<String, ?> extraProperties = lod == null ? Map.of() : Map.of("lod", lod.ordinal());
+		return new O2WConfig(extraProperties, configFiles.toArray(new File[0]));
+	}
+
+	/**
+	 * executes the conversions defined by a set of arguments, which may reference a parameter file
+	 *
+	 * @throws IOException  if the parameter file cannot be read
+	 */
+	static void execute(CLIArguments args, ConfigLoader configLoader) throws IOException {
+
 		/* parse lines from parameter file (if one exists) */
 
 		List<CLIArguments> argumentsList = Collections.singletonList(args);
@@ -74,27 +108,20 @@ public class OSM2World {
 
 			argumentsList = new ArrayList<CLIArguments>();
 
-			try {
-
-				List<String[]> unparsedArgsLines = CLIArgumentsUtil
-					.getUnparsedParameterGroups(args.getParameterFile());
+			List<String[]> unparsedArgsLines = CLIArgumentsUtil
+				.getUnparsedParameterGroups(args.getParameterFile());
 
-				for (String[] unparsedArgsLine : unparsedArgsLines) {
-
-					try {
-						argumentsList.add(parseArguments(unparsedArgsLine));
-					} catch (Exception e) {
-						System.err.println("Could not parse parameters from file:");
-						System.err.println(Arrays.toString(unparsedArgsLine));
-						System.err.println("Ignoring it. Reason:");
-						System.err.println(e.getMessage());
-					}
+			for (String[] unparsedArgsLine : unparsedArgsLines) {
 
+				try {
+					argumentsList.add(parseArguments(unparsedArgsLine));
+				} catch (Exception e) {
+					System.err.println("Could not parse parameters from file:");
+					System.err.println(Arrays.toString(unparsedArgsLine));
+					System.err.println("Ignoring it. Reason:");
+					System.err.println(e.getMessage());
 				}
 
-			} catch (IOException e) {
-				System.err.println(e.getMessage());
-				System.exit(1);
 			}
 
 		}
@@ -140,7 +167,7 @@ public class OSM2World {
 				System.out.print("\n");
 			}
 
-			executeArgumentsGroup(argumentsGroup);
+			executeArgumentsGroup(argumentsGroup, configLoader);
 
 		}
 
@@ -158,7 +185,7 @@ public class OSM2World {
 
 	}
 
-	private static void executeArgumentsGroup(CLIArgumentsGroup argumentsGroup) {
+	private static void executeArgumentsGroup(CLIArgumentsGroup argumentsGroup, ConfigLoader configLoader) {
 
 		CLIArguments representativeArgs = argumentsGroup.getRepresentative();
 
@@ -169,9 +196,7 @@ public class OSM2World {
 		O2WConfig config = new O2WConfig();
 
 		try {
-			File[] configFiles = representativeArgs.getConfig().toArray(new File[0]);
-			Map<String, ?> extraProperties = lod == null ? Map.of() : Map.of("lod", lod.ordinal());
-			config = new O2WConfig(extraProperties, configFiles);
+			config = configLoader.load(representativeArgs.getConfig(), lod);
 		} catch (Exception e) {
 			System.err.println("could not read config, ignoring it:\n" + e);
 		}
@@ -9,7 +9,10 @@ import static org.osm2world.math.shapes.AxisAlignedRectangleXZ.bbox;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.List;
 
 import org.imintel.mbtiles4j.MBTilesReadException;
 import org.osm2world.O2WConverter;
@@ -77,163 +80,202 @@ final class Output {
 
 		converter.setConfig(config);
 
-		/* create the scene */
+		/* create the scene and write it to the outputs, except for images */
 
 		OSMDataReaderView osmReaderView = CLIArgumentsUtil.getOsmDataView(sharedArgs);
 
-		Scene scene = converter.convert(osmReaderView, null, null);
+		O2WConfig outputConfig = config;
+		Scene scene;
 
-		/* iterate over the sets of arguments for different outputs */
+		try {
+			scene = converter.convert(osmReaderView, null, null, s -> createOutputs(s, outputConfig, argumentsGroup));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		/* render the images, which share one ImageExporter */
 
 		ImageExporter exporter = null;
 
 		for (CLIArguments args : argumentsGroup.getCLIArgumentsList()) {
 
-			/* set camera and projection */
+			for (File outputFile : args.getOutput()) {
 
-			MutableCamera camera;
-			Projection projection;
+				OutputMode outputMode = CLIArgumentsUtil.getOutputMode(outputFile);
 
-			if (args.isPviewPos()) {
+				if (!isImageOutputMode(outputMode)) continue;
 
-				/* perspective projection */
+				outputFile.getAbsoluteFile().getParentFile().mkdirs();
 
-				MapProjection proj = scene.getMapProjection();
+				View view = viewFor(args, scene);
 
-				LatLonEle pos = args.getPviewPos();
-				LatLonEle lookAt = args.getPviewLookat();
+				if (exporter == null) {
+					PerformanceParams performanceParams = determinePerformanceParams(config, argumentsGroup);
+					exporter = ImageExporter.create(config, scene.getBoundary(),
+							output -> output.outputScene(scene),
+							performanceParams.resolution(), performanceParams.unbufferedRendering());
+				}
 
-				camera = new MutableCamera();
-				VectorXYZ posXYZ = proj.toXZ(pos.lat, pos.lon).xyz(pos.ele);
-				VectorXYZ lookAtXYZ = proj.toXZ(lookAt.lat, lookAt.lon).xyz(lookAt.ele);
-				camera.setCamera(posXYZ, lookAtXYZ);
+				Resolution resolution = CLIArgumentsUtil.getResolution(args);
+				ImageOutputFormat imageFormat = switch (outputMode) {
+					case PNG -> ImageOutputFormat.PNG;
+					case PPM -> ImageOutputFormat.PPM;
+					case GD -> ImageOutputFormat.GD;
+					default -> throw new IllegalStateException("Not an image format: " + outputMode);
+				};
+				exporter.writeImageFile(outputFile, imageFormat,
+						resolution.width, resolution.height,
+						view.camera(), view.projection());
 
-				projection = new PerspectiveProjection(
-						args.isPviewAspect() ? args.getPviewAspect() :
-								args.isResolution() ? (double) args.getResolution().getAspectRatio()
-										: CLIArgumentsUtil.DEFAULT_ASPECT_RATIO,
-						args.getPviewFovy(),
-						1, 50000);
+			}
 
-			} else {
+		}
 
-				/* orthographic projection */
+		if (exporter != null) {
+			exporter.freeResources();
+			exporter = null;
+		}
 
-				double angle = args.getOviewAngle();
-				CardinalDirection from = args.getOviewFrom();
+	}
 
-				AxisAlignedRectangleXZ bounds;
+	private static boolean isImageOutputMode(OutputMode outputMode) {
+		return outputMode == OutputMode.PNG || outputMode == OutputMode.PPM || outputMode == OutputMode.GD;
+	}
 
-				if (args.isOviewBoundingBox()) {
-					bounds = bbox(args.getOviewBoundingBox().stream()
-							.map(scene.getMapProjection()::toXZ)
-							.collect(toList()));
-				} else if (args.isOviewTiles()) {
-					bounds = OrthographicUtil.boundsForTiles(scene.getMapProjection(), args.getOviewTiles());
-				} else if (args.isTile()) {
-					bounds = OrthographicUtil.boundsForTile(scene.getMapProjection(), args.getTile());
-				} else {
-					bounds = scene.getBoundary();
-				}
+	/**
+	 * creates the outputs for all output files except images.
+	 * Called by the converter once the scene exists, so that the time spent on each output is logged.
+	 */
+	private static List<org.osm2world.output.Output> createOutputs(Scene scene, O2WConfig config,
+			CLIArgumentsGroup argumentsGroup) {
 
-				camera = OrthographicUtil.cameraForBounds(bounds, angle, from);
-				projection = OrthographicUtil.projectionForBounds(bounds, angle, from);
+		List<org.osm2world.output.Output> outputs = new ArrayList<>();
 
-			}
+		try {
 
-			/* perform the actual output */
+			for (CLIArguments args : argumentsGroup.getCLIArgumentsList()) {
 
-			boolean underground = config.getBoolean("renderUnderground", true);
+				for (File outputFile : args.getOutput()) {
 
-			for (File outputFile : args.getOutput()) {
+					OutputMode outputMode = CLIArgumentsUtil.getOutputMode(outputFile);
 
-				outputFile.getAbsoluteFile().getParentFile().mkdirs();
+					if (isImageOutputMode(outputMode)) continue;
 
-				OutputMode outputMode = CLIArgumentsUtil.getOutputMode(outputFile);
+					outputFile.getAbsoluteFile().getParentFile().mkdirs();
 
-				switch (outputMode) {
+					switch (outputMode) {
 
-					case OBJ: {
-						Integer primitiveThresholdOBJ = config.getInteger("primitiveThresholdOBJ", null);
-						var output = (primitiveThresholdOBJ == null)
-								? new ObjOutput(outputFile, scene.getMapProjection())
-								: new ObjMultiFileOutput(outputFile, scene.getMapProjection(), primitiveThresholdOBJ);
-						output.setConfiguration(config);
-						output.outputScene(scene);
-					}
-					break;
-
-					case GLTF, GLB, GLTF_GZ, GLB_GZ: {
-						AxisAlignedRectangleXZ bounds;
-						if (args.isTile()) {
-							bounds = OrthographicUtil.boundsForTile(scene.getMapProjection(), args.getTile());
-						} else {
-							bounds = scene.getBoundary();
+						case OBJ: {
+							Integer primitiveThresholdOBJ = config.getInteger("primitiveThresholdOBJ", null);
+							outputs.add((primitiveThresholdOBJ == null)
+									? new ObjOutput(outputFile, scene.getMapProjection())
+									: new ObjMultiFileOutput(outputFile, scene.getMapProjection(), primitiveThresholdOBJ));
 						}
-						GltfOutput.GltfFlavor gltfFlavor = EnumSet.of(OutputMode.GLB, OutputMode.GLB_GZ).contains(outputMode)
-								? GltfOutput.GltfFlavor.GLB : GltfOutput.GltfFlavor.GLTF;
-						Compression compression = EnumSet.of(OutputMode.GLTF_GZ, OutputMode.GLB_GZ).contains(outputMode)
-								? Compression.GZ : Compression.NONE;
-						GltfOutput output = new GltfOutput(outputFile, gltfFlavor, compression, bounds);
-						output.setConfiguration(config);
-						output.outputScene(scene);
-					}
-					break;
+						break;
 
-					case POV: {
-						POVRayOutput output = new POVRayOutput(outputFile, camera, projection);
-						output.setConfiguration(config);
-						output.outputScene(scene);
-					}
-					break;
-
-					case WEB_PBF, WEB_PBF_GZ: {
-						AxisAlignedRectangleXZ bbox;
-						if (args.isTile()) {
-							bbox = OrthographicUtil.boundsForTile(scene.getMapProjection(), args.getTile());
-						} else {
-							bbox = scene.getBoundary();
+						case GLTF, GLB, GLTF_GZ, GLB_GZ: {
+							AxisAlignedRectangleXZ bounds;
+							if (args.isTile()) {
+								bounds = OrthographicUtil.boundsForTile(scene.getMapProjection(), args.getTile());
+							} else {
+								bounds = scene.getBoundary();
+							}
+							GltfOutput.GltfFlavor gltfFlavor = EnumSet.of(OutputMode.GLB, OutputMode.GLB_GZ).contains(outputMode)
+									? GltfOutput.GltfFlavor.GLB : GltfOutput.GltfFlavor.GLTF;
+							Compression compression = EnumSet.of(OutputMode.GLTF_GZ, OutputMode.GLB_GZ).contains(outputMode)
+									? Compression.GZ : Compression.NONE;
+							outputs.add(new GltfOutput(outputFile, gltfFlavor, compression, bounds));
 						}
-						Compression compression = outputMode == OutputMode.WEB_PBF_GZ ? Compression.GZ : Compression.NONE;
-						FrontendPbfOutput output = new FrontendPbfOutput(outputFile, compression, bbox);
-						output.setConfiguration(config);
-						output.outputScene(scene);
-					}
-					break;
+						break;
 
-					case PNG:
-					case PPM:
-					case GD:
-						if (camera == null || projection == null) {
-							System.err.println("camera or projection missing");
+						case POV: {
+							View view = viewFor(args, scene);
+							outputs.add(new POVRayOutput(outputFile, view.camera(), view.projection()));
 						}
-						if (exporter == null) {
-							PerformanceParams performanceParams = determinePerformanceParams(config, argumentsGroup);
-							exporter = ImageExporter.create(config, scene.getBoundary(),
-									output -> output.outputScene(scene),
-									performanceParams.resolution(), performanceParams.unbufferedRendering());
+						break;
+
+						case WEB_PBF, WEB_PBF_GZ: {
+							AxisAlignedRectangleXZ bbox;
+							if (args.isTile()) {
+								bbox = OrthographicUtil.boundsForTile(scene.getMapProjection(), args.getTile());
+							} else {
+								bbox = scene.getBoundary();
+							}
+							Compression compression = outputMode == OutputMode.WEB_PBF_GZ ? Compression.GZ : Compression.NONE;
+							outputs.add(new FrontendPbfOutput(outputFile, compression, bbox));
 						}
-						Resolution resolution = CLIArgumentsUtil.getResolution(args);
-						ImageOutputFormat imageFormat = switch (outputMode) {
-							case PNG -> ImageOutputFormat.PNG;
-							case PPM -> ImageOutputFormat.PPM;
-							case GD -> ImageOutputFormat.GD;
-							default -> throw new IllegalStateException("Not an image format: " + outputMode);
-						};
-						exporter.writeImageFile(outputFile, imageFormat,
-								resolution.width, resolution.height,
-								camera, projection);
 						break;
 
+						default:
+							throw new IllegalStateException("Unsupported output mode: " + outputMode);
+
+					}
+
 				}
 
 			}
 
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
 
-		if (exporter != null) {
-			exporter.freeResources();
-			exporter = null;
+		return outputs;
+
+	}
+
+	/** camera and projection for an output, such as an image */
+	private record View(MutableCamera camera, Projection projection) {}
+
+	/** determines the camera and projection based on the arguments for an output */
+	private static View viewFor(CLIArguments args, Scene scene) {
+
+		if (args.isPviewPos()) {
+
+			/* perspective projection */
+
+			MapProjection proj = scene.getMapProjection();
+
+			LatLonEle pos = args.getPviewPos();
+			LatLonEle lookAt = args.getPviewLookat();
+
+			MutableCamera camera = new MutableCamera();
+			VectorXYZ posXYZ = proj.toXZ(pos.lat, pos.lon).xyz(pos.ele);
+			VectorXYZ lookAtXYZ = proj.toXZ(lookAt.lat, lookAt.lon).xyz(lookAt.ele);
+			camera.setCamera(posXYZ, lookAtXYZ);
+
+			Projection projection = new PerspectiveProjection(
+					args.isPviewAspect() ? args.getPviewAspect() :
+							args.isResolution() ? (double) args.getResolution().getAspectRatio()
+									: CLIArgumentsUtil.DEFAULT_ASPECT_RATIO,
+					args.getPviewFovy(),
+					1, 50000);
+
+			return new View(camera, projection);
+
+		} else {
+
+			/* orthographic projection */
+
+			double angle = args.getOviewAngle();
+			CardinalDirection from = args.getOviewFrom();
+
+			AxisAlignedRectangleXZ bounds;
+
+			if (args.isOviewBoundingBox()) {
+				bounds = bbox(args.getOviewBoundingBox().stream()
+						.map(scene.getMapProjection()::toXZ)
+						.collect(toList()));
+			} else if (args.isOviewTiles()) {
+				bounds = OrthographicUtil.boundsForTiles(scene.getMapProjection(), args.getOviewTiles());
+			} else if (args.isTile()) {
+				bounds = OrthographicUtil.boundsForTile(scene.getMapProjection(), args.getTile());
+			} else {
+				bounds = scene.getBoundary();
+			}
+
+			return new View(OrthographicUtil.cameraForBounds(bounds, angle, from),
+					OrthographicUtil.projectionForBounds(bounds, angle, from));
+
 		}
 
 	}
@@ -1,31 +1,73 @@
 package org.osm2world.console;
 
-import static java.util.Arrays.sort;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static java.time.Instant.now;
 import static org.osm2world.conversion.ConversionLog.LogLevel.FATAL;
 
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.io.Writer;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nullable;
 
 import org.osm2world.conversion.ConversionLog;
+import org.osm2world.conversion.O2WConfig;
+import org.osm2world.scene.mesh.LevelOfDetail;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.gson.Gson;
+import com.lexicalscope.jewel.cli.ArgumentValidationException;
+import com.lexicalscope.jewel.cli.CliFactory;
 
 /**
  * implementation of the mode triggered by {@link CLIArguments#isParameterFileDir()}.
  * OSM2World will read, process and delete parameter files from a directory.
  * Each of these files contains a set of command line parameters which define a conversion run.
+ *
+ * The directory is observed with a {@link WatchService}. Files are processed in the order of their names,
+ * so the names can be used to prioritize files. A file is only claimed once a worker is available to process it,
+ * which allows high-priority files added later to overtake files which have been waiting.
+ * New jobs are held back while the available heap memory is low.
+ * All jobs run in the same process, so configurations as well as resources derived from them
+ * (materials, models, fonts, SRTM tiles) are loaded once and reused.
+ * Up to one job per core runs at the same time, so each job uses a single thread regardless of its configuration.
  */
 public class ParamFileDirMode {
 
-	/** maximum number of enqueued parameter files. Making it larger means waiting longer for new, high-prio files. */
-	private static final int MAX_QUEUE_LENGTH = 2;
+	/** fraction of the maximum heap size which must be available before an additional job is started */
+	private static final double MIN_FREE_HEAP_FRACTION = 0.25;
+
+	/** how long to wait for changes to the directory before checking the state of running jobs again */
+	private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+	/** maximum number of configurations which are kept around for reuse */
+	private static final int MAX_CACHED_CONFIGS = 16;
+
+	private static final String METRICS_FILE_NAME = "osm2world_jobs.jsonl";
 
 	public static void run(File paramFileDir) {
+		run(paramFileDir, false, null, null);
+	}
+
+	/**
+	 * @param watch       whether to keep waiting for new files once the directory is empty
+	 * @param jobTimeout  maximum run time for a single parameter file, can be null for no limit.
+	 *                    When it is exceeded, the thread running the job is interrupted.
+	 *                    The conversion only checks for this between its phases,
+	 *                    so a job may run for up to one phase longer than the limit.
+	 * @param logDir      directory to write per-job metrics to, can be null
+	 */
+	public static void run(File paramFileDir, boolean watch, @Nullable Duration jobTimeout, @Nullable File logDir) {
 
 		if (!paramFileDir.isDirectory()) {
 			System.err.println("parameterFileDir must be a directory!");
@@ -33,63 +75,102 @@ public class ParamFileDirMode {
 		}
 
 		int numCores = Runtime.getRuntime().availableProcessors();
+
 		ExecutorService executor = Executors.newFixedThreadPool(numCores);
-		AtomicInteger queueLength = new AtomicInteger();
+		ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor();
+		Semaphore freeWorkers = new Semaphore(numCores);
 
-		boolean containsFiles = false;
+		Cache<ConfigKey, O2WConfig> configCache = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_CONFIGS).build();
+		OSM2World.ConfigLoader configLoader = (configFiles, lod) -> {
+			var key = new ConfigKey(configFiles, configFiles.stream().map(File::lastModified).toList(), lod);
+			return configCache.get(key, () -> OSM2World.loadConfig(configFiles, lod).withProperty("threadCount", 1));
+		};
 
-		do {
+		var metrics = new JobMetrics(logDir);
 
-			File[] files = paramFileDir.listFiles();
-			sort(files);
+		/* files which have been found, but not yet claimed, along with the time they were found */
+		PriorityQueue<File> pendingFiles = new PriorityQueue<>();
+		Map<File, Instant> discoveryTimes = new HashMap<>();
 
-			containsFiles = files.length > 0;
+		try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
 
-			if (containsFiles) {
+			Path dirPath = paramFileDir.toPath();
+			dirPath.register(watchService, ENTRY_CREATE);
 
-				while (queueLength.get() - numCores > MAX_QUEUE_LENGTH) {
-					try {
-						Thread.sleep(500);
-					} catch (InterruptedException e) {}
-				}
+			addFiles(paramFileDir.listFiles(), pendingFiles, discoveryTimes);
 
-				try {
+			while (true) {
 
-					// create an temporary file (only to get unique names, it's immediately overwritten)
-					Path tempFilePath = File.createTempFile("osm2world-", "-" + files[0].getName()).toPath();
+				/* wait for files, a free worker and sufficient memory */
 
-					// move the parameter file to the temporary location
-					Files.move(files[0].toPath(), tempFilePath, StandardCopyOption.REPLACE_EXISTING);
+				boolean canStartJob = !pendingFiles.isEmpty() && hasHeapHeadroom(freeWorkers, numCores)
+						&& freeWorkers.tryAcquire(POLL_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
 
-					queueLength.incrementAndGet();
+				if (!canStartJob) {
 
-					executor.submit(() -> {
+					if (pendingFiles.isEmpty() && !watch) break;
 
-						System.out.println(tempFilePath);
+					WatchKey key = watchService.poll(POLL_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+					if (key != null) {
+						handleEvents(key, dirPath, paramFileDir, pendingFiles, discoveryTimes);
+					}
 
-						try {
-							OSM2World.main(new String[]{"--parameterFile", tempFilePath.toString()});
-						} catch (Exception e) {
-							ConversionLog.log(FATAL, "Run failed for " + tempFilePath, e, null);
-						}
+					continue;
 
-						try {
-							Files.delete(tempFilePath);
-						} catch (IOException e) {
-							System.err.println("Warning: Could not delete temporary file " + tempFilePath);
-						}
+				}
+
+				/* pick up files which have been added in the meantime */
+
+				WatchKey key;
+				while ((key = watchService.poll()) != null) {
+					handleEvents(key, dirPath, paramFileDir, pendingFiles, discoveryTimes);
+				}
+
+				/* claim the file with the highest priority and submit a job for it */
 
-						queueLength.decrementAndGet();
+				File file = pendingFiles.poll();
+				Instant discoveryTime = discoveryTimes.remove(file);
 
-					});
+				@Nullable Path tempFilePath = null;
+				boolean claimed = false;
 
+				try {
+					// create a temporary file (only to get unique names, it's immediately overwritten)
+					tempFilePath = File.createTempFile("osm2world-", "-" + file.getName()).toPath();
+					// move the parameter file to the temporary location
+					Files.move(file.toPath(), tempFilePath, StandardCopyOption.REPLACE_EXISTING);
+					claimed = true;
+				} catch (NoSuchFileException e) {
+					// the file has been removed or claimed by another process
 				} catch (IOException e) {
-					System.err.println("IO issue encountered in parameter file directory mode, exiting.\n" + e);
+					// only this job fails, the service keeps watching the directory
+					System.err.println("Could not claim parameter file " + file + ": " + e);
+				} finally {
+					if (!claimed) {
+						freeWorkers.release();
+						deleteTempFile(tempFilePath);
+					}
 				}
 
+				if (!claimed) continue;
+
+				Path claimedFilePath = tempFilePath;
+
+				executor.execute(() -> {
+					try {
+						runJob(claimedFilePath, discoveryTime, jobTimeout, configLoader, watchdog, metrics);
+					} finally {
+						freeWorkers.release();
+					}
+				});
+
 			}
 
-		} while (containsFiles);
+		} catch (IOException e) {
+			System.err.println("IO issue encountered in parameter file directory mode, exiting.\n" + e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
 
 		executor.shutdown();
 
@@ -97,6 +178,198 @@ public class ParamFileDirMode {
 			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
 		} catch (InterruptedException e) {}
 
+		watchdog.shutdownNow();
+
+	}
+
+	/** deletes a temporary file that was created for claiming a parameter file which could not be claimed */
+	private static void deleteTempFile(@Nullable Path tempFilePath) {
+		if (tempFilePath != null) {
+			try {
+				Files.deleteIfExists(tempFilePath);
+			} catch (IOException e) {
+				System.err.println("Warning: Could not delete temporary file " + tempFilePath);
+			}
+		}
+	}
+
+	/**
+	 * runs the conversions for a claimed parameter file and deletes it afterward.
+	 * If the job exceeds the timeout, the thread running it is interrupted.
+	 * The conversion checks for this at the start of each {@link org.osm2world.conversion.ProgressListener.Phase}
+	 * and cannot be aborted within a phase. Jobs which complete despite the interruption count as successful.
+	 */
+	private static void runJob(Path paramFile, Instant discoveryTime, @Nullable Duration jobTimeout,
+			OSM2World.ConfigLoader configLoader, ScheduledExecutorService watchdog, JobMetrics metrics) {
+
+		System.out.println(paramFile);
+
+		Instant startTime = now();
+		JobStatus status = JobStatus.SUCCESS;
+
+		var timeoutGuard = new TimeoutGuard(Thread.currentThread());
+		ScheduledFuture<?> timeoutTask = (jobTimeout == null) ? null
+				: watchdog.schedule(timeoutGuard::timeOut, jobTimeout.toMillis(), TimeUnit.MILLISECONDS);
+
+		try {
+			CLIArguments args = CliFactory.parseArguments(CLIArguments.class, "--parameterFile", paramFile.toString());
+			OSM2World.execute(args, configLoader);
+		} catch (ArgumentValidationException | IOException | RuntimeException e) {
+			status = JobStatus.FAILURE;
+			ConversionLog.log(FATAL, "Run failed for " + paramFile, e, null);
+		} finally {
+			if (timeoutGuard.finish() && status != JobStatus.SUCCESS) {
+				status = JobStatus.TIMEOUT;
+				System.err.println("Run exceeded the time limit: " + paramFile);
+			}
+			if (timeoutTask != null) {
+				timeoutTask.cancel(false);
+			}
+		}
+
+		try {
+			Files.delete(paramFile);
+		} catch (IOException e) {
+			System.err.println("Warning: Could not delete temporary file " + paramFile);
+		}
+
+		metrics.write(paramFile.getFileName().toString(), discoveryTime, startTime, now(), status);
+
+	}
+
+	private static void handleEvents(WatchKey key, Path dirPath, File paramFileDir,
+			PriorityQueue<File> pendingFiles, Map<File, Instant> discoveryTimes) {
+
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == OVERFLOW) {
+				// events have been lost, look at the directory contents instead
+				addFiles(paramFileDir.listFiles(), pendingFiles, discoveryTimes);
+			} else if (event.context() instanceof Path fileName) {
+				addFiles(new File[] {dirPath.resolve(fileName).toFile()}, pendingFiles, discoveryTimes);
+			}
+		}
+
+		key.reset();
+
+	}
+
+	private static void addFiles(@Nullable File[] files, PriorityQueue<File> pendingFiles,
+			Map<File, Instant> discoveryTimes) {
+		if (files == null) return;
+		for (File file : files) {
+			if (file.isFile() && !discoveryTimes.containsKey(file)) {
+				pendingFiles.add(file);
+				discoveryTimes.put(file, now());
+			}
+		}
+	}
+
+	/**
+	 * checks whether there is enough free heap memory to start an additional job.
+	 * A job is always allowed if no other jobs are running.
+	 */
+	private static boolean hasHeapHeadroom(Semaphore freeWorkers, int numWorkers) {
+		if (freeWorkers.availablePermits() == numWorkers) {
+			return true;
+		} else {
+			Runtime runtime = Runtime.getRuntime();
+			long freeHeap = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+			return freeHeap >= MIN_FREE_HEAP_FRACTION * runtime.maxMemory();
+		}
+	}
+
+	/** identifies the configuration loaded from a set of files, changes to the files result in a different key */
+	private record ConfigKey(List<File> configFiles, List<Long> lastModified, @Nullable LevelOfDetail lod) {}
+
+	private enum JobStatus { SUCCESS, FAILURE, TIMEOUT }
+
+	/**
+	 * interrupts a job's thread when the time limit is exceeded, unless the job has finished before.
+	 * Whichever of {@link #timeOut()} and {@link #finish()} is called first decides the outcome.
+	 */
+	private static class TimeoutGuard {
+
+		private enum State { RUNNING, INTERRUPTING, TIMED_OUT, FINISHED }
+
+		private final Thread thread;
+		private final AtomicReference<State> state = new AtomicReference<>(State.RUNNING);
+
+		TimeoutGuard(Thread thread) {
+			this.thread = thread;
+		}
+
+		void timeOut() {
+			if (state.compareAndSet(State.RUNNING, State.INTERRUPTING)) {
+				thread.interrupt();
+				state.set(State.TIMED_OUT);
+			}
+		}
+
+		/**
+		 * marks the job as finished. If it has timed out, waits for the interruption
+		 * and clears the thread's interrupted status, so it does not affect the thread's next job.
+		 *
+		 * @return  whether the job has timed out
+		 */
+		boolean finish() {
+			if (state.compareAndSet(State.RUNNING, State.FINISHED)) {
+				return false;
+			} else {
+				while (state.get() == State.INTERRUPTING) {
+					Thread.onSpinWait();
+				}
+				Thread.interrupted();
+				return true;
+			}
+		}
+
+	}
+
+	/** writes one line of JSON with latency and throughput information for each finished job */
+	private static class JobMetrics {
+
+		private final @Nullable File metricsFile;
+		private final Instant startTime = now();
+		private final AtomicInteger finishedJobs = new AtomicInteger();
+
+		JobMetrics(@Nullable File logDir) {
+			if (logDir != null) {
+				logDir.mkdirs();
+				this.metricsFile = new File(logDir, METRICS_FILE_NAME);
+			} else {
+				this.metricsFile = null;
+			}
+		}
+
+		void write(String paramFileName, Instant discoveryTime, Instant jobStart, Instant jobEnd, JobStatus status) {
+
+			int jobCount = finishedJobs.incrementAndGet();
+
+			if (metricsFile == null) return;
+
+			double totalMinutes = Duration.between(startTime, jobEnd).toMillis() / 60000.0;
+
+			Map<String, Object> json = new LinkedHashMap<>();
+			json.put("parameterFile", paramFileName);
+			json.put("status", status);
+			json.put("endTime", jobEnd.toString());
+			json.put("waitTime", Duration.between(discoveryTime, jobStart).toMillis() / 1000.0);
+			json.put("runTime", Duration.between(jobStart, jobEnd).toMillis() / 1000.0);
+			json.put("latency", Duration.between(discoveryTime, jobEnd).toMillis() / 1000.0);
+			json.put("finishedJobs", jobCount);
+			json.put("jobsPerMinute", totalMinutes > 0 ? jobCount / totalMinutes : 0);
+
+			synchronized (this) {
+				try (Writer writer = new FileWriter(metricsFile, true)) {
+					writer.write(new Gson().toJson(json));
+					writer.write('\n');
+				} catch (IOException e) {
+					System.err.println("Warning: Could not write metrics to " + metricsFile);
+				}
+			}
+
+		}
+
 	}
 
 }
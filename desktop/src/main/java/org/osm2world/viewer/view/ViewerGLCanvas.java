@@ -7,6 +7,7 @@ import java.awt.*;
 import javax.swing.*;
 
 import org.osm2world.output.jogl.AbstractJOGLOutput;
+import org.osm2world.scene.Scene;
 import org.osm2world.viewer.model.Data;
 import org.osm2world.viewer.model.MessageManager;
 import org.osm2world.viewer.model.MessageManager.Message;
@@ -63,6 +64,16 @@ public class ViewerGLCanvas extends GLCanvas {
 
 		@Override
 		public void display(GLAutoDrawable glDrawable) {
+			/* materials are looked up during rendering, so the context of the displayed conversion is needed */
+			Scene scene = data.getConversionResults();
+			if (scene != null) {
+				scene.getContext().runWith(() -> render(glDrawable));
+			} else {
+				render(glDrawable);
+			}
+		}
+
+		private void render(GLAutoDrawable glDrawable) {
 
 	        final GL gl = glDrawable.getGL();
 